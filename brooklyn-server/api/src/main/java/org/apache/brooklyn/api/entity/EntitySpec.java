@@ -123,9 +123,9 @@ public class EntitySpec<T extends Entity> extends AbstractBrooklynObjectSpec<T,E
     protected EntitySpec<T> copyFrom(EntitySpec<T> otherSpec) {
         super.copyFrom(otherSpec)
                 .additionalInterfaces(otherSpec.getAdditionalInterfaces())
-                .policySpecs(otherSpec.getPolicySpecs())
+                .policySpecs(copyFromPolicySpecs(otherSpec.getPolicySpecs()))
                 .policies(otherSpec.getPolicies())
-                .enricherSpecs(otherSpec.getEnricherSpecs())
+                .enricherSpecs(copyFromEnricherSpecs(otherSpec.getEnricherSpecs()))
                 .enrichers(otherSpec.getEnrichers())
                 .addInitializers(otherSpec.getInitializers())
                 .children(copyFromSpecs(otherSpec.getChildren()))
@@ -149,6 +149,26 @@ public class EntitySpec<T extends Entity> extends AbstractBrooklynObjectSpec<T,E
         });
     }
 
+    private List<PolicySpec<?>> copyFromPolicySpecs(List<PolicySpec<?>> policySpecs) {
+        return Lists.<PolicySpec<?>,PolicySpec<?>>transform(policySpecs, new Function<PolicySpec<?>, PolicySpec<?>>() {
+            @Nullable
+            @Override
+            public PolicySpec<?> apply(@Nullable PolicySpec<?> policySpec) {
+                return PolicySpec.create(policySpec);
+            }
+        });
+    }
+
+    private List<EnricherSpec<?>> copyFromEnricherSpecs(List<EnricherSpec<?>> enricherSpecs) {
+        return Lists.<EnricherSpec<?>,EnricherSpec<?>>transform(enricherSpecs, new Function<EnricherSpec<?>, EnricherSpec<?>>() {
+            @Nullable
+            @Override
+            public EnricherSpec<?> apply(@Nullable EnricherSpec<?> enricherSpec) {
+                return EnricherSpec.create(enricherSpec);
+            }
+        });
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Class<T> getType() {
@@ -59,6 +59,15 @@ public class PolicySpec<T extends Policy> extends AbstractBrooklynObjectSpec<T,P
         return PolicySpec.create(type).configure(config);
     }
     
+    /**
+     * Copies the policy spec so its configuration can be overridden without modifying the
+     * original policy spec.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Policy> PolicySpec<T> create(PolicySpec<T> spec) {
+        return create((Class<T>)spec.getType()).copyFrom(spec);
+    }
+    
     protected PolicySpec(Class<T> type) {
         super(type);
     }
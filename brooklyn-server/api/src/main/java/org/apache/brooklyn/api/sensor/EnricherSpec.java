@@ -61,6 +61,14 @@ public class EnricherSpec<T extends Enricher> extends AbstractBrooklynObjectSpec
         return EnricherSpec.create(type).configure(config);
     }
     
+    /**
+     * Copies the enricher spec so its configuration can be overridden without modifying the
+     * original enricher spec.
+     */
+    public static <T extends Enricher> EnricherSpec<T> create(EnricherSpec<T> spec) {
+        return EnricherSpec.<T>create(spec.getType()).copyFrom(spec);
+    }
+    
     protected EnricherSpec(Class<? extends T> type) {
         super(type);
     }
@@ -36,8 +36,10 @@ import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
 import org.apache.brooklyn.util.core.task.DeferredSupplier;
+import org.apache.brooklyn.util.core.task.ImmediateSupplier;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,8 +66,11 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * use {@code synchronized} because that is not interruptible - if someone tries to get the value
  * and interrupts after a short wait, then we must release the lock immediately and return.
  * <p>
+ * Subclasses can override {@link #getImmediately()} to supply the value without a task
+ * when everything it depends on is already available; that is tried first, without the lock,
+ * so it must not block or have side effects.
  **/
-public abstract class BrooklynDslDeferredSupplier<T> implements DeferredSupplier<T>, TaskFactory<Task<T>>, Serializable {
+public abstract class BrooklynDslDeferredSupplier<T> implements ImmediateSupplier<T>, TaskFactory<Task<T>>, Serializable {
 
     private static final long serialVersionUID = -8789624905412198233L;
 
@@ -107,6 +112,11 @@ public abstract class BrooklynDslDeferredSupplier<T> implements DeferredSupplier
 
     @Override
     public final T get() {
+        Maybe<T> immediate = getImmediately();
+        if (immediate.isPresent()) {
+            return immediate.get();
+        }
+
         try {
             getLock().lockInterruptibly();
         } catch (InterruptedException e) {
@@ -149,6 +159,16 @@ public abstract class BrooklynDslDeferredSupplier<T> implements DeferredSupplier
         return lock;
     }
 
+    /**
+     * Returns the value if it can be computed now without blocking or submitting tasks
+     * (e.g. the referenced entity exists and the sensor is already set); absent otherwise.
+     * The default is always absent, so {@link #newTask()} is used.
+     */
+    @Override
+    public Maybe<T> getImmediately() {
+        return Maybe.absent();
+    }
+
     @Override
     public abstract Task<T> newTask();
 
@@ -22,6 +22,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.brooklyn.camp.brooklyn.spi.dsl.methods.BrooklynDslCommon;
 import org.apache.brooklyn.camp.brooklyn.spi.dsl.parse.DslParser;
@@ -38,6 +40,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * {@link PlanInterpreter} which understands the $brooklyn DSL
@@ -51,6 +56,10 @@ public class BrooklynDslInterpreter extends PlanInterpreterAdapter {
         return node.matchesPrefix("$brooklyn:") || node.getNewValue() instanceof FunctionWithArgs;
     }
 
+    /** parse trees of expressions seen before; these are not modified by evaluation so can be shared,
+     * saving re-parsing the same expressions in every entity of every deployment of a blueprint */
+    private static final Cache<String, Object> parsedExpressions = CacheBuilder.newBuilder().maximumSize(10000).build();
+
     private static ThreadLocal<PlanInterpretationNode> currentNode = new ThreadLocal<PlanInterpretationNode>();
     /** returns the current node, stored in a thread-local, to populate the dsl field of {@link BrooklynDslDeferredSupplier} instances */
     public static PlanInterpretationNode currentNode() {
@@ -70,7 +79,7 @@ public class BrooklynDslInterpreter extends PlanInterpreterAdapter {
 
         try {
             currentNode.set(node);
-            Object parsedNode = new DslParser(expression).parse();
+            Object parsedNode = parse(expression);
             if ((parsedNode instanceof FunctionWithArgs) && ((FunctionWithArgs)parsedNode).getArgs()==null) {
                 if (node.getRoleInParent() == Role.MAP_KEY) {
                     node.setNewValue(parsedNode);
@@ -90,6 +99,20 @@ public class BrooklynDslInterpreter extends PlanInterpreterAdapter {
         }
     }
     
+    /** returns the parse tree for the expression, as {@link DslParser#parse()}, parsing it only the first time */
+    protected static Object parse(final String expression) {
+        try {
+            return parsedExpressions.get(expression, new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return new DslParser(expression).parse();
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
     @Override
     public boolean applyMapEntry(PlanInterpretationNode node, Map<Object, Object> mapIn, Map<Object, Object> mapOut,
             PlanInterpretationNode key, PlanInterpretationNode value) {
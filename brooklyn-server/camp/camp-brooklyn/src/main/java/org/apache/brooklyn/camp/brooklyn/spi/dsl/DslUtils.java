@@ -18,7 +18,11 @@
  */
 package org.apache.brooklyn.camp.brooklyn.spi.dsl;
 
+import org.apache.brooklyn.api.mgmt.TaskAdaptable;
+import org.apache.brooklyn.api.mgmt.TaskFactory;
 import org.apache.brooklyn.util.core.task.DeferredSupplier;
+import org.apache.brooklyn.util.core.task.ImmediateSupplier;
+import org.apache.brooklyn.util.guava.Maybe;
 
 import com.google.common.collect.Iterables;
 
@@ -41,4 +45,23 @@ public class DslUtils {
         return allResolved;
     }
 
+    /** the values of the args if all are available now, i.e. are not deferred / tasks
+     * or are {@link ImmediateSupplier}s with a value; otherwise absent */
+    public static Maybe<Object[]> resolveImmediately(final Object... args) {
+        Object[] result = new Object[args.length];
+        for (int i=0; i<args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof ImmediateSupplier<?>) {
+                Maybe<?> value = ((ImmediateSupplier<?>)arg).getImmediately();
+                if (value.isAbsent()) return Maybe.absent();
+                result[i] = value.get();
+            } else if (arg instanceof DeferredSupplier<?> || arg instanceof TaskAdaptable<?> || arg instanceof TaskFactory<?>) {
+                return Maybe.absent();
+            } else {
+                result[i] = arg;
+            }
+        }
+        return Maybe.of(result);
+    }
+
 }
@@ -52,6 +52,7 @@ import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.task.DeferredSupplier;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.javalang.Reflections;
 import org.apache.brooklyn.util.text.StringEscapes.JavaStringEscapes;
 import org.apache.brooklyn.util.text.Strings;
@@ -230,6 +231,13 @@ public class BrooklynDslCommon {
             return DependentConfiguration.formatString(pattern, args);
         }
 
+        @Override
+        public Maybe<String> getImmediately() {
+            Maybe<Object[]> resolvedArgs = DslUtils.resolveImmediately(args);
+            if (resolvedArgs.isAbsent()) return Maybe.absent();
+            return Maybe.of(String.format(pattern, resolvedArgs.get()));
+        }
+
         @Override
         public String toString() {
             return "$brooklyn:formatString("+
@@ -257,6 +265,14 @@ public class BrooklynDslCommon {
             return DependentConfiguration.regexReplacement(source, pattern, replacement);
         }
 
+        @Override
+        public Maybe<String> getImmediately() {
+            Maybe<Object[]> resolvedArgs = DslUtils.resolveImmediately(source, pattern, replacement);
+            if (resolvedArgs.isAbsent()) return Maybe.absent();
+            Object[] vv = resolvedArgs.get();
+            return Maybe.of(new Functions.RegexReplacer(String.valueOf(vv[1]), String.valueOf(vv[2])).apply(String.valueOf(vv[0])));
+        }
+
         @Override
         public String toString() {
             return String.format("$brooklyn:regexReplace(%s:%s:%s)",source, pattern, replacement);
@@ -18,17 +18,23 @@
  */
 package org.apache.brooklyn.camp.brooklyn.spi.dsl.methods;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.camp.brooklyn.BrooklynCampConstants;
 import org.apache.brooklyn.camp.brooklyn.spi.dsl.BrooklynDslDeferredSupplier;
+import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.config.StructuredConfigKey;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.EntityPredicates;
@@ -36,8 +42,11 @@ import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.internal.EntityManagerInternal;
 import org.apache.brooklyn.core.sensor.DependentConfiguration;
 import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.util.core.task.DeferredSupplier;
 import org.apache.brooklyn.util.core.task.TaskBuilder;
 import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.groovy.GroovyJavaMethods;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.text.StringEscapes.JavaStringEscapes;
 
@@ -76,6 +85,11 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> {
         return TaskBuilder.<Entity>builder().displayName(toString()).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
             .body(new EntityInScopeFinder(scopeComponent, scope, componentId)).build();
     }
+
+    @Override
+    public Maybe<Entity> getImmediately() {
+        return new EntityInScopeFinder(scopeComponent, scope, componentId).findImmediately();
+    }
     
     protected static class EntityInScopeFinder implements Callable<Entity> {
         protected final DslComponent scopeComponent;
@@ -98,31 +112,47 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> {
         
         @Override
         public Entity call() throws Exception {
+            return find(getEntity());
+        }
+
+        /** as {@link #call()}, but absent (rather than blocking or throwing) if the entity cannot be found yet */
+        public Maybe<Entity> findImmediately() {
+            try {
+                Maybe<Entity> entity = (scopeComponent!=null) ? scopeComponent.getImmediately() : Maybe.<Entity>ofDisallowingNull(entity());
+                if (entity.isAbsent()) return entity;
+                return Maybe.ofDisallowingNull(find((EntityInternal)entity.get()));
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                return Maybe.absent(e);
+            }
+        }
+
+        protected Entity find(EntityInternal entity) {
             Iterable<Entity> entitiesToSearch = null;
             switch (scope) {
                 case THIS:
-                    return getEntity();
+                    return entity;
                 case PARENT:
-                    return getEntity().getParent();
+                    return entity.getParent();
                 case GLOBAL:
-                    entitiesToSearch = ((EntityManagerInternal)getEntity().getManagementContext().getEntityManager())
+                    entitiesToSearch = ((EntityManagerInternal)entity.getManagementContext().getEntityManager())
                         .getAllEntitiesInApplication( entity().getApplication() );
                     break;
                 case ROOT:
-                    return getEntity().getApplication();
+                    return entity.getApplication();
                 case SCOPE_ROOT:
-                    return Entities.catalogItemScopeRoot(getEntity());
+                    return Entities.catalogItemScopeRoot(entity);
                 case DESCENDANT:
-                    entitiesToSearch = Entities.descendants(getEntity());
+                    entitiesToSearch = Entities.descendants(entity);
                     break;
                 case ANCESTOR:
-                    entitiesToSearch = Entities.ancestors(getEntity());
+                    entitiesToSearch = Entities.ancestors(entity);
                     break;
                 case SIBLING:
-                    entitiesToSearch = getEntity().getParent().getChildren();
+                    entitiesToSearch = entity.getParent().getChildren();
                     break;
                 case CHILD:
-                    entitiesToSearch = getEntity().getChildren();
+                    entitiesToSearch = entity.getChildren();
                     break;
                 default:
                     throw new IllegalStateException("Unexpected scope "+scope);
@@ -135,7 +165,7 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> {
             
             // TODO may want to block and repeat on new entities joining?
             throw new NoSuchElementException("No entity matching id " + componentId+
-                (scope==Scope.GLOBAL ? "" : ", in scope "+scope+" wrt "+getEntity()+
+                (scope==Scope.GLOBAL ? "" : ", in scope "+scope+" wrt "+entity+
                 (scopeComponent!=null ? " ("+scopeComponent+" from "+entity()+")" : "")));
         }        
     }
@@ -200,11 +230,22 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> {
         @Override
         public Task<Object> newTask() {
             Entity targetEntity = component.get();
+            return (Task<Object>) DependentConfiguration.attributeWhenReady(targetEntity, getSensor(targetEntity));
+        }
+        @Override
+        public Maybe<Object> getImmediately() {
+            Maybe<Entity> targetEntity = component.getImmediately();
+            if (targetEntity.isAbsent()) return Maybe.absent();
+            // ready as per the default readiness of attributeWhenReady
+            Object value = targetEntity.get().getAttribute(getSensor(targetEntity.get()));
+            return GroovyJavaMethods.truth(value) ? Maybe.of(value) : Maybe.absent();
+        }
+        protected AttributeSensor<?> getSensor(Entity targetEntity) {
             Sensor<?> targetSensor = targetEntity.getEntityType().getSensor(sensorName);
             if (!(targetSensor instanceof AttributeSensor<?>)) {
                 targetSensor = Sensors.newSensor(Object.class, sensorName);
             }
-            return (Task<Object>) DependentConfiguration.attributeWhenReady(targetEntity, (AttributeSensor<?>)targetSensor);
+            return (AttributeSensor<?>)targetSensor;
         }
         @Override
         public String toString() {
@@ -237,6 +278,27 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> {
             }).build();
         }
 
+        /**
+         * Returns the value set on the target entity if it needs no resolution or coercion;
+         * anything else (inherited, default, deferred or structured values) is left to {@link #newTask()}.
+         */
+        @Override
+        public Maybe<Object> getImmediately() {
+            Maybe<Entity> targetEntity = component.getImmediately();
+            if (targetEntity.isAbsent()) return Maybe.absent();
+            ConfigKey<?> declaredKey = targetEntity.get().getEntityType().getConfigKey(keyName);
+            if (declaredKey instanceof StructuredConfigKey) return Maybe.absent();
+            Maybe<Object> raw = ((EntityInternal)targetEntity.get()).config().getLocalRaw(ConfigKeys.newConfigKey(Object.class, keyName));
+            if (raw.isAbsent()) return Maybe.absent();
+            Object value = raw.get();
+            if (value instanceof DeferredSupplier || value instanceof TaskAdaptable || value instanceof Future
+                    || value instanceof Map || value instanceof Collection) {
+                return Maybe.absent();
+            }
+            if (value!=null && declaredKey!=null && !declaredKey.getType().isInstance(value)) return Maybe.absent();
+            return Maybe.ofAllowingNull(value);
+        }
+
         @Override
         public String toString() {
             return (component.scope==Scope.THIS ? "" : component.toString()+".") + 
@@ -262,17 +324,27 @@ public class DslComponent extends BrooklynDslDeferredSupplier<Entity> {
             return Tasks.<Sensor<?>>builder().displayName("looking up sensor for "+sensorName).dynamic(false).body(new Callable<Sensor<?>>() {
                 @Override
                 public Sensor<?> call() throws Exception {
-                    Entity targetEntity = component.get();
-                    Sensor<?> result = null;
-                    if (targetEntity!=null) {
-                        result = targetEntity.getEntityType().getSensor(sensorName);
-                    }
-                    if (result!=null) return result;
-                    return Sensors.newSensor(Object.class, sensorName);
+                    return getSensor(component.get());
                 }
             }).build();
         }
 
+        @Override
+        public Maybe<Sensor<?>> getImmediately() {
+            Maybe<Entity> targetEntity = component.getImmediately();
+            if (targetEntity.isAbsent()) return Maybe.absent();
+            return Maybe.<Sensor<?>>of(getSensor(targetEntity.get()));
+        }
+
+        protected Sensor<?> getSensor(Entity targetEntity) {
+            Sensor<?> result = null;
+            if (targetEntity!=null) {
+                result = targetEntity.getEntityType().getSensor(sensorName);
+            }
+            if (result!=null) return result;
+            return Sensors.newSensor(Object.class, sensorName);
+        }
+
         @Override
         public String toString() {
             return (component.scope==Scope.THIS ? "" : component.toString()+".") + 
@@ -437,6 +437,32 @@ public class DslAndRebindYamlTest extends AbstractYamlTest {
         Assert.assertEquals(getConfigInTask(e2, TestEntity.CONF_NAME), "hello world");
     }
 
+    @Test
+    public void testDslResolvedImmediatelyWhenInputsAvailable() throws Exception {
+        Entity testEntity = setupAndCheckTestEntityInBasicYamlWith(
+                "  id: x",
+                "  brooklyn.config:",
+                "    foo: bar",
+                "    test.confName: $brooklyn:formatString(\"%s-%s\", $brooklyn:component(\"x\").attributeWhenReady(\"foo\"), $brooklyn:component(\"x\").config(\"foo\"))");
+        BrooklynDslDeferredSupplier<?> supplier = (BrooklynDslDeferredSupplier<?>) ((EntityInternal) testEntity).config().getLocalRaw(TestEntity.CONF_NAME).get();
+
+        // not available until the sensor is set
+        Assert.assertFalse(getImmediatelyInTask(testEntity, supplier).isPresent());
+
+        testEntity.sensors().set(Sensors.newStringSensor("foo"), "baz");
+        Assert.assertEquals(getImmediatelyInTask(testEntity, supplier).get(), "baz-bar");
+        Assert.assertEquals(getConfigInTask(testEntity, TestEntity.CONF_NAME), "baz-bar");
+    }
+
+    protected static Maybe<?> getImmediatelyInTask(Entity entity, final BrooklynDslDeferredSupplier<?> supplier) {
+        return Entities.submit(entity, Tasks.<Maybe<?>>builder().body(new Callable<Maybe<?>>() {
+            @Override
+            public Maybe<?> call() throws Exception {
+                return supplier.getImmediately();
+            }
+        }).build()).getUnchecked();
+    }
+
     private Entity entityWithFormatString() throws Exception {
         return setupAndCheckTestEntityInBasicYamlWith(
                 "  id: x",
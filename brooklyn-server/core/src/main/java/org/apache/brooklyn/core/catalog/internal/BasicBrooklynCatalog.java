@@ -43,6 +43,7 @@ import org.apache.brooklyn.core.catalog.internal.CatalogClasspathDo.CatalogScann
 import org.apache.brooklyn.core.location.BasicLocationRegistry;
 import org.apache.brooklyn.core.mgmt.internal.CampYamlParser;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.core.typereg.BrooklynTypePlanTransformer;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -62,9 +63,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.Yaml;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
@@ -138,6 +139,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         this.catalog = catalog;
         resetRootClassLoader();
         this.manualAdditionsCatalog = null;
+        onCatalogChanged();
 
         // Inject management context into and persist all the new entries.
         for (CatalogItem<?, ?> entry : getCatalogItems()) {
@@ -197,9 +199,8 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
 
     /** returns best version, as defined by {@link BrooklynCatalog#getCatalogItem(String, String)} */
     private String getBestVersion(String symbolicName) {
-        Iterable<CatalogItem<Object, Object>> versions = getCatalogItems(Predicates.and(
-                CatalogPredicates.disabled(false),
-                CatalogPredicates.symbolicName(Predicates.equalTo(symbolicName))));
+        Iterable<CatalogItem<Object, Object>> versions = Iterables.filter(getCatalogItemVersions(symbolicName), 
+                CatalogPredicates.<Object,Object>disabled(false));
         Collection<CatalogItem<Object, Object>> orderedVersions = sortVersionsDesc(versions);
         if (!orderedVersions.isEmpty()) {
             return orderedVersions.iterator().next().getVersion();
@@ -239,6 +240,11 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         
         // Ensure the cache is de-populated
         getCatalog().deleteEntry(itemDto);
+        if (mgmt.getTypeRegistry() instanceof BasicBrooklynTypeRegistry) {
+            // and that a local type of the same id does not outlive it
+            ((BasicBrooklynTypeRegistry)mgmt.getTypeRegistry()).removeFromLocalUnpersistedTypeRegistry(itemDto.getId());
+        }
+        onCatalogChanged();
 
         // And indicate to the management context that it should be removed.
         if (log.isTraceEnabled()) {
@@ -267,6 +273,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     @Override
     public void persist(CatalogItem<?, ?> catalogItem) {
         checkArgument(getCatalogItem(catalogItem.getSymbolicName(), catalogItem.getVersion()) != null, "Unknown catalog item %s", catalogItem);
+        onCatalogChanged();
         mgmt.getRebindManager().getChangeListener().onChanged(catalogItem);
     }
     
@@ -287,7 +294,9 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
      */
     public void load() {
         log.debug("Loading catalog for " + mgmt);
+        boolean wasLoaded = getCatalog().isLoaded();
         getCatalog().load(mgmt, null);
+        if (!wasLoaded) onCatalogChanged();
         if (log.isDebugEnabled()) {
             log.debug("Loaded catalog for " + mgmt + ": " + catalog + "; search classpath is " + catalog.getRootClassLoader());
         }
@@ -909,6 +918,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
 
         // Ensure the cache is populated and it is persisted by the management context
         getCatalog().addEntry(itemDto);
+        onCatalogChanged();
 
         // Request that the management context persist the item.
         if (log.isTraceEnabled()) {
@@ -950,6 +960,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         CatalogUtils.installLibraries(mgmt, item.getLibraries());
         if (manualAdditionsCatalog==null) loadManualAdditionsCatalog();
         manualAdditionsCatalog.addEntry(getAbstractCatalogItem(item));
+        onCatalogChanged();
     }
 
     @Override @Deprecated /** @deprecated see super */
@@ -959,7 +970,16 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         checkNotNull(type, "type");
         if (manualAdditionsCatalog==null) loadManualAdditionsCatalog();
         manualAdditionsClasses.addClass(type);
-        return manualAdditionsCatalog.classpath.addCatalogEntry(type);
+        CatalogItem<?,?> result = manualAdditionsCatalog.classpath.addCatalogEntry(type);
+        onCatalogChanged();
+        return result;
+    }
+
+    /** discards specs (and class lookups) cached from the previous catalog contents, as items they refer to may have changed */
+    private void onCatalogChanged() {
+        if (mgmt.getTypeRegistry() instanceof BasicBrooklynTypeRegistry) {
+            ((BasicBrooklynTypeRegistry)mgmt.getTypeRegistry()).invalidateSpecCache();
+        }
     }
 
     private synchronized void loadManualAdditionsCatalog() {
@@ -993,12 +1013,16 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     public <T,SpecT> Iterable<CatalogItem<T,SpecT>> getCatalogItems() {
+        loadIfNecessary();
+        return ImmutableList.copyOf((Iterable)catalog.getIdCache().values());
+    }
+    
+    private void loadIfNecessary() {
         if (!getCatalog().isLoaded()) {
             // some callers use this to force the catalog to load (maybe when starting as hot_backup without a catalog ?)
             log.debug("Forcing catalog load on access of catalog items");
             load();
         }
-        return ImmutableList.copyOf((Iterable)catalog.getIdCache().values());
     }
     
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -1008,6 +1032,60 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         return Iterables.transform(filtered, BasicBrooklynCatalog.<T,SpecT>itemDoToDto());
     }
 
+    /** 
+     * Returns all versions of the item with the given symbolic name (including disabled items), 
+     * looked up in an index rather than by filtering all items.
+     */
+    @Beta
+    public <T,SpecT> Iterable<CatalogItem<T,SpecT>> getCatalogItemVersions(String symbolicName) {
+        loadIfNecessary();
+        return itemDosToDtos(catalog.getIndex().getBySymbolicName(symbolicName));
+    }
+
+    /** 
+     * Returns all items of the given kind (including disabled items), looked up in an index rather than by filtering all items.
+     */
+    @Beta
+    public <T,SpecT> Iterable<CatalogItem<T,SpecT>> getCatalogItemsOfKind(CatalogItemType kind) {
+        loadIfNecessary();
+        return itemDosToDtos(catalog.getIndex().getByKind(kind));
+    }
+
+    /** 
+     * Returns all items declared as the given type, e.g. {@link org.apache.brooklyn.api.entity.Entity} (including disabled items), 
+     * looked up in an index rather than by filtering all items; sub-types of the given type are not included.
+     */
+    @Beta
+    public <T,SpecT> Iterable<CatalogItem<T,SpecT>> getCatalogItemsOfSuperType(Class<T> type) {
+        loadIfNecessary();
+        return itemDosToDtos(catalog.getIndex().getBySuperType(type));
+    }
+
+    /** 
+     * Returns all items with the given tag (including disabled items), looked up in an index rather than by filtering all items.
+     */
+    @Beta
+    public <T,SpecT> Iterable<CatalogItem<T,SpecT>> getCatalogItemsWithTag(Object tag) {
+        loadIfNecessary();
+        return itemDosToDtos(catalog.getIndex().getByTag(tag));
+    }
+
+    /** 
+     * Returns the items whose {@link CatalogItem#toXmlString() serialized form} might contain the given fragment, ignoring case,
+     * using an index so that most non-matching items need not be serialized. 
+     * The result can include items which do not match, so callers must still check it.
+     */
+    @Beta
+    public <T,SpecT> Iterable<CatalogItem<T,SpecT>> getCatalogItemsPossiblyContaining(String fragment) {
+        loadIfNecessary();
+        return itemDosToDtos(catalog.getIndex().search(fragment));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T,SpecT> Iterable<CatalogItem<T,SpecT>> itemDosToDtos(Iterable<CatalogItemDo<?,?>> items) {
+        return Iterables.transform((Iterable<CatalogItemDo<T,SpecT>>)(Iterable)items, BasicBrooklynCatalog.<T,SpecT>itemDoToDto());
+    }
+
     private static <T,SpecT> Function<CatalogItemDo<T,SpecT>, CatalogItem<T,SpecT>> itemDoToDto() {
         return new Function<CatalogItemDo<T,SpecT>, CatalogItem<T,SpecT>>() {
             @Override
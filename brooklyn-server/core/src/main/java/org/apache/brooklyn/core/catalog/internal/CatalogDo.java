@@ -51,6 +51,8 @@ public class CatalogDo {
     List<CatalogDo> childrenCatalogs = new ArrayList<CatalogDo>();
     CatalogClasspathDo classpath;
     private Map<String, CatalogItemDo<?,?>> cacheById;
+    /** derived from {@link #cacheById} and updated with it */
+    private volatile CatalogItemIndex index;
 
     AggregateClassLoader childrenClassLoader = AggregateClassLoader.newInstanceWithNoLoaders();
     ClassLoader recursiveClassLoader;
@@ -211,11 +213,27 @@ public class CatalogDo {
                 cache.put(entry.getId(), new CatalogItemDo(this, entry));
         }
         this.cacheById = cache;
+        this.index = null;
         return cache;
     }
     
+    /** returns indexes of the items in this catalog, so they can be found without iterating through the whole catalog */
+    protected CatalogItemIndex getIndex() {
+        CatalogItemIndex result = this.index;
+        if (result==null) result = buildIndex();
+        return result;
+    }
+    
+    protected synchronized CatalogItemIndex buildIndex() {
+        if (index != null) return index;
+        CatalogItemIndex result = new CatalogItemIndex(getIdCache().values());
+        this.index = result;
+        return result;
+    }
+    
     protected synchronized void clearCache(boolean deep) {
         this.cacheById = null;
+        this.index = null;
         if (deep) {
             for (CatalogDo child : childrenCatalogs) {
                 child.clearCache(true);
@@ -240,6 +258,7 @@ public class CatalogDo {
             @SuppressWarnings({ "unchecked", "rawtypes" })
             CatalogItemDo<?, ?> cdo = new CatalogItemDo(this, entry);
             cacheById.put(entry.getId(), cdo);
+            if (index != null) index.add(cdo);
         }        
         clearParentCache();
         
@@ -257,6 +276,7 @@ public class CatalogDo {
         // could do clearCache(false); but this is slightly more efficient...
         if (cacheById != null) {
             cacheById.remove(entry.getId());
+            if (index != null) index.remove(entry.getId());
         }
         clearParentCache();
         
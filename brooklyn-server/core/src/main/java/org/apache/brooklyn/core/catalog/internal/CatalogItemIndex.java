@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.catalog.CatalogItem.CatalogItemType;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * Indexes of the items in a {@link CatalogDo}, by symbolic name, by kind ({@link CatalogItemType}),
+ * by super-type ({@link CatalogItemDo#getCatalogItemJavaType()}) and by tag, so that lookups need not
+ * iterate through the whole catalog; and a trigram index of each item's serialized form,
+ * so that a text {@link #search(String) search} only has to serialize and check the items which could match.
+ * <p>
+ * Writes are made by the owning catalog while synchronized on it; the lists returned are immutable,
+ * replaced on write, so readers need not synchronize.
+ * Tags added to an item after it was put in the catalog are not seen until the item is re-added or the index rebuilt.
+ */
+class CatalogItemIndex {
+
+    /** fragments shorter than this cannot be looked up in the trigram index */
+    static final int SEARCH_GRAM_LENGTH = 3;
+
+    private final Map<String, CatalogItemDo<?,?>> byId = Maps.newConcurrentMap();
+    private final Map<String, List<CatalogItemDo<?,?>>> bySymbolicName = Maps.newConcurrentMap();
+    private final Map<CatalogItemType, List<CatalogItemDo<?,?>>> byKind = Maps.newConcurrentMap();
+    private final Map<Class<?>, List<CatalogItemDo<?,?>>> bySuperType = Maps.newConcurrentMap();
+    private final Map<Object, List<CatalogItemDo<?,?>>> byTag = Maps.newConcurrentMap();
+    /** ids of items by the (lower-cased) trigrams of their serialized form; built on first search, as serializing is expensive,
+     * and discarded on any change rather than updated, so that once published it is never modified */
+    private volatile Map<String, Set<String>> bySearchGram;
+    private volatile long modCount;
+
+    CatalogItemIndex(Collection<CatalogItemDo<?,?>> items) {
+        for (CatalogItemDo<?,?> item: items) {
+            add(item);
+        }
+    }
+
+    void add(CatalogItemDo<?,?> item) {
+        remove(item.getId());
+        byId.put(item.getId(), item);
+        addTo(bySymbolicName, item.getSymbolicName(), item);
+        addTo(byKind, item.getCatalogItemType(), item);
+        addTo(bySuperType, item.getCatalogItemJavaType(), item);
+        for (Object tag: item.tags().getTags()) {
+            addTo(byTag, tag, item);
+        }
+        bySearchGram = null;
+        modCount++;
+    }
+
+    void remove(String id) {
+        CatalogItemDo<?,?> item = byId.remove(id);
+        if (item==null) return;
+        removeFrom(bySymbolicName, item.getSymbolicName(), id);
+        removeFrom(byKind, item.getCatalogItemType(), id);
+        removeFrom(bySuperType, item.getCatalogItemJavaType(), id);
+        for (Object tag: item.tags().getTags()) {
+            removeFrom(byTag, tag, id);
+        }
+        bySearchGram = null;
+        modCount++;
+    }
+
+    /** all versions of the item with the given symbolic name */
+    Collection<CatalogItemDo<?,?>> getBySymbolicName(String symbolicName) {
+        return get(bySymbolicName, symbolicName);
+    }
+
+    Collection<CatalogItemDo<?,?>> getByKind(CatalogItemType kind) {
+        return get(byKind, kind);
+    }
+
+    /** items whose declared java type is the given type (not its sub-types) */
+    Collection<CatalogItemDo<?,?>> getBySuperType(Class<?> type) {
+        return get(bySuperType, type);
+    }
+
+    Collection<CatalogItemDo<?,?>> getByTag(Object tag) {
+        return get(byTag, tag);
+    }
+
+    /**
+     * Returns the items whose serialized form may contain the given fragment, ignoring case.
+     * This is a superset of the matches (every trigram of the fragment occurs in the item, but not necessarily together),
+     * so callers must still check each item; fragments too short to index return all items.
+     */
+    Collection<CatalogItemDo<?,?>> search(String fragment) {
+        String text = fragment.toLowerCase(Locale.ROOT);
+        if (text.length() < SEARCH_GRAM_LENGTH) return ImmutableList.copyOf(byId.values());
+        Map<String, Set<String>> grams = getSearchIndex();
+        Set<String> ids = null;
+        for (String gram: grams(text)) {
+            Set<String> idsWithGram = grams.get(gram);
+            if (idsWithGram==null) return Collections.emptyList();
+            if (ids==null) ids = MutableSet.copyOf(idsWithGram);
+            else ids.retainAll(idsWithGram);
+            if (ids.isEmpty()) return Collections.emptyList();
+        }
+        List<CatalogItemDo<?,?>> result = MutableList.of();
+        for (String id: ids) {
+            CatalogItemDo<?,?> item = byId.get(id);
+            if (item!=null) result.add(item);
+        }
+        return result;
+    }
+
+    private synchronized Map<String, Set<String>> getSearchIndex() {
+        Map<String, Set<String>> grams = bySearchGram;
+        if (grams!=null) return grams;
+        long modCountAtStart = modCount;
+        grams = MutableMap.of();
+        for (CatalogItemDo<?,?> item: byId.values()) {
+            addToSearchIndex(grams, item);
+        }
+        // not kept if the catalog changed while building, as it may have missed the change
+        if (modCount==modCountAtStart) bySearchGram = grams;
+        return grams;
+    }
+
+    private static void addToSearchIndex(Map<String, Set<String>> grams, CatalogItemDo<?,?> item) {
+        for (String gram: grams(item.toXmlString().toLowerCase(Locale.ROOT))) {
+            Set<String> ids = grams.get(gram);
+            if (ids==null) {
+                ids = MutableSet.of();
+                grams.put(gram, ids);
+            }
+            ids.add(item.getId());
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = MutableSet.of();
+        for (int i=0; i+SEARCH_GRAM_LENGTH<=text.length(); i++) {
+            result.add(text.substring(i, i+SEARCH_GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    private static <K> Collection<CatalogItemDo<?,?>> get(Map<K, List<CatalogItemDo<?,?>>> index, K key) {
+        if (key==null) return Collections.emptyList();
+        List<CatalogItemDo<?,?>> result = index.get(key);
+        return result!=null ? result : Collections.<CatalogItemDo<?,?>>emptyList();
+    }
+
+    private static <K> void addTo(Map<K, List<CatalogItemDo<?,?>>> index, K key, CatalogItemDo<?,?> item) {
+        if (key==null) return;
+        List<CatalogItemDo<?,?>> existing = index.get(key);
+        // copy on write, so readers need not synchronize
+        index.put(key, existing==null ? ImmutableList.<CatalogItemDo<?,?>>of(item) :
+            ImmutableList.<CatalogItemDo<?,?>>builder().addAll(existing).add(item).build());
+    }
+
+    private static <K> void removeFrom(Map<K, List<CatalogItemDo<?,?>>> index, K key, String id) {
+        if (key==null) return;
+        List<CatalogItemDo<?,?>> existing = index.get(key);
+        if (existing==null) return;
+        List<CatalogItemDo<?,?>> remaining = MutableList.of();
+        for (CatalogItemDo<?,?> item: existing) {
+            if (!item.getId().equals(id)) remaining.add(item);
+        }
+        if (remaining.isEmpty()) index.remove(key);
+        else index.put(key, ImmutableList.copyOf(remaining));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.effector.ssh;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.effector.Effector;
+import org.apache.brooklyn.api.effector.ParameterType;
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.Group;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.effector.AddEffector;
+import org.apache.brooklyn.core.effector.EffectorBody;
+import org.apache.brooklyn.core.effector.Effectors;
+import org.apache.brooklyn.core.effector.Effectors.EffectorBuilder;
+import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
+import org.apache.brooklyn.core.location.Machines;
+import org.apache.brooklyn.core.sensor.ssh.SshCommandSensor;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.task.ssh.SshFanOutResult;
+import org.apache.brooklyn.util.core.task.ssh.SshFanOutTaskFactory;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.text.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+
+/**
+ * Adds an effector which runs a command on the machines of all members of a {@link Group}
+ * (or all children, if the entity is not a group), using {@link SshFanOutTaskFactory}.
+ * The command is run once on each machine, even if several members are on it.
+ * <p>
+ * The effector fails if the command fails on any machine, and otherwise returns a summary of the outcome on each.
+ * For example, in YAML:
+ * <pre>
+ * brooklyn.initializers:
+ * - type: org.apache.brooklyn.core.effector.ssh.SshCommandMembersEffector
+ *   brooklyn.config:
+ *     name: pushConfig
+ *     command: "sudo service myapp reload"
+ *     maxConcurrency: 5
+ *     abortAfterFailures: 2
+ * </pre>
+ */
+public final class SshCommandMembersEffector extends AddEffector {
+
+    private static final Logger log = LoggerFactory.getLogger(SshCommandMembersEffector.class);
+
+    public static final ConfigKey<String> EFFECTOR_COMMAND = SshCommandEffector.EFFECTOR_COMMAND;
+    public static final ConfigKey<String> EFFECTOR_EXECUTION_DIR = SshCommandEffector.EFFECTOR_EXECUTION_DIR;
+    public static final ConfigKey<Integer> EFFECTOR_MAX_CONCURRENCY = ConfigKeys.newIntegerConfigKey("maxConcurrency",
+            "The most machines to run the command on at once", SshFanOutTaskFactory.DEFAULT_MAX_CONCURRENCY);
+    public static final ConfigKey<Integer> EFFECTOR_ABORT_AFTER_FAILURES = ConfigKeys.newIntegerConfigKey("abortAfterFailures",
+            "If set, machines not yet started are skipped once the command has failed on this many");
+
+    public SshCommandMembersEffector(ConfigBag params) {
+        super(newEffectorBuilder(params).build());
+    }
+
+    public SshCommandMembersEffector(Map<String,String> params) {
+        this(ConfigBag.newInstance(params));
+    }
+
+    public static EffectorBuilder<String> newEffectorBuilder(ConfigBag params) {
+        EffectorBuilder<String> eff = AddEffector.newEffectorBuilder(String.class, params);
+        eff.impl(new Body(eff.buildAbstract(), params));
+        return eff;
+    }
+
+    protected static class Body extends EffectorBody<String> {
+        private final Effector<?> effector;
+        private final String command;
+        private final String executionDir;
+        private final int maxConcurrency;
+        private final Integer abortAfterFailures;
+
+        public Body(Effector<?> eff, ConfigBag params) {
+            this.effector = eff;
+            this.command = Preconditions.checkNotNull(params.get(EFFECTOR_COMMAND), "command must be supplied when defining this effector");
+            this.executionDir = params.get(EFFECTOR_EXECUTION_DIR);
+            this.maxConcurrency = params.get(EFFECTOR_MAX_CONCURRENCY);
+            this.abortAfterFailures = params.get(EFFECTOR_ABORT_AFTER_FAILURES);
+        }
+
+        @Override
+        public String call(ConfigBag params) {
+            // relative execution dirs are taken wrt this entity's run dir, not each member's
+            String command = SshCommandSensor.makeCommandExecutingInDirectory(this.command, executionDir, entity());
+
+            // as for SshCommandEffector: declared parameters, then the entity's shell environment, then those passed
+            MutableMap<String, String> env = MutableMap.of();
+            for (ParameterType<?> param: effector.getParameters()) {
+                env.addIfNotNull(param.getName(), Strings.toString( params.get(Effectors.asConfigKey(param)) ));
+            }
+            env.putAll(Strings.toStringMap(entity().getConfig(BrooklynConfigKeys.SHELL_ENVIRONMENT), ""));
+            env.putAll(Strings.toStringMap(params.getAllConfig()));
+
+            // members sharing a machine run the command on it once
+            Set<SshMachineLocation> machines = MutableSet.of();
+            for (Entity target : getTargets()) {
+                Maybe<SshMachineLocation> machine = Machines.findUniqueMachineLocation(target.getLocations(), SshMachineLocation.class);
+                if (machine.isPresent()) {
+                    if (!machines.add(machine.get())) {
+                        log.debug("Effector {} on {}: {} shares machine {} with another member, so running there once", new Object[] {effector.getName(), entity(), target, machine.get()});
+                    }
+                } else {
+                    log.debug("Effector {} on {} skipping {}, which has no ssh machine", new Object[] {effector.getName(), entity(), target});
+                }
+            }
+
+            SshFanOutResult result = queue(new SshFanOutTaskFactory(machines, command)
+                    .summary("effector "+effector.getName())
+                    .environmentVariables(env)
+                    .maxConcurrency(maxConcurrency)
+                    .abortAfterFailures(abortAfterFailures)).getUnchecked();
+
+            String summary = result.getSummary()+"\n"+Joiner.on("\n").join(result.getResults());
+            if (!result.isAllSucceeded()) {
+                throw new IllegalStateException("Effector "+effector.getName()+" failed on "+entity()+": "+summary);
+            }
+            return summary;
+        }
+
+        protected Collection<Entity> getTargets() {
+            return (entity() instanceof Group) ? ((Group)entity()).getMembers() : entity().getChildren();
+        }
+    }
+}
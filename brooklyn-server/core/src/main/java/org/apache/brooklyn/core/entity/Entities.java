@@ -52,6 +52,7 @@ import org.apache.brooklyn.api.mgmt.EntityManager;
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
 import org.apache.brooklyn.api.mgmt.LocationManager;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.api.mgmt.TaskFactory;
@@ -60,6 +61,8 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.Feed;
 import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
 import org.apache.brooklyn.core.config.Sanitizer;
@@ -1139,18 +1142,26 @@ public class Entities {
             log.warn("Ignoring "+key+" set on "+entity+" ("+entity.getConfig(key)+")");
     }
 
-    /** Waits until {@link Startable#SERVICE_UP} returns true. */
+    /**
+     * Waits until {@link Startable#SERVICE_UP} returns true. The calling thread blocks until then (or the timeout),
+     * though it is woken as soon as the sensor changes rather than polling; use {@link #waitForServiceUpAsync(Entity, Duration)}
+     * to wait without holding a thread.
+     */
     public static void waitForServiceUp(final Entity entity, Duration timeout) {
         String description = "Waiting for SERVICE_UP on "+entity;
         Tasks.setBlockingDetails(description);
         try {
-            if (!Repeater.create(description).limitTimeTo(timeout)
-                    .rethrowException().backoffTo(Duration.ONE_SECOND)
-                    .until(new Callable<Boolean>() {
-                        public Boolean call() {
-                            return Boolean.TRUE.equals(entity.getAttribute(Startable.SERVICE_UP));
-                        }})
-                    .run()) {
+            boolean up;
+            ListenableFuture<Boolean> future = waitForServiceUpAsync(entity, timeout);
+            try {
+                up = future.get();
+            } catch (InterruptedException e) {
+                future.cancel(false);
+                throw Exceptions.propagate(e);
+            } catch (ExecutionException e) {
+                throw Exceptions.propagate(e.getCause());
+            }
+            if (!up) {
                 throw new IllegalStateException("Timeout waiting for SERVICE_UP from "+entity);
             }
         } finally {
@@ -1158,6 +1169,31 @@ public class Entities {
         }
         log.debug("Detected SERVICE_UP for software {}", entity);
     }
+
+    /**
+     * Returns a future which completes with true when the entity reports SERVICE_UP, or with false if that has not
+     * happened within the given timeout. No thread waits in the meantime: the check is re-run whenever SERVICE_UP
+     * changes, and also periodically (backing off to once a second) in case an event is missed.
+     */
+    @Beta
+    public static ListenableFuture<Boolean> waitForServiceUpAsync(final Entity entity, Duration timeout) {
+        final Repeater repeater = Repeater.create("Waiting for SERVICE_UP on "+entity).limitTimeTo(timeout)
+                .rethrowException().backoffTo(Duration.ONE_SECOND)
+                .until(new Callable<Boolean>() {
+                    public Boolean call() {
+                        return Boolean.TRUE.equals(entity.getAttribute(Startable.SERVICE_UP));
+                    }});
+        final SubscriptionHandle handle = entity.subscriptions().subscribe(entity, Startable.SERVICE_UP, new SensorEventListener<Boolean>() {
+                    @Override public void onEvent(SensorEvent<Boolean> event) {
+                        repeater.wakeUp();
+                    }});
+        ListenableFuture<Boolean> result = repeater.runAsync();
+        result.addListener(new Runnable() {
+                    @Override public void run() {
+                        entity.subscriptions().unsubscribe(entity, handle);
+                    }}, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
     public static void waitForServiceUp(final Entity entity, long duration, TimeUnit units) {
         waitForServiceUp(entity, Duration.of(duration, units));
     }
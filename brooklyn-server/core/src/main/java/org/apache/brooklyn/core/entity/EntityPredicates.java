@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.entity;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -29,7 +30,10 @@ import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
+import org.apache.brooklyn.core.mgmt.internal.EntityIndex;
+import org.apache.brooklyn.core.mgmt.internal.IndexedEntityPredicate;
 import org.apache.brooklyn.util.collections.CollectionFunctionals;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.guava.SerializablePredicate;
 import org.apache.brooklyn.util.javalang.Reflections;
 import org.apache.brooklyn.util.text.StringPredicates;
@@ -37,6 +41,7 @@ import org.apache.brooklyn.util.text.StringPredicates;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
 
 @SuppressWarnings("serial")
 public class EntityPredicates {
@@ -137,7 +142,7 @@ public class EntityPredicates {
     // ---------------------------
 
     public static Predicate<Entity> applicationIdEqualTo(final String val) {
-        return applicationIdSatisfies(Predicates.equalTo(val));
+        return new ApplicationIdEqualTo(val);
     }
 
     public static Predicate<Entity> applicationIdSatisfies(final Predicate<? super String> condition) {
@@ -159,6 +164,24 @@ public class EntityPredicates {
         }
     }
 
+    protected static class ApplicationIdEqualTo extends ApplicationIdSatisfies implements IndexedEntityPredicate {
+        protected final String applicationId;
+        protected ApplicationIdEqualTo(String applicationId) {
+            super(Predicates.equalTo(applicationId));
+            this.applicationId = applicationId;
+        }
+        @Override
+        public Maybe<Collection<Entity>> getCandidates(EntityIndex index) {
+            if (applicationId == null) return Maybe.absent();
+            return Maybe.of(index.getEntitiesInApplication(applicationId));
+        }
+        @Override
+        public Maybe<EntityIndex.Key> getIndexKey(EntityIndex index) {
+            if (applicationId == null) return Maybe.absent();
+            return Maybe.of(EntityIndex.Key.application(applicationId));
+        }
+    }
+
     /** @deprecated since 0.7.0 kept only to allow conversion of anonymous inner classes */
     @SuppressWarnings("unused") @Deprecated 
     private static Predicate<Entity> applicationIdEqualToOld(final String val) {
@@ -310,7 +333,7 @@ public class EntityPredicates {
 
     // if needed, could add parentSatisfies(...)
     
-    protected static class IsChildOf implements SerializablePredicate<Entity> {
+    protected static class IsChildOf implements SerializablePredicate<Entity>, IndexedEntityPredicate {
         protected final Entity parent;
         protected IsChildOf(Entity parent) {
             this.parent = parent;
@@ -320,6 +343,16 @@ public class EntityPredicates {
             return (input != null) && Objects.equal(input.getParent(), parent);
         }
         @Override
+        public Maybe<Collection<Entity>> getCandidates(EntityIndex index) {
+            if (parent == null) return Maybe.absent();
+            return Maybe.of(index.getManaged(parent.getChildren()));
+        }
+        @Override
+        public Maybe<EntityIndex.Key> getIndexKey(EntityIndex index) {
+            if (parent == null) return Maybe.absent();
+            return Maybe.of(EntityIndex.Key.parent(parent.getId()));
+        }
+        @Override
         public String toString() {
             return "isChildOf("+parent+")";
         }
@@ -342,7 +375,7 @@ public class EntityPredicates {
         return new IsMemberOf(group);
     }
 
-    protected static class IsMemberOf implements SerializablePredicate<Entity> {
+    protected static class IsMemberOf implements SerializablePredicate<Entity>, IndexedEntityPredicate {
         protected final Group group;
         protected IsMemberOf(Group group) {
             this.group = group;
@@ -352,6 +385,16 @@ public class EntityPredicates {
             return (group != null) && (input != null) && group.hasMember(input);
         }
         @Override
+        public Maybe<Collection<Entity>> getCandidates(EntityIndex index) {
+            if (group == null) return Maybe.<Collection<Entity>>of(ImmutableList.<Entity>of());
+            return Maybe.of(index.getManaged(group.getMembers()));
+        }
+        @Override
+        public Maybe<EntityIndex.Key> getIndexKey(EntityIndex index) {
+            if (group == null) return Maybe.absent();
+            return Maybe.of(EntityIndex.Key.group(group.getId()));
+        }
+        @Override
         public String toString() {
             return "isMemberOf("+group+")";
         }
@@ -417,6 +460,131 @@ public class EntityPredicates {
     
     // ---------------------------
 
+    /**
+     * As {@link Predicates#instanceOf(Class)}, but able to be answered from the {@link EntityIndex}
+     * (e.g. when used as a {@link org.apache.brooklyn.entity.group.DynamicGroup} filter).
+     */
+    public static Predicate<Entity> isInstanceOf(Class<?> type) {
+        return new IsInstanceOf(type);
+    }
+
+    protected static class IsInstanceOf implements SerializablePredicate<Entity>, IndexedEntityPredicate {
+        protected final Class<?> type;
+        protected IsInstanceOf(Class<?> type) {
+            this.type = type;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return type.isInstance(input);
+        }
+        @Override
+        public Maybe<Collection<Entity>> getCandidates(EntityIndex index) {
+            return Maybe.of(index.getEntitiesOfType(type));
+        }
+        @Override
+        public Maybe<EntityIndex.Key> getIndexKey(EntityIndex index) {
+            return Maybe.of(EntityIndex.Key.type(type));
+        }
+        @Override
+        public String toString() {
+            return "isInstanceOf("+type.getName()+")";
+        }
+    }
+
+    // ---------------------------
+
+    public static Predicate<Entity> hasTag(Object tag) {
+        return new HasTag(tag);
+    }
+
+    protected static class HasTag implements SerializablePredicate<Entity>, IndexedEntityPredicate {
+        protected final Object tag;
+        protected HasTag(Object tag) {
+            this.tag = tag;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return (input != null) && input.tags().containsTag(tag);
+        }
+        @Override
+        public Maybe<Collection<Entity>> getCandidates(EntityIndex index) {
+            if (tag == null) return Maybe.absent();
+            return Maybe.of(index.getEntitiesWithTag(tag));
+        }
+        @Override
+        public Maybe<EntityIndex.Key> getIndexKey(EntityIndex index) {
+            if (tag == null) return Maybe.absent();
+            return Maybe.of(EntityIndex.Key.tag(tag));
+        }
+        @Override
+        public String toString() {
+            return "hasTag("+tag+")";
+        }
+    }
+
+    // ---------------------------
+
+    /**
+     * As {@link Predicates#and(Iterable)}, but where any of the components is an {@link IndexedEntityPredicate}
+     * the result can also be answered from the {@link EntityIndex}, using the smallest set of candidates.
+     */
+    @SafeVarargs
+    public static Predicate<Entity> and(Predicate<? super Entity>... components) {
+        return new And(ImmutableList.copyOf(components));
+    }
+
+    protected static class And implements SerializablePredicate<Entity>, IndexedEntityPredicate {
+        protected final List<Predicate<? super Entity>> components;
+        protected And(List<Predicate<? super Entity>> components) {
+            this.components = components;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            for (Predicate<? super Entity> component : components) {
+                if (!component.apply(input)) return false;
+            }
+            return true;
+        }
+        @Override
+        public Maybe<Collection<Entity>> getCandidates(EntityIndex index) {
+            Maybe<Collection<Entity>> result = Maybe.absent();
+            for (Predicate<? super Entity> component : components) {
+                if (component instanceof IndexedEntityPredicate) {
+                    Maybe<Collection<Entity>> candidates = ((IndexedEntityPredicate)component).getCandidates(index);
+                    if (candidates.isPresent() && (result.isAbsent() || candidates.get().size() < result.get().size())) {
+                        result = candidates;
+                    }
+                }
+            }
+            return result;
+        }
+        /** uses the key of the component with the fewest candidates currently, as a good guess at the most selective */
+        @Override
+        public Maybe<EntityIndex.Key> getIndexKey(EntityIndex index) {
+            Maybe<EntityIndex.Key> result = Maybe.absent();
+            int resultSize = Integer.MAX_VALUE;
+            for (Predicate<? super Entity> component : components) {
+                if (component instanceof IndexedEntityPredicate) {
+                    Maybe<EntityIndex.Key> key = ((IndexedEntityPredicate)component).getIndexKey(index);
+                    if (key.isAbsent()) continue;
+                    Maybe<Collection<Entity>> candidates = ((IndexedEntityPredicate)component).getCandidates(index);
+                    int size = candidates.isPresent() ? candidates.get().size() : Integer.MAX_VALUE;
+                    if (result.isAbsent() || size < resultSize) {
+                        result = key;
+                        resultSize = size;
+                    }
+                }
+            }
+            return result;
+        }
+        @Override
+        public String toString() {
+            return "and("+components+")";
+        }
+    }
+
+    // ---------------------------
+
     public static <T> Predicate<Entity> isManaged() {
         return new IsManaged();
     }
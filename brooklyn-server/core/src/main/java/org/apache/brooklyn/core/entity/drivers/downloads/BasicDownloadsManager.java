@@ -30,6 +30,7 @@ import org.apache.brooklyn.api.entity.drivers.downloads.DownloadResolverManager;
 import org.apache.brooklyn.config.StringConfigMap;
 import org.apache.brooklyn.util.text.Strings;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -41,6 +42,8 @@ public class BasicDownloadsManager implements DownloadResolverManager {
 
     private final List<Function<? super DownloadRequirement, String>> filenameProducers = Lists.newCopyOnWriteArrayList();
 
+    private volatile DownloadCache cache;
+
     /**
      * The default is (in-order) to:
      * <ol>
@@ -70,6 +73,8 @@ public class BasicDownloadsManager implements DownloadResolverManager {
         result.registerFilenameProducer(FilenameProducers.firstPrimaryTargetOf(propertiesProducer));
         result.registerFilenameProducer(FilenameProducers.firstPrimaryTargetOf(attributeProducer));
         
+        result.setCache(new DownloadCache(config));
+        
         return result;
     }
     
@@ -77,6 +82,17 @@ public class BasicDownloadsManager implements DownloadResolverManager {
         return new BasicDownloadsManager();
     }
     
+    /** the management-server-side cache of downloaded artifacts, or null if there is none */
+    @Beta
+    public DownloadCache getCache() {
+        return cache;
+    }
+
+    @Beta
+    public void setCache(DownloadCache cache) {
+        this.cache = cache;
+    }
+
     @Override
     public void registerPrimaryProducer(Function<? super DownloadRequirement, ? extends DownloadTargets> producer) {
         producers.add(0, checkNotNull(producer, "resolver"));
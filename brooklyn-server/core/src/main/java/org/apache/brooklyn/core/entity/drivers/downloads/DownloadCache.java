@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity.drivers.downloads;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.entity.drivers.downloads.DownloadResolverManager;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.core.ResourceUtils;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.ssh.BashCommands;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * A cache of downloaded artifacts on the management server, so that many machines installing the same
+ * software do not each fetch it from the internet or a mirror.
+ * <p>
+ * Artifacts are fetched once (concurrent requests for the same URL wait for the one fetch),
+ * stored by the SHA-256 of their content, and copied to machines over ssh; the checksum is then verified on the machine
+ * (where {@code sha256sum} is available), and a mismatch invalidates the cached copy so it is fetched again.
+ * When the cache exceeds {@link #MAX_SIZE_BYTES} the least recently used artifacts are deleted,
+ * other than those {@link #retain(ResourceUtils, String) retained} by installs in progress.
+ * <p>
+ * Only remote (http, https and ftp) URLs are cached. The cache is disabled by default;
+ * set {@link #ENABLED} in brooklyn.properties to use it.
+ */
+@Beta
+public class DownloadCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownloadCache.class);
+
+    public static final ConfigKey<Boolean> ENABLED = ConfigKeys.newBooleanConfigKey(
+            DownloadProducerFromProperties.DOWNLOAD_CONF_PREFIX+"cache.enabled",
+            "Whether to download artifacts once to the management server and copy them to machines, rather than each machine downloading them",
+            false);
+
+    public static final ConfigKey<String> DIRECTORY = ConfigKeys.newStringConfigKey(
+            DownloadProducerFromProperties.DOWNLOAD_CONF_PREFIX+"cache.dir",
+            "Directory on the management server in which to cache downloaded artifacts",
+            "~/.brooklyn/download-cache");
+
+    public static final ConfigKey<Long> MAX_SIZE_BYTES = ConfigKeys.newLongConfigKey(
+            DownloadProducerFromProperties.DOWNLOAD_CONF_PREFIX+"cache.maxSizeBytes",
+            "Maximum total size of the cached artifacts, after which the least recently used are deleted",
+            10L*1024*1024*1024);
+
+    private static final String CONTENT_DIR = "sha256";
+    private static final String URL_INDEX_DIR = "urls";
+
+    private final StringConfigMap config;
+
+    /** locks for URLs being fetched, with the number of callers using each; removed when unused. Guarded by itself. */
+    private final Map<String, FetchLock> fetchLocks = Maps.newHashMap();
+
+    /** number of callers using each cached file, by checksum, which must not be evicted; guarded by this */
+    private final Map<String, Integer> retained = Maps.newHashMap();
+
+    /** checksums of cached files found to be bad but still in use, to be deleted when released */
+    private final Set<String> invalidated = Sets.newConcurrentHashSet();
+
+    private static class FetchLock {
+        int users;
+    }
+
+    public DownloadCache(StringConfigMap config) {
+        this.config = config;
+    }
+
+    /** returns the cache for the given management context, if it has one */
+    public static Maybe<DownloadCache> of(ManagementContext mgmt) {
+        DownloadResolverManager downloadsManager = mgmt.getEntityDownloadsManager();
+        if (downloadsManager instanceof BasicDownloadsManager) {
+            return Maybe.ofDisallowingNull(((BasicDownloadsManager)downloadsManager).getCache());
+        }
+        return Maybe.absent("No download cache available for "+mgmt);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getConfig(ENABLED));
+    }
+
+    /** true if the URL is one this cache would fetch (rather than being available locally already) */
+    public boolean isCacheable(String url) {
+        return url!=null && url.matches("(?i)(https?|ftp)://.*");
+    }
+
+    public File getDirectory() {
+        return new File(Os.tidyPath(config.getConfig(DIRECTORY)));
+    }
+
+    /**
+     * Returns the cached file for the given URL, fetching it (once) if not already cached.
+     * The file may be evicted at any time; use {@link #retain(ResourceUtils, String)} to prevent that while using it.
+     */
+    public File get(ResourceUtils resolver, String url) {
+        File result = retain(resolver, url);
+        release(result);
+        return result;
+    }
+
+    /**
+     * As {@link #get(ResourceUtils, String)}, but the file will not be evicted until {@link #release(File) released}.
+     */
+    public File retain(ResourceUtils resolver, String url) {
+        FetchLock lock;
+        synchronized (fetchLocks) {
+            lock = fetchLocks.get(url);
+            if (lock==null) {
+                lock = new FetchLock();
+                fetchLocks.put(url, lock);
+            }
+            lock.users++;
+        }
+        try {
+            synchronized (lock) {
+                synchronized (this) {
+                    Maybe<File> cached = getIfCached(url);
+                    if (cached.isPresent()) {
+                        cached.get().setLastModified(System.currentTimeMillis());
+                        retain(cached.get().getName());
+                        return cached.get();
+                    }
+                }
+                File result = fetch(resolver, url);
+                evictIfNecessary(result);
+                return result;
+            }
+        } finally {
+            synchronized (fetchLocks) {
+                if (--lock.users == 0) fetchLocks.remove(url);
+            }
+        }
+    }
+
+    /** releases a file {@link #retain(ResourceUtils, String) retained} from the cache, so that it can be evicted */
+    public synchronized void release(File content) {
+        String checksum = content.getName();
+        Integer count = retained.get(checksum);
+        if (count==null) {
+            LOG.warn("Release of "+content+" from download cache, which was not retained; ignoring");
+        } else if (count > 1) {
+            retained.put(checksum, count-1);
+        } else {
+            retained.remove(checksum);
+            if (invalidated.remove(checksum)) {
+                content.delete();
+                LOG.debug("Deleted invalidated {} from download cache", content);
+            }
+        }
+    }
+
+    /**
+     * Removes the cached file for the given URL (e.g. because its checksum did not match when copied), so that it is
+     * fetched again next time; the file is deleted once no longer {@link #retain(ResourceUtils, String) retained}.
+     */
+    public synchronized void invalidate(String url, File content) {
+        LOG.debug("Invalidating {} for {} in download cache", content, url);
+        getIndexFile(url).delete();
+        if (retained.containsKey(content.getName())) {
+            invalidated.add(content.getName());
+        } else {
+            content.delete();
+        }
+    }
+
+    /** number of URLs currently being fetched or waiting on a fetch */
+    @VisibleForTesting
+    int getFetchLockCount() {
+        synchronized (fetchLocks) {
+            return fetchLocks.size();
+        }
+    }
+
+    private void retain(String checksum) {
+        Integer count = retained.get(checksum);
+        retained.put(checksum, count==null ? 1 : count+1);
+    }
+
+    /** Returns the cached file for the given URL, if present. */
+    public Maybe<File> getIfCached(String url) {
+        File indexFile = getIndexFile(url);
+        if (!indexFile.exists()) return Maybe.absent("Not cached: "+url);
+        try {
+            String checksum = Files.toString(indexFile, Charsets.UTF_8).trim();
+            File content = getContentFile(checksum);
+            if (content.exists() && !invalidated.contains(checksum)) return Maybe.of(content);
+            return Maybe.absent("Evicted from cache: "+url);
+        } catch (IOException e) {
+            LOG.debug("Unable to read download cache index for "+url+" (will fetch again): "+e);
+            return Maybe.absent(e);
+        }
+    }
+
+    /**
+     * Copies the artifact at the given URL to the machine, fetching it to the cache if necessary,
+     * and verifies its checksum on the machine.
+     *
+     * @return 0 on success, as for {@link SshMachineLocation#installTo(ResourceUtils, java.util.Map, String, String)}
+     */
+    public int install(ResourceUtils resolver, SshMachineLocation machine, String url, String destPath) {
+        File file;
+        try {
+            Tasks.setBlockingDetails("Retrieving "+url+" to download cache");
+            file = retain(resolver, url);
+        } finally {
+            Tasks.resetBlockingDetails();
+        }
+        try {
+            return install(url, file, machine, destPath);
+        } finally {
+            release(file);
+        }
+    }
+
+    private int install(String url, File file, SshMachineLocation machine, String destPath) {
+        String checksum = file.getName();
+        String quotedDestPath = BashStringEscapes.wrapBash(destPath);
+
+        int result = machine.execCommands("preparing to copy "+url,
+                ImmutableList.of("mkdir -p \"$(dirname "+quotedDestPath+")\""));
+        if (result != 0) return result;
+        try {
+            Tasks.setBlockingDetails("Copying "+url+" from download cache to "+machine);
+            result = machine.copyTo(file, destPath);
+        } finally {
+            Tasks.resetBlockingDetails();
+        }
+        if (result != 0) return result;
+
+        // fail only if sha256sum is available and reports a different checksum
+        result = machine.execCommands("verifying checksum of "+url, ImmutableList.of(
+                BashCommands.alternatives(
+                        "[ \"$(sha256sum "+quotedDestPath+" | cut -d ' ' -f 1)\" = \""+checksum+"\" ]",
+                        "! which sha256sum")));
+        if (result != 0) {
+            LOG.warn("Checksum mismatch copying "+url+" from download cache to "+destPath+" on "+machine+" (expected "+checksum+"); "
+                    + "removing it from the cache");
+            invalidate(url, file);
+        }
+        return result;
+    }
+
+    protected File fetch(ResourceUtils resolver, String url) {
+        File dir = getDirectory();
+        File contentDir = new File(dir, CONTENT_DIR);
+        contentDir.mkdirs();
+        File tmp = new File(contentDir, ".tmp-"+Identifiers.makeRandomId(8));
+        InputStream in = null;
+        try {
+            LOG.debug("Fetching {} to download cache {}", url, dir);
+            in = resolver.getResourceFromUrl(url);
+            Files.asByteSink(tmp).writeFrom(in);
+            String checksum = Files.hash(tmp, Hashing.sha256()).toString();
+            File content = getContentFile(checksum);
+            synchronized (this) {
+                // retain before it is visible, so it cannot be evicted before the caller uses it
+                if (content.exists() && !invalidated.contains(checksum)) {
+                    // same content already cached from another URL
+                    tmp.delete();
+                    content.setLastModified(System.currentTimeMillis());
+                } else if (tmp.renameTo(content)) {
+                    // replaces any invalidated copy; callers still using that keep their open file
+                    invalidated.remove(checksum);
+                } else {
+                    throw new IOException("Unable to move "+tmp+" to "+content);
+                }
+                File indexFile = getIndexFile(url);
+                indexFile.getParentFile().mkdirs();
+                Files.write(checksum, indexFile, Charsets.UTF_8);
+                retain(checksum);
+            }
+            return content;
+        } catch (Exception e) {
+            tmp.delete();
+            throw Exceptions.propagate(e);
+        } finally {
+            Streams.closeQuietly(in);
+        }
+    }
+
+    /**
+     * deletes the least recently used artifacts (other than the given one, and any {@link #retain(ResourceUtils, String) retained})
+     * until the cache is within its maximum size
+     */
+    protected synchronized void evictIfNecessary(File keep) {
+        Long maxSize = config.getConfig(MAX_SIZE_BYTES);
+        if (maxSize==null) return;
+        File[] files = new File(getDirectory(), CONTENT_DIR).listFiles();
+        if (files==null) return;
+        long size = 0;
+        for (File f : files) size += f.length();
+        if (size <= maxSize) return;
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (File f : files) {
+            if (size <= maxSize) break;
+            if (f.equals(keep) || f.getName().startsWith(".tmp-") || retained.containsKey(f.getName())) continue;
+            long length = f.length();
+            if (f.delete()) {
+                LOG.debug("Evicted {} from download cache", f);
+                size -= length;
+            }
+        }
+    }
+
+    private File getContentFile(String checksum) {
+        return new File(new File(getDirectory(), CONTENT_DIR), checksum);
+    }
+
+    private File getIndexFile(String url) {
+        return new File(new File(getDirectory(), URL_INDEX_DIR), Hashing.sha256().hashString(url, Charsets.UTF_8).toString());
+    }
+
+}
@@ -23,6 +23,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -47,7 +49,6 @@ import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityAdjuncts;
 import org.apache.brooklyn.core.entity.EntityInternal;
-import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle.Transition;
 import org.apache.brooklyn.enricher.stock.AbstractMultipleSensorAggregator;
 import org.apache.brooklyn.enricher.stock.Enrichers;
@@ -57,22 +58,27 @@ import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.QuorumCheck;
+import org.apache.brooklyn.util.core.task.CoalescingScheduler;
 import org.apache.brooklyn.util.core.task.ValueResolver;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.guava.Maybe;
-import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /** Logic, sensors and enrichers, and conveniences, for computing service status */ 
 public class ServiceStateLogic {
@@ -87,6 +93,18 @@ public class ServiceStateLogic {
     public static final AttributeSensor<Lifecycle.Transition> SERVICE_STATE_EXPECTED = Attributes.SERVICE_STATE_EXPECTED;
     public static final AttributeSensor<Map<String,Object>> SERVICE_PROBLEMS = Attributes.SERVICE_PROBLEMS;
 
+    /**
+     * Management-wide default (e.g. set in brooklyn.properties) for the period over which changes are coalesced
+     * by the {@link ComputeServiceState} and {@link ComputeServiceIndicatorsFromChildrenAndMembers} enrichers,
+     * used where the enricher does not configure its own; by default state is recomputed synchronously on every change.
+     * <p>
+     * With coalescing each entity recomputes at most once per period, so a change deep in a hierarchy
+     * propagates upwards at most one level per period rather than as a cascade of events at every level.
+     */
+    public static final ConfigKey<Duration> DEFAULT_COALESCE_PERIOD = ConfigKeys.newConfigKey(Duration.class, 
+        "brooklyn.serviceState.coalescePeriod",
+        "Default period over which service state changes are coalesced before recomputing; null (default) means recompute on every change");
+
     /** static only; not for instantiation */
     private ServiceStateLogic() {}
 
@@ -154,13 +172,19 @@ public class ServiceStateLogic {
         if (state==Lifecycle.RUNNING) {
             Boolean up = ((EntityInternal)entity).getAttribute(Attributes.SERVICE_UP);
             if (!Boolean.TRUE.equals(up) && !Boolean.TRUE.equals(Entities.isReadOnly(entity))) {
-                // pause briefly to allow any recent problem-clearing processing to complete
+                // pause briefly to allow any recent problem-clearing processing to complete;
+                // woken by the change to SERVICE_UP, rather than polling for it
                 Stopwatch timer = Stopwatch.createStarted();
-                boolean nowUp = Repeater.create()
-                        .every(ValueResolver.REAL_QUICK_PERIOD)
-                        .limitTimeTo(ValueResolver.PRETTY_QUICK_WAIT)
-                        .until(entity, EntityPredicates.attributeEqualTo(Attributes.SERVICE_UP, true))
-                        .run();
+                ListenableFuture<Boolean> upFuture = Entities.waitForServiceUpAsync(entity, ValueResolver.PRETTY_QUICK_WAIT);
+                boolean nowUp;
+                try {
+                    nowUp = upFuture.get();
+                } catch (InterruptedException e) {
+                    upFuture.cancel(false);
+                    throw Exceptions.propagate(e);
+                } catch (ExecutionException e) {
+                    throw Exceptions.propagate(e.getCause());
+                }
                 if (nowUp) {
                     log.debug("Had to wait "+Duration.of(timer)+" for "+entity+" "+Attributes.SERVICE_UP+" to be true before setting "+state);
                 } else {
@@ -248,6 +272,30 @@ public class ServiceStateLogic {
         
         public static final String DEFAULT_ENRICHER_UNIQUE_TAG = "service.state.actual";
 
+        public static final ConfigKey<Duration> COALESCE_PERIOD = ConfigKeys.newConfigKey(Duration.class, "enricher.service_state.coalescePeriod",
+            "If set, changes to the inputs mark the state as dirty and it is recomputed at most once per this period "
+            + "(zero means changes arriving before the next computation runs are coalesced); "
+            + "defaults to "+DEFAULT_COALESCE_PERIOD.getName()+" from the management context, or otherwise recomputes synchronously on every change");
+
+        private final AtomicLong computeCount = new AtomicLong();
+        private final CoalescingScheduler recomputeScheduler = new CoalescingScheduler("Recompute service state", new Runnable() {
+            @Override public void run() {
+                try {
+                    if (!isRunning() || Entities.isNoLongerManaged(entity)) return;
+                    computeNow();
+                } catch (Exception e) {
+                    if (isRunning()) {
+                        log.error("Error in enricher "+ComputeServiceState.this+": "+e, e);
+                    } else {
+                        if (log.isDebugEnabled()) log.debug("Error in enricher "+ComputeServiceState.this+" (but no longer running): "+e, e);
+                    }
+                } catch (Throwable t) {
+                    log.error("Error in enricher "+ComputeServiceState.this+": "+t, t);
+                    throw Exceptions.propagate(t);
+                }
+            }
+        });
+
         public ComputeServiceState() {}
         public ComputeServiceState(Map<?,?> flags) { super(flags); }
             
@@ -271,10 +319,42 @@ public class ServiceStateLogic {
             onEvent(null);
         }
 
+        /**
+         * Recomputes the actual state; if invoked with a null event (i.e. directly rather than from a subscription)
+         * this is always done synchronously, otherwise it may be coalesced, as per {@link #COALESCE_PERIOD}.
+         */
         @Override
         public void onEvent(@Nullable SensorEvent<Object> event) {
             Preconditions.checkNotNull(entity, "Cannot handle subscriptions or compute state until associated with an entity");
             
+            Duration coalescePeriod = getCoalescePeriod();
+            if (event==null || coalescePeriod==null || !isRunning()) {
+                computeNow();
+            } else {
+                recomputeAfterDelay(coalescePeriod);
+            }
+        }
+
+        protected Duration getCoalescePeriod() {
+            Duration result = getConfig(COALESCE_PERIOD);
+            if (result!=null) return result;
+            return ((EntityInternal)entity).getManagementContext().getConfig().getConfig(DEFAULT_COALESCE_PERIOD);
+        }
+
+        protected void recomputeAfterDelay(Duration coalescePeriod) {
+            if (log.isTraceEnabled()) log.trace("{} scheduling recompute of service state, coalescing over {}", this, coalescePeriod);
+            recomputeScheduler.trigger(((EntityInternal)entity).getExecutionContext(), coalescePeriod);
+        }
+
+        /** the scheduler used for coalesced recomputes, see {@link #COALESCE_PERIOD} */
+        @Beta @VisibleForTesting
+        public CoalescingScheduler getRecomputeScheduler() {
+            return recomputeScheduler;
+        }
+
+        protected void computeNow() {
+            computeCount.incrementAndGet();
+            
             Map<String, Object> serviceProblems = entity.getAttribute(SERVICE_PROBLEMS);
             Boolean serviceUp = entity.getAttribute(SERVICE_UP);
             Lifecycle.Transition serviceExpected = entity.getAttribute(SERVICE_STATE_EXPECTED);
@@ -336,6 +416,15 @@ public class ServiceStateLogic {
             emit(SERVICE_STATE_ACTUAL, (state==null ? Entities.REMOVE : state));
         }
 
+        /** number of times the state has been computed (since this enricher was created), for diagnosing cascades of service state changes */
+        public long getComputeCount() {
+            return computeCount.get();
+        }
+
+        /** number of changes which were absorbed into an already-pending computation (since this enricher was created), see {@link #COALESCE_PERIOD} */
+        public long getCoalescedCount() {
+            return recomputeScheduler.getCoalescedCount();
+        }
     }
     
     public static final EnricherSpec<?> newEnricherForServiceStateFromProblemsAndUp() {
@@ -403,6 +492,8 @@ public class ServiceStateLogic {
             "Service states (including null) which indicate an entity should be ignored when looking at children service states; anything apart from RUNNING not in this list will be treated as not healthy (by default just ON_FIRE will mean not healthy)", 
             MutableSet.<Lifecycle>builder().addAll(Lifecycle.values()).add(null).remove(Lifecycle.RUNNING).remove(Lifecycle.ON_FIRE).build().asUnmodifiable());
 
+        private final AtomicLong computeCount = new AtomicLong();
+
         protected String getKeyForMapSensor() {
             return Preconditions.checkNotNull(super.getUniqueTag());
         }
@@ -418,6 +509,9 @@ public class ServiceStateLogic {
                 else throw new IllegalStateException("Cannot monitor only members for non-group entity "+entity+": "+this);
             }
             Preconditions.checkNotNull(getKeyForMapSensor());
+            if (coalescePeriod==null) {
+                coalescePeriod = ((EntityInternal)entity).getManagementContext().getConfig().getConfig(DEFAULT_COALESCE_PERIOD);
+            }
         }
 
         @Override
@@ -462,6 +556,12 @@ public class ServiceStateLogic {
             return SOURCE_SENSORS;
         }
 
+        @Override
+        protected boolean isIndexingValues() {
+            // computeServiceNotUp and computeServiceProblems look up by value on every update
+            return true;
+        }
+
         @Override
         protected void onUpdated() {
             if (entity==null || !Entities.isManaged(entity)) {
@@ -471,6 +571,7 @@ public class ServiceStateLogic {
                 return;
             }
 
+            computeCount.incrementAndGet();
             // override superclass to publish multiple sensors
             if (getConfig(DERIVE_SERVICE_PROBLEMS)) {
                 updateMapSensor(SERVICE_PROBLEMS, computeServiceProblems());
@@ -481,22 +582,37 @@ public class ServiceStateLogic {
             }
         }
 
+        /** number of times the indicators have been computed (since this enricher was created), for diagnosing cascades of service state changes */
+        public long getComputeCount() {
+            return computeCount.get();
+        }
+
+        /** number of changes which were absorbed into an already-pending computation (since this enricher was created), see {@link #COALESCE_PERIOD} */
+        public long getCoalescedCount() {
+            return getUpdateScheduler().getCoalescedCount();
+        }
+
         protected Object computeServiceNotUp() {
-            Map<Entity, Boolean> values = getValues(SERVICE_UP);
-            List<Entity> violators = MutableList.of();
-            boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
+            // use the counts maintained by the superclass, so that cost is proportional to the number of entities not up,
+            // rather than to the number of children/members
+            Map<Boolean, Integer> counts = getValueCounts(SERVICE_UP);
+            final boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
             Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            int entries=0;
-            int numUp=0;
-            for (Map.Entry<Entity, Boolean> state: values.entrySet()) {
-                if (ignoreNull && state.getValue()==null)
-                    continue;
-                entries++;
-                Lifecycle entityState = state.getKey().getAttribute(SERVICE_STATE_ACTUAL);
-                
-                if (Boolean.TRUE.equals(state.getValue())) numUp++;
-                else if (!ignoreStates.contains(entityState)) {
-                    violators.add(state.getKey());
+            int total=0;
+            for (Integer count: counts.values()) total += count;
+            int numUp = Maybe.fromNullable(counts.get(Boolean.TRUE)).or(0);
+            int entries = ignoreNull ? total - Maybe.fromNullable(counts.get(null)).or(0) : total;
+            
+            List<Entity> violators = MutableList.of();
+            List<Entity> notUp = getEntitiesWithValue(SERVICE_UP, new Predicate<Boolean>() {
+                @Override public boolean apply(Boolean input) {
+                    return !Boolean.TRUE.equals(input) && !(ignoreNull && input==null);
+                }
+            });
+            for (Entity notUpEntity: notUp) {
+                Lifecycle entityState = notUpEntity.getAttribute(SERVICE_STATE_ACTUAL);
+                if (!ignoreStates.contains(entityState)) {
+                    violators.add(notUpEntity);
                 }
             }
 
@@ -506,7 +622,7 @@ public class ServiceStateLogic {
                     // quorate
                     return null;
 
-                if (values.isEmpty()) return "No entities present";
+                if (total==0) return "No entities present";
                 if (entries==0) return "No entities publishing service up";
                 if (violators.isEmpty()) return "Not enough entities";
             } else {
@@ -520,15 +636,14 @@ public class ServiceStateLogic {
         }
 
         protected Object computeServiceProblems() {
-            Map<Entity, Lifecycle> values = getValues(SERVICE_STATE_ACTUAL);
-            int numRunning=0;
-            List<Entity> onesNotHealthy=MutableList.of();
-            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            for (Map.Entry<Entity,Lifecycle> state: values.entrySet()) {
-                if (state.getValue()==Lifecycle.RUNNING) numRunning++;
-                else if (!ignoreStates.contains(state.getValue())) 
-                    onesNotHealthy.add(state.getKey());
-            }
+            // as in computeServiceNotUp, cost is proportional to the number of unhealthy entities
+            final Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
+            int numRunning = Maybe.fromNullable(getValueCounts(SERVICE_STATE_ACTUAL).get(Lifecycle.RUNNING)).or(0);
+            List<Entity> onesNotHealthy = getEntitiesWithValue(SERVICE_STATE_ACTUAL, new Predicate<Lifecycle>() {
+                @Override public boolean apply(Lifecycle input) {
+                    return input!=Lifecycle.RUNNING && !ignoreStates.contains(input);
+                }
+            });
 
             QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
             if (qc!=null) {
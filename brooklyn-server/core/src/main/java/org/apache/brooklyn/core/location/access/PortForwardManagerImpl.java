@@ -22,11 +22,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.location.Location;
@@ -40,6 +42,7 @@ import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Objects.ToStringHelper;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
@@ -52,7 +55,7 @@ import com.google.common.net.HostAndPort;
  * 
  * @author aled
  *
- * TODO This implementation is not efficient, and currently has a cap of about 50000 rules.
+ * TODO This implementation currently has a cap of about 50000 rules.
  * Need to improve the efficiency and scale.
  * A quick win could be to use a different portReserved counter for each publicIpId,
  * when calling acquirePublicPort?
@@ -80,7 +83,22 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
 
     private static final Logger log = LoggerFactory.getLogger(PortForwardManagerImpl.class);
     
-    protected final Map<String,PortMapping> mappings = new LinkedHashMap<String,PortMapping>();
+    /**
+     * all mappings, keyed by {@link #makeKey(String, int)}; modified only while holding {@link #mutex}, 
+     * through {@link #putMapping(String, PortMapping)} and {@link #removeMapping(String)} so that the indexes are kept up to date
+     */
+    private final ConcurrentMap<String,IndexedMapping> mappings = new ConcurrentHashMap<String,IndexedMapping>();
+
+    /** {@link #mappings} in the order they were first added, e.g. for the memento; keyed by {@link IndexedMapping#sequence} */
+    private final ConcurrentNavigableMap<Long,IndexedMapping> mappingsInOrder = new ConcurrentSkipListMap<Long,IndexedMapping>();
+    /** guarded by {@link #mutex} */
+    private long nextSequence;
+
+    // indexes of mappings, so lookups need not scan all mappings; each in the order the mappings were added
+    private final ConcurrentMap<String, ConcurrentNavigableMap<Long,IndexedMapping>> mappingsByPublicIpId = new ConcurrentHashMap<String, ConcurrentNavigableMap<Long,IndexedMapping>>();
+    private final ConcurrentMap<Location, ConcurrentNavigableMap<Long,IndexedMapping>> mappingsByLocation = new ConcurrentHashMap<Location, ConcurrentNavigableMap<Long,IndexedMapping>>();
+    /** keyed by location or public IP ID, and private port */
+    private final ConcurrentMap<PrivateSide, ConcurrentNavigableMap<Long,IndexedMapping>> mappingsByPrivateSide = new ConcurrentHashMap<PrivateSide, ConcurrentNavigableMap<Long,IndexedMapping>>();
 
     private final Map<AssociationListener, Predicate<? super AssociationMetadata>> associationListeners = new ConcurrentHashMap<AssociationListener, Predicate<? super AssociationMetadata>>();
 
@@ -90,6 +108,7 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
     // horrible hack -- see javadoc above
     private final AtomicInteger portReserved = new AtomicInteger(11000);
 
+    /** guards changes to {@link #mappings} (and its indexes) and {@link #publicIpIdToHostname}; reads of mappings do not need it */
     private final Object mutex = new Object();
     
     public PortForwardManagerImpl() {
@@ -119,10 +138,9 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
     public RebindSupport<LocationMemento> getRebindSupport() {
         return new BasicLocationRebindSupport(this) {
             @Override public LocationMemento getMemento() {
-                Map<String, PortMapping> mappingsCopy;
+                Map<String, PortMapping> mappingsCopy = getMappingsInOrder();
                 Map<String,String> publicIpIdToHostnameCopy;
                 synchronized (mutex) {
-                    mappingsCopy = MutableMap.copyOf(mappings);
                     publicIpIdToHostnameCopy = MutableMap.copyOf(publicIpIdToHostname);
                 }
                 return getMementoWithProperties(MutableMap.<String,Object>of(
@@ -133,9 +151,14 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
             @Override
             protected void doReconstruct(RebindContext rebindContext, LocationMemento memento) {
                 super.doReconstruct(rebindContext, memento);
-                mappings.putAll( Preconditions.checkNotNull((Map<String, PortMapping>) memento.getCustomField("mappings"), "mappings was not serialized correctly"));
+                Map<String, PortMapping> persistedMappings = Preconditions.checkNotNull((Map<String, PortMapping>) memento.getCustomField("mappings"), "mappings was not serialized correctly");
                 portReserved.set( (Integer)memento.getCustomField("portReserved"));
-                publicIpIdToHostname.putAll( Preconditions.checkNotNull((Map<String, String>)memento.getCustomField("publicIpIdToHostname"), "publicIpIdToHostname was not serialized correctly") );
+                synchronized (mutex) {
+                    for (Map.Entry<String, PortMapping> entry : persistedMappings.entrySet()) {
+                        putMapping(entry.getKey(), entry.getValue());
+                    }
+                    publicIpIdToHostname.putAll( Preconditions.checkNotNull((Map<String, String>)memento.getCustomField("publicIpIdToHostname"), "publicIpIdToHostname was not serialized correctly") );
+                }
             }
         };
     }
@@ -144,14 +167,16 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
     public int acquirePublicPort(String publicIpId) {
         int port;
         synchronized (mutex) {
-            // far too simple -- see javadoc above
-            port = getNextPort();
+            // far too simple -- see javadoc above; but at least skip ports explicitly mapped on this publicIpId
+            do {
+                port = getNextPort();
+            } while (mappings.containsKey(makeKey(publicIpId, port)));
             
             // TODO When delete deprecated code, stop registering PortMapping until associate() is called
             PortMapping mapping = new PortMapping(publicIpId, port, null, -1);
             log.debug(this+" allocating public port "+port+" on "+publicIpId+" (no association info yet)");
             
-            mappings.put(makeKey(publicIpId, port), mapping);
+            putMapping(makeKey(publicIpId, port), mapping);
         }
         onChanged();
         return port;
@@ -183,7 +208,7 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
             PortMapping oldMapping = getPortMappingWithPublicSide(publicIpId, publicPort);
             log.debug(this+" associating public "+publicEndpoint+" on "+publicIpId+" with private port "+privatePort+" at "+l+" ("+mapping+")"
                     +(oldMapping == null ? "" : " (overwriting "+oldMapping+" )"));
-            mappings.put(makeKey(publicIpId, publicPort), mapping);
+            putMapping(makeKey(publicIpId, publicPort), mapping);
         }
         onChanged();
     }
@@ -204,31 +229,22 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
 
     @Override
     public HostAndPort lookup(Location l, int privatePort) {
-        synchronized (mutex) {
-            for (PortMapping m: mappings.values()) {
-                if (l.equals(m.target) && privatePort == m.privatePort)
-                    return getPublicHostAndPort(m);
-            }
-        }
-        return null;
+        PortMapping m = getPortMappingWithPrivateSide(l, privatePort);
+        return (m == null) ? null : getPublicHostAndPort(m);
     }
     
     @Override
     public HostAndPort lookup(String publicIpId, int privatePort) {
-        synchronized (mutex) {
-            for (PortMapping m: mappings.values()) {
-                if (publicIpId.equals(m.publicIpId) && privatePort==m.privatePort)
-                    return getPublicHostAndPort(m);
-            }
-        }
-        return null;
+        if (publicIpId == null) return null;
+        PortMapping m = first(mappingsByPrivateSide, new PrivateSide(publicIpId, privatePort));
+        return (m == null) ? null : getPublicHostAndPort(m);
     }
     
     @Override
     public boolean forgetPortMapping(String publicIpId, int publicPort) {
         PortMapping old;
         synchronized (mutex) {
-            old = mappings.remove(makeKey(publicIpId, publicPort));
+            old = removeMapping(makeKey(publicIpId, publicPort));
             if (old != null) {
                 emitAssociationDeletedEvent(associationMetadataFromPortMapping(old));
             }
@@ -242,13 +258,10 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
     public boolean forgetPortMappings(Location l) {
         List<PortMapping> result = Lists.newArrayList();
         synchronized (mutex) {
-            for (Iterator<PortMapping> iter = mappings.values().iterator(); iter.hasNext();) {
-                PortMapping m = iter.next();
-                if (l.equals(m.target)) {
-                    iter.remove();
-                    result.add(m);
-                    emitAssociationDeletedEvent(associationMetadataFromPortMapping(m));
-                }
+            for (IndexedMapping entry : indexedSnapshot(mappingsByLocation, l)) {
+                removeMapping(entry.key);
+                result.add(entry.mapping);
+                emitAssociationDeletedEvent(associationMetadataFromPortMapping(entry.mapping));
             }
         }
         if (log.isDebugEnabled()) log.debug("cleared all port mappings for "+l+" - "+result);
@@ -262,13 +275,10 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
     public boolean forgetPortMappings(String publicIpId) {
         List<PortMapping> result = Lists.newArrayList();
         synchronized (mutex) {
-            for (Iterator<PortMapping> iter = mappings.values().iterator(); iter.hasNext();) {
-                PortMapping m = iter.next();
-                if (publicIpId.equals(m.publicIpId)) {
-                    iter.remove();
-                    result.add(m);
-                    emitAssociationDeletedEvent(associationMetadataFromPortMapping(m));
-                }
+            for (IndexedMapping entry : indexedSnapshot(mappingsByPublicIpId, publicIpId)) {
+                removeMapping(entry.key);
+                result.add(entry.mapping);
+                emitAssociationDeletedEvent(associationMetadataFromPortMapping(entry.mapping));
             }
         }
         if (log.isDebugEnabled()) log.debug("cleared all port mappings for "+publicIpId+" - "+result);
@@ -293,20 +303,12 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
     
     @Override
     protected ToStringHelper string() {
-        int size;
-        synchronized (mutex) {
-            size = mappings.size();
-        }
-        return super.string().add("scope", getScope()).add("mappingsSize", size);
+        return super.string().add("scope", getScope()).add("mappingsSize", mappings.size());
     }
 
     @Override
     public String toVerboseString() {
-        String mappingsStr;
-        synchronized (mutex) {
-            mappingsStr = mappings.toString();
-        }
-        return string().add("mappings", mappingsStr).toString();
+        return string().add("mappings", getMappingsInOrder().toString()).toString();
     }
 
     @Override
@@ -333,6 +335,127 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
         return publicIpId+":"+publicPort;
     }
 
+    /**
+     * Adds (or replaces) the mapping with the given key, and updates the indexes; callers must hold {@link #mutex}.
+     * A replaced mapping keeps its place in the order.
+     */
+    private PortMapping putMapping(String key, PortMapping mapping) {
+        IndexedMapping old = mappings.get(key);
+        IndexedMapping entry = new IndexedMapping(key, (old != null) ? old.sequence : nextSequence++, mapping);
+        mappings.put(key, entry);
+        mappingsInOrder.put(entry.sequence, entry);
+        if (old != null) removeFromIndexes(old);
+        addToIndex(mappingsByPublicIpId, mapping.publicIpId, entry);
+        addToIndex(mappingsByPrivateSide, new PrivateSide(mapping.publicIpId, mapping.privatePort), entry);
+        if (mapping.target != null) {
+            addToIndex(mappingsByLocation, mapping.target, entry);
+            addToIndex(mappingsByPrivateSide, new PrivateSide(mapping.target, mapping.privatePort), entry);
+        }
+        return (old != null) ? old.mapping : null;
+    }
+
+    /** Removes the mapping with the given key, and updates the indexes; callers must hold {@link #mutex}. */
+    private PortMapping removeMapping(String key) {
+        IndexedMapping old = mappings.remove(key);
+        if (old == null) return null;
+        mappingsInOrder.remove(old.sequence);
+        removeFromIndexes(old);
+        return old.mapping;
+    }
+
+    private void removeFromIndexes(IndexedMapping entry) {
+        PortMapping mapping = entry.mapping;
+        removeFromIndex(mappingsByPublicIpId, mapping.publicIpId, entry);
+        removeFromIndex(mappingsByPrivateSide, new PrivateSide(mapping.publicIpId, mapping.privatePort), entry);
+        if (mapping.target != null) {
+            removeFromIndex(mappingsByLocation, mapping.target, entry);
+            removeFromIndex(mappingsByPrivateSide, new PrivateSide(mapping.target, mapping.privatePort), entry);
+        }
+    }
+
+    private static <K> void addToIndex(ConcurrentMap<K, ConcurrentNavigableMap<Long,IndexedMapping>> index, K indexKey, IndexedMapping entry) {
+        ConcurrentNavigableMap<Long,IndexedMapping> entries = index.get(indexKey);
+        if (entries == null) {
+            entries = new ConcurrentSkipListMap<Long,IndexedMapping>();
+            index.put(indexKey, entries);
+        }
+        entries.put(entry.sequence, entry);
+    }
+
+    private static <K> void removeFromIndex(ConcurrentMap<K, ConcurrentNavigableMap<Long,IndexedMapping>> index, K indexKey, IndexedMapping entry) {
+        ConcurrentNavigableMap<Long,IndexedMapping> entries = index.get(indexKey);
+        if (entries != null) {
+            entries.remove(entry.sequence, entry);
+            if (entries.isEmpty()) index.remove(indexKey);
+        }
+    }
+
+    /** the mappings in the index under the given key, in the order they were added */
+    private static <K> List<PortMapping> indexed(ConcurrentMap<K, ConcurrentNavigableMap<Long,IndexedMapping>> index, K indexKey) {
+        List<PortMapping> result = new ArrayList<PortMapping>();
+        for (IndexedMapping entry : indexedSnapshot(index, indexKey)) {
+            result.add(entry.mapping);
+        }
+        return result;
+    }
+
+    /** a snapshot, so the mappings can be removed while iterating */
+    private static <K> List<IndexedMapping> indexedSnapshot(ConcurrentMap<K, ConcurrentNavigableMap<Long,IndexedMapping>> index, K indexKey) {
+        ConcurrentNavigableMap<Long,IndexedMapping> entries = index.get(indexKey);
+        return (entries == null) ? ImmutableList.<IndexedMapping>of() : ImmutableList.copyOf(entries.values());
+    }
+
+    /** the first mapping added (and still present) in the index under the given key, or null */
+    private static <K> PortMapping first(ConcurrentMap<K, ConcurrentNavigableMap<Long,IndexedMapping>> index, K indexKey) {
+        ConcurrentNavigableMap<Long,IndexedMapping> entries = index.get(indexKey);
+        Map.Entry<Long,IndexedMapping> first = (entries == null) ? null : entries.firstEntry();
+        return (first == null) ? null : first.getValue().mapping;
+    }
+
+    private Map<String, PortMapping> getMappingsInOrder() {
+        Map<String, PortMapping> result = MutableMap.of();
+        for (IndexedMapping entry : mappingsInOrder.values()) {
+            result.put(entry.key, entry.mapping);
+        }
+        return result;
+    }
+
+    /** a mapping with its key, and its position in the order mappings were added */
+    private static class IndexedMapping {
+        final String key;
+        final long sequence;
+        final PortMapping mapping;
+
+        IndexedMapping(String key, long sequence, PortMapping mapping) {
+            this.key = key;
+            this.sequence = sequence;
+            this.mapping = mapping;
+        }
+    }
+
+    /** the private side of a mapping: its target location or public IP ID, and private port */
+    private static class PrivateSide {
+        final Object owner;
+        final int privatePort;
+
+        PrivateSide(Object owner, int privatePort) {
+            this.owner = checkNotNull(owner, "owner");
+            this.privatePort = privatePort;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PrivateSide)) return false;
+            PrivateSide other = (PrivateSide) obj;
+            return owner.equals(other.owner) && privatePort == other.privatePort;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(owner, privatePort);
+        }
+    }
+
     private AssociationMetadata associationMetadataFromPortMapping(PortMapping portMapping) {
         String publicIpId = portMapping.getPublicEndpoint().getHostText();
         HostAndPort publicEndpoint = portMapping.getPublicEndpoint();
@@ -346,9 +469,7 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
     ///////////////////////////////////////////////////////////////////////////////////
 
     public List<PortMapping> getPortMappings() {
-        synchronized (mutex) {
-            return ImmutableList.copyOf(mappings.values());
-        }
+        return ImmutableList.copyOf(getMappingsInOrder().values());
     }
     
     public Map<String, Integer> getPortCounters() {
@@ -367,7 +488,7 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
         log.debug("assigning explicit public port "+port+" at "+publicIpId);
         PortMapping result;
         synchronized (mutex) {
-            result = mappings.put(makeKey(publicIpId, port), mapping);
+            result = putMapping(makeKey(publicIpId, port), mapping);
         }
         onChanged();
         return result;
@@ -446,7 +567,7 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
             PortMapping oldMapping = getPortMappingWithPublicSide(publicIpId, publicPort);
             log.debug("associating public port "+publicPort+" on "+publicIpId+" with private port "+privatePort+" at "+l+" ("+mapping+")"
                     +(oldMapping == null ? "" : " (overwriting "+oldMapping+" )"));
-            mappings.put(makeKey(publicIpId, publicPort), mapping);
+            putMapping(makeKey(publicIpId, publicPort), mapping);
         }
     }
 
@@ -468,38 +589,24 @@ public class PortForwardManagerImpl extends AbstractLocation implements PortForw
 
     @Override
     public PortMapping getPortMappingWithPublicSide(String publicIpId, int publicPort) {
-        synchronized (mutex) {
-            return mappings.get(makeKey(publicIpId, publicPort));
-        }
+        IndexedMapping entry = mappings.get(makeKey(publicIpId, publicPort));
+        return (entry == null) ? null : entry.mapping;
     }
 
     @Override
     public Collection<PortMapping> getPortMappingWithPublicIpId(String publicIpId) {
-        List<PortMapping> result = new ArrayList<PortMapping>();
-        synchronized (mutex) {
-            for (PortMapping m: mappings.values())
-                if (publicIpId.equals(m.publicIpId)) result.add(m);
-        }
-        return result;
+        return indexed(mappingsByPublicIpId, publicIpId);
     }
 
     /** returns the subset of port mappings associated with a given location */
     @Override
     public Collection<PortMapping> getLocationPublicIpIds(Location l) {
-        List<PortMapping> result = new ArrayList<PortMapping>();
-        synchronized (mutex) {
-            for (PortMapping m: mappings.values())
-                if (l.equals(m.getTarget())) result.add(m);
-        }
-        return result;
+        return indexed(mappingsByLocation, l);
     }
 
     @Override
     public PortMapping getPortMappingWithPrivateSide(Location l, int privatePort) {
-        synchronized (mutex) {
-            for (PortMapping m: mappings.values())
-                if (l.equals(m.getTarget()) && privatePort==m.privatePort) return m;
-        }
-        return null;
+        if (l == null) return null;
+        return first(mappingsByPrivateSide, new PrivateSide(l, privatePort));
     }
 }
@@ -24,6 +24,12 @@ import java.util.Set;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.classloading.BrooklynClassLoadingContext;
+import org.apache.brooklyn.api.mgmt.entitlement.EntitlementContext;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry;
+import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
+import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.exceptions.Exceptions;
@@ -32,6 +38,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
@@ -39,9 +48,28 @@ public final class BrooklynClassLoadingContextSequential extends AbstractBrookly
 
     private static final Logger log = LoggerFactory.getLogger(BrooklynClassLoadingContextSequential.class);
     
+    /** the most class lookups cached by each context */
+    private static final int MAX_CACHED_LOOKUPS = 1000;
+    
     private final List<BrooklynClassLoadingContext> primaries = MutableList.<BrooklynClassLoadingContext>of();
     // secondaries used to put java classloader last
     private final Set<BrooklynClassLoadingContext> secondaries = MutableSet.<BrooklynClassLoadingContext>of();
+    
+    // results of tryLoadClass, successful or not, by (user and) class name;
+    // discarded when loaders are added, or when OSGi bundles or the catalog change 
+    // (as loaders for catalog items, and misses in any loader, depend on them)
+    private transient volatile Lookups lookups;
+    
+    private static class Lookups {
+        final long bundlesGeneration;
+        final long typesGeneration;
+        final Cache<String, Maybe<Class<?>>> results = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_LOOKUPS).build();
+        
+        Lookups(long bundlesGeneration, long typesGeneration) {
+            this.bundlesGeneration = bundlesGeneration;
+            this.typesGeneration = typesGeneration;
+        }
+    }
 
     public BrooklynClassLoadingContextSequential(ManagementContext mgmt, BrooklynClassLoadingContext ...targets) {
         super(mgmt);
@@ -58,6 +86,7 @@ public final class BrooklynClassLoadingContextSequential extends AbstractBrookly
         } else {
             this.primaries.add( target );
         }
+        lookups = null;
     }
 
     public void addSecondary(BrooklynClassLoadingContext target) {
@@ -66,26 +95,70 @@ public final class BrooklynClassLoadingContextSequential extends AbstractBrookly
             log.warn("Only Java classloaders should be secondary");
         }
         this.secondaries.add( target );
+        lookups = null;
     }
     
     public Maybe<Class<?>> tryLoadClass(String className) {
-        List<Throwable> errors = MutableList.of();
+        Lookups lookups = getLookups();
+        // visibility of catalog items depends on the user, so cache per user
+        EntitlementContext entitlementContext = Entitlements.getEntitlementContext();
+        String key = entitlementContext==null ? className : entitlementContext.user()+"/"+className;
+        Maybe<Class<?>> result = lookups.results.getIfPresent(key);
+        if (result==null) {
+            result = tryLoadClassUncached(className);
+            // don't cache if bundles or catalog changed while we were looking
+            if (getLookups()==lookups) lookups.results.put(key, result);
+        }
+        return result;
+    }
+
+    private Maybe<Class<?>> tryLoadClassUncached(final String className) {
+        // keep the failures, but only build the combined exception if someone asks for it
+        final List<Maybe<Class<?>>> failures = MutableList.of();
         for (BrooklynClassLoadingContext target: primaries) {
             Maybe<Class<?>> clazz = target.tryLoadClass(className);
             if (clazz.isPresent())
                 return clazz;
-            errors.add( ((Maybe.Absent<?>)clazz).getException() );
+            failures.add(clazz);
         }
-        boolean noPrimaryErrors = errors.isEmpty();
+        boolean noPrimaryErrors = failures.isEmpty();
         for (BrooklynClassLoadingContext target: secondaries) {
             Maybe<Class<?>> clazz = target.tryLoadClass(className);
             if (clazz.isPresent())
                 return clazz;
             if (noPrimaryErrors)
-                errors.add( ((Maybe.Absent<?>)clazz).getException() );
+                failures.add(clazz);
         }
 
-        return Maybe.absent(Exceptions.create("Unable to load "+className+" from "+primaries, errors));
+        final String primariesDescription = primaries.toString();
+        return Maybe.absent(new Supplier<RuntimeException>() {
+            @Override
+            public RuntimeException get() {
+                List<Throwable> errors = MutableList.of();
+                for (Maybe<Class<?>> failure: failures) {
+                    errors.add( ((Maybe.Absent<?>)failure).getException() );
+                }
+                return Exceptions.create("Unable to load "+className+" from "+primariesDescription, errors);
+            }
+        });
+    }
+
+    private Lookups getLookups() {
+        long bundlesGeneration = 0;
+        long typesGeneration = 0;
+        if (mgmt instanceof ManagementContextInternal) {
+            Maybe<OsgiManager> osgi = ((ManagementContextInternal)mgmt).getOsgiManager();
+            if (osgi.isPresent()) bundlesGeneration = osgi.get().getBundlesGeneration();
+        }
+        BrooklynTypeRegistry types = mgmt!=null ? mgmt.getTypeRegistry() : null;
+        if (types instanceof BasicBrooklynTypeRegistry) typesGeneration = ((BasicBrooklynTypeRegistry)types).getTypesGeneration();
+        
+        Lookups result = lookups;
+        if (result==null || result.bundlesGeneration!=bundlesGeneration || result.typesGeneration!=typesGeneration) {
+            result = new Lookups(bundlesGeneration, typesGeneration);
+            lookups = result;
+        }
+        return result;
     }
 
     @Override
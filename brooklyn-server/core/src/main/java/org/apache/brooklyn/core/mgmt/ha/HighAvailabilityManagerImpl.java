@@ -26,6 +26,7 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nullable;
 
@@ -71,6 +72,7 @@ import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.ReferenceWithError;
 import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.CountdownTimer;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
@@ -104,6 +106,19 @@ import com.google.common.collect.Iterables;
  *   <li>calling {@link RebindManager#rebind(ClassLoader, org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler, ManagementNodeState)} to read all persisted entity state, and thus reconstitute the entities.
  * </ol>
  * <p>
+ * Hot standbys periodically rebind (read-only) from the persisted state. If the nodes share a 
+ * {@link org.apache.brooklyn.core.mgmt.persist.MementoReplicationChannel} (see
+ * {@link org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore#PERSISTER_REPLICATION_CHANNEL}),
+ * the master streams each persisted delta to them, so they need only read the store when they miss a delta,
+ * and a standby being promoted need not read it at all if it has seen every change.
+ * Only nodes in the same JVM can currently share a channel (see {@link org.apache.brooklyn.core.mgmt.persist.LocalMementoReplicationChannel}).
+ * <p>
+ * If {@link #PEER_HEARTBEAT_ENABLED} is set, the nodes also send heartbeats directly to each other (see {@link PeerHeartbeater}).
+ * These never decide on their own that a master has failed: that is always judged from the records in the store.
+ * But when a master's direct heartbeats stop, the other nodes judge its record stale after a few {@link #POLL_PERIOD poll periods}
+ * without a write, rather than after the full {@link #HEARTBEAT_TIMEOUT}, and watch (by reading only) for it to go stale,
+ * so that the failover happens then rather than at the next poll.
+ * <p>
  * Future improvements in this area will include brooklyn-managing-brooklyn to decide + promote
  * the standby.
  * 
@@ -120,6 +135,25 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         "Maximum allowable time for detection of a peer's heartbeat; if no sign of master after this time, "
         + "another node may promote itself", Duration.THIRTY_SECONDS);
     
+    public static final ConfigKey<Boolean> PEER_HEARTBEAT_ENABLED = ConfigKeys.newBooleanConfigKey("brooklyn.ha.peerHeartbeat.enabled",
+        "Whether management nodes should also send heartbeats directly to each other (over UDP), so that when the master stops sending them "
+        + "its persisted record is considered stale after a few poll periods, rather than the heartbeat timeout; requires "+"brooklyn.ha.peerHeartbeat.secret", false);
+    public static final ConfigKey<String> PEER_HEARTBEAT_SECRET = ConfigKeys.newStringConfigKey("brooklyn.ha.peerHeartbeat.secret",
+        "Secret shared by all management nodes, with which direct heartbeats are signed; direct heartbeats are not used unless this is set", null);
+    public static final ConfigKey<String> PEER_HEARTBEAT_HOST = ConfigKeys.newStringConfigKey("brooklyn.ha.peerHeartbeat.host",
+        "Address on which to listen for direct heartbeats, and which peers should send to; "
+        + "if not set, listens on all interfaces and advertises this machine's address", null);
+    public static final ConfigKey<Integer> PEER_HEARTBEAT_PORT = ConfigKeys.newIntegerConfigKey("brooklyn.ha.peerHeartbeat.port",
+        "UDP port on which to listen for direct heartbeats; 0 for any free port", 0);
+    public static final ConfigKey<Duration> PEER_HEARTBEAT_PERIOD = ConfigKeys.newConfigKey(Duration.class, "brooklyn.ha.peerHeartbeat.period",
+        "How often to send direct heartbeats", Duration.millis(200));
+    public static final ConfigKey<Double> PEER_HEARTBEAT_PHI_THRESHOLD = ConfigKeys.newDoubleConfigKey("brooklyn.ha.peerHeartbeat.phiThreshold",
+        "Suspicion level (phi) above which a peer is considered failed by its direct heartbeats; "
+        + "higher values are slower to detect failure but less prone to mistakes", 8.0);
+    
+    /** number of poll periods without a write after which a master suspected by its direct heartbeats is considered failed */
+    private static final int SUSPECTED_MASTER_STALE_POLL_PERIODS = 3;
+    
     @VisibleForTesting /* only used in tests currently */
     public static interface PromotionListener {
         public void promotingToMaster();
@@ -155,6 +189,8 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
     private volatile transient Duration heartbeatTimeoutOverride;
 
     private volatile ManagementPlaneSyncRecord lastSyncRecord;
+    private volatile PeerHeartbeater peerHeartbeater;
+    private final AtomicBoolean checkingSuspectedMaster = new AtomicBoolean();
     
     private volatile PersistenceActivityMetrics managementStateWritePersistenceMetrics = new PersistenceActivityMetrics();
     private volatile PersistenceActivityMetrics managementStateReadPersistenceMetrics = new PersistenceActivityMetrics();
@@ -276,6 +312,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         }
         
         ownNodeId = managementContext.getManagementNodeId();
+        if (startMode!=HighAvailabilityMode.DISABLED) startPeerHeartbeaterIfEnabled();
         // TODO Small race in that we first check, and then we'll do checkMaster() on first poll,
         // so another node could have already become master or terminated in that window.
         ManagementNodeSyncRecord existingMaster = hasHealthyMaster();
@@ -488,6 +525,120 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
                 LOG.error("Problem publishing manager-node health on termination (continuing)", e);
             }
         }
+        stopPeerHeartbeater();
+    }
+    
+    protected synchronized void startPeerHeartbeaterIfEnabled() {
+        if (peerHeartbeater!=null || !Boolean.TRUE.equals(managementContext.getBrooklynProperties().getConfig(PEER_HEARTBEAT_ENABLED))) return;
+        Integer port = managementContext.getBrooklynProperties().getConfig(PEER_HEARTBEAT_PORT);
+        Double phiThreshold = managementContext.getBrooklynProperties().getConfig(PEER_HEARTBEAT_PHI_THRESHOLD);
+        String secret = managementContext.getBrooklynProperties().getConfig(PEER_HEARTBEAT_SECRET);
+        if (Strings.isBlank(secret)) {
+            LOG.warn("Management node "+ownNodeId+" not starting direct heartbeats, as "+PEER_HEARTBEAT_SECRET.getName()+" is not set (relying on persisted records only)");
+            return;
+        }
+        PeerHeartbeater heartbeater = new PeerHeartbeater(ownNodeId,
+            managementContext.getBrooklynProperties().getConfig(PEER_HEARTBEAT_HOST),
+            port!=null ? port : 0,
+            managementContext.getBrooklynProperties().getConfig(PEER_HEARTBEAT_PERIOD),
+            phiThreshold!=null ? phiThreshold : 8.0,
+            secret);
+        heartbeater.setListener(new PeerHeartbeater.Listener() {
+            @Override
+            public void onPeerSuspected(String nodeId) {
+                checkMasterSoonIfSuspected(nodeId);
+            }
+        });
+        try {
+            heartbeater.start();
+            peerHeartbeater = heartbeater;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            // the store still works, just more slowly
+            LOG.warn("Management node "+ownNodeId+" unable to start direct heartbeats (relying on persisted records only): "+e, e);
+        }
+    }
+    
+    protected synchronized void stopPeerHeartbeater() {
+        if (peerHeartbeater!=null) {
+            peerHeartbeater.stop();
+            peerHeartbeater = null;
+        }
+    }
+    
+    /** the direct heartbeats to peers, if enabled and running */
+    @Beta @Nullable
+    public PeerHeartbeater getPeerHeartbeater() {
+        return peerHeartbeater;
+    }
+    
+    /**
+     * When the master is suspected by its direct heartbeats, publishes and checks the store now, and then reads
+     * (without writing) the master's record every heartbeat period while the suspicion lasts. Once the record has not
+     * changed for the {@link #getHeartbeatTimeoutForMaster(String) shortened timeout}, checks again, so the failover
+     * happens then rather than at the next poll. Only the store decides whether the master has failed.
+     */
+    protected void checkMasterSoonIfSuspected(final String nodeId) {
+        if (!isSuspectedMaster(nodeId)) return;
+        if (!checkingSuspectedMaster.compareAndSet(false, true)) return;
+        managementContext.getExecutionManager().submit(Tasks.builder().dynamic(false).displayName("HA check on suspected master failure")
+            .tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+            .body(new Runnable() {
+                @Override public void run() {
+                    try {
+                        PeerHeartbeater heartbeater = peerHeartbeater;
+                        if (heartbeater==null) return;
+                        Duration staleness = getHeartbeatTimeoutForMaster(nodeId);
+                        // long enough to see the record go stale even if the master wrote just before we started watching
+                        long limitMillis = 2*staleness.toMilliseconds() + 2*heartbeater.getPeriod().toMilliseconds();
+                        CountdownTimer timer = CountdownTimer.newInstanceStarted(Duration.millis(
+                            Math.min(limitMillis, Duration.PRACTICALLY_FOREVER.toMilliseconds())));
+                        // one write now, in case the record is already stale; after that only read until it looks stale
+                        publishAndCheck(false);
+                        Long lastMasterTimestamp = null;
+                        Stopwatch unchanged = Stopwatch.createStarted();
+                        while (running && isSuspectedMaster(nodeId) && !timer.isExpired()) {
+                            Time.sleep(heartbeater.getPeriod());
+                            ManagementNodeSyncRecord master = loadManagementPlaneSyncRecord(true).getManagementNodes().get(nodeId);
+                            Long masterTimestamp = (master==null) ? null : master.getRemoteTimestamp();
+                            if (master==null || master.getStatus()!=ManagementNodeState.MASTER) {
+                                // the store has changed master; let the check act on it
+                                publishAndCheck(false);
+                                return;
+                            } else if (!Objects.equal(masterTimestamp, lastMasterTimestamp)) {
+                                // the master is still writing its record
+                                lastMasterTimestamp = masterTimestamp;
+                                unchanged = Stopwatch.createStarted();
+                            } else if (!staleness.isLongerThan(unchanged)) {
+                                publishAndCheck(false);
+                                lastMasterTimestamp = null;
+                            }
+                        }
+                    } finally {
+                        checkingSuspectedMaster.set(false);
+                    }
+                }
+            }).build());
+    }
+    
+    /**
+     * The time after which the master's record in the store is considered stale: normally the {@link #HEARTBEAT_TIMEOUT},
+     * but if the master is suspected by its direct heartbeats, only three poll periods
+     * (as it would have written its record in that time if it were still running).
+     */
+    protected Duration getHeartbeatTimeoutForMaster(String masterNodeId) {
+        Duration heartbeatTimeout = getHeartbeatTimeout();
+        if (masterNodeId==null || !isSuspectedMaster(masterNodeId)) return heartbeatTimeout;
+        Duration pollPeriod = getPollPeriod();
+        if (pollPeriod.toMilliseconds() >= heartbeatTimeout.toMilliseconds() / SUSPECTED_MASTER_STALE_POLL_PERIODS) return heartbeatTimeout;
+        return pollPeriod.multiply(SUSPECTED_MASTER_STALE_POLL_PERIODS);
+    }
+    
+    private boolean isSuspectedMaster(String nodeId) {
+        ManagementPlaneSyncRecord plane = lastSyncRecord;
+        PeerHeartbeater heartbeater = peerHeartbeater;
+        if (!running || plane==null || heartbeater==null || !nodeId.equals(plane.getMasterNodeId()) || nodeId.equals(ownNodeId)) return false;
+        return Boolean.FALSE.equals(heartbeater.isAvailable(nodeId).orNull());
     }
     
     /** returns the node state this node is trying to be in */
@@ -516,7 +667,12 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         if (ManagementNodeState.isHotProxy(oldState) && !ManagementNodeState.isHotProxy(newState)) {
             // could perhaps promote standby items on some transitions; but for now we stop the old read-only and re-load them
             // TODO ideally there'd be an incremental rebind as well as an incremental persist
-            managementContext.getRebindManager().stopReadOnly();
+            if (newState==ManagementNodeState.MASTER) {
+                // the rebind as master can then use the replicated state, if it is up to date
+                ((RebindManagerImpl)managementContext.getRebindManager()).stopReadOnlyForPromotion();
+            } else {
+                managementContext.getRebindManager().stopReadOnly();
+            }
             clearManagedItems(ManagementTransitionMode.transitioning(BrooklynObjectManagementMode.LOADED_READ_ONLY, BrooklynObjectManagementMode.UNMANAGED_PERSISTED));
         }
     }
@@ -674,6 +830,10 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
     }
     
     protected boolean isHeartbeatOk(ManagementNodeSyncRecord masterNode, ManagementNodeSyncRecord meNode) {
+        return isHeartbeatOk(masterNode, meNode, getHeartbeatTimeout());
+    }
+    
+    protected boolean isHeartbeatOk(ManagementNodeSyncRecord masterNode, ManagementNodeSyncRecord meNode, Duration heartbeatTimeout) {
         if (masterNode==null) return false;
         if (meNode==null) {
             // we can't confirm it's healthy, but it appears so as far as we can tell
@@ -682,7 +842,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         Long timestampMaster = masterNode.getRemoteTimestamp();
         Long timestampMe = meNode.getRemoteTimestamp();
         if (timestampMaster==null || timestampMe==null) return false;
-        return (timestampMe - timestampMaster) <= getHeartbeatTimeout().toMilliseconds();
+        return (timestampMe - timestampMaster) <= heartbeatTimeout.toMilliseconds();
     }
     
     protected ManagementNodeSyncRecord hasHealthyMaster() {
@@ -720,7 +880,8 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         ManagementNodeSyncRecord newMasterNodeRecord = null;
         boolean demotingSelfInFavourOfOtherMaster = false;
         
-        if (currMasterNodeRecord != null && currMasterNodeRecord.getStatus() == ManagementNodeState.MASTER && isHeartbeatOk(currMasterNodeRecord, ownNodeRecord)) {
+        Duration masterHeartbeatTimeout = getHeartbeatTimeoutForMaster(currMasterNodeId);
+        if (currMasterNodeRecord != null && currMasterNodeRecord.getStatus() == ManagementNodeState.MASTER && isHeartbeatOk(currMasterNodeRecord, ownNodeRecord, masterHeartbeatTimeout)) {
             // master seems healthy
             if (ownNodeId.equals(currMasterNodeId)) {
                 if (LOG.isTraceEnabled()) LOG.trace("Existing master healthy (us): master={}", currMasterNodeRecord.toVerboseString());
@@ -764,7 +925,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         }
         
         // Need to choose a new master
-        newMasterNodeRecord = masterChooser.choose(memento, getHeartbeatTimeout(), ownNodeId);
+        newMasterNodeRecord = masterChooser.choose(memento, masterHeartbeatTimeout, ownNodeId);
         
         String newMasterNodeId = (newMasterNodeRecord == null) ? null : newMasterNodeRecord.getNodeId();
         URI newMasterNodeUri = (newMasterNodeRecord == null) ? null : newMasterNodeRecord.getUri();
@@ -777,7 +938,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
                     (currMasterNodeRecord == null ? currMasterNodeId+" (no memento)": currMasterNodeRecord.toVerboseString()),
                     memento,
                     ownNodeRecord.toVerboseString(), 
-                    getHeartbeatTimeout()
+                    masterHeartbeatTimeout
                 });
         }
         String message = "Management node "+ownNodeId+" detected ";
@@ -962,6 +1123,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
     public ManagementPlaneSyncRecord loadManagementPlaneSyncRecord(boolean useLocalKnowledgeForThisNode) {
         ManagementPlaneSyncRecord record = loadManagementPlaneSyncRecordInternal(useLocalKnowledgeForThisNode);
         lastSyncRecord = record;
+        updatePeerHeartbeatAddresses(record);
         return record; 
     }
     
@@ -1027,6 +1189,19 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         throw new IllegalStateException(message, lastException);
     }
 
+    private void updatePeerHeartbeatAddresses(ManagementPlaneSyncRecord record) {
+        PeerHeartbeater heartbeater = peerHeartbeater;
+        if (heartbeater==null) return;
+        Map<String, String> addresses = MutableMap.of();
+        for (ManagementNodeSyncRecord node : record.getManagementNodes().values()) {
+            if (node instanceof BasicManagementNodeSyncRecord && ((BasicManagementNodeSyncRecord)node).getHeartbeatAddress()!=null
+                    && node.getStatus()!=ManagementNodeState.TERMINATED) {
+                addresses.put(node.getNodeId(), ((BasicManagementNodeSyncRecord)node).getHeartbeatAddress());
+            }
+        }
+        heartbeater.setPeers(addresses);
+    }
+    
     protected ManagementNodeSyncRecord createManagementNodeSyncRecord(boolean useLocalTimestampAsRemoteTimestamp) {
         long timestamp = currentTimeMillis();
         org.apache.brooklyn.core.mgmt.ha.dto.BasicManagementNodeSyncRecord.Builder builder = BasicManagementNodeSyncRecord.builder()
@@ -1036,6 +1211,8 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
                 .priority(getPriority())
                 .localTimestamp(timestamp)
                 .uri(managementContext.getManagementNodeUri().orNull());
+        PeerHeartbeater heartbeater = peerHeartbeater;
+        if (heartbeater!=null) builder.heartbeatAddress(heartbeater.getAddress());
         if (useLocalTimestampAsRemoteTimestamp)
             builder.remoteTimestamp(timestamp);
         else if (optionalRemoteTickerUtc!=null) {
@@ -1088,11 +1265,26 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
         result.put("uptime", Time.makeTimeStringRounded(Duration.millis(currentTimeMillis()-startTimeUtc)));
         result.put("currentTimeUtc", currentTimeMillis());
         result.put("startTimeUtc", startTimeUtc);
-        result.put("highAvailability", MutableMap.<String,Object>of(
+        Map<String,Object> highAvailability = MutableMap.<String,Object>of(
             "priority", getPriority(),
             "pollPeriod", getPollPeriod().toMilliseconds(),
             "heartbeatTimeout", getHeartbeatTimeout().toMilliseconds(),
-            "history", nodeStateHistory));
+            "history", nodeStateHistory);
+        PeerHeartbeater heartbeater = peerHeartbeater;
+        if (heartbeater!=null) {
+            ManagementPlaneSyncRecord plane = lastSyncRecord;
+            Map<String,Object> phis = MutableMap.of();
+            if (plane!=null) {
+                for (String nodeId : plane.getManagementNodes().keySet()) {
+                    if (!nodeId.equals(ownNodeId) && heartbeater.isAvailable(nodeId).isPresent()) phis.put(nodeId, heartbeater.getPhi(nodeId));
+                }
+            }
+            highAvailability.put("peerHeartbeat", MutableMap.<String,Object>of(
+                "address", heartbeater.getAddress(),
+                "period", heartbeater.getPeriod().toMilliseconds(),
+                "phi", phis));
+        }
+        result.put("highAvailability", highAvailability);
         
         result.putAll(managementContext.getRebindManager().getMetrics());
         result.put("managementStatePersistence", 
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.brooklyn.api.catalog.CatalogItem.CatalogBundle;
@@ -49,11 +50,18 @@ import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.framework.launch.Framework;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class OsgiManager {
@@ -68,6 +76,28 @@ public class OsgiManager {
     protected Framework framework;
     protected File osgiCacheDir;
 
+    /* class lookups (including failures) and bundle lookups are cached, as rebind and catalog-heavy blueprints
+     * resolve the same names many times; both are cleared whenever any bundle is installed, updated or removed */
+    private final Cache<String, Maybe<Class<?>>> classCache = CacheBuilder.newBuilder().maximumSize(10000).build();
+    private final Map<String, Bundle> bundleCache = Maps.newConcurrentMap();
+    private final AtomicLong bundlesGeneration = new AtomicLong();
+    private final SynchronousBundleListener bundleListener = new SynchronousBundleListener() {
+        @Override
+        public void bundleChanged(BundleEvent event) {
+            switch (event.getType()) {
+            case BundleEvent.INSTALLED:
+            case BundleEvent.RESOLVED:
+            case BundleEvent.UNRESOLVED:
+            case BundleEvent.UPDATED:
+            case BundleEvent.UNINSTALLED:
+                onBundlesChanged();
+                break;
+            default:
+                // starting and stopping does not change what classes are visible
+            }
+        }
+    };
+
     public OsgiManager(ManagementContext mgmt) {
         this.mgmt = mgmt;
     }
@@ -78,12 +108,22 @@ public class OsgiManager {
             
             // any extra OSGi startup args could go here
             framework = Osgis.getFramework(osgiCacheDir.getAbsolutePath(), false);
+            BundleContext bundleContext = framework.getBundleContext();
+            if (bundleContext!=null) bundleContext.addBundleListener(bundleListener);
         } catch (Exception e) {
             throw Exceptions.propagate(e);
         }
     }
 
     public void stop() {
+        try {
+            BundleContext bundleContext = framework.getBundleContext();
+            if (bundleContext!=null) bundleContext.removeBundleListener(bundleListener);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.debug("Unable to remove bundle listener from "+framework+" (continuing): "+e);
+        }
+        onBundlesChanged();
         Osgis.ungetFramework(framework);
         if (BrooklynServerPaths.isOsgiCacheForCleaning(mgmt, osgiCacheDir)) {
             // See exception reported in https://issues.apache.org/jira/browse/BROOKLYN-72
@@ -115,6 +155,7 @@ public class OsgiManager {
             }
 
             Bundle b = Osgis.install(framework, bundle.getUrl());
+            onBundlesChanged();
 
             checkCorrectlyInstalled(bundle, b);
         } catch (Exception e) {
@@ -181,7 +222,23 @@ public class OsgiManager {
     public <T> Maybe<Class<T>> tryResolveClass(String type, OsgiBundleWithUrl... osgiBundles) {
         return tryResolveClass(type, Arrays.asList(osgiBundles));
     }
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     public <T> Maybe<Class<T>> tryResolveClass(String type, Iterable<? extends OsgiBundleWithUrl> osgiBundles) {
+        StringBuilder key = new StringBuilder(type);
+        for (OsgiBundleWithUrl osgiBundle: osgiBundles) {
+            key.append(' ').append(getBundleKey(osgiBundle));
+        }
+        long generation = bundlesGeneration.get();
+        Maybe<Class<?>> result = classCache.getIfPresent(key.toString());
+        if (result==null) {
+            result = (Maybe) tryResolveClassUncached(type, osgiBundles);
+            // don't cache if bundles changed while we were looking
+            if (generation==bundlesGeneration.get()) classCache.put(key.toString(), result);
+        }
+        return (Maybe) result;
+    }
+
+    protected <T> Maybe<Class<T>> tryResolveClassUncached(String type, Iterable<? extends OsgiBundleWithUrl> osgiBundles) {
         Map<OsgiBundleWithUrl,Throwable> bundleProblems = MutableMap.of();
         Set<String> extraMessages = MutableSet.of();
         for (OsgiBundleWithUrl osgiBundle: osgiBundles) {
@@ -247,13 +304,46 @@ public class OsgiManager {
         //
         //For now we just log a warning if there's a version discrepancy at install time,
         //so prefer URL if supplied.
+        String key = getBundleKey(catalogBundle);
+        Bundle cached = bundleCache.get(key);
+        if (cached!=null && cached.getState()!=Bundle.UNINSTALLED) {
+            return Maybe.of(cached);
+        }
+        
+        long generation = bundlesGeneration.get();
         BundleFinder bundleFinder = Osgis.bundleFinder(framework);
         if (catalogBundle.getUrl() != null) {
             bundleFinder.requiringFromUrl(catalogBundle.getUrl());
         } else {
             bundleFinder.symbolicName(catalogBundle.getSymbolicName()).version(catalogBundle.getVersion());
         }
-        return bundleFinder.find();
+        Maybe<Bundle> result = bundleFinder.find();
+        if (result.isPresent() && generation==bundlesGeneration.get()) {
+            bundleCache.put(key, result.get());
+        }
+        return result;
+    }
+
+    private static String getBundleKey(OsgiBundleWithUrl catalogBundle) {
+        // as for findBundle, the URL takes precedence
+        if (catalogBundle.getUrl() != null) return catalogBundle.getUrl();
+        return catalogBundle.getSymbolicName()+":"+catalogBundle.getVersion();
+    }
+
+    /** discards cached class and bundle lookups */
+    protected void onBundlesChanged() {
+        bundlesGeneration.incrementAndGet();
+        classCache.invalidateAll();
+        bundleCache.clear();
+    }
+
+    /** 
+     * A counter incremented whenever bundles are installed, updated or removed, 
+     * so that callers caching the results of class lookups know when to discard them.
+     */
+    @Beta
+    public long getBundlesGeneration() {
+        return bundlesGeneration.get();
     }
 
     /**
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.net.Networking;
+import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.BaseEncoding;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Sends heartbeats directly to the other nodes in the management plane over UDP, and monitors theirs
+ * with a {@link PhiAccrualFailureDetector}.
+ * <p>
+ * This suspects the failure of a peer within a few heartbeat periods. A suspicion does not itself fail over the master:
+ * it only lets the {@link HighAvailabilityManagerImpl} treat the master's record in the persistence store as stale after
+ * a few poll periods instead of the full heartbeat timeout, so failover is still bounded by the poll period and the
+ * store's write and read latency. The store remains authoritative for which node is master, and peers which have not
+ * sent direct heartbeats (e.g. because the port is firewalled) are judged by the store alone.
+ * <p>
+ * Each node advertises its {@link #getAddress() address} in its {@link org.apache.brooklyn.core.mgmt.ha.dto.BasicManagementNodeSyncRecord},
+ * and is told the addresses of its peers with {@link #setPeers(Map)}.
+ * <p>
+ * Heartbeats carry the sender's clock and an HMAC-SHA256 over the node id and that time, keyed by a secret shared by all nodes.
+ * Heartbeats which are not signed with the secret, or which are no later than the last accepted from that node
+ * (e.g. replayed), are ignored.
+ */
+@Beta
+public class PeerHeartbeater {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PeerHeartbeater.class);
+
+    public interface Listener {
+        /** Called (from the heartbeat thread) when a peer which had been sending heartbeats becomes suspected of failure. */
+        void onPeerSuspected(String nodeId);
+    }
+
+    static final String PACKET_PREFIX = "brooklyn-ha-heartbeat ";
+    private static final int MAX_PACKET_SIZE = 512;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final String ownNodeId;
+    private final String host;
+    private final int port;
+    private final Duration period;
+    private final double phiThreshold;
+    private final PhiAccrualFailureDetector detector;
+    private final SecretKeySpec secretKey;
+    /** time sent in the last heartbeat accepted from each peer, so that older (replayed) heartbeats are ignored */
+    private final Map<String, Long> lastSentTimes = Maps.newConcurrentMap();
+    private final Set<String> suspected = Sets.newConcurrentHashSet();
+    private volatile Map<String, InetSocketAddress> peers = ImmutableMap.of();
+    private volatile Listener listener;
+
+    private volatile DatagramSocket socket;
+    private String address;
+    private Thread receiver;
+    private ScheduledExecutorService sender;
+
+    /**
+     * @param host the address to listen on, and to advertise to peers; or null to listen on all interfaces
+     *        and advertise {@link Networking#getLocalHost()}
+     * @param port the port to listen on, or 0 for any free port
+     * @param period how often to send heartbeats
+     * @param phiThreshold the {@link PhiAccrualFailureDetector phi} above which a peer is suspected
+     * @param secret the secret shared by all nodes, with which heartbeats are signed
+     */
+    public PeerHeartbeater(String ownNodeId, @Nullable String host, int port, Duration period, double phiThreshold, String secret) {
+        this.ownNodeId = Preconditions.checkNotNull(ownNodeId, "ownNodeId");
+        Preconditions.checkArgument(Strings.isNonBlank(secret), "secret must be supplied");
+        this.secretKey = new SecretKeySpec(secret.getBytes(Charsets.UTF_8), MAC_ALGORITHM);
+        this.host = host;
+        this.port = port;
+        this.period = Preconditions.checkNotNull(period, "period");
+        this.phiThreshold = phiThreshold;
+        // tolerate one missed heartbeat, and do not let very regular heartbeats make phi over-sensitive
+        this.detector = new PhiAccrualFailureDetector(period, period, Duration.millis(Math.max(1, period.toMilliseconds()/2)), 100);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (socket!=null) return;
+        try {
+            socket = new DatagramSocket(Strings.isBlank(host) ? new InetSocketAddress(port) : new InetSocketAddress(host, port));
+        } catch (SocketException e) {
+            throw new IllegalStateException("Unable to listen for peer heartbeats on "+(host==null ? "" : host)+":"+port+": "+e, e);
+        }
+        String advertisedHost = Strings.isBlank(host) ? Networking.getLocalHost().getHostAddress() : host;
+        address = HostAndPort.fromParts(advertisedHost, socket.getLocalPort()).toString();
+
+        final DatagramSocket receivingSocket = socket;
+        receiver = new Thread(new Runnable() {
+            @Override public void run() {
+                receive(receivingSocket);
+            }}, "brooklyn-ha-heartbeat-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+
+        sender = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-ha-heartbeat-sender")
+                .setDaemon(true)
+                .build());
+        sender.scheduleAtFixedRate(new Runnable() {
+            @Override public void run() {
+                try {
+                    sendHeartbeats();
+                    checkPeers();
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    LOG.debug("Problem sending peer heartbeats from "+ownNodeId+" (continuing): "+e, e);
+                }
+            }}, 0, period.toMilliseconds(), TimeUnit.MILLISECONDS);
+        LOG.debug("Started peer heartbeats for {} at {}, every {}", new Object[] {ownNodeId, address, period});
+    }
+
+    /** Stops sending and receiving heartbeats; peers will suspect this node shortly afterwards. */
+    public synchronized void stop() {
+        if (socket==null) return;
+        sender.shutdownNow();
+        Networking.closeQuietly(socket);
+        socket = null;
+        receiver.interrupt();
+        receiver = null;
+        sender = null;
+        LOG.debug("Stopped peer heartbeats for {} at {}", ownNodeId, address);
+    }
+
+    public boolean isRunning() {
+        return socket!=null;
+    }
+
+    /** The host:port at which this node receives heartbeats, once started. */
+    @Nullable
+    public synchronized String getAddress() {
+        return address;
+    }
+
+    /**
+     * Sets the nodes to send heartbeats to (and accept them from), as a map of node id to heartbeat address.
+     * Nodes no longer included are forgotten.
+     */
+    public void setPeers(Map<String, String> nodeAddresses) {
+        Map<String, InetSocketAddress> newPeers = MutableMap.of();
+        for (Map.Entry<String, String> entry : nodeAddresses.entrySet()) {
+            if (ownNodeId.equals(entry.getKey()) || Strings.isBlank(entry.getValue())) continue;
+            InetSocketAddress existing = peers.get(entry.getKey());
+            HostAndPort hostAndPort = HostAndPort.fromString(entry.getValue());
+            if (existing!=null && existing.getPort()==hostAndPort.getPort() && existing.getHostString().equals(hostAndPort.getHostText())) {
+                newPeers.put(entry.getKey(), existing);
+            } else {
+                newPeers.put(entry.getKey(), new InetSocketAddress(hostAndPort.getHostText(), hostAndPort.getPort()));
+            }
+        }
+        for (String nodeId : peers.keySet()) {
+            if (!newPeers.containsKey(nodeId)) {
+                detector.remove(nodeId);
+                suspected.remove(nodeId);
+                lastSentTimes.remove(nodeId);
+            }
+        }
+        peers = ImmutableMap.copyOf(newPeers);
+    }
+
+    /**
+     * Whether the given peer is available according to its direct heartbeats;
+     * absent if none have been received from it, in which case only the persistence store can say.
+     */
+    public Maybe<Boolean> isAvailable(String nodeId) {
+        if (!detector.isMonitoring(nodeId)) return Maybe.absent("No direct heartbeats received from "+nodeId);
+        return Maybe.of(detector.isAvailable(nodeId, System.currentTimeMillis(), phiThreshold));
+    }
+
+    public double getPhi(String nodeId) {
+        return detector.phi(nodeId, System.currentTimeMillis());
+    }
+
+    /** The (local, UTC) time the last direct heartbeat was received from the given peer, if any. */
+    public Maybe<Long> getLastHeartbeat(String nodeId) {
+        return detector.getLastHeartbeat(nodeId);
+    }
+
+    public Duration getPeriod() {
+        return period;
+    }
+
+    protected void sendHeartbeats() {
+        DatagramSocket s = socket;
+        if (s==null) return;
+        String body = PACKET_PREFIX+ownNodeId+" "+System.currentTimeMillis();
+        byte[] data = (body+" "+BaseEncoding.base16().encode(sign(body))).getBytes(Charsets.UTF_8);
+        for (Map.Entry<String, InetSocketAddress> peer : peers.entrySet()) {
+            try {
+                s.send(new DatagramPacket(data, data.length, peer.getValue()));
+            } catch (IOException e) {
+                if (LOG.isTraceEnabled()) LOG.trace("Unable to send heartbeat from "+ownNodeId+" to "+peer.getKey()+" at "+peer.getValue()+": "+e);
+            }
+        }
+    }
+
+    protected void checkPeers() {
+        long now = System.currentTimeMillis();
+        for (String nodeId : peers.keySet()) {
+            if (!detector.isMonitoring(nodeId)) continue;
+            if (detector.isAvailable(nodeId, now, phiThreshold)) {
+                if (suspected.remove(nodeId)) LOG.info("Management node "+ownNodeId+" receiving direct heartbeats again from "+nodeId);
+            } else if (suspected.add(nodeId)) {
+                LOG.info("Management node "+ownNodeId+" suspects failure of "+nodeId+" (no direct heartbeat for "
+                        + Duration.millis(now - detector.getLastHeartbeat(nodeId).or(now))+", phi "+detector.phi(nodeId, now)+")");
+                Listener l = listener;
+                if (l!=null) {
+                    try {
+                        l.onPeerSuspected(nodeId);
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        LOG.warn("Problem notifying of suspected failure of "+nodeId+" (continuing): "+e, e);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void receive(DatagramSocket s) {
+        byte[] buffer = new byte[MAX_PACKET_SIZE];
+        while (!s.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                s.receive(packet);
+            } catch (IOException e) {
+                if (!s.isClosed()) LOG.debug("Problem receiving peer heartbeat at "+ownNodeId+" (continuing): "+e);
+                continue;
+            }
+            String message = new String(packet.getData(), packet.getOffset(), packet.getLength(), Charsets.UTF_8);
+            String nodeId = verify(message);
+            // only accept heartbeats from known peers, so that stray packets do not accumulate state
+            if (nodeId!=null && peers.containsKey(nodeId)) {
+                detector.heartbeat(nodeId, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Checks the message is a heartbeat signed with the shared secret, and later than the last one accepted from its sender.
+     * @return the id of the sending node, or null if the message is not to be accepted
+     */
+    @Nullable
+    protected String verify(String message) {
+        if (!message.startsWith(PACKET_PREFIX)) return null;
+        int macStart = message.lastIndexOf(' ');
+        int timeStart = message.lastIndexOf(' ', macStart-1);
+        if (timeStart < PACKET_PREFIX.length()) return null;
+        String body = message.substring(0, macStart);
+        byte[] mac;
+        long sentTime;
+        try {
+            mac = BaseEncoding.base16().decode(message.substring(macStart+1).trim());
+            sentTime = Long.parseLong(message.substring(timeStart+1, macStart));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(mac, sign(body))) {
+            if (LOG.isTraceEnabled()) LOG.trace("Ignoring unsigned or wrongly signed heartbeat at "+ownNodeId+": "+message);
+            return null;
+        }
+        String nodeId = message.substring(PACKET_PREFIX.length(), timeStart);
+        Long lastSentTime = lastSentTimes.get(nodeId);
+        if (lastSentTime!=null && sentTime <= lastSentTime) return null;
+        lastSentTimes.put(nodeId, sentTime);
+        return nodeId;
+    }
+
+    protected byte[] sign(String body) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac.doFinal(body.getBytes(Charsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PeerHeartbeater["+ownNodeId+"@"+address+"]";
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * A phi-accrual failure detector (Hayashibara et al.), as used for {@link PeerHeartbeater direct heartbeats} between management nodes.
+ * <p>
+ * Rather than a fixed timeout, this records the intervals between heartbeats from each node and reports a suspicion level, phi,
+ * for the time since the last one: phi is -log10 of the probability that a heartbeat would arrive this late, assuming intervals
+ * are normally distributed. So phi=1 means a 10% chance the node is still alive, phi=3 means 0.1%, and so on.
+ * A node is suspected when phi exceeds a threshold (typically 8 to 12).
+ * <p>
+ * Times are in milliseconds, from whatever clock the caller uses consistently.
+ */
+@Beta
+public class PhiAccrualFailureDetector {
+
+    private final int maxSampleSize;
+    private final long minStdDeviationMillis;
+    private final long acceptablePauseMillis;
+    private final long firstIntervalEstimateMillis;
+    private final ConcurrentMap<String, History> histories = Maps.newConcurrentMap();
+
+    /** intervals between heartbeats from one node; guarded by itself */
+    private static class History {
+        final Deque<Long> intervals = new ArrayDeque<Long>();
+        long lastTimestamp;
+        double sum;
+        double sumOfSquares;
+
+        void add(long interval, int maxSampleSize) {
+            if (intervals.size() >= maxSampleSize) {
+                long dropped = intervals.removeFirst();
+                sum -= dropped;
+                sumOfSquares -= (double)dropped*dropped;
+            }
+            intervals.addLast(interval);
+            sum += interval;
+            sumOfSquares += (double)interval*interval;
+        }
+    }
+
+    /**
+     * @param expectedInterval how often heartbeats are sent; used as the estimate until some have been received
+     * @param acceptablePause added to the mean interval, to tolerate occasional pauses (e.g. garbage collection) without suspicion
+     * @param minStdDeviation lower bound on the standard deviation, so that very regular heartbeats do not make phi over-sensitive
+     * @param maxSampleSize number of recent intervals to keep for each node
+     */
+    public PhiAccrualFailureDetector(Duration expectedInterval, Duration acceptablePause, Duration minStdDeviation, int maxSampleSize) {
+        Preconditions.checkArgument(maxSampleSize > 0, "maxSampleSize must be positive");
+        this.firstIntervalEstimateMillis = Preconditions.checkNotNull(expectedInterval, "expectedInterval").toMilliseconds();
+        this.acceptablePauseMillis = Preconditions.checkNotNull(acceptablePause, "acceptablePause").toMilliseconds();
+        this.minStdDeviationMillis = Math.max(1, Preconditions.checkNotNull(minStdDeviation, "minStdDeviation").toMilliseconds());
+        this.maxSampleSize = maxSampleSize;
+    }
+
+    /** Records a heartbeat from the given node at the given time. */
+    public void heartbeat(String nodeId, long timestampMillis) {
+        History history = histories.get(nodeId);
+        if (history==null) {
+            History newHistory = new History();
+            newHistory.lastTimestamp = timestampMillis;
+            // seed with the expected interval, so that phi is meaningful after the first heartbeat
+            newHistory.add(firstIntervalEstimateMillis, maxSampleSize);
+            history = histories.putIfAbsent(nodeId, newHistory);
+            if (history==null) return;
+        }
+        synchronized (history) {
+            long interval = timestampMillis - history.lastTimestamp;
+            if (interval < 0) return;
+            history.add(interval, maxSampleSize);
+            history.lastTimestamp = timestampMillis;
+        }
+    }
+
+    /** Whether any heartbeat has been recorded for the given node (since it was last {@link #remove(String) removed}). */
+    public boolean isMonitoring(String nodeId) {
+        return histories.containsKey(nodeId);
+    }
+
+    /** Time of the last heartbeat from the given node, if any. */
+    public Maybe<Long> getLastHeartbeat(String nodeId) {
+        History history = histories.get(nodeId);
+        if (history==null) return Maybe.absent("No heartbeats from "+nodeId);
+        synchronized (history) {
+            return Maybe.of(history.lastTimestamp);
+        }
+    }
+
+    /** The suspicion level for the given node at the given time; 0 if no heartbeats have been recorded for it. */
+    public double phi(String nodeId, long timestampMillis) {
+        History history = histories.get(nodeId);
+        if (history==null) return 0;
+        long timeSinceLast;
+        double mean;
+        double stdDeviation;
+        synchronized (history) {
+            timeSinceLast = timestampMillis - history.lastTimestamp;
+            int n = history.intervals.size();
+            mean = history.sum / n;
+            double variance = history.sumOfSquares / n - mean*mean;
+            stdDeviation = Math.sqrt(Math.max(variance, 0));
+        }
+        return phi(timeSinceLast, mean + acceptablePauseMillis, Math.max(stdDeviation, minStdDeviationMillis));
+    }
+
+    /** True unless the given node's phi is above the threshold; a node with no heartbeats recorded is not suspected. */
+    public boolean isAvailable(String nodeId, long timestampMillis, double threshold) {
+        return phi(nodeId, timestampMillis) < threshold;
+    }
+
+    /** Forgets the given node, e.g. when it leaves the management plane. */
+    public void remove(String nodeId) {
+        histories.remove(nodeId);
+    }
+
+    /**
+     * -log10 of the probability of an interval at least {@code timeSinceLast}, for a normal distribution;
+     * uses a logistic approximation of the cumulative distribution function, which is accurate to within 0.01%.
+     */
+    static double phi(long timeSinceLast, double mean, double stdDeviation) {
+        double y = (timeSinceLast - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (timeSinceLast > mean) {
+            return -Math.log10(e / (1.0 + e));
+        } else {
+            return -Math.log10(1.0 - 1.0 / (1.0 + e));
+        }
+    }
+
+}
@@ -53,6 +53,7 @@ public class BasicManagementNodeSyncRecord implements ManagementNodeSyncRecord,
         protected Long priority;
         protected long localTimestamp;
         protected Long remoteTimestamp;
+        protected String heartbeatAddress;
 
         protected Builder self() {
             return (Builder) this;
@@ -78,6 +79,9 @@ public class BasicManagementNodeSyncRecord implements ManagementNodeSyncRecord,
         public Builder remoteTimestamp(Long val) {
             remoteTimestamp = val; return self();
         }
+        public Builder heartbeatAddress(String val) {
+            heartbeatAddress = val; return self();
+        }
         public Builder from(ManagementNodeSyncRecord other) {
             return from(other, false);
         }
@@ -90,6 +94,9 @@ public class BasicManagementNodeSyncRecord implements ManagementNodeSyncRecord,
             if (other.getPriority()!=null) priority = other.getPriority();
             if (other.getLocalTimestamp()>0) localTimestamp = other.getLocalTimestamp();
             if (other.getRemoteTimestamp()!=null) remoteTimestamp = other.getRemoteTimestamp();
+            if (other instanceof BasicManagementNodeSyncRecord && ((BasicManagementNodeSyncRecord)other).getHeartbeatAddress()!=null) {
+                heartbeatAddress = ((BasicManagementNodeSyncRecord)other).getHeartbeatAddress();
+            }
             return this;
         }
         public ManagementNodeSyncRecord build() {
@@ -104,6 +111,7 @@ public class BasicManagementNodeSyncRecord implements ManagementNodeSyncRecord,
     private Long priority;
     private Long localTimestamp;
     private Long remoteTimestamp;
+    private String heartbeatAddress;
     
     /** @deprecated since 0.7.0, use {@link #localTimestamp} or {@link #remoteTimestamp},
      * but kept (or rather added back in) to support deserializing previous instances */
@@ -125,6 +133,7 @@ public class BasicManagementNodeSyncRecord implements ManagementNodeSyncRecord,
         priority = builder.priority;
         localTimestamp = builder.localTimestamp;
         remoteTimestamp = builder.remoteTimestamp;
+        heartbeatAddress = builder.heartbeatAddress;
     }
 
     @Override
@@ -164,6 +173,12 @@ public class BasicManagementNodeSyncRecord implements ManagementNodeSyncRecord,
         return remoteTimestamp;
     }
     
+    /** host:port at which the node receives direct heartbeats from its peers, or null if not enabled;
+     * see {@link org.apache.brooklyn.core.mgmt.ha.PeerHeartbeater} */
+    public String getHeartbeatAddress() {
+        return heartbeatAddress;
+    }
+    
     @Override
     public String toString() {
         return Objects.toStringHelper(this)
@@ -183,6 +198,7 @@ public class BasicManagementNodeSyncRecord implements ManagementNodeSyncRecord,
                 .add("localTimestamp", getLocalTimestamp()+"="+Time.makeDateString(getLocalTimestamp()))
                 .add("remoteTimestamp", getRemoteTimestamp()+(getRemoteTimestamp()==null ? "" : 
                     "="+Time.makeDateString(getRemoteTimestamp())))
+                .add("heartbeatAddress", getHeartbeatAddress())
                 .toString();
     }
 
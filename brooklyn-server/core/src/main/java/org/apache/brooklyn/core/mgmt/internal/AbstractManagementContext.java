@@ -172,6 +172,8 @@ public abstract class AbstractManagementContext implements ManagementContextInte
 
     protected final ExternalConfigSupplierRegistry configSupplierRegistry;
 
+    private final LifecycleConcurrencyGovernor lifecycleConcurrencyGovernor;
+
     private volatile boolean running = true;
     protected boolean startupComplete = false;
     protected final List<Throwable> errors = Collections.synchronizedList(MutableList.<Throwable>of());
@@ -196,6 +198,7 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         this.typeRegistry = new BasicBrooklynTypeRegistry(this);
         
         this.storage = new BrooklynStorageImpl(datagrid);
+        this.lifecycleConcurrencyGovernor = new LifecycleConcurrencyGovernor(this);
         this.rebindManager = new RebindManagerImpl(this); // TODO leaking "this" reference; yuck
         this.highAvailabilityManager = new HighAvailabilityManagerImpl(this); // TODO leaking "this" reference; yuck
         
@@ -519,4 +522,9 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         return configSupplierRegistry;
     }
 
+    @Override
+    public LifecycleConcurrencyGovernor getLifecycleConcurrencyGovernor() {
+        return lifecycleConcurrencyGovernor;
+    }
+
 }
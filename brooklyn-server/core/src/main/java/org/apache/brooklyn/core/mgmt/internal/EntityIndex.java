@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.Group;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.javalang.Reflections;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Indexes of the managed entities, maintained by {@link LocalEntityManager} as entities are managed and unmanaged
+ * (and as their tags change), so that lookups by type, tag or application do not need to scan every entity.
+ * <p>
+ * Entities are indexed by all the classes and interfaces of both the proxy and the real entity instance,
+ * so results for a type are a superset of the proxies which are an instance of that type.
+ * <p>
+ * Listeners can also be {@link #addListener(Key, CollectionChangeListener) registered} under a {@link Key}, to be told
+ * only of the entities managed and unmanaged under that key rather than of every entity.
+ *
+ * @see IndexedEntityPredicate
+ */
+@Beta
+public class EntityIndex {
+
+    /**
+     * A type, tag, application, parent or group under which a managed entity is indexed;
+     * see {@link IndexedEntityPredicate#getIndexKey(EntityIndex)}.
+     */
+    public static final class Key {
+        private final String kind;
+        private final Object value;
+
+        private Key(String kind, Object value) {
+            this.kind = kind;
+            this.value = checkNotNull(value, kind);
+        }
+
+        public static Key type(Class<?> type) {
+            return new Key("type", type);
+        }
+        public static Key tag(Object tag) {
+            return new Key("tag", tag);
+        }
+        public static Key application(String applicationId) {
+            return new Key("application", applicationId);
+        }
+        /** parent of the entity, at the time it is managed */
+        public static Key parent(String parentId) {
+            return new Key("parent", parentId);
+        }
+        /** a group of which the entity is a member, at the time it is managed */
+        public static Key group(String groupId) {
+            return new Key("group", groupId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return kind.equals(other.kind) && value.equals(other.value);
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(kind, value);
+        }
+        @Override
+        public String toString() {
+            return kind+"="+value;
+        }
+    }
+
+    private final Map<Class<?>, Set<Entity>> byType = Maps.newConcurrentMap();
+    private final Map<Object, Set<Entity>> byTag = Maps.newConcurrentMap();
+    private final Map<String, Set<Entity>> byApplicationId = Maps.newConcurrentMap();
+
+    /** types, tags and application each entity was indexed under, keyed by entity id; needed to unindex */
+    private final Map<String, Set<Class<?>>> indexedTypes = Maps.newConcurrentMap();
+    private final Map<String, Set<Object>> indexedTags = Maps.newConcurrentMap();
+    private final Map<String, String> indexedApplicationIds = Maps.newConcurrentMap();
+
+    private final Map<Key, Set<CollectionChangeListener<Entity>>> listeners = Maps.newConcurrentMap();
+    /** listeners which maintain the members of a group, keyed by the id of that group */
+    private final Map<String, Set<CollectionChangeListener<Entity>>> listenersByOwnerId = Maps.newConcurrentMap();
+
+    /** returns the managed entities which are (or whose implementation is) an instance of the given type */
+    public Collection<Entity> getEntitiesOfType(Class<?> type) {
+        return copy(byType.get(type));
+    }
+
+    /** returns the managed entities which have the given tag */
+    public Collection<Entity> getEntitiesWithTag(Object tag) {
+        return copy(byTag.get(tag));
+    }
+
+    /** returns the managed entities in the given application */
+    public Collection<Entity> getEntitiesInApplication(String applicationId) {
+        return copy(byApplicationId.get(applicationId));
+    }
+
+    /** returns those of the given entities which are managed, e.g. to filter the children or members of an entity */
+    public Collection<Entity> getManaged(Iterable<? extends Entity> entities) {
+        List<Entity> result = MutableList.of();
+        for (Entity entity : entities) {
+            if (indexedTypes.containsKey(entity.getId())) result.add(entity);
+        }
+        return result;
+    }
+
+    /**
+     * Registers a listener to be told of entities which are managed or unmanaged while indexed under the given key.
+     * It is called synchronously by the entity manager, so should normally hand off to another thread
+     * (e.g. using {@link AsyncCollectionChangeAdapter}).
+     */
+    public void addListener(Key key, CollectionChangeListener<Entity> listener) {
+        addListener(key, null, listener);
+    }
+
+    /**
+     * As {@link #addListener(Key, CollectionChangeListener)}, for a listener which maintains the members of the given group
+     * (e.g. a {@code DynamicGroup}); it is also told when any member of that group is unmanaged,
+     * even if the member is no longer indexed under the key (e.g. its tags have changed since it was added).
+     */
+    public synchronized void addListener(Key key, @Nullable Group owner, CollectionChangeListener<Entity> listener) {
+        add(listeners, key, listener);
+        if (owner!=null) add(listenersByOwnerId, owner.getId(), listener);
+    }
+
+    /** removes the listener, under whichever keys it was registered */
+    public synchronized void removeListener(CollectionChangeListener<Entity> listener) {
+        remove(listeners, listener);
+        remove(listenersByOwnerId, listener);
+    }
+
+    /** returns the listeners registered under any of the keys the given (managed) entity is currently indexed under */
+    synchronized Set<CollectionChangeListener<Entity>> getListeners(Entity proxy) {
+        return getListeners(proxy, proxy.getParent(), proxy.groups());
+    }
+
+    /**
+     * returns the listeners registered under any of the keys the given entity is indexed under, taking its parent and groups
+     * as given (as these are cleared before an entity is unmanaged), and those registered as the owner of any of those groups
+     */
+    synchronized Set<CollectionChangeListener<Entity>> getListeners(Entity proxy, @Nullable Entity parent, Iterable<Group> groups) {
+        if (listeners.isEmpty()) return ImmutableSet.of();
+        Set<CollectionChangeListener<Entity>> result = MutableSet.of();
+        for (Key key : getKeys(proxy, parent, groups)) {
+            Set<CollectionChangeListener<Entity>> keyListeners = listeners.get(key);
+            if (keyListeners!=null) result.addAll(keyListeners);
+        }
+        for (Group group : groups) {
+            Set<CollectionChangeListener<Entity>> ownerListeners = listenersByOwnerId.get(group.getId());
+            if (ownerListeners!=null) result.addAll(ownerListeners);
+        }
+        return result;
+    }
+
+    private Set<Key> getKeys(Entity proxy, Entity parent, Iterable<Group> groups) {
+        Set<Key> result = MutableSet.of();
+        Set<Class<?>> types = indexedTypes.get(proxy.getId());
+        if (types!=null) {
+            for (Class<?> type : types) {
+                result.add(Key.type(type));
+            }
+        }
+        Set<Object> tags = indexedTags.get(proxy.getId());
+        if (tags!=null) {
+            for (Object tag : tags) {
+                result.add(Key.tag(tag));
+            }
+        }
+        String applicationId = indexedApplicationIds.get(proxy.getId());
+        if (applicationId!=null) result.add(Key.application(applicationId));
+        if (parent!=null) result.add(Key.parent(parent.getId()));
+        for (Group group : groups) {
+            result.add(Key.group(group.getId()));
+        }
+        return result;
+    }
+
+    private static Collection<Entity> copy(Set<Entity> entities) {
+        if (entities==null) return ImmutableList.of();
+        return ImmutableList.copyOf(entities);
+    }
+
+    /** 
+     * @param proxy the proxy (if available) for a newly managed entity, which is what will be returned by lookups
+     * @param real the real entity instance
+     */
+    synchronized void onManaged(Entity proxy, Entity real) {
+        Set<Class<?>> types = getTypes(proxy.getClass(), real.getClass());
+        indexedTypes.put(proxy.getId(), types);
+        for (Class<?> type : types) {
+            add(byType, type, proxy);
+        }
+        if (proxy.getApplicationId()!=null) {
+            add(byApplicationId, proxy.getApplicationId(), proxy);
+            indexedApplicationIds.put(proxy.getId(), proxy.getApplicationId());
+        }
+        onTagsChanged(proxy);
+    }
+
+    synchronized void onUnmanaged(Entity proxy) {
+        Set<Class<?>> types = indexedTypes.remove(proxy.getId());
+        if (types!=null) {
+            for (Class<?> type : types) {
+                remove(byType, type, proxy);
+            }
+        }
+        String applicationId = indexedApplicationIds.remove(proxy.getId());
+        if (applicationId!=null) {
+            remove(byApplicationId, applicationId, proxy);
+        }
+        Set<Object> oldTags = indexedTags.remove(proxy.getId());
+        if (oldTags!=null) {
+            for (Object tag : oldTags) {
+                remove(byTag, tag, proxy);
+            }
+        }
+    }
+
+    synchronized void onTagsChanged(Entity proxy) {
+        if (!indexedTypes.containsKey(proxy.getId())) {
+            // not (or no longer) managed
+            return;
+        }
+        Set<Object> newTags = ImmutableSet.copyOf(proxy.tags().getTags());
+        Set<Object> oldTags = indexedTags.put(proxy.getId(), newTags);
+        if (oldTags!=null) {
+            for (Object tag : Sets.difference(oldTags, newTags)) {
+                remove(byTag, tag, proxy);
+            }
+        }
+        for (Object tag : newTags) {
+            add(byTag, tag, proxy);
+        }
+    }
+
+    private static Set<Class<?>> getTypes(Class<?> proxyType, Class<?> realType) {
+        Set<Class<?>> result = MutableSet.of();
+        for (Class<?> type = realType; type != null; type = type.getSuperclass()) {
+            result.add(type);
+        }
+        result.addAll(Reflections.getAllInterfaces(realType));
+        result.addAll(Reflections.getAllInterfaces(proxyType));
+        return result;
+    }
+
+    private static <K,V> void add(Map<K, Set<V>> index, K key, V value) {
+        Set<V> values = index.get(key);
+        if (values==null) {
+            values = Sets.newConcurrentHashSet();
+            index.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private static <K,V> void remove(Map<K, Set<V>> index, K key, V value) {
+        Set<V> values = index.get(key);
+        if (values!=null) {
+            values.remove(value);
+            if (values.isEmpty()) index.remove(key);
+        }
+    }
+
+    /** removes the value under whichever keys it is found */
+    private static <K,V> void remove(Map<K, Set<V>> index, V value) {
+        for (Iterator<Set<V>> it = index.values().iterator(); it.hasNext(); ) {
+            Set<V> values = it.next();
+            values.remove(value);
+            if (values.isEmpty()) it.remove();
+        }
+    }
+
+}
@@ -417,6 +417,9 @@ public class EntityManagementSupport {
         @Override
         public void onTagsChanged() {
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
+            if (getManagementContext().getEntityManager() instanceof LocalEntityManager) {
+                ((LocalEntityManager)getManagementContext().getEntityManager()).onTagsChanged(entity);
+            }
         }
         @Override
         public void onMembersChanged() {
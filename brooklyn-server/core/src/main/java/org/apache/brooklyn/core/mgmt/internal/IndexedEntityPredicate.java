@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.util.Collection;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.util.guava.Maybe;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
+
+/**
+ * An entity predicate which can nominate candidate entities from an {@link EntityIndex},
+ * so that callers (such as {@link org.apache.brooklyn.entity.group.DynamicGroup}) need not
+ * evaluate it against every managed entity.
+ * <p>
+ * The candidates must include every managed entity which satisfies the predicate;
+ * callers still apply the predicate to each candidate. Likewise callers listening for newly managed entities
+ * can be told of just those indexed under its {@link #getIndexKey(EntityIndex) key}.
+ */
+@Beta
+public interface IndexedEntityPredicate extends Predicate<Entity> {
+
+    /** returns the candidates for this predicate, or absent if the index cannot narrow them down */
+    Maybe<Collection<Entity>> getCandidates(EntityIndex index);
+
+    /**
+     * returns a key under which every entity satisfying this predicate is indexed when it is managed,
+     * for listening to just those entities; or absent if there is no such key
+     */
+    Maybe<EntityIndex.Key> getIndexKey(EntityIndex index);
+
+}
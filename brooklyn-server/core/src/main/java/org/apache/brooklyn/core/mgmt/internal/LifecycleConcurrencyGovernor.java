@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.location.MachineLocation;
+import org.apache.brooklyn.api.location.MachineProvisioningLocation;
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.location.LocationConfigKeys;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.mutex.SemaphoreForTasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Limits how many lifecycle operations run concurrently against a single location, across the whole management context.
+ * <p>
+ * Two kinds of operation are governed:
+ * <ul>
+ *   <li>provisioning (obtaining and releasing machines) per {@link MachineProvisioningLocation},
+ *       limited by {@link #MAX_CONCURRENT_PROVISIONS}; this protects cloud API rate limits
+ *   <li>installation per target host, limited by {@link #MAX_CONCURRENT_INSTALLS}; this protects the host's ssh daemon
+ * </ul>
+ * The limits can be set on the location (or a parent location), or in brooklyn.properties as a default for all locations;
+ * if not set (or not positive) the operation is unlimited, as before.
+ * <p>
+ * Queuing is fair (first come, first served). While an entity is queued, its {@link #QUEUED_LIFECYCLE_OPERATION} sensor
+ * describes what it is waiting for, and the task's blocking details show its position in the queue.
+ * The counts queued and active for each location are available from {@link #getQueuedCounts()} and {@link #getActiveCounts()}
+ * (rather than published on every entity using the location, which would cost a sensor event per entity on each change).
+ * <p>
+ * There is one semaphore per location key. Locations sharing a key (e.g. the same cloud region) may configure different
+ * limits, in which case the smallest seen applies; when it is lowered the permits are adjusted
+ * (callers already holding permits keep them, but no more are granted until the count is under the new limit).
+ */
+@Beta
+public class LifecycleConcurrencyGovernor {
+
+    private static final Logger log = LoggerFactory.getLogger(LifecycleConcurrencyGovernor.class);
+
+    public static final ConfigKey<Integer> MAX_CONCURRENT_PROVISIONS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.lifecycle.maxConcurrentProvisionsPerLocation",
+            "Maximum number of machines to obtain or release concurrently in a single provisioning location "
+            + "(or cloud provider endpoint and region); unlimited if not set",
+            null);
+
+    public static final ConfigKey<Integer> MAX_CONCURRENT_INSTALLS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.lifecycle.maxConcurrentInstallsPerHost",
+            "Maximum number of entities to install concurrently on a single host; unlimited if not set",
+            null);
+
+    public static final AttributeSensor<String> QUEUED_LIFECYCLE_OPERATION = Sensors.newStringSensor(
+            "lifecycle.queued",
+            "Description of the lifecycle operation this entity is queued for, because of concurrency limits; null if not queued");
+
+    public static final String PROVISIONING = "provisioning";
+    public static final String INSTALLING = "installing";
+
+    private final ManagementContext managementContext;
+    private final ConcurrentMap<String, Permits> permits = Maps.newConcurrentMap();
+
+    /** the semaphore for a key, whose number of permits can be changed */
+    protected static class Permits extends SemaphoreForTasks {
+        private static final long serialVersionUID = -3408290347215307516L;
+
+        private int limit;
+        private boolean adjusting;
+
+        Permits(String key, int limit, ManagementContext managementContext) {
+            super(key, limit, true, managementContext);
+            this.limit = limit;
+            setDescription("at most "+limit+" concurrent");
+        }
+
+        public synchronized int getLimit() {
+            return limit;
+        }
+
+        /** changes the number of permits; if reduced below the number held, no more are granted until enough are released */
+        synchronized void setLimit(int newLimit) {
+            if (newLimit > limit) {
+                adjusting = true;
+                try {
+                    release(newLimit - limit);
+                } finally {
+                    adjusting = false;
+                }
+            } else if (newLimit < limit) {
+                reducePermits(limit - newLimit);
+            }
+            limit = newLimit;
+            setDescription("at most "+limit+" concurrent");
+        }
+
+        @Override
+        protected synchronized void onReleased(int permits) {
+            // permits added by setLimit are not owned by anyone
+            if (!adjusting) super.onReleased(permits);
+        }
+    }
+
+    public LifecycleConcurrencyGovernor(ManagementContext managementContext) {
+        this.managementContext = Preconditions.checkNotNull(managementContext, "managementContext");
+    }
+
+    /** Runs the given job (e.g. obtaining or releasing a machine) once a provisioning permit for the location is available. */
+    public <T> T runWithProvisioningPermit(@Nullable Entity entity, MachineProvisioningLocation<?> location, Callable<T> job) {
+        return runWithPermit(entity, PROVISIONING, getProvisioningKey(location), getLimit(location, MAX_CONCURRENT_PROVISIONS),
+                "provisioning in "+location.getDisplayName(), job);
+    }
+
+    /** Runs the given job (e.g. an install phase) once an install permit for the host of the given machine is available. */
+    public <T> T runWithInstallPermit(@Nullable Entity entity, MachineLocation machine, Callable<T> job) {
+        return runWithPermit(entity, INSTALLING, getHostKey(machine), getLimit(machine, MAX_CONCURRENT_INSTALLS),
+                "installing at "+machine.getDisplayName(), job);
+    }
+
+    /**
+     * Runs the given job while holding a permit for the given category and key,
+     * queuing fairly behind other callers if {@code limit} permits are already held.
+     * A null or non-positive limit runs the job immediately.
+     */
+    public <T> T runWithPermit(@Nullable Entity entity, String category, String key, @Nullable Integer limit, String description, Callable<T> job) {
+        if (limit==null || limit<=0) {
+            return call(job);
+        }
+        Permits semaphore = getSemaphore(category+":"+key, limit);
+        try {
+            if (!semaphore.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                int ahead = semaphore.getRequestingThreads().size();
+                if (log.isDebugEnabled()) log.debug("Queuing {} for {} ({} concurrent, {} ahead in queue)", new Object[] {entity, description, semaphore.getLimit(), ahead});
+                setSensor(entity, QUEUED_LIFECYCLE_OPERATION, description+" ("+ahead+" ahead in queue, limit "+semaphore.getLimit()+")");
+                try {
+                    semaphore.acquire();
+                } finally {
+                    setSensor(entity, QUEUED_LIFECYCLE_OPERATION, null);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+        try {
+            return call(job);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /** number of operations currently queued, keyed by category and key (e.g. {@code provisioning:aws-ec2/us-east-1}) */
+    public Map<String, Integer> getQueuedCounts() {
+        Map<String, Integer> result = MutableMap.of();
+        for (Map.Entry<String, Permits> entry : permits.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getRequestingThreads().size());
+        }
+        return result;
+    }
+
+    /** number of operations currently holding a permit, keyed by category and key */
+    public Map<String, Integer> getActiveCounts() {
+        Map<String, Integer> result = MutableMap.of();
+        for (Map.Entry<String, Permits> entry : permits.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getOwningThreads().size());
+        }
+        return result;
+    }
+
+    /**
+     * returns the one semaphore for the key, lowering its permits if the given limit is smaller than its current one;
+     * so where callers sharing a key give different limits, the smallest applies, whatever order they come in
+     */
+    protected Permits getSemaphore(String key, int limit) {
+        Permits result = permits.get(key);
+        if (result==null) {
+            Permits created = new Permits(key, limit, managementContext);
+            result = permits.putIfAbsent(key, created);
+            if (result==null) return created;
+        }
+        synchronized (result) {
+            int current = result.getLimit();
+            if (limit < current) {
+                log.warn("Conflicting limits for concurrent lifecycle operations on {}: {} and {}; using the smaller", new Object[] {key, current, limit});
+                result.setLimit(limit);
+            } else if (limit > current && log.isDebugEnabled()) {
+                log.debug("Conflicting limits for concurrent lifecycle operations on {}: {} and {}; keeping the smaller", new Object[] {key, current, limit});
+            }
+        }
+        return result;
+    }
+
+    protected Integer getLimit(Location location, ConfigKey<Integer> key) {
+        Integer result = location.getConfig(key);
+        if (result==null) result = managementContext.getConfig().getConfig(key);
+        return result;
+    }
+
+    /** cloud locations are keyed by provider, endpoint and region, so that separate location instances share a limit */
+    protected String getProvisioningKey(MachineProvisioningLocation<?> location) {
+        String provider = location.getConfig(LocationConfigKeys.CLOUD_PROVIDER);
+        if (Strings.isBlank(provider)) return location.getId();
+        return provider+"/"+location.getConfig(LocationConfigKeys.CLOUD_ENDPOINT)+"/"+location.getConfig(LocationConfigKeys.CLOUD_REGION_ID);
+    }
+
+    protected String getHostKey(MachineLocation machine) {
+        try {
+            InetAddress address = machine.getAddress();
+            if (address!=null) return address.getHostAddress();
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.debug("Unable to determine address of "+machine+" (using id to limit concurrent installs): "+e);
+        }
+        return machine.getId();
+    }
+
+    private static <T> void setSensor(Entity entity, AttributeSensor<T> sensor, T value) {
+        if (entity!=null && Entities.isManaged(entity)) {
+            entity.sensors().set(sensor, value);
+        }
+    }
+
+    private static <T> T call(Callable<T> job) {
+        try {
+            return job.call();
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+}
@@ -60,6 +60,7 @@ import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.collections.SetFromLiveMap;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.time.CountdownTimer;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
@@ -69,7 +70,6 @@ import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -107,6 +107,9 @@ public class LocalEntityManager implements EntityManagerInternal {
     /** Proxies of the managed entities that are applications */
     protected final Set<Application> applications = Sets.newConcurrentHashSet();
 
+    /** indexes of the managed entities (by type, tag, etc), updated in step with {@link #entityProxiesById} */
+    protected final EntityIndex index = new EntityIndex();
+
     private final BrooklynStorage storage;
     private final Map<String,String> entityTypes;
     private final Set<String> applicationIds;
@@ -192,19 +195,45 @@ public class LocalEntityManager implements EntityManagerInternal {
     
     @Override
     public Collection<Entity> getEntitiesInApplication(Application application) {
-        Predicate<Entity> predicate = EntityPredicates.applicationIdEqualTo(application.getId());
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return index.getEntitiesInApplication(application.getId());
     }
 
+    /**
+     * Returns the managed entities matching the given filter; if the filter is an {@link IndexedEntityPredicate}
+     * then only the candidates it nominates from the {@link #getIndex() index} are checked.
+     */
     @Override
     public Collection<Entity> findEntities(Predicate<? super Entity> filter) {
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), filter));
+        return ImmutableList.copyOf(Iterables.filter(getCandidates(filter), filter));
+    }
+
+    /** 
+     * Returns a superset of the managed entities which match the given filter: 
+     * either as nominated from the index (if supported by the filter) or all managed entities.
+     */
+    @Beta
+    public Collection<Entity> getCandidates(Predicate<? super Entity> filter) {
+        if (filter instanceof IndexedEntityPredicate) {
+            Maybe<Collection<Entity>> candidates = ((IndexedEntityPredicate)filter).getCandidates(index);
+            if (candidates.isPresent()) return candidates.get();
+        }
+        return entityProxiesById.values();
+    }
+
+    @Beta
+    public EntityIndex getIndex() {
+        return index;
+    }
+
+    /** to be invoked when the tags on the given entity change, to update the {@link #getIndex() index} */
+    void onTagsChanged(Entity e) {
+        Entity proxyE = entityProxiesById.get(e.getId());
+        if (proxyE != null) index.onTagsChanged(proxyE);
     }
     
     @Override
     public Collection<Entity> findEntitiesInApplication(Application application, Predicate<? super Entity> filter) {
-        Predicate<Entity> predicate = Predicates.and(EntityPredicates.applicationIdEqualTo(application.getId()), filter);
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return ImmutableList.copyOf(Iterables.filter(index.getEntitiesInApplication(application.getId()), filter));
     }
 
     @Override
@@ -663,14 +692,20 @@ public class LocalEntityManager implements EntityManagerInternal {
         entityProxiesById.put(e.getId(), proxyE);
         entityTypes.put(e.getId(), realE.getClass().getName());
         entitiesById.put(e.getId(), realE);
+        if (oldProxy!=null) index.onUnmanaged(oldProxy);
+        index.onManaged(proxyE, realE);
 
         preManagedEntitiesById.remove(e.getId());
         if ((e instanceof Application) && (e.getParent()==null)) {
             applications.add((Application)proxyE);
             applicationIds.add(e.getId());
         }
-        if (!entities.contains(proxyE)) 
+        if (!entities.contains(proxyE)) {
             entities.add(proxyE);
+            for (CollectionChangeListener<Entity> listener : index.getListeners(proxyE)) {
+                listener.onItemAdded(proxyE);
+            }
+        }
         
         if (old!=null && old!=e) {
             // passing the transition info will ensure the right shutdown steps invoked for old instance
@@ -702,6 +737,10 @@ public class LocalEntityManager implements EntityManagerInternal {
          * from its groups?
          */
         
+        // the index listeners to tell are found from the parent and groups before they are cleared
+        Entity formerParent = e.getParent();
+        Collection<Group> formerGroups = ImmutableList.copyOf(e.groups());
+        
         if (!getLastManagementTransitionMode(e.getId()).isReadOnly()) {
             e.clearParent();
             for (Group group : e.groups()) {
@@ -725,7 +764,11 @@ public class LocalEntityManager implements EntityManagerInternal {
             }
 
             entities.remove(proxyE);
+            for (CollectionChangeListener<Entity> listener : index.getListeners(proxyE, formerParent, formerGroups)) {
+                listener.onItemRemoved(proxyE);
+            }
             entityProxiesById.remove(e.getId());
+            index.onUnmanaged(proxyE);
             entityModesById.remove(e.getId());
             Object old = entitiesById.remove(e.getId());
 
@@ -750,9 +793,39 @@ public class LocalEntityManager implements EntityManagerInternal {
         entities.addPropertyChangeListener(new GroovyObservablesPropertyChangeToCollectionChangeAdapter(wrappedListener));
     }
 
+    /**
+     * As {@link #addEntitySetListener(CollectionChangeListener)}, but if the filter is an {@link IndexedEntityPredicate}
+     * with an {@link IndexedEntityPredicate#getIndexKey(EntityIndex) index key} the listener is only told of entities
+     * managed or unmanaged under that key, rather than of every entity. The listener should still apply the filter.
+     * <p>
+     * Remove it with {@link #removeEntitySetListener(CollectionChangeListener)}.
+     */
+    @Beta
+    public void addEntitySetListener(Predicate<? super Entity> filter, CollectionChangeListener<Entity> listener) {
+        addEntitySetListener(null, filter, listener);
+    }
+
+    /**
+     * As {@link #addEntitySetListener(Predicate, CollectionChangeListener)}, for a listener which maintains the members
+     * of the given group: it is also told when any member of the group is unmanaged, even if that member
+     * is no longer indexed under the filter's key (see {@link EntityIndex#addListener(EntityIndex.Key, Group, CollectionChangeListener)}).
+     */
+    @Beta
+    public void addEntitySetListener(@Nullable Group owner, Predicate<? super Entity> filter, CollectionChangeListener<Entity> listener) {
+        if (filter instanceof IndexedEntityPredicate) {
+            Maybe<EntityIndex.Key> key = ((IndexedEntityPredicate)filter).getIndexKey(index);
+            if (key.isPresent()) {
+                index.addListener(key.get(), owner, new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener));
+                return;
+            }
+        }
+        addEntitySetListener(listener);
+    }
+
     void removeEntitySetListener(CollectionChangeListener<Entity> listener) {
         AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
         entities.removePropertyChangeListener(new GroovyObservablesPropertyChangeToCollectionChangeAdapter(wrappedListener));
+        index.removeListener(wrappedListener);
     }
     
     private boolean shouldSkipUnmanagement(Entity e) {
@@ -122,4 +122,8 @@ public interface ManagementContextInternal extends ManagementContext {
     @Beta
     ExternalConfigSupplierRegistry getExternalConfigProviderRegistry();
 
+    /** Limits concurrent lifecycle operations (provisioning, installing) per location. */
+    @Beta
+    LifecycleConcurrencyGovernor getLifecycleConcurrencyGovernor();
+
 }
@@ -488,6 +488,12 @@ public class NonDeploymentManagementContext implements ManagementContextInternal
         return initialManagementContext.getExternalConfigProviderRegistry();
     }
 
+    @Override
+    public LifecycleConcurrencyGovernor getLifecycleConcurrencyGovernor() {
+        checkInitialManagementContextReal();
+        return initialManagementContext.getLifecycleConcurrencyGovernor();
+    }
+
     /**
      * For when the initial management context is not "real"; the changeListener is a no-op, but everything else forbidden.
      * 
@@ -30,6 +30,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -60,6 +61,7 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.xstream.XmlUtil;
 import org.apache.brooklyn.util.exceptions.CompoundRuntimeException;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Identifiers;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
@@ -67,10 +69,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -97,6 +102,31 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    @Beta
+    public static final ConfigKey<String> PERSISTER_REPLICATION_CHANNEL = ConfigKeys.newStringConfigKey(
+            "persister.replication.channel",
+            "Name of a channel on which the master publishes each persisted delta, "
+            + "so that hot standbys apply the changes rather than re-reading the entire store; if not set, changes are not replicated. "
+            + "Only management nodes in the same JVM can share a channel (there is not yet a network transport), "
+            + "so this is of use for tests and embedded set-ups rather than for nodes on separate servers",
+            null);
+
+    @Beta
+    public static final ConfigKey<Integer> PERSISTER_MAX_CACHED_OBJECT_LENGTH = ConfigKeys.newIntegerConfigKey(
+            "persister.cache.maxObjectLength",
+            "Length (in characters) of the longest serialized object which a hot standby keeps in memory between loads of the persisted state; "
+            + "larger objects are read from the store each time the state is loaded",
+            1000*1000);
+
+    /**
+     * Rewritten by the master after each delta or checkpoint, so that readers can tell cheaply that nothing has changed.
+     * Only written when {@link #setChangeMarkerEnabled(boolean) enabled}, i.e. when running with HA;
+     * if it cannot be rewritten it is deleted, so that readers list the store.
+     * @see IncrementalMementoLoader
+     */
+    @Beta
+    public static final String CHANGE_MARKER_PATH = "changes/marker";
+
     private final PersistenceObjectStore objectStore;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
 
@@ -116,6 +146,19 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
      */
     private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
 
+    private volatile MementoReplicationChannel replicationChannel;
+    private volatile String writeSourceId;
+    private final AtomicLong writeSequence = new AtomicLong();
+    private volatile boolean changeMarkerEnabled = false;
+    private StoreObjectAccessorWithLock changeMarkerWriter;
+    private volatile MementoReplica replica;
+    private volatile MementoReplica detachedReplica;
+    private final AtomicLong storeLoadCount = new AtomicLong();
+    private volatile IncrementalMementoLoader incrementalLoader;
+    private final int maxCachedObjectLength;
+    /** parsed manifest entries of the objects last loaded, keyed by type and id, so unchanged objects are not parsed again */
+    private volatile Map<String, CachedManifestEntry> manifestCache = ImmutableMap.of();
+
     public BrooklynMementoPersisterToObjectStore(PersistenceObjectStore objectStore, StringConfigMap brooklynProperties, ClassLoader classLoader) {
         this.objectStore = checkNotNull(objectStore, "objectStore");
         this.brooklynProperties = brooklynProperties;
@@ -125,6 +168,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
 
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
+        maxCachedObjectLength = brooklynProperties.getConfig(PERSISTER_MAX_CACHED_OBJECT_LENGTH);
+        
+        String replicationChannelName = brooklynProperties.getConfig(PERSISTER_REPLICATION_CHANNEL);
+        if (Strings.isNonBlank(replicationChannelName)) {
+            replicationChannel = LocalMementoReplicationChannel.named(replicationChannelName);
+        }
 
         objectStore.createSubPath("entities");
         objectStore.createSubPath("locations");
@@ -132,6 +181,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         objectStore.createSubPath("enrichers");
         objectStore.createSubPath("feeds");
         objectStore.createSubPath("catalog");
+        objectStore.createSubPath("changes");
 
         // FIXME does it belong here or to ManagementPlaneSyncRecordPersisterToObjectStore ?
         objectStore.createSubPath("plane");
@@ -184,7 +234,108 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
     
+    /** Sets the channel on which deltas are published when master, and received when in a hot mode; null to not replicate. */
+    @Beta
+    public void setReplicationChannel(@Nullable MementoReplicationChannel replicationChannel) {
+        stopReplica();
+        this.replicationChannel = replicationChannel;
+    }
+    
+    @Beta @Nullable
+    public MementoReplicationChannel getReplicationChannel() {
+        return replicationChannel;
+    }
+    
+    /**
+     * Starts maintaining a replica of the persisted state from the deltas published by the master,
+     * used by {@link #loadMementoRawData(RebindExceptionHandler)} in place of reading the entire store.
+     * Does nothing if there is no {@link #getReplicationChannel() replication channel}.
+     */
+    @Beta
+    public void startReplica() {
+        detachedReplica = null;
+        MementoReplicationChannel channel = replicationChannel;
+        if (channel==null || replica!=null) return;
+        MementoReplica newReplica = new MementoReplica(maxCachedObjectLength);
+        channel.subscribe(newReplica);
+        replica = newReplica;
+    }
+    
+    /** Stops maintaining the replica, so that subsequent loads read the store. */
+    @Beta
+    public void stopReplica() {
+        detachedReplica = null;
+        MementoReplica oldReplica = unsubscribeReplica();
+        if (oldReplica!=null) oldReplica.invalidate();
+    }
+    
+    /**
+     * Stops maintaining the replica, but keeps what it holds for the next {@link #loadMementoRawData(RebindExceptionHandler)},
+     * which uses it (once) in place of reading the store if the {@link #CHANGE_MARKER_PATH change marker} shows that nothing
+     * has been written since the last delta applied. For use when a hot standby is promoted to master.
+     */
+    @Beta
+    public void detachReplica() {
+        MementoReplica oldReplica = unsubscribeReplica();
+        if (oldReplica!=null) detachedReplica = oldReplica;
+    }
+    
+    private MementoReplica unsubscribeReplica() {
+        MementoReplica oldReplica = replica;
+        if (oldReplica==null) return null;
+        replica = null;
+        MementoReplicationChannel channel = replicationChannel;
+        if (channel!=null) channel.unsubscribe(oldReplica);
+        return oldReplica;
+    }
+    
+    @Beta @Nullable
+    public MementoReplica getReplica() {
+        return replica;
+    }
+    
+    /**
+     * Starts reading only changed objects on each {@link #loadMementoRawData(RebindExceptionHandler)},
+     * for use when loading repeatedly in a hot mode; see {@link IncrementalMementoLoader}.
+     */
+    @Beta
+    public void startIncrementalLoading() {
+        if (incrementalLoader==null) incrementalLoader = new IncrementalMementoLoader(objectStore, executor, maxCachedObjectLength);
+    }
+    
+    /** number of times the persisted state has been read from the store, rather than taken from a replica */
+    @VisibleForTesting
+    public long getStoreLoadCount() {
+        return storeLoadCount.get();
+    }
+    
+    /** Stops reading incrementally, so that subsequent loads read the entire store. */
+    @Beta
+    public void stopIncrementalLoading() {
+        incrementalLoader = null;
+    }
+    
+    @Beta @Nullable
+    public IncrementalMementoLoader getIncrementalLoader() {
+        return incrementalLoader;
+    }
+    
+    /**
+     * Whether to rewrite the {@link #CHANGE_MARKER_PATH change marker} after each write.
+     * It is only read by standbys, so is not needed (and costs a write each time) when HA is disabled.
+     */
+    @Beta
+    public void setChangeMarkerEnabled(boolean changeMarkerEnabled) {
+        this.changeMarkerEnabled = changeMarkerEnabled;
+    }
+    
     @Override public void enableWriteAccess() {
+        stopReplica();
+        stopIncrementalLoading();
+        manifestCache = ImmutableMap.of();
+        // writes in this period of write access are numbered afresh; standbys catch up from the store when they see a new source 
+        writeSourceId = Identifiers.makeRandomId(8);
+        writeSequence.set(0);
         writesAllowed = true;
     }
     
@@ -207,6 +358,9 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     @Override 
     public void stop(boolean graceful) {
         disableWriteAccess(graceful);
+        stopReplica();
+        stopIncrementalLoading();
+        manifestCache = ImmutableMap.of();
         
         if (executor != null) {
             if (graceful) {
@@ -277,6 +431,74 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     }
     
     public BrooklynMementoRawData loadMementoRawData(final RebindExceptionHandler exceptionHandler) {
+        MementoReplica currentReplica = replica;
+        if (currentReplica!=null) {
+            return currentReplica.get(new ReplicaStoreReader(exceptionHandler));
+        }
+        MementoReplica oldReplica = detachedReplica;
+        if (oldReplica!=null) {
+            detachedReplica = null;
+            // only safe if the old master wrote nothing after its last published delta
+            String changeMarker = readChangeMarker();
+            BrooklynMementoRawData result = oldReplica.getIfAt(changeMarker, new ReplicaStoreReader(exceptionHandler));
+            if (result!=null) {
+                LOG.debug("Using replicated persisted state at {} in place of reading {}", changeMarker, objectStore.getSummaryName());
+                return result;
+            }
+            LOG.debug("Replicated persisted state not at change marker {}; reading {}", changeMarker, objectStore.getSummaryName());
+        }
+        return loadMementoRawDataFromStore(exceptionHandler);
+    }
+    
+    @Nullable
+    protected String readChangeMarker() {
+        try {
+            return objectStore.newAccessor(CHANGE_MARKER_PATH).get();
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to read change marker from "+objectStore.getSummaryName()+": "+e);
+            return null;
+        }
+    }
+    
+    /** gives the replica access to the store, without the incremental loader, so that only one copy of the state is kept */
+    private class ReplicaStoreReader implements MementoReplica.StoreReader {
+        private final RebindExceptionHandler exceptionHandler;
+        
+        ReplicaStoreReader(RebindExceptionHandler exceptionHandler) {
+            this.exceptionHandler = exceptionHandler;
+        }
+        @Override
+        public String readChangeMarker() {
+            return BrooklynMementoPersisterToObjectStore.this.readChangeMarker();
+        }
+        @Override
+        public BrooklynMementoRawData readAll() {
+            storeLoadCount.incrementAndGet();
+            return loadAllMementoRawDataFromStore(exceptionHandler);
+        }
+        @Override
+        public String read(BrooklynObjectType type, String id) {
+            try {
+                return BrooklynMementoPersisterToObjectStore.this.read(getPath(type.getSubPathName(), id));
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
+                return null;
+            }
+        }
+    }
+    
+    protected BrooklynMementoRawData loadMementoRawDataFromStore(final RebindExceptionHandler exceptionHandler) {
+        storeLoadCount.incrementAndGet();
+        IncrementalMementoLoader currentLoader = incrementalLoader;
+        if (currentLoader!=null) {
+            return currentLoader.load(exceptionHandler);
+        }
+        return loadAllMementoRawDataFromStore(exceptionHandler);
+    }
+    
+    protected BrooklynMementoRawData loadAllMementoRawDataFromStore(final RebindExceptionHandler exceptionHandler) {
         BrooklynMementoRawData subPathData = listMementoSubPathsAsData(exceptionHandler);
         
         final BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
@@ -324,6 +546,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             mementoData = loadMementoRawData(exceptionHandler);
         
         final BrooklynMementoManifestImpl.Builder builder = BrooklynMementoManifestImpl.builder();
+        final Map<String, CachedManifestEntry> previousManifestCache = manifestCache;
+        final Map<String, CachedManifestEntry> newManifestCache = Maps.newConcurrentMap();
 
         Visitor visitor = new Visitor() {
             @Override
@@ -339,14 +563,25 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 
                 switch (type) {
                     case ENTITY:
-                        builder.entity(x.get("id"), x.get("type"), 
-                            Strings.emptyToNull(x.get("parent")), Strings.emptyToNull(x.get("catalogItemId")));
-                        break;
                     case LOCATION:
                     case POLICY:
                     case ENRICHER:
                     case FEED:
-                        builder.putType(type, x.get("id"), x.get("type"));
+                        // parsing is expensive, and in a hot mode most objects are unchanged since the last load
+                        String key = type+"/"+objectId;
+                        long fingerprint = BrooklynPersistenceUtils.fingerprint(contents);
+                        CachedManifestEntry entry = previousManifestCache.get(key);
+                        if (entry==null || entry.fingerprint!=fingerprint) {
+                            entry = (type==BrooklynObjectType.ENTITY) 
+                                ? new CachedManifestEntry(fingerprint, x.get("id"), x.get("type"), Strings.emptyToNull(x.get("parent")), Strings.emptyToNull(x.get("catalogItemId")))
+                                : new CachedManifestEntry(fingerprint, x.get("id"), x.get("type"), null, null);
+                        }
+                        newManifestCache.put(key, entry);
+                        if (type==BrooklynObjectType.ENTITY) {
+                            builder.entity(entry.id, entry.type, entry.parent, entry.catalogItemId);
+                        } else {
+                            builder.putType(type, entry.id, entry.type);
+                        }
                         break;
                     case CATALOG_ITEM:
                         try {
@@ -369,6 +604,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         visitMemento("manifests", mementoData, visitor, exceptionHandler);
+        manifestCache = newManifestCache;
         
         BrooklynMementoManifest result = builder.build();
 
@@ -384,6 +620,21 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
     
+    private static class CachedManifestEntry {
+        final long fingerprint;
+        final String id;
+        final String type;
+        final String parent;
+        final String catalogItemId;
+        CachedManifestEntry(long fingerprint, String id, String type, String parent, String catalogItemId) {
+            this.fingerprint = fingerprint;
+            this.id = id;
+            this.type = type;
+            this.parent = parent;
+            this.catalogItemId = catalogItemId;
+        }
+    }
+    
     @Override
     public BrooklynMemento loadMemento(BrooklynMementoRawData mementoData, final LookupContext lookupContext, final RebindExceptionHandler exceptionHandler) throws IOException {
         if (mementoData==null)
@@ -513,10 +764,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             
             Stopwatch stopwatch = Stopwatch.createStarted();
             List<ListenableFuture<?>> futures = Lists.newArrayList();
+            ReplicatedMementoDelta.Builder written = ReplicatedMementoDelta.builder();
             
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (Map.Entry<String, String> entry : newMemento.getObjectsOfType(type).entrySet()) {
-                    futures.add(asyncPersist(type.getSubPathName(), type, entry.getKey(), entry.getValue(), exceptionHandler));
+                    futures.add(asyncPersist(type.getSubPathName(), type, entry.getKey(), entry.getValue(), written, exceptionHandler));
                 }
             }
             
@@ -527,6 +779,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 Futures.allAsList(futures).get();
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
+            } finally {
+                noteWritesCompleted(written);
             }
             if (LOG.isDebugEnabled()) LOG.debug("Checkpointed entire memento in {}", Time.makeTimeStringRounded(stopwatch));
         } finally {
@@ -580,15 +834,16 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             
             Stopwatch stopwatch = Stopwatch.createStarted();
             List<ListenableFuture<?>> futures = Lists.newArrayList();
+            ReplicatedMementoDelta.Builder written = ReplicatedMementoDelta.builder();
             
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (Memento entity : delta.getObjectsOfType(type)) {
-                    futures.add(asyncPersist(type.getSubPathName(), entity, exceptionHandler));
+                    futures.add(asyncPersist(type.getSubPathName(), type, entity, written, exceptionHandler));
                 }
             }
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (String id : delta.getRemovedIdsOfType(type)) {
-                    futures.add(asyncDelete(type.getSubPathName(), id, exceptionHandler));
+                    futures.add(asyncDelete(type.getSubPathName(), type, id, written, exceptionHandler));
                 }
             }
             
@@ -599,6 +854,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 Futures.allAsList(futures).get();
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
+            } finally {
+                noteWritesCompleted(written);
             }
             
             return stopwatch;
@@ -607,6 +864,45 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    /**
+     * Rewrites the {@link #CHANGE_MARKER_PATH change marker} (if enabled) and publishes what was successfully written
+     * to any replication channel. Called with the write lock held, so that sequence numbers follow write order.
+     * Failures are logged but otherwise ignored, as standbys will catch up from the store.
+     */
+    private void noteWritesCompleted(ReplicatedMementoDelta.Builder written) {
+        if (written.isEmpty()) return;
+        long sequence = writeSequence.incrementAndGet();
+        if (changeMarkerEnabled) {
+            writeChangeMarker(MementoReplica.toChangeMarker(writeSourceId, sequence));
+        }
+        MementoReplicationChannel channel = replicationChannel;
+        if (channel==null) return;
+        try {
+            channel.publish(written.build(writeSourceId, sequence));
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Unable to publish persistence delta on "+channel+" (standbys will catch up from "+objectStore.getSummaryName()+"): "+e, e);
+        }
+    }
+
+    private void writeChangeMarker(String changeMarker) {
+        try {
+            if (changeMarkerWriter==null) changeMarkerWriter = new StoreObjectAccessorLocking(objectStore.newAccessor(CHANGE_MARKER_PATH));
+            changeMarkerWriter.put(changeMarker);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            // a stale marker would make readers think nothing has changed; with no marker they list the store
+            try {
+                if (changeMarkerWriter==null) throw e;
+                changeMarkerWriter.delete();
+                LOG.warn("Unable to write change marker to "+objectStore.getSummaryName()+"; deleted it, so standbys will list the store: "+e, e);
+            } catch (Exception e2) {
+                Exceptions.propagateIfFatal(e2);
+                LOG.warn("Unable to write or delete change marker in "+objectStore.getSummaryName()+" (standbys may not see changes until the next write): "+e, e);
+            }
+        }
+    }
+
     @Override
     public void waitForWritesCompleted(Duration timeout) throws InterruptedException, TimeoutException {
         boolean locked = lock.readLock().tryLock(timeout.toMillisecondsRoundingUp(), TimeUnit.MILLISECONDS);
@@ -632,55 +928,59 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return objectAccessor.get();
     }
 
-    private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
+    private void persist(String subPath, BrooklynObjectType type, Memento memento, ReplicatedMementoDelta.Builder written, PersistenceExceptionHandler exceptionHandler) {
         try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
+            String content = getSerializerWithStandardClassLoader().toString(memento);
+            getWriter(getPath(subPath, memento.getId())).put(content);
+            written.put(type, memento.getId(), content);
         } catch (Exception e) {
             exceptionHandler.onPersistMementoFailed(memento, e);
         }
     }
     
-    private void persist(String subPath, BrooklynObjectType type, String id, String content, PersistenceExceptionHandler exceptionHandler) {
+    private void persist(String subPath, BrooklynObjectType type, String id, String content, ReplicatedMementoDelta.Builder written, PersistenceExceptionHandler exceptionHandler) {
         try {
             if (content==null) {
                 LOG.warn("Null content for "+type+" "+id);
             }
             getWriter(getPath(subPath, id)).put(content);
+            if (content!=null) written.put(type, id, content);
         } catch (Exception e) {
             exceptionHandler.onPersistRawMementoFailed(type, id, e);
         }
     }
     
-    private void delete(String subPath, String id, PersistenceExceptionHandler exceptionHandler) {
+    private void delete(String subPath, BrooklynObjectType type, String id, ReplicatedMementoDelta.Builder written, PersistenceExceptionHandler exceptionHandler) {
         try {
             StoreObjectAccessorWithLock w = getWriter(getPath(subPath, id));
             w.delete();
             synchronized (writers) {
                 writers.remove(id);
             }
+            written.remove(type, id);
         } catch (Exception e) {
             exceptionHandler.onDeleteMementoFailed(id, e);
         }
     }
 
-    private ListenableFuture<?> asyncPersist(final String subPath, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
+    private ListenableFuture<?> asyncPersist(final String subPath, final BrooklynObjectType type, final Memento memento, final ReplicatedMementoDelta.Builder written, final PersistenceExceptionHandler exceptionHandler) {
         return executor.submit(new Runnable() {
             public void run() {
-                persist(subPath, memento, exceptionHandler);
+                persist(subPath, type, memento, written, exceptionHandler);
             }});
     }
 
-    private ListenableFuture<?> asyncPersist(final String subPath, final BrooklynObjectType type, final String id, final String content, final PersistenceExceptionHandler exceptionHandler) {
+    private ListenableFuture<?> asyncPersist(final String subPath, final BrooklynObjectType type, final String id, final String content, final ReplicatedMementoDelta.Builder written, final PersistenceExceptionHandler exceptionHandler) {
         return executor.submit(new Runnable() {
             public void run() {
-                persist(subPath, type, id, content, exceptionHandler);
+                persist(subPath, type, id, content, written, exceptionHandler);
             }});
     }
 
-    private ListenableFuture<?> asyncDelete(final String subPath, final String id, final PersistenceExceptionHandler exceptionHandler) {
+    private ListenableFuture<?> asyncDelete(final String subPath, final BrooklynObjectType type, final String id, final ReplicatedMementoDelta.Builder written, final PersistenceExceptionHandler exceptionHandler) {
         return executor.submit(new Runnable() {
             public void run() {
-                delete(subPath, id, exceptionHandler);
+                delete(subPath, type, id, written, exceptionHandler);
             }});
     }
     
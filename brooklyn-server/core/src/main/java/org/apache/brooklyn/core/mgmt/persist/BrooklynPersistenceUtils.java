@@ -20,6 +20,8 @@ package org.apache.brooklyn.core.mgmt.persist;
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.api.catalog.CatalogItem;
@@ -70,6 +72,16 @@ public class BrooklynPersistenceUtils {
         BrooklynObjectType.ENTITY, BrooklynObjectType.LOCATION, BrooklynObjectType.POLICY,
         BrooklynObjectType.ENRICHER, BrooklynObjectType.FEED, BrooklynObjectType.CATALOG_ITEM);
 
+    /**
+     * A cheap fingerprint of a serialized object, for telling whether it has changed since it was last seen:
+     * its length and {@link String#hashCode()}, which the string caches once computed.
+     */
+    @Beta
+    public static long fingerprint(@Nullable String contents) {
+        if (contents==null) return 0;
+        return ((long)contents.length() << 32) | (contents.hashCode() & 0xffffffffL);
+    }
+
     /** Creates a {@link PersistenceObjectStore} for general-purpose use. */
     public static PersistenceObjectStore newPersistenceObjectStore(ManagementContext managementContext,
             String locationSpec, String locationContainer) {
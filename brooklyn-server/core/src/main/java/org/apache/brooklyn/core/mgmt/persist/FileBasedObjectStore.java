@@ -31,6 +31,7 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,6 +41,7 @@ import javax.annotation.Nullable;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.FatalConfigurationRuntimeException;
 import org.apache.brooklyn.util.io.FileUtil;
@@ -53,6 +55,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
@@ -65,6 +68,8 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     private static final int SHUTDOWN_TIMEOUT_MS = 10*1000;
 
+    private static final long MODIFICATION_TIME_GRANULARITY_MS = 2*1000;
+
     private static boolean WARNED_ON_NON_ATOMIC_FILE_UPDATES = false; 
     
     private final File basedir;
@@ -145,6 +150,39 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
 
     @Override
     public List<String> listContentsWithSubPath(final String parentSubPath) {
+        File[] subPathDirFiles = listFiles(parentSubPath);
+        if (subPathDirFiles==null) return ImmutableList.<String>of();
+        return FluentIterable.from(Arrays.asList(subPathDirFiles))
+                .transform(new Function<File, String>() {
+                    @Nullable
+                    @Override
+                    public String apply(@Nullable File input) {
+                        return format("%s/%s", parentSubPath, input.getName());
+                    }
+                }).toList();
+    }
+
+    /**
+     * The version of a file is its last-modified time and length. Files modified within the last
+     * {@link #MODIFICATION_TIME_GRANULARITY_MS} have no version, as a second write in the same clock tick 
+     * (which on some platforms and filesystems is a whole second) would not change it.
+     */
+    @Override
+    public Map<String, String> listContentsWithSubPathAndVersion(String parentSubPath) {
+        File[] subPathDirFiles = listFiles(parentSubPath);
+        if (subPathDirFiles==null) return ImmutableMap.<String, String>of();
+        long now = System.currentTimeMillis();
+        Map<String, String> result = MutableMap.of();
+        for (File file : subPathDirFiles) {
+            long lastModified = file.lastModified();
+            String version = (lastModified==0 || now - lastModified < MODIFICATION_TIME_GRANULARITY_MS) ? null : lastModified+"-"+file.length();
+            result.put(format("%s/%s", parentSubPath, file.getName()), version);
+        }
+        return result;
+    }
+
+    @Nullable
+    private File[] listFiles(String parentSubPath) {
         if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
         
         Preconditions.checkNotNull(parentSubPath);
@@ -156,16 +194,7 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
                 return !file.getName().endsWith(".tmp") && !file.getName().endsWith(".swp");
             }
         };
-        File[] subPathDirFiles = subPathDir.listFiles(fileFilter);
-        if (subPathDirFiles==null) return ImmutableList.<String>of();
-        return FluentIterable.from(Arrays.asList(subPathDirFiles))
-                .transform(new Function<File, String>() {
-                    @Nullable
-                    @Override
-                    public String apply(@Nullable File input) {
-                        return format("%s/%s", parentSubPath, input.getName());
-                    }
-                }).toList();
+        return subPathDir.listFiles(fileFilter);
     }
 
     @Override
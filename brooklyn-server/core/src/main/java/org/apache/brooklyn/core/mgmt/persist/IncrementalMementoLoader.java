@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.xstream.XmlUtil;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Strings;
+import org.apache.brooklyn.util.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Loads the persisted state repeatedly (as a hot standby or hot backup does), reading only the objects
+ * which have changed since the previous load.
+ * <p>
+ * Each load first reads the master's change marker ({@link BrooklynMementoPersisterToObjectStore#CHANGE_MARKER_PATH}),
+ * which the master rewrites after every write: if that is unchanged, the previous result is returned
+ * without listing the store. Otherwise the store is listed with {@link PersistenceObjectStore#listContentsWithSubPathAndVersion(String)},
+ * and only objects which are new or whose version has changed (or which have no version) are read.
+ * <p>
+ * Objects whose serialized form is longer than the limit given on construction are not cached,
+ * but read again on every load, so that the standby does not keep a second copy of its largest objects in memory.
+ */
+@Beta
+public class IncrementalMementoLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementalMementoLoader.class);
+
+    private static class CachedObject {
+        final BrooklynObjectType type;
+        final String id;
+        final String version;
+        /** null if too large to cache */
+        final String contents;
+        CachedObject(BrooklynObjectType type, String id, String version, String contents) {
+            this.type = type;
+            this.id = id;
+            this.version = version;
+            this.contents = contents;
+        }
+    }
+
+    private final PersistenceObjectStore objectStore;
+    private final ListeningExecutorService executor;
+    private final int maxCachedObjectLength;
+
+    /** keyed by path in the store */
+    private final Map<String, CachedObject> cache = MutableMap.of();
+    private String lastChangeMarker;
+    private boolean loaded = false;
+    private int loadCount = 0;
+    private int unchangedLoadCount = 0;
+    private long objectsReadCount = 0;
+
+    public IncrementalMementoLoader(PersistenceObjectStore objectStore, ListeningExecutorService executor) {
+        this(objectStore, executor, Integer.MAX_VALUE);
+    }
+
+    /** @param maxCachedObjectLength the length of the longest serialized object to cache, rather than read on every load */
+    public IncrementalMementoLoader(PersistenceObjectStore objectStore, ListeningExecutorService executor, int maxCachedObjectLength) {
+        this.objectStore = objectStore;
+        this.executor = executor;
+        this.maxCachedObjectLength = maxCachedObjectLength;
+    }
+
+    public synchronized BrooklynMementoRawData load(final RebindExceptionHandler exceptionHandler) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        loadCount++;
+        
+        // read before listing, so that any write after this is seen by the next load
+        String changeMarker = objectStore.newAccessor(BrooklynMementoPersisterToObjectStore.CHANGE_MARKER_PATH).get();
+        if (loaded && changeMarker!=null && changeMarker.equals(lastChangeMarker)) {
+            unchangedLoadCount++;
+            return build(exceptionHandler);
+        }
+
+        final Map<String, BrooklynObjectType> toRead = MutableMap.of();
+        final Map<String, String> versions = MutableMap.of();
+        int removedCount = 0;
+        for (BrooklynObjectType type : BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            Map<String, String> listing;
+            try {
+                listing = objectStore.listContentsWithSubPathAndVersion(type.getSubPathName());
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                exceptionHandler.onLoadMementoFailed(type, "Failed to list files", e);
+                throw new IllegalStateException("Failed to list memento files in "+objectStore, e);
+            }
+            for (Map.Entry<String, String> entry : listing.entrySet()) {
+                CachedObject cached = cache.get(entry.getKey());
+                if (cached==null || entry.getValue()==null || !entry.getValue().equals(cached.version)) {
+                    toRead.put(entry.getKey(), type);
+                    versions.put(entry.getKey(), entry.getValue());
+                }
+            }
+            Iterator<Map.Entry<String, CachedObject>> ci = cache.entrySet().iterator();
+            while (ci.hasNext()) {
+                Map.Entry<String, CachedObject> cached = ci.next();
+                if (cached.getValue().type==type && !listing.containsKey(cached.getKey())) {
+                    ci.remove();
+                    removedCount++;
+                }
+            }
+        }
+
+        final Map<String, CachedObject> read = MutableMap.of();
+        final List<String> failed = MutableList.of();
+        final Map<String, String> readButNotCached = MutableMap.of();
+        List<ListenableFuture<?>> futures = MutableList.of();
+        for (final Map.Entry<String, BrooklynObjectType> entry : toRead.entrySet()) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    String path = entry.getKey();
+                    BrooklynObjectType type = entry.getValue();
+                    try {
+                        String contents = objectStore.newAccessor(path).get();
+                        if (contents==null) {
+                            // deleted since listing
+                            return;
+                        }
+                        String xmlId = (String) XmlUtil.xpath(contents, "/"+type.toCamelCase()+"/id");
+                        String id = path.substring(path.lastIndexOf('/')+1);
+                        if (!Objects.equal(id, Strings.makeValidFilename(xmlId)))
+                            LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+xmlId+" from xml");
+                        if (xmlId==null) xmlId = id;
+                        synchronized (read) {
+                            read.put(path, new CachedObject(type, xmlId, versions.get(path), contents));
+                            if (contents.length() > maxCachedObjectLength) readButNotCached.put(path, contents);
+                        }
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        synchronized (read) {
+                            failed.add(path);
+                        }
+                        exceptionHandler.onLoadMementoFailed(type, "memento "+path+" read error", e);
+                    }
+                }
+            }));
+        }
+        try {
+            Futures.allAsList(futures).get();
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+        
+        for (String path : toRead.keySet()) {
+            CachedObject object = read.get(path);
+            if (object!=null) {
+                cache.put(path, readButNotCached.containsKey(path) ? new CachedObject(object.type, object.id, object.version, null) : object);
+            } else if (failed.contains(path)) {
+                // keep any previous contents, but read it again next time
+                CachedObject previous = cache.get(path);
+                if (previous!=null) cache.put(path, new CachedObject(previous.type, previous.id, null, previous.contents));
+            } else {
+                cache.remove(path);
+            }
+        }
+        objectsReadCount += read.size();
+        lastChangeMarker = changeMarker;
+        loaded = true;
+        
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Loaded rebind raw data incrementally; took {}; read {} objects, removed {}, of {} in {}", new Object[] {
+                    Time.makeTimeStringRounded(stopwatch), read.size(), removedCount, cache.size(), objectStore.getSummaryName() });
+        }
+        return build(exceptionHandler, readButNotCached);
+    }
+
+    /** Discards everything cached, so that the next load reads the entire store. */
+    public synchronized void clear() {
+        cache.clear();
+        lastChangeMarker = null;
+        loaded = false;
+    }
+
+    public synchronized int getLoadCount() {
+        return loadCount;
+    }
+
+    /** number of loads which returned the previous result, as the master had not written anything since */
+    public synchronized int getUnchangedLoadCount() {
+        return unchangedLoadCount;
+    }
+
+    /** number of objects read from the store, across all loads */
+    public synchronized long getObjectsReadCount() {
+        return objectsReadCount;
+    }
+
+    private BrooklynMementoRawData build(RebindExceptionHandler exceptionHandler) {
+        return build(exceptionHandler, ImmutableMap.<String, String>of());
+    }
+
+    /** builds the result from the cache, reading any objects not cached unless just read (and given here) */
+    private BrooklynMementoRawData build(RebindExceptionHandler exceptionHandler, Map<String, String> justRead) {
+        BrooklynMementoRawData.Builder result = BrooklynMementoRawData.builder();
+        for (Map.Entry<String, CachedObject> entry : cache.entrySet()) {
+            CachedObject object = entry.getValue();
+            String contents = object.contents;
+            if (contents==null) contents = justRead.get(entry.getKey());
+            if (contents==null) {
+                try {
+                    contents = objectStore.newAccessor(entry.getKey()).get();
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    exceptionHandler.onLoadMementoFailed(object.type, "memento "+entry.getKey()+" read error", e);
+                }
+                if (contents==null) continue;
+            }
+            result.put(object.type, object.id, contents);
+        }
+        return result.build();
+    }
+
+}
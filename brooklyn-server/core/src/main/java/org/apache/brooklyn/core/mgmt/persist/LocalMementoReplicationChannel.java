@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * A {@link MementoReplicationChannel} between management contexts in the same JVM,
+ * identified by name (see {@link BrooklynMementoPersisterToObjectStore#PERSISTER_REPLICATION_CHANNEL}).
+ * Deltas are delivered synchronously to all subscribers, in the publishing thread.
+ * <p>
+ * This is the only implementation: nodes in separate JVMs cannot share a channel,
+ * and continue to read the {@link PersistenceObjectStore} as before.
+ */
+@Beta
+public class LocalMementoReplicationChannel implements MementoReplicationChannel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalMementoReplicationChannel.class);
+
+    private static final ConcurrentMap<String, LocalMementoReplicationChannel> CHANNELS = Maps.newConcurrentMap();
+
+    /** returns the channel with the given name, creating it if necessary */
+    public static LocalMementoReplicationChannel named(String name) {
+        Preconditions.checkNotNull(name, "name");
+        LocalMementoReplicationChannel result = CHANNELS.get(name);
+        if (result==null) {
+            CHANNELS.putIfAbsent(name, new LocalMementoReplicationChannel(name));
+            result = CHANNELS.get(name);
+        }
+        return result;
+    }
+
+    private final String name;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    protected LocalMementoReplicationChannel(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void publish(ReplicatedMementoDelta delta) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onDelta(delta);
+            } catch (Exception e) {
+                // the subscriber will catch up from the store when it sees the gap
+                Exceptions.propagateIfFatal(e);
+                LOG.warn("Problem delivering "+delta+" to "+listener+" on "+this+": "+e, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public String toString() {
+        return "LocalMementoReplicationChannel["+name+"]";
+    }
+
+}
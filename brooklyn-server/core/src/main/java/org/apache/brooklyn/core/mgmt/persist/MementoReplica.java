@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A hot standby's copy of the persisted state, kept current by applying the deltas
+ * the master publishes on a {@link MementoReplicationChannel}, so that each read-only rebind
+ * does not need to re-read the entire {@link PersistenceObjectStore}.
+ * <p>
+ * The store is read in full when the replica is first used, and again ("catch-up") whenever
+ * a delta is missed: that is, if a sequence number is skipped or a different master starts publishing.
+ * Deltas which arrive while the store is being read are applied on top of what was read,
+ * as the master only publishes once its writes are complete.
+ * <p>
+ * The replica's position is that of the master's change marker ({@link BrooklynMementoPersisterToObjectStore#CHANGE_MARKER_PATH}),
+ * so a standby being promoted can use the replica in place of reading the store if the marker shows
+ * nothing has been written since the last delta it applied; see {@link #getIfAt(String, StoreReader)}.
+ * <p>
+ * Objects whose serialized form is longer than the limit given on construction are not held,
+ * but read from the store each time the state is returned, so that the standby does not keep
+ * a second copy of its largest objects in memory.
+ */
+@Beta
+public class MementoReplica implements MementoReplicationChannel.Listener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoReplica.class);
+
+    /** Reads the persisted store, when the replica has to catch up and for objects too large to hold. */
+    public interface StoreReader {
+        @Nullable
+        public String readChangeMarker();
+        public BrooklynMementoRawData readAll();
+        /** @return the object's serialized form, or null if it no longer exists or cannot be read */
+        @Nullable
+        public String read(BrooklynObjectType type, String id);
+    }
+
+    private final int maxHeldObjectLength;
+    private final Object mutex = new Object();
+    /** values are null for objects too large to hold */
+    private final Map<BrooklynObjectType, Map<String, String>> contents = MutableMap.of();
+    private final List<ReplicatedMementoDelta> deltasDuringLoad = MutableList.of();
+    private String sourceId;
+    private long sequence;
+    private boolean current = false;
+    private boolean loading = false;
+    private int fullLoadCount = 0;
+    private long deltaCount = 0;
+
+    public MementoReplica() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /** @param maxHeldObjectLength the length of the longest serialized object to hold, rather than read from the store when needed */
+    public MementoReplica(int maxHeldObjectLength) {
+        this.maxHeldObjectLength = maxHeldObjectLength;
+    }
+
+    @Override
+    public void onDelta(ReplicatedMementoDelta delta) {
+        synchronized (mutex) {
+            if (loading) {
+                deltasDuringLoad.add(delta);
+            } else if (current) {
+                applyIfNext(delta);
+            }
+        }
+    }
+
+    /** The content of the change marker written by the master after the given delta. */
+    public static String toChangeMarker(String sourceId, long sequence) {
+        return sourceId+" "+sequence;
+    }
+
+    /**
+     * Returns a copy of the replicated state, first reading the entire store if the replica is not current.
+     * The change marker is read before the store, so that deltas already included in what is read can be recognised.
+     */
+    public BrooklynMementoRawData get(StoreReader store) {
+        Map<BrooklynObjectType, Map<String, String>> held = null;
+        synchronized (mutex) {
+            if (current) {
+                held = copyContents();
+            } else {
+                loading = true;
+                deltasDuringLoad.clear();
+            }
+        }
+        if (held!=null) return snapshot(held, store);
+        
+        String changeMarker = null;
+        BrooklynMementoRawData loaded = null;
+        try {
+            changeMarker = store.readChangeMarker();
+            loaded = store.readAll();
+        } finally {
+            synchronized (mutex) {
+                loading = false;
+                if (loaded!=null) {
+                    reset(loaded, changeMarker);
+                    for (ReplicatedMementoDelta delta : deltasDuringLoad) {
+                        if (!applyIfNext(delta)) break;
+                    }
+                }
+                deltasDuringLoad.clear();
+            }
+        }
+        synchronized (mutex) {
+            // if a delta was missed while reading, use what was read; the next call will read the store again
+            if (!current) return loaded;
+            held = copyContents();
+        }
+        return snapshot(held, store);
+    }
+
+    /**
+     * Returns a copy of the replicated state if it is current and at the position of the given change marker,
+     * i.e. nothing has been written to the store since the last delta applied; otherwise null.
+     */
+    @Nullable
+    public BrooklynMementoRawData getIfAt(@Nullable String changeMarker, StoreReader store) {
+        Map<BrooklynObjectType, Map<String, String>> held;
+        synchronized (mutex) {
+            if (!current || sourceId==null || !toChangeMarker(sourceId, sequence).equals(changeMarker)) return null;
+            held = copyContents();
+        }
+        return snapshot(held, store);
+    }
+
+    /** Discards the replicated state, so that it is re-read from the store on next use. */
+    public void invalidate() {
+        synchronized (mutex) {
+            current = false;
+            contents.clear();
+        }
+    }
+
+    public boolean isCurrent() {
+        synchronized (mutex) {
+            return current;
+        }
+    }
+
+    /** number of times the store has been read in full */
+    public int getFullLoadCount() {
+        synchronized (mutex) {
+            return fullLoadCount;
+        }
+    }
+
+    /** number of deltas applied from the channel */
+    public long getDeltaCount() {
+        synchronized (mutex) {
+            return deltaCount;
+        }
+    }
+
+    @VisibleForTesting
+    public long getSequence() {
+        synchronized (mutex) {
+            return sequence;
+        }
+    }
+
+    private void reset(BrooklynMementoRawData loaded, @Nullable String changeMarker) {
+        contents.clear();
+        for (BrooklynObjectType type : BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            Map<String, String> ofType = MutableMap.of();
+            for (Map.Entry<String, String> entry : loaded.getObjectsOfType(type).entrySet()) {
+                ofType.put(entry.getKey(), toHold(entry.getValue()));
+            }
+            contents.put(type, ofType);
+        }
+        // what was read includes at least the writes up to the marker; 
+        // without one, whichever delta arrives next is accepted as the successor of what was read
+        sourceId = null;
+        sequence = 0;
+        if (changeMarker!=null) {
+            int separator = changeMarker.trim().lastIndexOf(' ');
+            if (separator > 0) {
+                try {
+                    sequence = Long.parseLong(changeMarker.trim().substring(separator+1));
+                    sourceId = changeMarker.trim().substring(0, separator);
+                } catch (NumberFormatException e) {
+                    LOG.debug("Unable to parse persistence change marker '"+changeMarker+"'; ignoring");
+                }
+            }
+        }
+        current = true;
+        fullLoadCount++;
+    }
+
+    /** applies the delta if it follows the last one applied; otherwise marks the replica as needing catch-up */
+    private boolean applyIfNext(ReplicatedMementoDelta delta) {
+        if (sourceId!=null && sourceId.equals(delta.getSourceId()) && delta.getSequence()<=sequence) {
+            // already included in what was read from the store
+            return true;
+        }
+        if (sourceId!=null && (!sourceId.equals(delta.getSourceId()) || delta.getSequence()!=sequence+1)) {
+            LOG.debug("Replicated persistence delta {} does not follow {}/{}; will catch up from the persisted store", 
+                    new Object[] {delta, sourceId, sequence});
+            current = false;
+            contents.clear();
+            return false;
+        }
+        for (BrooklynObjectType type : BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            Map<String, String> ofType = contents.get(type);
+            for (Map.Entry<String, String> entry : delta.getUpdated(type).entrySet()) {
+                ofType.put(entry.getKey(), toHold(entry.getValue()));
+            }
+            for (String id : delta.getRemoved(type)) {
+                ofType.remove(id);
+            }
+        }
+        sourceId = delta.getSourceId();
+        sequence = delta.getSequence();
+        deltaCount++;
+        return true;
+    }
+
+    private String toHold(String objectContents) {
+        return (objectContents!=null && objectContents.length() > maxHeldObjectLength) ? null : objectContents;
+    }
+
+    private Map<BrooklynObjectType, Map<String, String>> copyContents() {
+        Map<BrooklynObjectType, Map<String, String>> result = MutableMap.of();
+        for (Map.Entry<BrooklynObjectType, Map<String, String>> entry : contents.entrySet()) {
+            result.put(entry.getKey(), MutableMap.copyOf(entry.getValue()));
+        }
+        return result;
+    }
+
+    /** builds the state from a copy of the contents, reading any objects not held (without the mutex, so as not to hold up deltas) */
+    private BrooklynMementoRawData snapshot(Map<BrooklynObjectType, Map<String, String>> held, StoreReader store) {
+        BrooklynMementoRawData.Builder result = BrooklynMementoRawData.builder();
+        for (Map.Entry<BrooklynObjectType, Map<String, String>> ofType : held.entrySet()) {
+            for (Map.Entry<String, String> entry : ofType.getValue().entrySet()) {
+                String objectContents = entry.getValue();
+                if (objectContents==null) objectContents = store.read(ofType.getKey(), entry.getKey());
+                if (objectContents!=null) result.put(ofType.getKey(), entry.getKey(), objectContents);
+            }
+        }
+        return result.build();
+    }
+
+}
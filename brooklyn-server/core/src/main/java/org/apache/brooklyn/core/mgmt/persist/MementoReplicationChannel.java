@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A channel over which the master streams persisted changes directly to hot standbys,
+ * in addition to writing them to the {@link PersistenceObjectStore}.
+ * <p>
+ * The object store remains the source of truth: deltas carry a sequence number,
+ * and a subscriber which sees a gap (or a new master) catches up by reading the store.
+ * Delivery is therefore best-effort, and implementations may drop deltas.
+ * 
+ * @see LocalMementoReplicationChannel
+ * @see MementoReplica
+ */
+@Beta
+public interface MementoReplicationChannel {
+
+    public interface Listener {
+        public void onDelta(ReplicatedMementoDelta delta);
+    }
+
+    /** Publishes a delta which has been written to the object store. */
+    public void publish(ReplicatedMementoDelta delta);
+
+    public void subscribe(Listener listener);
+
+    public void unsubscribe(Listener listener);
+
+}
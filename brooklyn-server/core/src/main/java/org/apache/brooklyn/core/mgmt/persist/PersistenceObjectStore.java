@@ -20,6 +20,7 @@ package org.apache.brooklyn.core.mgmt.persist;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -129,6 +130,15 @@ public interface PersistenceObjectStore {
      */
     List<String> listContentsWithSubPath(String subPath);
 
+    /**
+     * As {@link #listContentsWithSubPath(String)}, but returning a version tag for each path, 
+     * such as an etag, which changes whenever the object is written.
+     * A null tag means the store cannot say cheaply whether the object has changed (so callers should read it).
+     * Tags are only meaningful when compared with other tags for the same path in the same store.
+     */
+    @Beta
+    Map<String, String> listContentsWithSubPathAndVersion(String subPath);
+
     /** Entirely delete the contents of this persistence location.
      * Use with care, primarily in tests. This will recursively wipe the indicated location. */ 
     public void deleteCompletely();
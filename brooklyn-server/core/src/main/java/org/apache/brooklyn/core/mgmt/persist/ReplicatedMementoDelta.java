@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The serialized objects written and deleted by one persistence delta (or checkpoint) of a master,
+ * as recorded by the persister (for its change marker) and sent over a {@link MementoReplicationChannel}.
+ * <p>
+ * Deltas from one master share a {@link #getSourceId()} and have consecutive {@link #getSequence()} numbers, starting at 1.
+ */
+@Beta
+public class ReplicatedMementoDelta {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Thread-safe, so that the persister's write tasks can record what they wrote as they complete. */
+    public static class Builder {
+        private final Map<BrooklynObjectType, Map<String, String>> updated = MutableMap.of();
+        private final Map<BrooklynObjectType, Set<String>> removed = MutableMap.of();
+
+        public synchronized Builder put(BrooklynObjectType type, String id, String contents) {
+            Map<String, String> ofType = updated.get(type);
+            if (ofType==null) {
+                ofType = MutableMap.of();
+                updated.put(type, ofType);
+            }
+            ofType.put(id, contents);
+            return this;
+        }
+
+        public synchronized Builder remove(BrooklynObjectType type, String id) {
+            Set<String> ofType = removed.get(type);
+            if (ofType==null) {
+                ofType = MutableSet.of();
+                removed.put(type, ofType);
+            }
+            ofType.add(id);
+            return this;
+        }
+
+        public synchronized boolean isEmpty() {
+            return updated.isEmpty() && removed.isEmpty();
+        }
+
+        public synchronized ReplicatedMementoDelta build(String sourceId, long sequence) {
+            ImmutableMap.Builder<BrooklynObjectType, Map<String, String>> updatedCopy = ImmutableMap.builder();
+            for (Map.Entry<BrooklynObjectType, Map<String, String>> entry : updated.entrySet()) {
+                updatedCopy.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue()));
+            }
+            ImmutableMap.Builder<BrooklynObjectType, Set<String>> removedCopy = ImmutableMap.builder();
+            for (Map.Entry<BrooklynObjectType, Set<String>> entry : removed.entrySet()) {
+                removedCopy.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+            }
+            return new ReplicatedMementoDelta(sourceId, sequence, updatedCopy.build(), removedCopy.build());
+        }
+    }
+
+    private final String sourceId;
+    private final long sequence;
+    private final Map<BrooklynObjectType, Map<String, String>> updated;
+    private final Map<BrooklynObjectType, Set<String>> removed;
+
+    protected ReplicatedMementoDelta(String sourceId, long sequence, Map<BrooklynObjectType, Map<String, String>> updated, Map<BrooklynObjectType, Set<String>> removed) {
+        this.sourceId = sourceId;
+        this.sequence = sequence;
+        this.updated = updated;
+        this.removed = removed;
+    }
+
+    /** identifies the master (and the period during which it had write access) which published this delta */
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** serialized contents of objects written, keyed by id */
+    public Map<String, String> getUpdated(BrooklynObjectType type) {
+        Map<String, String> result = updated.get(type);
+        return result!=null ? result : ImmutableMap.<String, String>of();
+    }
+
+    public Set<String> getRemoved(BrooklynObjectType type) {
+        Set<String> result = removed.get(type);
+        return result!=null ? result : ImmutableSet.<String>of();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("source", sourceId).add("sequence", sequence)
+                .add("updated", updated.keySet()).add("removed", removed.keySet()).toString();
+    }
+
+}
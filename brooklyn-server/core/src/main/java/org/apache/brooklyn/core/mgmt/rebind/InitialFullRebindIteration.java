@@ -22,10 +22,13 @@ import java.util.Set;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
 import org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.internal.BrooklynObjectManagementMode;
@@ -47,12 +50,25 @@ public class InitialFullRebindIteration extends RebindIteration {
 
     private static final Logger LOG = LoggerFactory.getLogger(InitialFullRebindIteration.class);
     
+    private final BrooklynMementoRawData preloadedRawData;
+    
     public InitialFullRebindIteration(RebindManagerImpl rebindManager, 
             ManagementNodeState mode,
             ClassLoader classLoader, RebindExceptionHandler exceptionHandler,
             Semaphore rebindActive, AtomicInteger readOnlyRebindCount, PersistenceActivityMetrics rebindMetrics, BrooklynMementoPersister persistenceStoreAccess
             ) {
+        this(rebindManager, mode, classLoader, exceptionHandler, rebindActive, readOnlyRebindCount, rebindMetrics, persistenceStoreAccess, null);
+    }
+    
+    /** @param preloadedRawData the persisted state, if already loaded (otherwise it is loaded from the persister) */
+    public InitialFullRebindIteration(RebindManagerImpl rebindManager, 
+            ManagementNodeState mode,
+            ClassLoader classLoader, RebindExceptionHandler exceptionHandler,
+            Semaphore rebindActive, AtomicInteger readOnlyRebindCount, PersistenceActivityMetrics rebindMetrics, BrooklynMementoPersister persistenceStoreAccess,
+            @Nullable BrooklynMementoRawData preloadedRawData
+            ) {
         super(rebindManager, mode, classLoader, exceptionHandler, rebindActive, readOnlyRebindCount, rebindMetrics, persistenceStoreAccess);
+        this.preloadedRawData = preloadedRawData;
     }
 
     @Override
@@ -73,7 +89,7 @@ public class InitialFullRebindIteration extends RebindIteration {
     protected void loadManifestFiles() throws Exception {
         checkEnteringPhase(1);
         Preconditions.checkState(mementoRawData==null, "Memento raw data should not yet be set when calling this");
-        mementoRawData = persistenceStoreAccess.loadMementoRawData(exceptionHandler);
+        mementoRawData = preloadedRawData!=null ? preloadedRawData : persistenceStoreAccess.loadMementoRawData(exceptionHandler);
         
         preprocessManifestFiles();
         
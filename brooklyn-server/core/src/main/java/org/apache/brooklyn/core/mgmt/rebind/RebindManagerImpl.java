@@ -29,6 +29,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
@@ -43,6 +45,7 @@ import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.TreeNode;
 import org.apache.brooklyn.api.objs.BrooklynObject;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.config.ConfigKeys;
@@ -124,6 +127,10 @@ public class RebindManagerImpl implements RebindManager {
     private volatile ScheduledTask readOnlyTask = null;
     private transient Semaphore rebindActive = new Semaphore(1);
     private transient AtomicInteger readOnlyRebindCount = new AtomicInteger(Integer.MIN_VALUE);
+    private volatile boolean readOnlyRebindSkipsUnchanged = true;
+    /** {@link BrooklynPersistenceUtils#fingerprint(String) fingerprints} of the state applied by the last successful periodic read-only rebind,
+     * keyed by type and id; only accessed by that task */
+    private transient Map<String, Long> lastReadOnlyRebindFingerprints = null;
     
     private volatile BrooklynMementoPersister persistenceStoreAccess;
 
@@ -210,6 +217,15 @@ public class RebindManagerImpl implements RebindManager {
         setPeriodicPersistPeriod(Duration.of(periodMillis, TimeUnit.MILLISECONDS));
     }
 
+    /**
+     * Whether the periodic read-only rebind (in hot standby and hot backup) should be skipped
+     * when the persisted state is unchanged since the last one; default true.
+     */
+    @Beta
+    public void setReadOnlyRebindSkipsUnchanged(boolean readOnlyRebindSkipsUnchanged) {
+        this.readOnlyRebindSkipsUnchanged = readOnlyRebindSkipsUnchanged;
+    }
+
     public boolean isPersistenceRunning() {
         return persistenceRunning;
     }
@@ -264,6 +280,11 @@ public class RebindManagerImpl implements RebindManager {
         }
         persistenceRunning = true;
         readOnlyRebindCount.set(Integer.MIN_VALUE);
+        if (persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            // the change marker is only read by standbys
+            ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).setChangeMarkerEnabled(
+                    managementContext.getHighAvailabilityManager().isRunning());
+        }
         persistenceStoreAccess.enableWriteAccess();
         if (persistenceRealChangeListener != null) persistenceRealChangeListener.start();
     }
@@ -295,6 +316,14 @@ public class RebindManagerImpl implements RebindManager {
         
         if (persistenceRealChangeListener != null) persistenceRealChangeListener.stop();
         if (persistenceStoreAccess != null) persistenceStoreAccess.disableWriteAccess(true);
+        if (persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            // apply the master's deltas as they are published, where configured, and otherwise read only what has changed
+            // (not both, as each keeps a copy of the state)
+            BrooklynMementoPersisterToObjectStore persister = (BrooklynMementoPersisterToObjectStore)persistenceStoreAccess;
+            persister.startReplica();
+            if (persister.getReplica()==null) persister.startIncrementalLoading();
+        }
+        lastReadOnlyRebindFingerprints = null;
         
         readOnlyRunning = true;
         readOnlyRebindCount.set(0);
@@ -310,7 +339,11 @@ public class RebindManagerImpl implements RebindManager {
                 return Tasks.<Void>builder().dynamic(false).displayName("rebind (periodic run").body(new Callable<Void>() {
                     public Void call() {
                         try {
-                            rebind(null, null, mode);
+                            if (readOnlyRebindSkipsUnchanged) {
+                                rebindReadOnlyIfChanged(mode);
+                            } else {
+                                rebind(null, null, mode);
+                            }
                             return null;
                         } catch (RuntimeInterruptedException e) {
                             LOG.debug("Interrupted rebinding (re-interrupting): "+e);
@@ -343,6 +376,19 @@ public class RebindManagerImpl implements RebindManager {
     
     @Override
     public void stopReadOnly() {
+        stopReadOnly(false);
+    }
+    
+    /**
+     * As {@link #stopReadOnly()}, but keeps any replicated state for the rebind as master which follows
+     * (see {@link BrooklynMementoPersisterToObjectStore#detachReplica()}).
+     */
+    @Beta
+    public void stopReadOnlyForPromotion() {
+        stopReadOnly(true);
+    }
+    
+    protected void stopReadOnly(boolean promoting) {
         readOnlyRunning = false;
         if (readOnlyTask!=null) {
             LOG.debug("Stopping read-only rebinding ("+this+"), mgmt "+managementContext.getManagementNodeId());
@@ -355,6 +401,16 @@ public class RebindManagerImpl implements RebindManager {
             readOnlyTask = null;
             LOG.debug("Stopped read-only rebinding ("+this+"), mgmt "+managementContext.getManagementNodeId());
         }
+        if (persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            if (promoting) {
+                // used in place of reading the store only if the old master wrote nothing it did not publish
+                ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).detachReplica();
+            } else {
+                ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).stopReplica();
+            }
+            ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).stopIncrementalLoading();
+        }
+        lastReadOnlyRebindFingerprints = null;
     }
     
     @Override
@@ -545,9 +601,53 @@ public class RebindManagerImpl implements RebindManager {
         }
     }
     
+    /**
+     * Rebinds read-only (from within the periodic task), unless the persisted state is the same as at the
+     * last such rebind. Loading the state is cheap when little has changed (see {@link BrooklynMementoPersisterToObjectStore#startIncrementalLoading()}),
+     * whereas a rebind re-deserializes and re-applies every object.
+     */
+    protected void rebindReadOnlyIfChanged(ManagementNodeState mode) {
+        if (!(persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore)) {
+            rebind(null, null, mode);
+            return;
+        }
+        RebindExceptionHandler exceptionHandler = RebindExceptionHandlerImpl.builder()
+                .danglingRefFailureMode(danglingRefFailureMode)
+                .danglingRefQuorumRequiredHealthy(danglingRefsQuorumRequiredHealthy)
+                .rebindFailureMode(rebindFailureMode)
+                .addConfigFailureMode(addConfigFailureMode)
+                .addPolicyFailureMode(addPolicyFailureMode)
+                .loadPolicyFailureMode(loadPolicyFailureMode)
+                .build();
+        BrooklynMementoRawData rawData = loadMementoRawData(exceptionHandler);
+        // computed before the iteration, which may modify what it is given; cheap, as unchanged objects are the same strings each time
+        Map<String, Long> fingerprints = fingerprints(rawData);
+        if (fingerprints.equals(lastReadOnlyRebindFingerprints)) {
+            if (LOG.isTraceEnabled()) LOG.trace("Skipping read-only rebind of "+managementContext.getManagementNodeId()+"; persisted state unchanged");
+            return;
+        }
+        lastReadOnlyRebindFingerprints = null;
+        rebindImpl(managementContext.getCatalogClassLoader(), exceptionHandler, mode, rawData);
+        lastReadOnlyRebindFingerprints = fingerprints;
+    }
+    
+    private static Map<String, Long> fingerprints(BrooklynMementoRawData rawData) {
+        Map<String, Long> result = MutableMap.of();
+        for (BrooklynObjectType type : BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            for (Map.Entry<String, String> entry : rawData.getObjectsOfType(type).entrySet()) {
+                result.put(type+"/"+entry.getKey(), BrooklynPersistenceUtils.fingerprint(entry.getValue()));
+            }
+        }
+        return result;
+    }
+    
     protected List<Application> rebindImpl(final ClassLoader classLoader, final RebindExceptionHandler exceptionHandler, ManagementNodeState mode) {
+        return rebindImpl(classLoader, exceptionHandler, mode, null);
+    }
+    
+    protected List<Application> rebindImpl(final ClassLoader classLoader, final RebindExceptionHandler exceptionHandler, ManagementNodeState mode, @Nullable BrooklynMementoRawData preloadedRawData) {
         RebindIteration iteration = new InitialFullRebindIteration(this, mode, classLoader, exceptionHandler,
-            rebindActive, readOnlyRebindCount, rebindMetrics, persistenceStoreAccess);
+            rebindActive, readOnlyRebindCount, rebindMetrics, persistenceStoreAccess, preloadedRawData);
         
         iteration.run();
         
@@ -24,7 +24,6 @@ import groovy.lang.Closure;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -83,6 +82,8 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /** Conveniences for making tasks which run in entity {@link ExecutionContext}s, subscribing to attributes from other entities, possibly transforming those;
  * these {@link Task} instances are typically passed in {@link EntityLocal#setConfig(ConfigKey, Object)}.
@@ -268,17 +269,17 @@ public class DependentConfiguration {
             if (entity == null) throw new IllegalStateException("Should only be invoked in a running task with an entity tag; "+
                 current+" has no entity tag ("+current.getStatusDetail(false)+")");
             
-            final LinkedList<T> publishedValues = new LinkedList<T>();
             final Semaphore semaphore = new Semaphore(0); // could use Exchanger
-            SubscriptionHandle subscription = null;
+            ListenableFuture<T> readyValue = null;
             List<SubscriptionHandle> abortSubscriptions = Lists.newArrayList();
             
             try {
-                subscription = entity.subscriptions().subscribe(source, sensor, new SensorEventListener<T>() {
-                    @Override public void onEvent(SensorEvent<T> event) {
-                        synchronized (publishedValues) { publishedValues.add(event.getValue()); }
+                // shares one subscription with everyone else waiting for the same value
+                readyValue = SharedAttributeWaiters.attributeWhenReady(source, sensor, ready);
+                readyValue.addListener(new Runnable() {
+                    @Override public void run() {
                         semaphore.release();
-                    }});
+                    }}, MoreExecutors.sameThreadExecutor());
                 for (final AttributeAndSensorCondition abortCondition : abortSensorConditions) {
                     abortSubscriptions.add(entity.subscriptions().subscribe(abortCondition.source, abortCondition.sensor, new SensorEventListener<Object>() {
                         @Override public void onEvent(SensorEvent<Object> event) {
@@ -327,13 +328,14 @@ public class DependentConfiguration {
                         current.setBlockingDetails(prevBlockingDetails);
                     }
 
-                    // check any subscribed values which have come in first
-                    while (true) {
-                        synchronized (publishedValues) {
-                            if (publishedValues.isEmpty()) break;
-                            value = publishedValues.pop(); 
+                    // check the value from the subscription, if it has come in first
+                    if (readyValue.isDone()) {
+                        try {
+                            value = readyValue.get();
+                            break;
+                        } catch (ExecutionException e) {
+                            throw Exceptions.propagate(e.getCause());
                         }
-                        if (ready(value)) break;
                     }
 
                     // if unmanaged then ignore the other abort conditions
@@ -353,8 +355,8 @@ public class DependentConfiguration {
             } catch (InterruptedException e) {
                 throw Exceptions.propagate(e);
             } finally {
-                if (subscription != null) {
-                    entity.subscriptions().unsubscribe(subscription);
+                if (readyValue != null) {
+                    readyValue.cancel(false);
                 }
                 for (SubscriptionHandle handle : abortSubscriptions) {
                     entity.subscriptions().unsubscribe(handle);
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.sensor;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.groovy.GroovyJavaMethods;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Futures for an attribute becoming ready, where all callers waiting on the same entity, sensor and
+ * readiness predicate share a single subscription, rather than each subscribing (and polling) separately.
+ * <p>
+ * Callers are notified by callbacks on the returned future, so waiting does not itself need a thread;
+ * {@link DependentConfiguration#attributeWhenReady(Entity, AttributeSensor)} uses this, so that many entities
+ * waiting for the same value (e.g. a load balancer's hostname) are woken by one event.
+ * <p>
+ * Predicates should implement equals (or be shared instances, such as {@link org.apache.brooklyn.util.groovy.GroovyJavaMethods#truthPredicate()})
+ * for waiters to be shared; otherwise each waiter gets its own subscription, as before.
+ */
+@Beta
+public class SharedAttributeWaiters {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedAttributeWaiters.class);
+
+    private static final ConcurrentMap<List<Object>, Waiter<?>> WAITERS = Maps.newConcurrentMap();
+
+    /** one subscription, and the future it completes, shared by all callers waiting on the same condition */
+    private static class Waiter<T> {
+        final List<Object> key;
+        final Entity source;
+        final AttributeSensor<T> sensor;
+        final Predicate<? super T> ready;
+        final SettableFuture<T> future = SettableFuture.create();
+        SubscriptionHandle subscription;
+        boolean stopped = false;
+        int count = 0;
+
+        Waiter(List<Object> key, Entity source, AttributeSensor<T> sensor, Predicate<? super T> ready) {
+            this.key = key;
+            this.source = source;
+            this.sensor = sensor;
+            this.ready = ready;
+        }
+
+        void start() {
+            try {
+                SubscriptionHandle handle = source.subscriptions().subscribe(source, sensor, new SensorEventListener<T>() {
+                    @Override public void onEvent(SensorEvent<T> event) {
+                        check(event.getValue());
+                    }});
+                synchronized (this) {
+                    if (stopped) {
+                        // completed by an event before we had the handle
+                        source.subscriptions().unsubscribe(handle);
+                        return;
+                    }
+                    subscription = handle;
+                }
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                stop();
+                future.setException(e);
+                return;
+            }
+            // check the current value after subscribing, so as not to miss a change
+            check(source.getAttribute(sensor));
+        }
+
+        void check(T value) {
+            if (future.isDone()) return;
+            boolean isReady;
+            try {
+                isReady = ready.apply(value);
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                stop();
+                future.setException(e);
+                return;
+            }
+            if (isReady) {
+                // stop first, so new callers do not find this waiter once it has completed
+                stop();
+                if (future.set(value) && LOG.isDebugEnabled()) {
+                    LOG.debug("Attribute-ready for {} in entity {}, notified {} waiter(s)", new Object[] {sensor, source, count});
+                }
+            }
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            WAITERS.remove(key, this);
+            if (subscription!=null) {
+                source.subscriptions().unsubscribe(subscription);
+                subscription = null;
+            }
+        }
+
+        /** returns false if this waiter has already been stopped, so a new one is needed */
+        synchronized boolean acquire() {
+            if (future.isCancelled()) return false;
+            count++;
+            return true;
+        }
+
+        synchronized void release() {
+            count--;
+            if (count<=0 && !future.isDone()) {
+                future.cancel(false);
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Returns a future which completes with the first value of the sensor on the source entity which satisfies
+     * the predicate (which may be the current value).
+     * Cancel the future to stop waiting; it does not complete if the entity is unmanaged,
+     * so callers should apply their own timeout or checks.
+     * 
+     * @param ready the readiness predicate; if null, the default Groovy truth is used
+     */
+    public static <T> ListenableFuture<T> attributeWhenReady(Entity source, AttributeSensor<T> sensor, @Nullable Predicate<? super T> ready) {
+        Predicate<? super T> readiness = ready;
+        if (readiness==null) readiness = GroovyJavaMethods.truthPredicate();
+        final Waiter<T> waiter = acquire(source, sensor, readiness);
+        final SettableFuture<T> result = SettableFuture.create();
+        Futures.addCallback(waiter.future, new FutureCallback<T>() {
+            @Override public void onSuccess(T value) {
+                result.set(value);
+            }
+            @Override public void onFailure(Throwable t) {
+                result.setException(t);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        // runs whether the result completes normally, fails, or is cancelled by the caller
+        result.addListener(new Runnable() {
+            @Override public void run() {
+                waiter.release();
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Waiter<T> acquire(Entity source, AttributeSensor<T> sensor, Predicate<? super T> ready) {
+        List<Object> key = ImmutableList.<Object>of(source, sensor, ready);
+        while (true) {
+            Waiter<T> waiter = (Waiter<T>) WAITERS.get(key);
+            if (waiter==null) {
+                Waiter<T> candidate = new Waiter<T>(key, source, sensor, ready);
+                candidate.acquire();
+                if (WAITERS.putIfAbsent(key, candidate)==null) {
+                    candidate.start();
+                    return candidate;
+                }
+            } else if (waiter.acquire()) {
+                return waiter;
+            } else {
+                // stopped concurrently; it removes itself, so try again
+                WAITERS.remove(key, waiter);
+            }
+        }
+    }
+
+    /** number of distinct conditions currently being waited for on the given entity's sensor */
+    @VisibleForTesting
+    public static int getWaiterCount(Entity source, AttributeSensor<?> sensor) {
+        int result = 0;
+        for (Waiter<?> waiter: WAITERS.values()) {
+            if (waiter.source.equals(source) && waiter.sensor.equals(sensor)) result++;
+        }
+        return result;
+    }
+
+}
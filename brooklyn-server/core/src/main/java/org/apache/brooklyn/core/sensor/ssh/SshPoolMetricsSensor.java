@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.sensor.ssh;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.apache.brooklyn.api.entity.EntityLocal;
+import org.apache.brooklyn.core.effector.AddSensor;
+import org.apache.brooklyn.core.location.Machines;
+import org.apache.brooklyn.feed.function.FunctionFeed;
+import org.apache.brooklyn.feed.function.FunctionPollConfig;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Functions;
+
+/**
+ * Configurable {@link org.apache.brooklyn.api.entity.EntityInitializer} which adds a sensor publishing
+ * {@link SshMachineLocation#getSshPoolMetrics()} for the entity's ssh machine: connections leased, idle and waiting,
+ * connections discarded as broken, and histograms of the time waiting for a connection and the time taken to connect.
+ * The sensor is unset while the entity has no ssh machine.
+ * <p>
+ * For example, in YAML:
+ * <pre>
+ * brooklyn.initializers:
+ * - type: org.apache.brooklyn.core.sensor.ssh.SshPoolMetricsSensor
+ *   brooklyn.config:
+ *     name: ssh.pool.metrics
+ *     period: 30s
+ * </pre>
+ *
+ * @see SshMachineLocation#SSH_MAX_CONNECTIONS
+ */
+@Beta
+@SuppressWarnings("rawtypes")
+public final class SshPoolMetricsSensor extends AddSensor<Map> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SshPoolMetricsSensor.class);
+
+    public SshPoolMetricsSensor(Map<String, String> params) {
+        this(ConfigBag.newInstance(params));
+    }
+
+    public SshPoolMetricsSensor(ConfigBag params) {
+        super(ConfigBag.newInstanceCopying(params).configure(SENSOR_TYPE, Map.class.getName()));
+    }
+
+    @Override
+    public void apply(final EntityLocal entity) {
+        super.apply(entity);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Adding ssh pool metrics sensor {} to {}", name, entity);
+        }
+
+        FunctionPollConfig<Map, Map> pollConfig = new FunctionPollConfig<Map, Map>(sensor)
+                .callable(new Callable<Map>() {
+                    @Override
+                    public Map call() {
+                        Maybe<SshMachineLocation> machine = Machines.findUniqueMachineLocation(entity.getLocations(), SshMachineLocation.class);
+                        return machine.isPresent() ? machine.get().getSshPoolMetrics() : null;
+                    }})
+                .onSuccess(Functions.<Map>identity())
+                .onException(Functions.constant((Map) null))
+                .period(period);
+
+        FunctionFeed.builder()
+                .entity(entity)
+                .poll(pollConfig)
+                .build();
+    }
+}
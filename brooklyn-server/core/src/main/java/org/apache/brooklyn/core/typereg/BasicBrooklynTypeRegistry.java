@@ -18,44 +18,86 @@
  */
 package org.apache.brooklyn.core.typereg;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.catalog.CatalogItem.CatalogItemType;
+import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.internal.AbstractBrooklynObjectSpec;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry;
 import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.api.typereg.RegisteredType.TypeImplementationPlan;
 import org.apache.brooklyn.api.typereg.RegisteredTypeLoadingContext;
+import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
 import org.apache.brooklyn.core.catalog.internal.CatalogItemBuilder;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.DeferredSupplier;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Primitives;
 
 public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
 
     private static final Logger log = LoggerFactory.getLogger(BasicBrooklynTypeRegistry.class);
     
+    @Beta
+    public static final ConfigKey<Boolean> SPEC_CACHE_ENABLED = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.typeRegistry.specCache.enabled",
+        "Whether to cache the entity specs built from registered types' plans, "
+        + "so that repeated deployments of the same item copy the spec rather than re-parsing the plan",
+        true);
+    
     private ManagementContext mgmt;
-    private Map<String,RegisteredType> localRegisteredTypes = MutableMap.of();
+    private final Map<String,RegisteredType> localRegisteredTypes = Maps.newConcurrentMap();
+    /* indexes of local types, each keyed then by id, so types can be found without a scan; 
+     * written only when synchronized on this, and kept in step with localRegisteredTypes */
+    private final ConcurrentMap<String,Map<String,RegisteredType>> localRegisteredTypesBySymbolicName = Maps.newConcurrentMap();
+    private final ConcurrentMap<RegisteredTypeKind,Map<String,RegisteredType>> localRegisteredTypesByKind = Maps.newConcurrentMap();
+    /** keyed by each declared super-type, a {@link Class} or {@link RegisteredType} */
+    private final ConcurrentMap<Object,Map<String,RegisteredType>> localRegisteredTypesBySuperType = Maps.newConcurrentMap();
+    private final ConcurrentMap<Object,Map<String,RegisteredType>> localRegisteredTypesByTag = Maps.newConcurrentMap();
+    
+    /** entity specs built from plans, keyed by a hash of the type, plan and constraint; 
+     * never returned to callers, only copies of them, and cleared whenever the catalog changes */
+    private final Cache<HashCode,EntitySpec<?>> specCache = CacheBuilder.newBuilder().maximumSize(500).build();
+    private final AtomicLong typesGeneration = new AtomicLong();
 
     public BasicBrooklynTypeRegistry(ManagementContext mgmt) {
         this.mgmt = mgmt;
@@ -66,8 +108,7 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
     }
     
     private Iterable<RegisteredType> getAllWithoutCatalog(Predicate<? super RegisteredType> filter) {
-        // TODO thread safety
-        // TODO optimisation? make indexes and look up?
+        // callers who can should use the indexed lookups below
         return Iterables.filter(localRegisteredTypes.values(), filter);
     }
 
@@ -77,6 +118,69 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         return RegisteredTypes.tryValidate(item, constraint);
     }
 
+    /** 
+     * Returns all versions of the type with the given symbolic name, 
+     * using the indexes of local types and of the catalog rather than filtering every type.
+     */
+    @Beta
+    @SuppressWarnings("deprecation")
+    public Iterable<RegisteredType> getAllVersions(String symbolicName) {
+        if (mgmt.getCatalog() instanceof BasicBrooklynCatalog) {
+            return Iterables.concat(getFromIndex(localRegisteredTypesBySymbolicName, symbolicName), Iterables.transform(
+                ((BasicBrooklynCatalog)mgmt.getCatalog()).getCatalogItemVersions(symbolicName), RegisteredTypes.CI_TO_RT));
+        }
+        return getMatching(RegisteredTypePredicates.symbolicName(symbolicName));
+    }
+
+    /** 
+     * Returns all types of the given kind, using the indexes of local types and of the catalog rather than filtering every type.
+     */
+    @Beta
+    @SuppressWarnings({ "deprecation", "unchecked", "rawtypes" })
+    public Iterable<RegisteredType> getAllOfKind(final RegisteredTypeKind kind) {
+        if (mgmt.getCatalog() instanceof BasicBrooklynCatalog) {
+            // legacy catalog items are all specs
+            Iterable<CatalogItem<?,?>> items = (kind==RegisteredTypeKind.SPEC) 
+                ? (Iterable) mgmt.getCatalog().getCatalogItems() : ImmutableList.<CatalogItem<?,?>>of();
+            return Iterables.concat(getFromIndex(localRegisteredTypesByKind, kind), Iterables.transform(items, RegisteredTypes.CI_TO_RT));
+        }
+        return getMatching(new Predicate<RegisteredType>() {
+            @Override public boolean apply(RegisteredType input) { return input.getKind()==kind; }
+        });
+    }
+
+    /** 
+     * Returns all types which declare the given super-type (a {@link Class} or {@link RegisteredType}) directly, 
+     * using the indexes of local types and of the catalog rather than filtering every type;
+     * types which only extend it indirectly are not included.
+     */
+    @Beta
+    @SuppressWarnings({ "deprecation", "unchecked", "rawtypes" })
+    public Iterable<RegisteredType> getAllWithDeclaredSuperType(final Object superType) {
+        if (mgmt.getCatalog() instanceof BasicBrooklynCatalog) {
+            Iterable<CatalogItem<?,?>> items = (superType instanceof Class) 
+                ? (Iterable) ((BasicBrooklynCatalog)mgmt.getCatalog()).getCatalogItemsOfSuperType((Class<?>)superType) 
+                : ImmutableList.<CatalogItem<?,?>>of();
+            return Iterables.concat(getFromIndex(localRegisteredTypesBySuperType, superType), Iterables.transform(items, RegisteredTypes.CI_TO_RT));
+        }
+        return getMatching(new Predicate<RegisteredType>() {
+            @Override public boolean apply(RegisteredType input) { return input.getSuperTypes().contains(superType); }
+        });
+    }
+
+    /** 
+     * Returns all types with the given tag, using the indexes of local types and of the catalog rather than filtering every type.
+     */
+    @Beta
+    @SuppressWarnings({ "deprecation", "unchecked", "rawtypes" })
+    public Iterable<RegisteredType> getAllWithTag(Object tag) {
+        if (mgmt.getCatalog() instanceof BasicBrooklynCatalog) {
+            Iterable<CatalogItem<?,?>> items = (Iterable) ((BasicBrooklynCatalog)mgmt.getCatalog()).getCatalogItemsWithTag(tag);
+            return Iterables.concat(getFromIndex(localRegisteredTypesByTag, tag), Iterables.transform(items, RegisteredTypes.CI_TO_RT));
+        }
+        return getMatching(RegisteredTypePredicates.tag(tag));
+    }
+    
     @SuppressWarnings("deprecation")
     @Override
     public Iterable<RegisteredType> getMatching(Predicate<? super RegisteredType> filter) {
@@ -103,8 +207,8 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         if (BrooklynCatalog.DEFAULT_VERSION.equals(version)) {
             // alternate code path, if version blank or default
             
-            Iterable<RegisteredType> types = getMatching(Predicates.and(RegisteredTypePredicates.symbolicName(symbolicNameOrAliasIfNoVersion), 
-                RegisteredTypePredicates.satisfies(context)));
+            Iterable<RegisteredType> types = Iterables.filter(getAllVersions(symbolicNameOrAliasIfNoVersion), 
+                RegisteredTypePredicates.satisfies(context));
             if (Iterables.isEmpty(types)) {
                 // look for alias if no exact symbolic name match AND no version is specified
                 types = getMatching(Predicates.and(RegisteredTypePredicates.alias(symbolicNameOrAliasIfNoVersion), 
@@ -193,8 +297,21 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         }
         constraint = RegisteredTypeLoadingContexts.withSpecSuperType(constraint, specSuperType);
 
+        HashCode cacheKey = getSpecCacheKey(plan, symbolicName, version, constraint);
+        if (cacheKey!=null) {
+            EntitySpec<?> cached = specCache.getIfPresent(cacheKey);
+            if (cached!=null) return (SpecT) copySpec(cached);
+        }
+        
         Maybe<Object> result = TypePlanTransformers.transform(mgmt, type, constraint);
-        if (result.isPresent()) return (SpecT) result.get();
+        if (result.isPresent()) {
+            if (cacheKey!=null && result.get() instanceof EntitySpec && isCacheable((EntitySpec<?>) result.get())) {
+                // keep the original private, so callers can modify what they are given
+                specCache.put(cacheKey, (EntitySpec<?>) result.get());
+                return (SpecT) copySpec((EntitySpec<?>) result.get());
+            }
+            return (SpecT) result.get();
+        }
         
         // fallback: look up in (legacy) catalog
         // TODO remove once all transformers are available in the new style
@@ -236,6 +353,166 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         }
     }
 
+    /** 
+     * Returns the key under which the spec for the given plan is cached, 
+     * or null if it should not be cached (disabled, or the result could depend on something other than the plan,
+     * such as a caller-supplied class loading context).
+     */
+    @Nullable
+    protected HashCode getSpecCacheKey(TypeImplementationPlan plan, @Nullable String symbolicName, @Nullable String version, RegisteredTypeLoadingContext constraint) {
+        if (!(plan.getPlanData() instanceof String) || constraint.getLoader()!=null) return null;
+        if (!Boolean.TRUE.equals(mgmt.getConfig().getConfig(SPEC_CACHE_ENABLED))) return null;
+        Hasher hasher = Hashing.sha256().newHasher()
+            .putString(String.valueOf(symbolicName), Charsets.UTF_8).putChar(':')
+            .putString(String.valueOf(version), Charsets.UTF_8).putChar('\n')
+            .putString(String.valueOf(plan.getPlanFormat()), Charsets.UTF_8).putChar('\n')
+            .putString(constraint.getExpectedJavaSuperType().getName(), Charsets.UTF_8).putChar('\n');
+        // recursion detection depends on what has already been encountered
+        for (String encountered: Ordering.natural().sortedCopy(constraint.getAlreadyEncounteredTypes())) {
+            hasher.putString(encountered, Charsets.UTF_8).putChar(',');
+        }
+        return hasher.putChar('\n').putString((String)plan.getPlanData(), Charsets.UTF_8).hash();
+    }
+    
+    /** 
+     * True if the spec can be shared as a template for copies, i.e. {@link #copySpec(EntitySpec)} leaves nothing shared
+     * which a deployment could modify. Specs referring to instances (locations, policies, members, initializers etc)
+     * are not, as each deployment would share them; nor are specs with config values which cannot be copied.
+     */
+    protected boolean isCacheable(EntitySpec<?> spec) {
+        if (spec.getParent()!=null || !spec.getLocations().isEmpty() || !spec.getPolicies().isEmpty() || !spec.getEnrichers().isEmpty() 
+                || !spec.getMembers().isEmpty() || !spec.getGroups().isEmpty() || !spec.getInitializers().isEmpty()) {
+            return false;
+        }
+        for (EntitySpec<?> child: spec.getChildren()) {
+            if (!isCacheable(child)) return false;
+        }
+        for (AbstractBrooklynObjectSpec<?,?> adjunctSpec: Iterables.<AbstractBrooklynObjectSpec<?,?>>concat(spec.getPolicySpecs(), spec.getEnricherSpecs())) {
+            if (!hasCopyableConfig(adjunctSpec)) return false;
+        }
+        return hasCopyableConfig(spec);
+    }
+
+    private boolean hasCopyableConfig(AbstractBrooklynObjectSpec<?,?> spec) {
+        for (Object value: Iterables.concat(spec.getConfig().values(), spec.getFlags().values())) {
+            if (!isCopyable(value)) return false;
+        }
+        return true;
+    }
+
+    /** 
+     * True if {@link #copyValue(Object)} gives a copy which can be modified independently: immutable values,
+     * cacheable specs, and collections and maps of those. Deferred suppliers (such as DSL expressions) are resolved
+     * each time they are used, and treated as immutable.
+     */
+    protected boolean isCopyable(Object value) {
+        if (value==null || value instanceof String || value instanceof Enum || value instanceof Class
+                || Primitives.isWrapperType(value.getClass()) || value instanceof BigInteger || value instanceof BigDecimal
+                || value instanceof Duration || value instanceof ConfigKey || value instanceof DeferredSupplier) {
+            return true;
+        }
+        if (value instanceof EntitySpec) {
+            return isCacheable((EntitySpec<?>)value);
+        }
+        if (value instanceof Collection) {
+            for (Object item: (Collection<?>)value) {
+                if (!isCopyable(item)) return false;
+            }
+            return true;
+        }
+        if (value instanceof Map) {
+            for (Map.Entry<?,?> entry: ((Map<?,?>)value).entrySet()) {
+                if (!isCopyable(entry.getKey()) || !isCopyable(entry.getValue())) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+    
+    /** 
+     * copies the spec, including children, policy and enricher specs, any specs in config (such as a cluster's member spec),
+     * and collections and maps in config
+     */
+    protected static <T extends EntitySpec<?>> T copySpec(T spec) {
+        @SuppressWarnings("unchecked")
+        T result = (T) EntitySpec.create(spec);
+        copyNestedValues(result);
+        return result;
+    }
+
+    private static void copyNestedValues(EntitySpec<?> spec) {
+        // children, policy specs and enricher specs are already copied by EntitySpec.create, but config values are shared
+        copyConfigValues(spec);
+        for (AbstractBrooklynObjectSpec<?,?> adjunctSpec: Iterables.<AbstractBrooklynObjectSpec<?,?>>concat(spec.getPolicySpecs(), spec.getEnricherSpecs())) {
+            copyConfigValues(adjunctSpec);
+        }
+        for (EntitySpec<?> child: spec.getChildren()) {
+            copyNestedValues(child);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void copyConfigValues(AbstractBrooklynObjectSpec<?,?> spec) {
+        for (Map.Entry<ConfigKey<?>,Object> entry: MutableMap.copyOf(spec.getConfig()).entrySet()) {
+            Object copy = copyValue(entry.getValue());
+            if (copy != entry.getValue()) spec.configure((ConfigKey<Object>)entry.getKey(), copy);
+        }
+        for (Map.Entry<String,?> entry: MutableMap.copyOf(spec.getFlags()).entrySet()) {
+            Object copy = copyValue(entry.getValue());
+            if (copy != entry.getValue()) spec.configure(entry.getKey(), copy);
+        }
+    }
+
+    /** copies specs, collections and maps (recursively); other values, checked by {@link #isCopyable(Object)}, are shared */
+    private static Object copyValue(Object value) {
+        if (value instanceof EntitySpec) {
+            return copySpec((EntitySpec<?>)value);
+        }
+        if (value instanceof Set) {
+            Set<Object> result = MutableSet.of();
+            for (Object item: (Set<?>)value) {
+                result.add(copyValue(item));
+            }
+            return result;
+        }
+        if (value instanceof Collection) {
+            List<Object> result = MutableList.of();
+            for (Object item: (Collection<?>)value) {
+                result.add(copyValue(item));
+            }
+            return result;
+        }
+        if (value instanceof Map) {
+            Map<Object,Object> result = MutableMap.of();
+            for (Map.Entry<?,?> entry: ((Map<?,?>)value).entrySet()) {
+                result.put(copyValue(entry.getKey()), copyValue(entry.getValue()));
+            }
+            return result;
+        }
+        return value;
+    }
+
+    /** Discards all cached specs; called when the catalog or registered types change. */
+    @Beta
+    public void invalidateSpecCache() {
+        typesGeneration.incrementAndGet();
+        specCache.invalidateAll();
+    }
+    
+    /** 
+     * A counter incremented whenever the catalog or registered types change, 
+     * so that callers caching lookups which depend on them (such as class loading) know when to discard them.
+     */
+    @Beta
+    public long getTypesGeneration() {
+        return typesGeneration.get();
+    }
+    
+    @VisibleForTesting
+    long getSpecCacheSize() {
+        return specCache.size();
+    }
+
     @Override
     public <SpecT extends AbstractBrooklynObjectSpec<?, ?>> SpecT createSpecFromPlan(String planFormat, Object planData, RegisteredTypeLoadingContext optionalConstraint, Class<SpecT> optionalSpecSuperType) {
         return createSpec(RegisteredTypes.spec(null, null, new BasicTypeImplementationPlan(planFormat, planData), null),
@@ -283,7 +560,18 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         RegisteredType oldType = mgmt.getTypeRegistry().get(type.getId());
         if (oldType==null || canForce) {
             log.debug("Inserting "+type+" into "+this);
-            localRegisteredTypes.put(type.getId(), type);
+            synchronized (this) {
+                removeFromLocalIndexes(localRegisteredTypes.put(type.getId(), type));
+                addToIndex(localRegisteredTypesBySymbolicName, type.getSymbolicName(), type);
+                addToIndex(localRegisteredTypesByKind, type.getKind(), type);
+                for (Object superType: type.getSuperTypes()) {
+                    addToIndex(localRegisteredTypesBySuperType, superType, type);
+                }
+                for (Object tag: type.getTags()) {
+                    addToIndex(localRegisteredTypesByTag, tag, type);
+                }
+            }
+            invalidateSpecCache();
         } else {
             if (oldType == type) {
                 // ignore if same instance
@@ -293,4 +581,57 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             throw new IllegalStateException("Cannot add "+type+" to catalog; different "+oldType+" is already present");
         }
     }
+
+    /** 
+     * Removes the type with the given id from the local registry, if present (but not from the catalog).
+     * @return whether a type was removed
+     */
+    @Beta // API is stabilising
+    public boolean removeFromLocalUnpersistedTypeRegistry(String id) {
+        RegisteredType oldType;
+        synchronized (this) {
+            oldType = localRegisteredTypes.remove(id);
+            removeFromLocalIndexes(oldType);
+        }
+        if (oldType==null) return false;
+        log.debug("Removed "+oldType+" from "+this);
+        invalidateSpecCache();
+        return true;
+    }
+
+    private synchronized void removeFromLocalIndexes(@Nullable RegisteredType type) {
+        if (type==null) return;
+        removeFromIndex(localRegisteredTypesBySymbolicName, type.getSymbolicName(), type.getId());
+        removeFromIndex(localRegisteredTypesByKind, type.getKind(), type.getId());
+        for (Object superType: type.getSuperTypes()) {
+            removeFromIndex(localRegisteredTypesBySuperType, superType, type.getId());
+        }
+        for (Object tag: type.getTags()) {
+            removeFromIndex(localRegisteredTypesByTag, tag, type.getId());
+        }
+    }
+
+    private static <K> Iterable<RegisteredType> getFromIndex(Map<K,Map<String,RegisteredType>> index, K key) {
+        Map<String, RegisteredType> types = (key!=null) ? index.get(key) : null;
+        return types!=null ? ImmutableList.copyOf(types.values()) : ImmutableList.<RegisteredType>of();
+    }
+
+    private static <K> void addToIndex(ConcurrentMap<K,Map<String,RegisteredType>> index, K key, RegisteredType type) {
+        if (key==null) return;
+        Map<String, RegisteredType> types = index.get(key);
+        if (types==null) {
+            index.putIfAbsent(key, Maps.<String,RegisteredType>newConcurrentMap());
+            types = index.get(key);
+        }
+        types.put(type.getId(), type);
+    }
+
+    private static <K> void removeFromIndex(ConcurrentMap<K,Map<String,RegisteredType>> index, K key, String id) {
+        if (key==null) return;
+        Map<String, RegisteredType> types = index.get(key);
+        if (types==null) return;
+        types.remove(id);
+        // writers are synchronized, so nothing can be added to it between these calls
+        if (types.isEmpty()) index.remove(key, types);
+    }
 }
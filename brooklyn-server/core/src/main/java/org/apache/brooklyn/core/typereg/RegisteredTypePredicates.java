@@ -232,8 +232,7 @@ public class RegisteredTypePredicates {
     }
     public static boolean isBestVersion(ManagementContext mgmt, RegisteredType item) {
         if (item==null) return false;
-        Iterable<RegisteredType> matches = mgmt.getTypeRegistry().getMatching(
-            RegisteredTypePredicates.symbolicName(item.getSymbolicName()) );
+        Iterable<RegisteredType> matches = RegisteredTypes.getAllVersions(mgmt, item.getSymbolicName());
         if (!matches.iterator().hasNext()) return false;
         RegisteredType best = RegisteredTypes.getBestVersion(matches);
         return (best.getVersion().equals(item.getVersion()));
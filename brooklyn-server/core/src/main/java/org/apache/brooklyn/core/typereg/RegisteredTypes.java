@@ -317,6 +317,15 @@ public class RegisteredTypes {
         return true;
     }
 
+    /** Returns all versions of the given type, using the registry's index where available. */
+    @Beta
+    public static Iterable<RegisteredType> getAllVersions(ManagementContext mgmt, String symbolicName) {
+        if (mgmt.getTypeRegistry() instanceof BasicBrooklynTypeRegistry) {
+            return ((BasicBrooklynTypeRegistry)mgmt.getTypeRegistry()).getAllVersions(symbolicName);
+        }
+        return mgmt.getTypeRegistry().getMatching(RegisteredTypePredicates.symbolicName(symbolicName));
+    }
+
     public static RegisteredType getBestVersion(Iterable<RegisteredType> types) {
         if (types==null || !types.iterator().hasNext()) return null;
         return Ordering.from(RegisteredTypeComparator.INSTANCE).max(types);
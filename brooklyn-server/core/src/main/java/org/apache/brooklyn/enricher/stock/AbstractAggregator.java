@@ -32,12 +32,17 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.enricher.AbstractEnricher;
 import org.apache.brooklyn.core.entity.AbstractEntity;
+import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.trait.Changeable;
+import org.apache.brooklyn.util.core.task.CoalescingScheduler;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
@@ -68,6 +73,11 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
     public static final ConfigKey<Predicate<?>> VALUE_FILTER = ConfigKeys.newConfigKey(new TypeToken<Predicate<?>>() {}, "enricher.aggregating.valueFilter");
 
+    public static final ConfigKey<Duration> COALESCE_PERIOD = ConfigKeys.newConfigKey(Duration.class, "enricher.aggregating.coalescePeriod",
+        "If set, changes are coalesced so that the aggregate is computed and published at most once per this period "
+        + "(with the latest values; zero means changes arriving before the next computation runs are coalesced); "
+        + "by default it is recomputed synchronously on every change");
+
     protected Entity producer;
     protected Sensor<U> targetSensor;
     protected T defaultMemberValue;
@@ -76,6 +86,24 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
     protected Boolean fromChildren;
     protected Predicate<? super Entity> entityFilter;
     protected Predicate<? super T> valueFilter;
+    protected Duration coalescePeriod;
+    
+    private final CoalescingScheduler updateScheduler = new CoalescingScheduler("Coalesced aggregate update", new Runnable() {
+        @Override public void run() {
+            try {
+                onUpdated();
+            } catch (Exception e) {
+                if (isRunning()) {
+                    LOG.error("Error in enricher "+AbstractAggregator.this+": "+e, e);
+                } else {
+                    if (LOG.isDebugEnabled()) LOG.debug("Error in enricher "+AbstractAggregator.this+" (but no longer running): "+e, e);
+                }
+            } catch (Throwable t) {
+                LOG.error("Error in enricher "+AbstractAggregator.this+": "+t, t);
+                throw Exceptions.propagate(t);
+            }
+        }
+    });
     
     public AbstractAggregator() {}
 
@@ -118,6 +146,7 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
         this.fromChildren = Maybe.fromNullable(getConfig(FROM_CHILDREN)).or(fromChildren);
         this.entityFilter = (Predicate<? super Entity>) (getConfig(ENTITY_FILTER) == null ? Predicates.alwaysTrue() : getConfig(ENTITY_FILTER));
         this.valueFilter = (Predicate<? super T>) (getConfig(VALUE_FILTER) == null ? getDefaultValueFilter() : getConfig(VALUE_FILTER));
+        this.coalescePeriod = getConfig(COALESCE_PERIOD);
         
         setEntityLoadingTargetConfig();
     }
@@ -141,14 +170,14 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
             @Override public void onEvent(SensorEvent<Entity> event) {
                 if (entityFilter.apply(event.getValue())) {
                     addProducerMember(event.getValue());
-                    onUpdated();
+                    triggerUpdate();
                 }
             }
         });
         subscriptions().subscribe(producer, Changeable.MEMBER_REMOVED, new SensorEventListener<Entity>() {
             @Override public void onEvent(SensorEvent<Entity> event) {
                 removeProducer(event.getValue());
-                onUpdated();
+                triggerUpdate();
             }
         });
     }
@@ -168,14 +197,14 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
         subscriptions().subscribe(producer, AbstractEntity.CHILD_REMOVED, new SensorEventListener<Entity>() {
             @Override public void onEvent(SensorEvent<Entity> event) {
                 removeProducer(event.getValue());
-                onUpdated();
+                triggerUpdate();
             }
         });
         subscriptions().subscribe(producer, AbstractEntity.CHILD_ADDED, new SensorEventListener<Entity>() {
             @Override public void onEvent(SensorEvent<Entity> event) {
                 if (entityFilter.apply(event.getValue())) {
                     addProducerChild(event.getValue());
-                    onUpdated();
+                    triggerUpdate();
                 }
             }
         });
@@ -223,6 +252,26 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
     /**
      * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed).
+     * Invokes {@link #onUpdated()} immediately or, if {@link #COALESCE_PERIOD} is set, schedules it so that
+     * it runs at most once per period regardless of how many changes arrive in the meantime.
+     */
+    protected void triggerUpdate() {
+        if (coalescePeriod==null || !isRunning()) {
+            onUpdated();
+            return;
+        }
+        if (LOG.isTraceEnabled()) LOG.trace("{} scheduling aggregate update, coalescing over {}", this, coalescePeriod);
+        updateScheduler.trigger(((EntityInternal)entity).getExecutionContext(), coalescePeriod);
+    }
+
+    /** the scheduler used for coalesced updates, see {@link #COALESCE_PERIOD} */
+    @Beta @VisibleForTesting
+    public CoalescingScheduler getUpdateScheduler() {
+        return updateScheduler;
+    }
+
+    /**
+     * Computes and publishes the aggregate; normally invoked via {@link #triggerUpdate()}.
      */
     protected void onUpdated() {
         try {
@@ -22,8 +22,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -31,13 +34,14 @@ import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.BrooklynLogging;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.base.Predicate;
 
 /** Building on {@link AbstractAggregator} for a single source sensor (on multiple children and/or members) */
 public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggregator<Object,U> implements SensorEventListener<Object> {
@@ -48,9 +52,24 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
     /** access via {@link #getValues(Sensor)} */
     private final Map<String, Map<Entity,Object>> values = Collections.synchronizedMap(new LinkedHashMap<String, Map<Entity,Object>>());
 
+    /** 
+     * for each sensor, the producers reporting each distinct (raw) value, updated in step with {@link #values}
+     * if {@link #isIndexingValues()}; access via {@link #getValueCounts(Sensor)} and {@link #getEntitiesWithValue(Sensor, Predicate)} 
+     */
+    private final Map<String, Map<Object,Set<Entity>>> entitiesByValue = new LinkedHashMap<String, Map<Object,Set<Entity>>>();
+
     public AbstractMultipleSensorAggregator() {}
 
     protected abstract Collection<Sensor<?>> getSourceSensors();
+
+    /**
+     * Whether to index producers by value as values change, making {@link #getValueCounts(Sensor)} and
+     * {@link #getEntitiesWithValue(Sensor, Predicate)} cheap; worthwhile only for subclasses which call those
+     * on each update. Without the index they iterate over all values. Defaults to false.
+     */
+    protected boolean isIndexingValues() {
+        return false;
+    }
     
     @Override
     protected void setEntityLoadingConfig() {
@@ -106,7 +125,7 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                     } else {
                         initialVal = null;
                     }
-                    vs.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                    putValue(sensor.getName(), vs, producer, initialVal != null ? initialVal : defaultMemberValue);
                     // NB: see notes on possible race, in Aggregator#onProducerAdded
                 }
                 
@@ -119,11 +138,11 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
         synchronized (values) {
             for (Sensor<?> sensor: getSourceSensors()) {
                 Map<Entity,Object> vs = values.get(sensor.getName());
-                if (vs!=null)
-                    vs.remove(producer);
+                if (vs!=null && vs.containsKey(producer))
+                    unindexValue(sensor.getName(), producer, vs.remove(producer));
             }
         }
-        onUpdated();
+        triggerUpdate();
     }
 
     @Override
@@ -134,10 +153,40 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
             if (vs==null) {
                 LOG.debug(this+" received event when no entry for sensor ("+event+"); likely just added or removed, and will initialize subsequently if needed");
             } else {
-                vs.put(e, event.getValue());
+                putValue(event.getSensor().getName(), vs, e, event.getValue());
             }
         }
-        onUpdated();
+        triggerUpdate();
+    }
+
+    /** caller must synchronize on {@link #values} */
+    private void putValue(String sensorName, Map<Entity,Object> vs, Entity producer, Object value) {
+        boolean hadValue = vs.containsKey(producer);
+        Object oldValue = vs.put(producer, value);
+        if (!isIndexingValues()) return;
+        if (hadValue) unindexValue(sensorName, producer, oldValue);
+        
+        Map<Object,Set<Entity>> index = entitiesByValue.get(sensorName);
+        if (index==null) {
+            index = new LinkedHashMap<Object,Set<Entity>>();
+            entitiesByValue.put(sensorName, index);
+        }
+        Set<Entity> entities = index.get(value);
+        if (entities==null) {
+            entities = new LinkedHashSet<Entity>();
+            index.put(value, entities);
+        }
+        entities.add(producer);
+    }
+
+    /** caller must synchronize on {@link #values} */
+    private void unindexValue(String sensorName, Entity producer, Object value) {
+        Map<Object,Set<Entity>> index = entitiesByValue.get(sensorName);
+        if (index==null) return;
+        Set<Entity> entities = index.get(value);
+        if (entities==null) return;
+        entities.remove(producer);
+        if (entities.isEmpty()) index.remove(value);
     }
 
     public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
@@ -145,6 +194,63 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
         return coerceValues(valuesCopy, sensor.getType());
     }
 
+    /**
+     * Returns the number of producers reporting each distinct value of the given sensor.
+     * If {@link #isIndexingValues()} this is maintained as values change, so is much cheaper than {@link #getValues(Sensor)}
+     * when there are many producers but few distinct values (such as service up or service state).
+     */
+    public <T> Map<T,Integer> getValueCounts(Sensor<T> sensor) {
+        Map<T,Integer> result = MutableMap.of();
+        synchronized (values) {
+            Map<Object,Set<Entity>> index = getEntitiesByValue(sensor);
+            if (index==null) return result;
+            for (Entry<Object,Set<Entity>> entry : index.entrySet()) {
+                @SuppressWarnings("unchecked")
+                T typedValue = (T) TypeCoercions.coerce(entry.getKey(), sensor.getType());
+                Integer count = result.get(typedValue);
+                result.put(typedValue, (count==null ? 0 : count) + entry.getValue().size());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the producers whose value for the given sensor satisfies the given predicate.
+     * If {@link #isIndexingValues()} the cost is proportional to the number of distinct values and the number
+     * of matching producers, rather than the total number of producers.
+     */
+    public <T> List<Entity> getEntitiesWithValue(Sensor<T> sensor, Predicate<? super T> valueFilter) {
+        List<Entity> result = MutableList.of();
+        synchronized (values) {
+            Map<Object,Set<Entity>> index = getEntitiesByValue(sensor);
+            if (index==null) return result;
+            for (Entry<Object,Set<Entity>> entry : index.entrySet()) {
+                @SuppressWarnings("unchecked")
+                T typedValue = (T) TypeCoercions.coerce(entry.getKey(), sensor.getType());
+                if (valueFilter.apply(typedValue)) result.addAll(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /** caller must synchronize on {@link #values}; returns the index, or builds the equivalent if not {@link #isIndexingValues()} */
+    private Map<Object,Set<Entity>> getEntitiesByValue(Sensor<?> sensor) {
+        if (isIndexingValues()) return entitiesByValue.get(sensor.getName());
+        
+        Map<Entity,Object> vs = values.get(sensor.getName());
+        if (vs==null) return null;
+        Map<Object,Set<Entity>> result = new LinkedHashMap<Object,Set<Entity>>();
+        for (Entry<Entity,Object> entry : vs.entrySet()) {
+            Set<Entity> entities = result.get(entry.getValue());
+            if (entities==null) {
+                entities = new LinkedHashSet<Entity>();
+                result.put(entry.getValue(), entities);
+            }
+            entities.add(entry.getKey());
+        }
+        return result;
+    }
+
     private <T> Map<Entity, T> coerceValues(Map<Entity, T> values, Class<? super T> type) {
         Map<Entity, T> typedValues = MutableMap.of();
         for (Entry<Entity, T> entry : values.entrySet()) {
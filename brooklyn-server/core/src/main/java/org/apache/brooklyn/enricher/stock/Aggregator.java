@@ -33,6 +33,8 @@ import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.IncrementalReducer;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.IncrementallyComputable;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
@@ -60,9 +62,14 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     @SetFromFlag("transformation")
     public static final ConfigKey<Object> TRANSFORMATION_UNTYPED = ConfigKeys.newConfigKey(Object.class, "enricher.transformation.untyped",
         "Specifies a transformation, as a function from a collection to the value, or as a string matching a pre-defined named transformation, "
-        + "such as 'average' (for numbers), 'sum' (for numbers), or 'list' (the default, putting any collection of items into a list)");
+        + "such as 'average', 'sum', 'min' or 'max' (for numbers), 'count' (of non-null values), 'isQuorate' (for booleans), "
+        + "or 'list' (the default, putting any collection of items into a list)");
     public static final ConfigKey<Function<? super Collection<?>, ?>> TRANSFORMATION = ConfigKeys.newConfigKey(new TypeToken<Function<? super Collection<?>, ?>>() {}, "enricher.transformation");
     
+    public static final ConfigKey<Boolean> INCREMENTAL = ConfigKeys.newBooleanConfigKey("enricher.aggregator.incremental",
+        "Whether to maintain the aggregate incrementally as individual values change, rather than recomputing it from all values on every change; "
+        + "only applies where the transformation supports it (e.g. 'sum', 'average', 'min', 'max', 'count' and 'isQuorate')", true);
+
     public static final ConfigKey<Boolean> EXCLUDE_BLANK = ConfigKeys.newBooleanConfigKey("enricher.aggregator.excludeBlank", "Whether explicit nulls or blank strings should be excluded (default false); this only applies if no value filter set", false);
 
     /**
@@ -82,6 +89,12 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
 
+    /**
+     * Non-null if the transformation is being computed incrementally; 
+     * updated in step with {@link #values}, and only accessed when synchronized on it.
+     */
+    protected IncrementalReducer<T, ? extends U> incrementalReducer;
+
     public Aggregator() {}
 
     @SuppressWarnings("unchecked")
@@ -105,6 +118,15 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         } else if (t1!=null && !Objects.equals(t2, this.transformation)) {
             throw new IllegalStateException("Cannot supply both "+TRANSFORMATION_UNTYPED+" and "+TRANSFORMATION+" unless they are equal.");
         }
+        
+        if (this.transformation instanceof IncrementallyComputable && Boolean.TRUE.equals(config().get(INCREMENTAL))) {
+            synchronized (values) {
+                this.incrementalReducer = ((IncrementallyComputable<T, ? extends U>)this.transformation).newIncrementalReducer();
+                for (T v: values.values()) {
+                    addToReducer(v);
+                }
+            }
+        }
     }
         
     @SuppressWarnings({ "rawtypes", "unchecked" })
@@ -113,6 +135,9 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         if ("sum".equalsIgnoreCase(t1)) return new Enrichers.ComputingSum(null, null, targetSensor.getTypeToken());
         if ("isQuorate".equalsIgnoreCase(t1)) return new Enrichers.ComputingIsQuorate(targetSensor.getTypeToken(),
                 QuorumChecks.of(config().get(QUORUM_CHECK_TYPE)), config().get(QUORUM_TOTAL_SIZE));
+        if ("min".equalsIgnoreCase(t1)) return new Enrichers.ComputingMin(null, targetSensor.getTypeToken());
+        if ("max".equalsIgnoreCase(t1)) return new Enrichers.ComputingMax(null, targetSensor.getTypeToken());
+        if ("count".equalsIgnoreCase(t1)) return new Enrichers.ComputingCount();
         if ("list".equalsIgnoreCase(t1)) return new ComputingList();
         return null;
     }
@@ -164,7 +189,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
-                values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                putValue(producer, initialVal != null ? initialVal : defaultMemberValue);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -185,8 +210,12 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
-        onUpdated();
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                removeFromReducer(values.remove(producer));
+            }
+        }
+        triggerUpdate();
     }
 
     @Override
@@ -194,12 +223,28 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                putValue(e, event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
         }
-        onUpdated();
+        triggerUpdate();
+    }
+
+    /** records the value for the given producer, keeping any {@link #incrementalReducer} in step; caller must synchronize on {@link #values} */
+    protected void putValue(Entity producer, T value) {
+        boolean hadValue = values.containsKey(producer);
+        T oldValue = values.put(producer, value);
+        if (hadValue) removeFromReducer(oldValue);
+        addToReducer(value);
+    }
+
+    private void addToReducer(T value) {
+        if (incrementalReducer!=null && valueFilter.apply(value)) incrementalReducer.add(value);
+    }
+
+    private void removeFromReducer(T value) {
+        if (incrementalReducer!=null && valueFilter.apply(value)) incrementalReducer.remove(value);
     }
 
     protected void onUpdated() {
@@ -214,6 +259,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (incrementalReducer!=null) return incrementalReducer.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             if (transformation==null) return vs;
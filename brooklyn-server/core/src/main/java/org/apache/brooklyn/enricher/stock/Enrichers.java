@@ -34,6 +34,12 @@ import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.core.enricher.AbstractEnricher;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.CountingReducer;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.ExtremumReducer;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.IncrementalReducer;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.IncrementallyComputable;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.QuorumReducer;
+import org.apache.brooklyn.enricher.stock.IncrementalReducers.SummingReducer;
 import org.apache.brooklyn.enricher.stock.reducer.Reducer;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -809,7 +815,7 @@ public class Enrichers {
     }
 
     @Beta
-    private abstract static class ComputingNumber<T extends Number> implements Function<Collection<T>, T> {
+    private abstract static class ComputingNumber<T extends Number> implements Function<Collection<T>, T>, IncrementallyComputable<T, T> {
         protected final Number defaultValueForUnreportedSensors;
         protected final Number valueToReportIfNoSensors;
         protected final TypeToken<T> typeToken;
@@ -838,6 +844,9 @@ public class Enrichers {
         @Override public T apply(Collection<T> input) {
             return (T) sum((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, typeToken);
         }
+        @Override public IncrementalReducer<T, T> newIncrementalReducer() {
+            return new SummingReducer<T>(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken, false);
+        }
     }
 
     @Beta
@@ -849,6 +858,57 @@ public class Enrichers {
         @Override public T apply(Collection<T> input) {
             return (T) average((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, typeToken);
         }
+        @Override public IncrementalReducer<T, T> newIncrementalReducer() {
+            return new SummingReducer<T>(defaultValueForUnreportedSensors, valueToReportIfNoSensors, typeToken, true);
+        }
+    }
+
+    /** computes the minimum of the non-null values, or the given value if there are none */
+    @Beta
+    public static class ComputingMin<T extends Number> extends ComputingNumber<T> {
+        public ComputingMin(Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+            super(null, valueToReportIfNoSensors, typeToken);
+        }
+        @Override public T apply(Collection<T> input) {
+            return reduce(newIncrementalReducer(), input);
+        }
+        @Override public IncrementalReducer<T, T> newIncrementalReducer() {
+            return new ExtremumReducer<T>(valueToReportIfNoSensors, typeToken, false);
+        }
+    }
+
+    /** computes the maximum of the non-null values, or the given value if there are none */
+    @Beta
+    public static class ComputingMax<T extends Number> extends ComputingNumber<T> {
+        public ComputingMax(Number valueToReportIfNoSensors, TypeToken<T> typeToken) {
+            super(null, valueToReportIfNoSensors, typeToken);
+        }
+        @Override public T apply(Collection<T> input) {
+            return reduce(newIncrementalReducer(), input);
+        }
+        @Override public IncrementalReducer<T, T> newIncrementalReducer() {
+            return new ExtremumReducer<T>(valueToReportIfNoSensors, typeToken, true);
+        }
+    }
+
+    /** computes the number of non-null values */
+    @Beta
+    public static class ComputingCount<T> implements Function<Collection<T>, Integer>, IncrementallyComputable<T, Integer> {
+        @Override public Integer apply(Collection<T> input) {
+            return reduce(newIncrementalReducer(), input);
+        }
+        @Override public IncrementalReducer<T, Integer> newIncrementalReducer() {
+            return new CountingReducer<T>();
+        }
+    }
+
+    private static <T,U> U reduce(IncrementalReducer<T,U> reducer, Iterable<? extends T> vals) {
+        if (vals!=null) {
+            for (T val : vals) {
+                reducer.add(val);
+            }
+        }
+        return reducer.get();
     }
 
     protected static <T extends Number> T average(Collection<T> vals, Number defaultValueForUnreportedSensors, Number valueToReportIfNoSensors, TypeToken<T> type) {
@@ -893,7 +953,7 @@ public class Enrichers {
     }
     
     @Beta
-    public static class ComputingIsQuorate<T> implements Function<Collection<Boolean>, Boolean> {
+    public static class ComputingIsQuorate<T> implements Function<Collection<Boolean>, Boolean>, IncrementallyComputable<Boolean, Boolean> {
         protected final TypeToken<T> typeToken;
         protected final QuorumCheck quorumCheck;
         protected final int totalSize;
@@ -922,6 +982,11 @@ public class Enrichers {
 
             return Boolean.valueOf(quorumCheck.isQuorate(numTrue, totalSize));
         }
+
+        @Override
+        public IncrementalReducer<Boolean, Boolean> newIncrementalReducer() {
+            return new QuorumReducer(quorumCheck, totalSize);
+        }
     }
 
     private static <T> Map<T,T> newIdentityMap(Set<T> keys) {
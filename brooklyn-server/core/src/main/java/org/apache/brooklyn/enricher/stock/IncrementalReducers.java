@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.enricher.stock;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.util.collections.QuorumCheck;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.TreeMultiset;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Reducers which maintain an aggregate as individual values are added and removed,
+ * so that an {@link Aggregator} does not have to recompute over every producer's value on each event.
+ * <p>
+ * Sum, average and count are O(1) per change; min and max are O(log n).
+ * <p>
+ * Implementations are not thread-safe; callers are expected to synchronize (as {@link Aggregator} does).
+ */
+@Beta
+public class IncrementalReducers {
+
+    /** static only; not for instantiation */
+    private IncrementalReducers() {}
+
+    /**
+     * An aggregate which can be updated as values are added and removed.
+     * A value passed to {@link #remove(Object)} must previously have been passed to {@link #add(Object)}.
+     */
+    public interface IncrementalReducer<T,U> {
+        void add(T value);
+        void remove(T value);
+        U get();
+    }
+
+    /**
+     * Marks a transformation (typically a {@link com.google.common.base.Function} over a collection of values)
+     * which can also be computed incrementally, by the reducers it creates.
+     */
+    public interface IncrementallyComputable<T,U> {
+        IncrementalReducer<T,U> newIncrementalReducer();
+    }
+
+    /**
+     * Sum or average of numbers; null values contribute {@code valueIfNull} if that is non-null,
+     * and are otherwise ignored (consistent with {@link Enrichers#sum(Iterable, Number, Number, TypeToken)}).
+     * <p>
+     * The running sum is kept exactly (see {@link #NUMBER_ORDER}), so that removing a value restores precisely
+     * the sum of those remaining, however long the reducer lives; NaN and infinite values are counted separately.
+     */
+    public static class SummingReducer<N extends Number> implements IncrementalReducer<N,N> {
+        protected final Number valueIfNull;
+        protected final Number valueIfNone;
+        protected final TypeToken<N> type;
+        protected final boolean averaging;
+        protected BigDecimal sum = BigDecimal.ZERO;
+        protected int count;
+        protected int countNaN;
+        protected int countPositiveInfinity;
+        protected int countNegativeInfinity;
+
+        public SummingReducer(Number valueIfNull, Number valueIfNone, TypeToken<N> type, boolean averaging) {
+            this.valueIfNull = valueIfNull;
+            this.valueIfNone = valueIfNone;
+            this.type = type;
+            this.averaging = averaging;
+        }
+        @Override
+        public void add(N value) {
+            update(value, 1);
+        }
+        @Override
+        public void remove(N value) {
+            update(value, -1);
+        }
+        protected void update(N value, int delta) {
+            Number v = (value!=null ? value : valueIfNull);
+            if (v==null) return;
+            count += delta;
+            BigDecimal exact = toBigDecimal(v);
+            if (exact!=null) {
+                sum = (delta > 0) ? sum.add(exact) : sum.subtract(exact);
+            } else if (Double.isNaN(v.doubleValue())) {
+                countNaN += delta;
+            } else if (v.doubleValue() > 0) {
+                countPositiveInfinity += delta;
+            } else {
+                countNegativeInfinity += delta;
+            }
+        }
+        @Override
+        public N get() {
+            if (count==0) {
+                return Enrichers.cast(averaging && valueIfNone!=null ? valueIfNone.doubleValue() : valueIfNone, type);
+            }
+            double total;
+            if (countNaN > 0 || (countPositiveInfinity > 0 && countNegativeInfinity > 0)) {
+                total = Double.NaN;
+            } else if (countPositiveInfinity > 0) {
+                total = Double.POSITIVE_INFINITY;
+            } else if (countNegativeInfinity > 0) {
+                total = Double.NEGATIVE_INFINITY;
+            } else {
+                total = sum.doubleValue();
+            }
+            return Enrichers.cast(averaging ? total / count : total, type);
+        }
+    }
+
+    /**
+     * Orders numbers by their exact value, without converting to double,
+     * so that e.g. longs above 2^53 and {@link BigInteger}s are not confused with their neighbours.
+     */
+    public static final Comparator<Number> NUMBER_ORDER = new Comparator<Number>() {
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public int compare(Number a, Number b) {
+            if (a.getClass()==b.getClass() && a instanceof Comparable) {
+                return ((Comparable)a).compareTo(b);
+            }
+            if (isIntegral(a) && isIntegral(b)) {
+                return toBigInteger(a).compareTo(toBigInteger(b));
+            }
+            BigDecimal da = toBigDecimal(a);
+            BigDecimal db = toBigDecimal(b);
+            if (da==null || db==null) {
+                // NaN or infinite; only doubles can represent these
+                return Double.compare(a.doubleValue(), b.doubleValue());
+            }
+            return da.compareTo(db);
+        }
+    };
+
+    private static boolean isIntegral(Number n) {
+        return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte
+                || n instanceof BigInteger || n instanceof AtomicInteger || n instanceof AtomicLong;
+    }
+
+    private static BigInteger toBigInteger(Number n) {
+        return (n instanceof BigInteger) ? (BigInteger)n : BigInteger.valueOf(n.longValue());
+    }
+
+    /** the exact value, or null if it has none (NaN or infinite) */
+    private static BigDecimal toBigDecimal(Number n) {
+        if (n instanceof BigDecimal) return (BigDecimal)n;
+        if (n instanceof BigInteger) return new BigDecimal((BigInteger)n);
+        if (isIntegral(n)) return BigDecimal.valueOf(n.longValue());
+        if (n instanceof Double || n instanceof Float) {
+            double d = n.doubleValue();
+            return (Double.isNaN(d) || Double.isInfinite(d)) ? null : new BigDecimal(d);
+        }
+        try {
+            return new BigDecimal(n.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Min or max of the non-null numbers, maintained in a sorted multiset of the values as given (see {@link #NUMBER_ORDER}) */
+    public static class ExtremumReducer<N extends Number> implements IncrementalReducer<N,N> {
+        protected final Number valueIfNone;
+        protected final TypeToken<N> type;
+        protected final boolean max;
+        protected final TreeMultiset<N> values = TreeMultiset.create(NUMBER_ORDER);
+
+        public ExtremumReducer(Number valueIfNone, TypeToken<N> type, boolean max) {
+            this.valueIfNone = valueIfNone;
+            this.type = type;
+            this.max = max;
+        }
+        @Override
+        public void add(N value) {
+            if (value!=null) values.add(value);
+        }
+        @Override
+        public void remove(N value) {
+            if (value!=null) values.remove(value);
+        }
+        @Override
+        public N get() {
+            if (values.isEmpty()) return Enrichers.cast(valueIfNone, type);
+            return Enrichers.cast(max ? values.lastEntry().getElement() : values.firstEntry().getElement(), type);
+        }
+    }
+
+    /** Count of the non-null values */
+    public static class CountingReducer<T> implements IncrementalReducer<T,Integer> {
+        protected int count;
+
+        @Override
+        public void add(T value) {
+            if (value!=null) count++;
+        }
+        @Override
+        public void remove(T value) {
+            if (value!=null) count--;
+        }
+        @Override
+        public Integer get() {
+            return count;
+        }
+    }
+
+    /** Whether the number of true values satisfies the given {@link QuorumCheck} against a fixed total size */
+    public static class QuorumReducer implements IncrementalReducer<Boolean,Boolean> {
+        protected final QuorumCheck quorumCheck;
+        protected final int totalSize;
+        protected int numTrue;
+
+        public QuorumReducer(QuorumCheck quorumCheck, int totalSize) {
+            this.quorumCheck = quorumCheck;
+            this.totalSize = totalSize;
+        }
+        @Override
+        public void add(Boolean value) {
+            if (Boolean.TRUE.equals(value)) numTrue++;
+        }
+        @Override
+        public void remove(Boolean value) {
+            if (Boolean.TRUE.equals(value)) numTrue--;
+        }
+        @Override
+        public Boolean get() {
+            return quorumCheck.isQuorate(numTrue, totalSize);
+        }
+    }
+
+}
@@ -106,6 +106,13 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
             + "Modes supported by dynamic cluster are 'off', 'sequqential', or 'parallel'. "
             + "However subclasses can define their own modes or may ignore this.", null);
 
+    @SetFromFlag("maxConcurrentStarts")
+    ConfigKey<Integer> MAX_CONCURRENT_STARTS = ConfigKeys.newIntegerConfigKey(
+            "dynamiccluster.maxConcurrentStarts",
+            "Maximum number of members to start concurrently when growing the cluster; "
+            + "further members are queued until a start completes. Unlimited if not set.",
+            null);
+
     @SetFromFlag("quarantineFailedEntities")
     ConfigKey<Boolean> QUARANTINE_FAILED_ENTITIES = ConfigKeys.newBooleanConfigKey(
             "dynamiccluster.quarantineFailedEntities", "If true, will quarantine entities that fail to start; if false, will get rid of them (i.e. delete them)", true);
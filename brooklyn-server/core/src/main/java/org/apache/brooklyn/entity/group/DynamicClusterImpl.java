@@ -800,7 +800,7 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
     protected ReferenceWithError<Collection<Entity>> addInEachLocation(Iterable<Location> locations, Map<?,?> flags) {
         List<Entity> addedEntities = Lists.newArrayList();
         Map<Entity, Location> addedEntityLocations = Maps.newLinkedHashMap();
-        Map<Entity, Task<?>> tasks = Maps.newLinkedHashMap();
+        Map<Entity, Task<Void>> tasks = Maps.newLinkedHashMap();
 
         for (Location loc : locations) {
             Entity entity = addNode(loc, flags);
@@ -813,7 +813,15 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             }
         }
 
-        Task<List<?>> parallel = Tasks.parallel("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks.values());
+        Integer maxConcurrentStarts = getConfig(MAX_CONCURRENT_STARTS);
+        Task<?> parallel;
+        if (maxConcurrentStarts != null && maxConcurrentStarts > 0) {
+            // only as many threads as may start at once, rather than one waiting for a permit per member
+            parallel = Tasks.parallelBounded("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (at most "+maxConcurrentStarts+" at once)", 
+                    tasks.values(), maxConcurrentStarts, Functions.<Task<Void>>identity());
+        } else {
+            parallel = Tasks.parallel("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks.values());
+        }
         TaskTags.markInessential(parallel);
         DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
         Map<Entity, Throwable> errors = waitForTasksOnEntityStart(tasks);
@@ -24,13 +24,17 @@ import java.util.Collection;
 import java.util.Map;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.EntityManager;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
 import org.apache.brooklyn.core.BrooklynLogging;
 import org.apache.brooklyn.core.BrooklynLogging.LoggingLevel;
+import org.apache.brooklyn.core.entity.EntityPredicates;
 import org.apache.brooklyn.core.mgmt.internal.CollectionChangeListener;
+import org.apache.brooklyn.core.mgmt.internal.IndexedEntityPredicate;
+import org.apache.brooklyn.core.mgmt.internal.LocalEntityManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
@@ -50,6 +54,8 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     protected final Object memberChangeMutex = new Object();
 
     private volatile MyEntitySetChangeListener setChangeListener = null;
+    /** the filter the listener was registered for, as it may only be told of candidates for that filter */
+    private volatile Predicate<? super Entity> setChangeListenerFilter = null;
 
     public DynamicGroupImpl() { }
 
@@ -95,7 +101,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     public void stop() {
         sensors().set(RUNNING, false);
         if (setChangeListener != null) {
-            ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
+            removeSetChangeListener();
         }
     }
 
@@ -162,8 +168,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             log.warn("{} becoming master twice", this);
             return;
         }
-        setChangeListener = new MyEntitySetChangeListener();
-        ((ManagementContextInternal) getManagementContext()).addEntitySetListener(setChangeListener);
+        addSetChangeListener();
         Task<Object> rescan = Tasks.builder().displayName("rescan entities").body(
             new Runnable() {
                 @Override
@@ -186,10 +191,44 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             log.warn("{} no longer master twice", this);
             return;
         }
-        ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
+        removeSetChangeListener();
         setChangeListener = null;
     }
 
+    /**
+     * Listens for entities being managed and unmanaged; where the filter is an {@link IndexedEntityPredicate} the
+     * entity manager only tells the listener of candidates from its index (and of its own members being unmanaged),
+     * rather than of every entity.
+     */
+    private void addSetChangeListener() {
+        setChangeListener = new MyEntitySetChangeListener();
+        setChangeListenerFilter = entityFilter();
+        EntityManager entityManager = getManagementContext().getEntityManager();
+        if (entityManager instanceof LocalEntityManager) {
+            ((LocalEntityManager)entityManager).addEntitySetListener(this, setChangeListenerFilter, setChangeListener);
+        } else {
+            ((ManagementContextInternal) getManagementContext()).addEntitySetListener(setChangeListener);
+        }
+    }
+
+    private void removeSetChangeListener() {
+        ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
+    }
+
+    /**
+     * Returns the entities to check against the filter when rescanning; if the filter is an
+     * {@link IndexedEntityPredicate} (e.g. built from {@link EntityPredicates#isInstanceOf(Class)} or
+     * {@link EntityPredicates#hasTag(Object)}) this is answered from the entity manager's index,
+     * otherwise it is all managed entities.
+     */
+    protected Iterable<Entity> getCandidateEntities() {
+        EntityManager entityManager = getManagementContext().getEntityManager();
+        if (entityManager instanceof LocalEntityManager) {
+            return ((LocalEntityManager)entityManager).getCandidates(entityFilter());
+        }
+        return entityManager.getEntities();
+    }
+
     @Override
     public void rescanEntities() {
         synchronized (memberChangeMutex) {
@@ -201,6 +240,11 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
                 log.debug("{} not (yet) scanning for children: no filter defined", this, this);
                 return;
             }
+            if (setChangeListener != null && setChangeListenerFilter != entityFilter()) {
+                // filter has changed, so the listener may be registered under the wrong index key
+                removeSetChangeListener();
+                addSetChangeListener();
+            }
             if (getApplication() == null) {
                 BrooklynLogging.log(log, BrooklynLogging.levelDependingIfReadOnly(this, LoggingLevel.WARN, LoggingLevel.TRACE, LoggingLevel.TRACE),
                     "{} not (yet) scanning for children: no application defined", this);
@@ -210,7 +254,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
             Collection<Entity> currentMembers = getMembers();
             Collection<Entity> toRemove = Sets.newLinkedHashSet(currentMembers);
 
-            for (Entity it : Iterables.filter(getManagementContext().getEntityManager().getEntities(), entityFilter())) {
+            for (Entity it : Iterables.filter(getCandidateEntities(), entityFilter())) {
                 toRemove.remove(it);
                 if (!currentMembers.contains(it)) {
                     if (log.isDebugEnabled()) log.debug("{} rescan detected new item {}", this, it);
@@ -35,11 +35,14 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.security.KeyPair;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
@@ -92,6 +95,7 @@ import org.apache.brooklyn.util.guava.KeyTransformingLoadingCache.KeyTransformin
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.pool.BasicPool;
 import org.apache.brooklyn.util.pool.Pool;
+import org.apache.brooklyn.util.pool.PoolMetrics;
 import org.apache.brooklyn.util.ssh.BashCommands;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.stream.ReaderInputStream;
@@ -172,6 +176,23 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     public static final ConfigKey<Duration> SSH_CACHE_EXPIRY_DURATION = ConfigKeys.newConfigKey(Duration.class,
             "sshCacheExpiryDuration", "Expiry time for unused cached ssh connections", Duration.FIVE_MINUTES);
 
+    @Beta
+    public static final ConfigKey<Integer> SSH_MAX_CONNECTIONS = ConfigKeys.newIntegerConfigKey(
+            "sshMaxConnections", "Maximum number of ssh connections in use at once to this machine "
+                    + "(across all pooled connections, whatever their properties); further ssh calls wait for one to be returned. "
+                    + "Idle connections kept in the pools are not counted, so more may be open (until they expire, "
+                    + "see sshCacheExpiryDuration). Default is unlimited");
+
+    @Beta
+    public static final ConfigKey<Duration> SSH_CONNECTION_WAIT_TIMEOUT = ConfigKeys.newConfigKey(Duration.class,
+            "sshConnectionWaitTimeout", "How long an ssh call waits for a connection when sshMaxConnections is reached, "
+                    + "before failing; default is forever");
+
+    @Beta
+    public static final ConfigKey<Duration> SSH_POOL_HEALTH_CHECK_PERIOD = ConfigKeys.newConfigKey(Duration.class,
+            "sshPoolHealthCheckPeriod", "How often to check that idle cached ssh connections are still connected, "
+                    + "discarding those which are not (so that they are not found to be broken when next used)", Duration.ONE_MINUTE);
+
     public static final ConfigKey<MachineDetails> MACHINE_DETAILS = ConfigKeys.newConfigKey(
             MachineDetails.class,
             "machineDetails");
@@ -279,6 +300,14 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     /** callers should use {@link #getSshPoolCache()} */
     @Nullable 
     private transient LoadingCache<Map<String, ?>, Pool<SshTool>> sshPoolCacheOrNull;
+    /** the pools in {@link #sshPoolCacheOrNull}, for health-checking (the cache does not support iterating over them) */
+    private final transient Set<BasicPool<SshTool>> sshPools = Collections.newSetFromMap(new ConcurrentHashMap<BasicPool<SshTool>, Boolean>());
+    /** callers should use {@link #getSshPoolMetricsInternal()}; shared by all pools, so survives them being evicted */
+    @Nullable
+    private transient PoolMetrics sshPoolMetricsOrNull;
+    /** callers should use {@link #getSshConnectionLimiter()}; null if unlimited */
+    @Nullable
+    private transient Semaphore sshConnectionLimiterOrNull;
 
     private transient volatile boolean loggedLegcySshToolClassConfig;
     
@@ -322,6 +351,46 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
         return sshPoolCacheOrNull;
     }
 
+    @Nonnull
+    private PoolMetrics getSshPoolMetricsInternal() {
+        synchronized (poolCacheMutex) {
+            if (sshPoolMetricsOrNull==null) {
+                sshPoolMetricsOrNull = new PoolMetrics();
+            }
+            return sshPoolMetricsOrNull;
+        }
+    }
+
+    @Nullable
+    private Semaphore getSshConnectionLimiter() {
+        synchronized (poolCacheMutex) {
+            if (sshConnectionLimiterOrNull==null) {
+                Integer maxConnections = getConfig(SSH_MAX_CONNECTIONS);
+                if (maxConnections != null) {
+                    Preconditions.checkArgument(maxConnections > 0, "%s must be positive, but was %s", SSH_MAX_CONNECTIONS.getName(), maxConnections);
+                    sshConnectionLimiterOrNull = new Semaphore(maxConnections, true);
+                }
+            }
+            return sshConnectionLimiterOrNull;
+        }
+    }
+
+    /**
+     * Metrics for the cached ssh connections to this machine, aggregated across all pools: current and total
+     * leased, idle and waiting counts, connections discarded as no longer connected, and histograms of the time
+     * waiting for a connection (when {@link #SSH_MAX_CONNECTIONS} is set) and the time taken to connect.
+     * 
+     * @see org.apache.brooklyn.core.sensor.ssh.SshPoolMetricsSensor
+     */
+    @Beta
+    public Map<String, Object> getSshPoolMetrics() {
+        return MutableMap.<String, Object>builder()
+                .putAll(getSshPoolMetricsInternal().asMap())
+                .put("pools", sshPools.size())
+                .putIfNotNull("maxConnections", getConfig(SSH_MAX_CONNECTIONS))
+                .build();
+    }
+
     private LoadingCache<Map<String, ?>, Pool<SshTool>> buildSshToolPoolCacheLoader() {
         // TODO: Appropriate numbers for maximum size and expire after access
         // At the moment every SshMachineLocation instance creates its own pool.
@@ -348,6 +417,7 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
                                 LOG.debug("{} evicted from SshTool cache. Eviction cause: {}",
                                         removed, notification.getCause().name());
                             }
+                            sshPools.remove(removed);
                             try {
                                 removed.close();
                             } catch (IOException e) {
@@ -388,7 +458,7 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     }
 
     private BasicPool<SshTool> buildPool(final Map<String, ?> properties) {
-        return BasicPool.<SshTool>builder()
+        BasicPool<SshTool> result = BasicPool.<SshTool>builder()
                 .name(getDisplayName()+"@"+address+":"+getPort()+
                         (config().getRaw(SSH_HOST).isPresent() ? "("+getConfig(SSH_HOST)+":"+getPort()+")" : "")+
                         ":hash"+System.identityHashCode(this))
@@ -412,7 +482,12 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
                             }
                             return null;
                         }})
+                .metrics(getSshPoolMetricsInternal())
+                .leaseLimiter(getSshConnectionLimiter())
+                .maxLeaseWait(getConfig(SSH_CONNECTION_WAIT_TIMEOUT))
                 .build();
+        sshPools.add(result);
+        return result;
     }
 
     @Override
@@ -458,6 +533,7 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
                     @Override public Void call() {
                         try {
                             if (sshPoolCacheOrNull != null) sshPoolCacheOrNull.cleanUp();
+                            closeNonViableSshConnections();
                             if (!SshMachineLocation.this.isManaged()) {
                                 if (sshPoolCacheOrNull != null) sshPoolCacheOrNull.invalidateAll();
                                 cleanupTask.cancel(false);
@@ -477,9 +553,24 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
             }
         };
         
-        Duration expiryDuration = getConfig(SSH_CACHE_EXPIRY_DURATION);
+        Duration period = getConfig(SSH_CACHE_EXPIRY_DURATION);
+        Duration healthCheckPeriod = getConfig(SSH_POOL_HEALTH_CHECK_PERIOD);
+        if (healthCheckPeriod != null && healthCheckPeriod.isShorterThan(period)) {
+            period = healthCheckPeriod;
+        }
         cleanupTask = getManagementContext().getExecutionManager().submit(new ScheduledTask(
-            MutableMap.of("displayName", "scheduled[ssh-location cache cleaner]"), cleanupTaskFactory).period(expiryDuration));
+            MutableMap.of("displayName", "scheduled[ssh-location cache cleaner]"), cleanupTaskFactory).period(period));
+    }
+
+    /** closes idle pooled connections which are no longer connected, so callers don't find that out when next using them */
+    protected void closeNonViableSshConnections() {
+        int closed = 0;
+        for (BasicPool<SshTool> pool : sshPools) {
+            closed += pool.closeNonViable();
+        }
+        if (closed > 0 && LOG.isDebugEnabled()) {
+            LOG.debug("{} closed {} idle ssh connection(s) no longer connected; metrics {}", new Object[] {this, closed, getSshPoolMetricsInternal()});
+        }
     }
     
     // TODO close has been used for a long time to perform clean-up wanted on unmanagement, but that's not clear; 
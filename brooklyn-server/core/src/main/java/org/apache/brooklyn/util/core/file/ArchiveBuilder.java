@@ -31,6 +31,7 @@ import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.zip.Deflater;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.brooklyn.util.core.file.ArchiveUtils.ArchiveType;
@@ -94,6 +95,7 @@ public class ArchiveBuilder {
     private File archive;
     private Manifest manifest;
     private Multimap<String, File> entries = LinkedHashMultimap.create();
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
 
     private ArchiveBuilder() {
         this(ArchiveType.ZIP);
@@ -136,6 +138,17 @@ public class ArchiveBuilder {
         return named(file.getPath());
     }
 
+    /**
+     * Set the compression level, from {@link Deflater#NO_COMPRESSION} (fastest, e.g. for content which is
+     * already compressed) to {@link Deflater#BEST_COMPRESSION}; default {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public ArchiveBuilder compressionLevel(int level) {
+        checkArgument(level == Deflater.DEFAULT_COMPRESSION || (level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+                "Invalid compression level %s", level);
+        this.compressionLevel = level;
+        return this;
+    }
+
     /**
      * Add a manifest entry with the given {@code key} and {@code value}.
      */
@@ -344,6 +357,7 @@ public class ArchiveBuilder {
                 manifest(Attributes.Name.MANIFEST_VERSION, "1.0");
                 target = new JarOutputStream(output, manifest);
             }
+            target.setLevel(compressionLevel);
             for (String entry : entries.keySet()) {
                 addToArchive(entry, entries.get(entry), target);
             }
@@ -30,6 +30,7 @@ import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.brooklyn.core.entity.drivers.downloads.DownloadCache;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -38,6 +39,7 @@ import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ssh.SshTasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.javalang.StackTraceSimplifier;
 import org.apache.brooklyn.util.net.Urls;
 import org.apache.brooklyn.util.os.Os;
@@ -308,6 +310,7 @@ public class ArchiveUtils {
     
     public static int install(ResourceUtils resolver, Map<String, ?> props, SshMachineLocation machine, String urlToInstall, String target, int numAttempts) {
         if (resolver==null) resolver = ResourceUtils.create(machine);
+        if (installFromCache(resolver, machine, urlToInstall, target)) return 0;
         Exception lastError = null;
         int retriesRemaining = numAttempts;
         int attemptNum = 0;
@@ -334,6 +337,26 @@ public class ArchiveUtils {
         throw Exceptions.propagate(lastError);
     }
 
+    /**
+     * Installs a URL onto a remote machine from the management server's {@link DownloadCache}, if that is enabled.
+     *
+     * @return true if installed; false if the cache is not in use for this URL, or if installing from it failed
+     *         (in which case the caller should install the URL directly)
+     */
+    public static boolean installFromCache(ResourceUtils resolver, SshMachineLocation machine, String urlToInstall, String target) {
+        if (machine.getManagementContext()==null) return false;
+        Maybe<DownloadCache> cache = DownloadCache.of(machine.getManagementContext());
+        if (cache.isAbsent() || !cache.get().isEnabled() || !cache.get().isCacheable(urlToInstall)) return false;
+        try {
+            if (cache.get().install(resolver, machine, urlToInstall, target) == 0) return true;
+            log.debug("Failed to install "+urlToInstall+" at "+machine+" from download cache; installing directly");
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.debug("Failed to install "+urlToInstall+" at "+machine+" from download cache; installing directly: "+e);
+        }
+        return false;
+    }
+
     /**
      * Copies the entire contents of a file to a String.
      *
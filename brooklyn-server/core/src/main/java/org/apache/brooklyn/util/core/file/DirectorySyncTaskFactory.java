@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.mgmt.TaskFactory;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.DynamicTasks;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.core.task.ssh.SshTasks;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.ssh.BashCommands;
+import org.apache.brooklyn.util.stream.KnownSizeInputStream;
+import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.stream.ThrottledInputStream;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
+import org.apache.brooklyn.util.text.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Creates a task to copy a local directory tree to the same directory on many {@link SshMachineLocation}s,
+ * e.g. to push an exploded web app to every member of a cluster.
+ * <p>
+ * For each machine, the checksums of the files already there are read (with {@code md5sum}), and only files which
+ * are missing or different are copied. These are packed into a single zip archive, so they go in one transfer
+ * rather than one per file, and unpacked in place; files which are executable locally are made executable
+ * on the machine. Machines needing the same files share one archive. Files on the machine which are not in
+ * the local directory are left alone.
+ * <p>
+ * Machines are copied to in the order given, at most {@link #maxConcurrency(int)} at once
+ * (see {@link Tasks#parallelBounded(String, Iterable, int, Function)}), and {@link #maxBytesPerSecond(Long)}
+ * caps the upload rate across all of them. The task returns the number of files copied to each machine,
+ * and fails if copying to any machine fails.
+ */
+@Beta
+public class DirectorySyncTaskFactory implements TaskFactory<Task<Map<SshMachineLocation, Integer>>> {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectorySyncTaskFactory.class);
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    private final File localDir;
+    private final String remoteDir;
+    private final List<SshMachineLocation> machines = MutableList.of();
+    private boolean skipUnchanged = true;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private Long maxBytesPerSecond;
+
+    public DirectorySyncTaskFactory(File localDir, String remoteDir, Iterable<? extends SshMachineLocation> machines) {
+        this.localDir = Preconditions.checkNotNull(localDir, "localDir");
+        this.remoteDir = Preconditions.checkNotNull(remoteDir, "remoteDir");
+        machines(machines);
+    }
+
+    public DirectorySyncTaskFactory machines(Iterable<? extends SshMachineLocation> machines) {
+        Iterables.addAll(this.machines, machines);
+        return this;
+    }
+
+    /** whether to copy only files whose checksum differs from the copy on the machine; default true */
+    public DirectorySyncTaskFactory skipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+        return this;
+    }
+
+    /** as {@link ArchiveBuilder#compressionLevel(int)}; e.g. {@link Deflater#NO_COMPRESSION} if the files are already compressed */
+    public DirectorySyncTaskFactory compressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /** the most machines to copy to at once; default {@value #DEFAULT_MAX_CONCURRENCY} */
+    public DirectorySyncTaskFactory maxConcurrency(int maxConcurrency) {
+        Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive");
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /** caps the total upload rate, across all machines; by default unlimited */
+    public DirectorySyncTaskFactory maxBytesPerSecond(@Nullable Long maxBytesPerSecond) {
+        Preconditions.checkArgument(maxBytesPerSecond==null || maxBytesPerSecond > 0, "maxBytesPerSecond must be positive");
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        return this;
+    }
+
+    @Override
+    public Task<Map<SshMachineLocation, Integer>> newTask() {
+        Preconditions.checkState(localDir.isDirectory(), "Not a directory: %s", localDir);
+        final List<SshMachineLocation> machines = ImmutableList.copyOf(this.machines);
+        // computed once, by whichever machine's task needs it first
+        final Supplier<Map<String, String>> localChecksums = Suppliers.memoize(new Supplier<Map<String, String>>() {
+            @Override public Map<String, String> get() {
+                return checksums(localDir);
+            }});
+        final RateLimiter limiter = (maxBytesPerSecond != null) ? RateLimiter.create(maxBytesPerSecond) : null;
+        final Archives archives = new Archives();
+
+        final Task<List<Integer>> all = Tasks.parallelBounded("copying to "+machines.size()+" machine"+(machines.size()==1 ? "" : "s"),
+                machines, maxConcurrency, new Function<SshMachineLocation, Task<Integer>>() {
+                    @Override
+                    public Task<Integer> apply(SshMachineLocation machine) {
+                        return newMachineTask(machine, localChecksums, archives, limiter);
+                    }
+                });
+
+        return Tasks.<Map<SshMachineLocation, Integer>>builder()
+                .displayName("sync "+localDir.getName()+" to "+remoteDir)
+                .description("Copying changed files in "+localDir+" to "+remoteDir+" on "+machines.size()+" machines, at most "+maxConcurrency+" at a time"
+                        +(maxBytesPerSecond!=null ? ", at most "+Strings.makeSizeString(maxBytesPerSecond)+"/s" : ""))
+                .dynamic(true)
+                .body(new Callable<Map<SshMachineLocation, Integer>>() {
+                    @Override
+                    public Map<SshMachineLocation, Integer> call() throws Exception {
+                        try {
+                            List<Integer> copied = DynamicTasks.queue(all).getUnchecked();
+                            Map<SshMachineLocation, Integer> result = MutableMap.of();
+                            for (int i = 0; i < machines.size(); i++) {
+                                result.put(machines.get(i), copied.get(i));
+                            }
+                            return result;
+                        } finally {
+                            archives.deleteAll();
+                        }
+                    }})
+                .build();
+    }
+
+    protected Task<Integer> newMachineTask(final SshMachineLocation machine, final Supplier<Map<String, String>> localChecksums,
+            final Archives archives, @Nullable final RateLimiter limiter) {
+        return Tasks.<Integer>builder()
+                .displayName("copying to "+machine.getAddress().getHostName())
+                .dynamic(true)
+                .body(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return sync(machine, localChecksums.get(), archives, limiter);
+                    }})
+                .build();
+    }
+
+    /** the archives made for a sync, one per distinct set of changed files, shared by the machines needing that set */
+    protected class Archives {
+        private final ConcurrentMap<List<String>, Supplier<File>> archives = Maps.newConcurrentMap();
+        private final List<File> created = MutableList.of();
+
+        /** returns the archive of the given files (relative to the local dir), creating it if not yet made */
+        File get(final List<String> paths) {
+            Supplier<File> archive = archives.get(paths);
+            if (archive == null) {
+                Supplier<File> newArchive = Suppliers.memoize(new Supplier<File>() {
+                    @Override public File get() {
+                        ArchiveBuilder archiveBuilder = ArchiveBuilder.zip().compressionLevel(compressionLevel);
+                        for (String path : paths) {
+                            archiveBuilder.entry(path, new File(localDir, path));
+                        }
+                        File result = archiveBuilder.create();
+                        synchronized (created) {
+                            created.add(result);
+                        }
+                        return result;
+                    }});
+                archive = archives.putIfAbsent(paths, newArchive);
+                if (archive == null) archive = newArchive;
+            }
+            return archive.get();
+        }
+
+        void deleteAll() {
+            synchronized (created) {
+                for (File archive : created) {
+                    archive.delete();
+                }
+                created.clear();
+            }
+        }
+    }
+
+    private int sync(SshMachineLocation machine, Map<String, String> localChecksums, Archives archives, @Nullable RateLimiter limiter) throws IOException {
+        Map<String, String> remoteChecksums = skipUnchanged
+                ? parseChecksums(DynamicTasks.queue(SshTasks.newSshExecTaskFactory(machine, remoteChecksumCommand())
+                        .summary("checksumming "+remoteDir)
+                        .requiringZeroAndReturningStdout()).get())
+                : MutableMap.<String, String>of();
+
+        List<String> changed = MutableList.of();
+        for (Map.Entry<String, String> entry : localChecksums.entrySet()) {
+            if (!entry.getValue().equals(remoteChecksums.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        if (changed.isEmpty()) {
+            if (log.isDebugEnabled()) log.debug("Not copying {} to {} on {}: all {} files unchanged", new Object[] {localDir, remoteDir, machine, localChecksums.size()});
+            return 0;
+        }
+
+        File archive = archives.get(ImmutableList.copyOf(changed));
+        String remoteArchive = Os.mergePathsUnix(remoteDir, ".brooklyn-sync-"+Identifiers.makeRandomId(8)+".zip");
+        InputStream in = new FileInputStream(archive);
+        try {
+            if (log.isDebugEnabled()) log.debug("Copying {} of {} files in {} to {} on {} ({} compressed)",
+                    new Object[] {changed.size(), localChecksums.size(), localDir, remoteDir, machine, Strings.makeSizeString(archive.length())});
+            if (limiter != null) in = new ThrottledInputStream(in, limiter);
+            DynamicTasks.queue(SshTasks.newSshPutTaskFactory(machine, remoteArchive)
+                    .contents(new KnownSizeInputStream(in, archive.length()))
+                    .summary("copying "+changed.size()+" file"+(changed.size()==1 ? "" : "s"))
+                    .createDirectory()).get();
+        } finally {
+            Streams.closeQuietly(in);
+        }
+
+        // zip entries written here carry no unix modes, so restore the executable bit explicitly
+        List<String> executables = MutableList.of();
+        for (String path : changed) {
+            if (new File(localDir, path).canExecute()) executables.add(BashStringEscapes.wrapBash(path));
+        }
+        String unpack = "cd "+BashStringEscapes.wrapBash(remoteDir)+" && unzip -o -q "+BashStringEscapes.wrapBash(remoteArchive)
+                +(executables.isEmpty() ? "" : " && chmod +x "+Joiner.on(" ").join(executables));
+        DynamicTasks.queue(SshTasks.newSshExecTaskFactory(machine,
+                    BashCommands.INSTALL_UNZIP,
+                    "( "+unpack+" ) ; RESULT=$? ; rm -f "+BashStringEscapes.wrapBash(remoteArchive)+" ; exit $RESULT")
+                .summary("unpacking "+changed.size()+" file"+(changed.size()==1 ? "" : "s"))
+                .requiringExitCodeZero()).get();
+        return changed.size();
+    }
+
+    /** lists "checksum  ./path" for every file under the remote dir, creating it if necessary */
+    protected String remoteChecksumCommand() {
+        String dir = BashStringEscapes.wrapBash(remoteDir);
+        return "mkdir -p "+dir+" && cd "+dir+" && find . -type f -exec md5sum {} +";
+    }
+
+    /** parses the output of {@code md5sum}, returning checksums keyed by path relative to the directory */
+    static Map<String, String> parseChecksums(String md5sumOutput) {
+        Map<String, String> result = MutableMap.of();
+        for (String line : Splitter.on('\n').split(md5sumOutput)) {
+            line = line.trim();
+            int separator = line.indexOf(' ');
+            if (separator <= 0) continue;
+            String path = line.substring(separator).trim();
+            // binary mode is flagged with a leading '*'
+            path = Strings.removeFromStart(path, "*");
+            path = Strings.removeFromStart(path, "./");
+            result.put(path, line.substring(0, separator));
+        }
+        return result;
+    }
+
+    /** md5 checksums of all files under the given dir, keyed by path relative to it using '/' as the separator */
+    static Map<String, String> checksums(File dir) {
+        Map<String, String> result = MutableMap.of();
+        try {
+            for (File file : Files.fileTreeTraverser().preOrderTraversal(dir)) {
+                if (file.isFile()) {
+                    String path = dir.toURI().relativize(file.toURI()).getPath();
+                    result.put(path, Files.hash(file, Hashing.md5()).toString());
+                }
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+        return result;
+    }
+
+}
@@ -267,6 +267,16 @@ public abstract class ShellAbstractTool implements ShellTool {
             return cmds.build();
         }
 
+        /** builds the command to write the script from stdin to {@link #scriptPath} and then run it (as {@link #buildRunScriptCommand()}),
+         * so that the script can be streamed to the target and run in a single command */
+        protected List<String> buildStreamAndRunScriptCommand() {
+            return MutableList.<String>builder()
+                    // subshell so that the umask does not apply to the script itself
+                    .add("( umask 077 && cat > "+scriptPath+" && chmod 0700 "+scriptPath+" ) || exit $?")
+                    .addAll(buildRunScriptCommand())
+                    .build();
+        }
+
         protected String getSummary() {
             String summary = getOptionalVal(props, PROP_SUMMARY);
             return (summary != null) ? summary : scriptPath; 
@@ -65,6 +65,9 @@ public interface ShellTool {
 
     ConfigKey<Duration> PROP_EXEC_ASYNC_POLLING_TIMEOUT = newConfigKey("execAsyncPollTimeout", "Timeout per poll when executing a script asynchronously", Duration.ONE_MINUTE);
 
+    ConfigKey<Boolean> PROP_EXEC_STREAMED = newConfigKey("execStreamed", "Streams the script over stdin of the same channel which runs it, rather than uploading it first; "
+            + "saves round-trips on high-latency links (ignored if execAsync or a PTY is requested)", false);
+
     /**
      * Executes the set of commands in a shell script. Blocks until completion.
      * <p>
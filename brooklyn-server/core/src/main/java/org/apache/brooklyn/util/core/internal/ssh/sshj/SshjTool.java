@@ -61,6 +61,7 @@ import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.stream.KnownSizeInputStream;
 import org.apache.brooklyn.util.stream.StreamGobbler;
 import org.apache.brooklyn.util.stream.Streams;
+import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
@@ -327,9 +328,28 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                 public int run() {
                     String scriptContents = toScript(props, commands, env);
                     if (LOG.isTraceEnabled()) LOG.trace("Running shell command at {} as script: {}", host, scriptContents);
+                    if (Boolean.TRUE.equals(getOptionalVal(props, PROP_EXEC_STREAMED))) {
+                        if (!allocatePTY) {
+                            return execStreamedScript(scriptContents);
+                        }
+                        // a pty would echo and translate the script as it is streamed
+                        if (LOG.isDebugEnabled()) LOG.debug("Uploading script rather than streaming it to {}, because a PTY is allocated", host);
+                    }
                     copyToServer(ImmutableMap.of("permissions", "0700"), scriptContents.getBytes(), scriptPath);
                     return asInt(acquire(new ShellAction(buildRunScriptCommand(), out, err, execTimeout)), -1);
                 }
+
+                /**
+                 * Writes the script to the target from stdin and runs it, in one exec channel, rather than
+                 * opening an sftp channel to upload it and then a shell to run it. The exit status and stderr come
+                 * from the exec channel itself. Runs in a login shell, as the shell used for uploaded scripts is.
+                 */
+                private int execStreamedScript(String scriptContents) {
+                    String command = "bash -l -c "+BashStringEscapes.wrapBash(Joiner.on("\n").join(buildStreamAndRunScriptCommand()));
+                    Command result = acquire(new ExecAction(command, scriptContents.getBytes(), out, err, execTimeout));
+                    if (result.getExitStatus()==null) LOG.warn("Null exit status running streamed script at {}: {}", host, scriptPath);
+                    return asInt(result.getExitStatus(), -1);
+                }
             }.run();
         }
     }
@@ -850,6 +870,7 @@ public class SshjTool extends SshAbstractTool implements SshTool {
 
     class ExecAction implements SshAction<Command> {
         private final String command;
+        private final byte[] stdin;
         private final OutputStream out;
         private final OutputStream err;
         private final Duration timeout;
@@ -860,7 +881,13 @@ public class SshjTool extends SshAbstractTool implements SshTool {
         private StreamGobbler errgobbler;
         
         ExecAction(String command, OutputStream out, OutputStream err, Duration timeout) {
+            this(command, null, out, err, timeout);
+        }
+        
+        /** @param stdin written to the command's stdin, followed by EOF; or null to write nothing */
+        ExecAction(String command, byte[] stdin, OutputStream out, OutputStream err, Duration timeout) {
             this.command = checkNotNull(command, "command");
+            this.stdin = stdin;
             this.out = out;
             this.err = err;
             Duration sessionTimeout = (sshClientConnection.getSessionTimeout() == 0) 
@@ -894,6 +921,15 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                     errgobbler = new StreamGobbler(output.getErrorStream(), err, (Logger)null);
                     errgobbler.start();
                 }
+                if (stdin != null) {
+                    OutputStream input = output.getOutputStream();
+                    input.write(stdin);
+                    input.flush();
+                    // workaround attempt for SSHJ deadlock - https://github.com/shikhar/sshj/issues/105
+                    synchronized (input) {
+                        output.sendEOF();
+                    }
+                }
                 try {
                     output.join((int)Math.min(timeout.toMilliseconds(), Integer.MAX_VALUE), TimeUnit.MILLISECONDS);
                     return output;
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+/**
+ * Runs a job in the background at most once per period, however often it is {@link #trigger(ExecutionContext, Duration) triggered}:
+ * a trigger arriving while a run is already pending is absorbed into that run.
+ * Used by enrichers which recompute from the latest values, so that a burst of changes costs one computation.
+ * <p>
+ * When a pending run is due it checks the {@link Ticker} again, so with a test ticker runs only happen as it is advanced.
+ */
+@Beta
+public class CoalescingScheduler {
+
+    private final String displayName;
+    private final Runnable job;
+    private volatile Ticker ticker = Ticker.systemTicker();
+
+    private final AtomicBoolean queued = new AtomicBoolean(false);
+    private volatile Long lastRunNanos = null;
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public CoalescingScheduler(String displayName, Runnable job) {
+        this.displayName = checkNotNull(displayName, "displayName");
+        this.job = checkNotNull(job, "job");
+    }
+
+    @VisibleForTesting
+    public CoalescingScheduler ticker(Ticker val) {
+        this.ticker = checkNotNull(val, "ticker");
+        return this;
+    }
+
+    /**
+     * Schedules the job, to run once at least the given period has passed since its previous run
+     * (or straight away if it has never run), unless a run is already pending.
+     *
+     * @return false if the trigger was coalesced into an already pending run
+     */
+    public boolean trigger(ExecutionContext executionContext, Duration period) {
+        checkNotNull(period, "period");
+        if (!queued.compareAndSet(false, true)) {
+            coalescedCount.incrementAndGet();
+            return false;
+        }
+        submit(executionContext, period, remainingNanos(period));
+        return true;
+    }
+
+    /** number of times the job has been run */
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    /** number of triggers which were absorbed into an already pending run */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private long remainingNanos(Duration period) {
+        Long last = lastRunNanos;
+        return (last==null) ? 0 : Math.max(0, last + period.toNanoseconds() - ticker.read());
+    }
+
+    private void submit(final ExecutionContext executionContext, final Duration period, long delayNanos) {
+        Runnable run = new Runnable() {
+            @Override public void run() {
+                long remaining = remainingNanos(period);
+                if (remaining > 0) {
+                    // woken early according to the ticker; stay queued
+                    submit(executionContext, period, remaining);
+                    return;
+                }
+                lastRunNanos = ticker.read();
+                queued.set(false);
+                runCount.incrementAndGet();
+                job.run();
+            }
+        };
+        ScheduledTask task = new ScheduledTask(MutableMap.of("delay", Duration.of(delayNanos, TimeUnit.NANOSECONDS),
+            "displayName", displayName), new BasicTask<Void>(run));
+        try {
+            executionContext.submit(task);
+        } catch (RuntimeException e) {
+            // nothing pending after all, so let the next trigger try again rather than be coalesced into nothing
+            queued.set(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingScheduler["+displayName+"]";
+    }
+}
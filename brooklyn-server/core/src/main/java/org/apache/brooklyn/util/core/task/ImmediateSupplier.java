@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import org.apache.brooklyn.util.guava.Maybe;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A {@link DeferredSupplier} which can sometimes supply its value without blocking and without
+ * creating tasks, e.g. when the values it depends on are already available.
+ * <p>
+ * {@link ValueResolver} tries {@link #getImmediately()} first when resolving in the caller's
+ * execution context, and only falls back to {@link #get()} (normally in a new task) if that is absent.
+ */
+@Beta
+public interface ImmediateSupplier<T> extends DeferredSupplier<T> {
+
+    /**
+     * Returns the value if it is available now, without blocking and without submitting tasks;
+     * otherwise returns absent, in which case callers should use {@link #get()}.
+     * Implementations should return absent (rather than throw) if evaluation fails,
+     * so that the error is reported by the normal path.
+     */
+    Maybe<T> getImmediately();
+
+}
@@ -20,10 +20,13 @@ package org.apache.brooklyn.util.core.task;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.annotation.Nullable;
 
@@ -33,6 +36,7 @@ import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.api.mgmt.TaskFactory;
 import org.apache.brooklyn.api.mgmt.TaskQueueingContext;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.exceptions.ReferenceWithError;
 import org.apache.brooklyn.util.repeat.Repeater;
@@ -47,6 +51,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 public class Tasks {
@@ -198,6 +203,59 @@ public class Tasks {
         return Tasks.<List<?>>builder().displayName(name).parallel(true).add(tasks).build();
     }
 
+    /**
+     * Returns a task which runs a task for each item, at most {@code maxConcurrency} at once, in the order the items are given.
+     * That many workers each take the next item from a shared queue, run the task made for it (as the worker's child)
+     * and repeat until no items remain; so however many items there are, no more threads are used than there are workers,
+     * and tasks are only made as items are reached.
+     * <p>
+     * A failing item does not stop the others. The task returns the results in the order of the items,
+     * once all have run, or fails with the error of the first item (in that order) which failed.
+     */
+    @Beta
+    public static <T,R> Task<List<R>> parallelBounded(final String name, Iterable<? extends T> items, int maxConcurrency,
+            final Function<? super T, ? extends TaskAdaptable<R>> taskForItem) {
+        Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive");
+        final List<T> itemList = ImmutableList.copyOf(items);
+        final Queue<Integer> queue = new ConcurrentLinkedQueue<Integer>();
+        for (int i=0; i<itemList.size(); i++) queue.add(i);
+        final AtomicReferenceArray<Task<R>> itemTasks = new AtomicReferenceArray<Task<R>>(itemList.size());
+
+        final List<Task<?>> workers = MutableList.of();
+        for (int w=0; w<Math.min(maxConcurrency, itemList.size()); w++) {
+            workers.add(Tasks.<Void>builder().displayName(name+" (worker "+(w+1)+")").dynamic(true)
+                .body(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        Integer index;
+                        while ((index = queue.poll()) != null) {
+                            Task<R> task = taskForItem.apply(itemList.get(index)).asTask();
+                            itemTasks.set(index, task);
+                            // inessential, so that a failure does not stop this worker taking further items
+                            DynamicTasks.queue(TaskTags.markInessential(task)).blockUntilEnded();
+                        }
+                        return null;
+                    }})
+                .build());
+        }
+
+        return Tasks.<List<R>>builder().displayName(name).dynamic(true)
+            .description("Running "+itemList.size()+" task"+(itemList.size()==1 ? "" : "s")+", at most "+maxConcurrency+" at a time")
+            .body(new Callable<List<R>>() {
+                @Override
+                public List<R> call() {
+                    if (!workers.isEmpty()) DynamicTasks.queue(parallel(name+" (workers)", workers)).getUnchecked();
+                    List<R> result = MutableList.of();
+                    for (int i=0; i<itemList.size(); i++) {
+                        Task<R> task = itemTasks.get(i);
+                        if (task==null) throw new IllegalStateException("No task was run for "+itemList.get(i)+" in "+name);
+                        result.add(task.getUnchecked());
+                    }
+                    return result;
+                }})
+            .build();
+    }
+
     public static Task<List<?>> sequential(TaskAdaptable<?> ...tasks) {
         return sequentialInternal("sequential tasks", asTasks(tasks));
     }
@@ -323,7 +323,17 @@ public class ValueResolver<T> implements DeferredSupplier<T> {
             } else if (v instanceof DeferredSupplier<?>) {
                 final DeferredSupplier<?> ds = (DeferredSupplier<?>) v;
 
-                if ((!Boolean.FALSE.equals(embedResolutionInTask) && (exec!=null || timeout!=null)) || Boolean.TRUE.equals(embedResolutionInTask)) {
+                // avoid creating a task if the value is already available; only in the current context,
+                // as the supplier may look up its entity from the current task
+                Maybe<?> immediate = Maybe.absent();
+                if (ds instanceof ImmediateSupplier && exec==BasicExecutionContext.getCurrentExecutionContext()) {
+                    immediate = ((ImmediateSupplier<?>) ds).getImmediately();
+                }
+
+                if (immediate.isPresent()) {
+                    v = immediate.get();
+                    
+                } else if ((!Boolean.FALSE.equals(embedResolutionInTask) && (exec!=null || timeout!=null)) || Boolean.TRUE.equals(embedResolutionInTask)) {
                     if (exec==null)
                         return Maybe.absent("Embedding in task needed for '"+getDescription()+"' but no execution context available");
                         
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task.ssh;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The outcome of running commands on many machines with {@link SshFanOutTaskFactory}.
+ * <p>
+ * Results are added as each machine completes, so this can be inspected while the task is still running.
+ */
+@Beta
+public class SshFanOutResult {
+
+    public static enum Outcome {
+        /** exited with code 0 */
+        SUCCEEDED,
+        /** exited with a non-zero code, or the ssh command could not be run */
+        FAILED,
+        /** not run, because too many other machines had already failed */
+        SKIPPED
+    }
+
+    public static class MachineResult {
+        private final SshMachineLocation machine;
+        private final Outcome outcome;
+        private final Integer exitCode;
+        private final String stdout;
+        private final String stderr;
+        private final Throwable error;
+
+        MachineResult(SshMachineLocation machine, Outcome outcome, @Nullable Integer exitCode, @Nullable String stdout, @Nullable String stderr, @Nullable Throwable error) {
+            this.machine = Preconditions.checkNotNull(machine, "machine");
+            this.outcome = Preconditions.checkNotNull(outcome, "outcome");
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.error = error;
+        }
+
+        public SshMachineLocation getMachine() {
+            return machine;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public boolean isSuccess() {
+            return outcome == Outcome.SUCCEEDED;
+        }
+
+        /** null if the command was not run, or did not return an exit code */
+        @Nullable
+        public Integer getExitCode() {
+            return exitCode;
+        }
+
+        @Nullable
+        public String getStdout() {
+            return stdout;
+        }
+
+        @Nullable
+        public String getStderr() {
+            return stderr;
+        }
+
+        /** the exception, if the ssh command could not be run */
+        @Nullable
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return machine.getAddress().getHostName()+": "+outcome.name().toLowerCase()
+                    + (exitCode!=null ? " (exit "+exitCode+")" : "")
+                    + (error!=null ? " ("+error+")" : "");
+        }
+    }
+
+    private final List<SshMachineLocation> machines;
+    private final Integer abortAfterFailures;
+    private final Map<SshMachineLocation, MachineResult> results = MutableMap.of();
+    private int failedCount = 0;
+
+    SshFanOutResult(List<SshMachineLocation> machines, @Nullable Integer abortAfterFailures) {
+        // results are per machine, so each must be given only once
+        Preconditions.checkArgument(ImmutableSet.copyOf(machines).size() == machines.size(), "duplicate machines in %s", machines);
+        this.machines = ImmutableList.copyOf(machines);
+        this.abortAfterFailures = abortAfterFailures;
+    }
+
+    synchronized void add(MachineResult result) {
+        results.put(result.getMachine(), result);
+        if (result.getOutcome() == Outcome.FAILED) failedCount++;
+    }
+
+    /** true if the failure threshold has been reached, so that machines not yet started will be skipped */
+    public synchronized boolean isAborted() {
+        return abortAfterFailures != null && failedCount >= abortAfterFailures;
+    }
+
+    /** all machines to be run on, in the order given (each once) */
+    public List<SshMachineLocation> getMachines() {
+        return machines;
+    }
+
+    /** results so far, in the order machines were given (not the order they completed) */
+    public synchronized List<MachineResult> getResults() {
+        List<MachineResult> result = MutableList.of();
+        for (SshMachineLocation machine : machines) {
+            MachineResult r = results.get(machine);
+            if (r!=null) result.add(r);
+        }
+        return result;
+    }
+
+    /** the result for the given machine, or null if it has not completed */
+    @Nullable
+    public synchronized MachineResult get(SshMachineLocation machine) {
+        return results.get(machine);
+    }
+
+    public List<MachineResult> getResults(Outcome outcome) {
+        List<MachineResult> result = MutableList.of();
+        for (MachineResult r : getResults()) {
+            if (r.getOutcome() == outcome) result.add(r);
+        }
+        return result;
+    }
+
+    public synchronized boolean isComplete() {
+        return results.size() == machines.size();
+    }
+
+    /** true if every machine has completed successfully */
+    public synchronized boolean isAllSucceeded() {
+        return isComplete() && getResults(Outcome.SUCCEEDED).size() == machines.size();
+    }
+
+    /** one-line summary of the counts, e.g. "3 succeeded, 1 failed, 0 skipped, 2 running or waiting (of 6)" */
+    public synchronized String getSummary() {
+        int succeeded = getResults(Outcome.SUCCEEDED).size();
+        int skipped = getResults(Outcome.SKIPPED).size();
+        int pending = machines.size() - results.size();
+        return succeeded+" succeeded, "+failedCount+" failed, "+skipped+" skipped"
+                + (pending > 0 ? ", "+pending+" running or waiting" : "")
+                + " (of "+machines.size()+")"
+                + (isAborted() ? "; aborted after "+abortAfterFailures+" failure"+(abortAfterFailures==1 ? "" : "s") : "");
+    }
+
+    @Override
+    public String toString() {
+        return "SshFanOutResult["+getSummary()+"]";
+    }
+}
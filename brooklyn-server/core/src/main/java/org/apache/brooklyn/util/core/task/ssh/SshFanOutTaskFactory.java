@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task.ssh;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.api.mgmt.TaskFactory;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.DynamicTasks;
+import org.apache.brooklyn.util.core.task.TaskTags;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.core.task.ssh.SshFanOutResult.MachineResult;
+import org.apache.brooklyn.util.core.task.ssh.SshFanOutResult.Outcome;
+import org.apache.brooklyn.util.core.task.system.ProcessTaskFactory;
+import org.apache.brooklyn.util.core.task.system.ProcessTaskWrapper;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+/**
+ * Creates a task to run the same commands on many {@link SshMachineLocation}s, e.g. to push config to every member of a cluster.
+ * Each machine is run on once, even if given more than once (e.g. for several entities on the same machine).
+ * <p>
+ * The machines are run in the order given, on at most {@link #maxConcurrency(int)} workers which each take the next machine
+ * once done with the previous one (see {@link Tasks#parallelBounded(String, Iterable, int, Function)}), so a large fan-out
+ * does not hold a thread per machine.
+ * Each uses {@link SshTasks#newSshExecTaskFactory(SshMachineLocation, String...)}, so connections are taken from
+ * (and returned to) each machine's pool of ssh connections. Once {@link #abortAfterFailures(Integer)} machines have failed,
+ * those not yet started are skipped.
+ * <p>
+ * The task returns a {@link SshFanOutResult} with the outcome on each machine; it does not fail if some machines fail,
+ * so callers should check {@link SshFanOutResult#isAllSucceeded()}. Listeners added with {@link #addResultListener(Function)}
+ * are told of each machine's result as it completes.
+ */
+@Beta
+public class SshFanOutTaskFactory implements TaskFactory<Task<SshFanOutResult>> {
+
+    private static final Logger log = LoggerFactory.getLogger(SshFanOutTaskFactory.class);
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    /** in the order given, without duplicates, so the commands run (and are reported) once per machine */
+    private final Set<SshMachineLocation> machines = MutableSet.of();
+    private final List<String> commands = MutableList.of();
+    private final Map<String, String> env = MutableMap.of();
+    private final Map<String, Object> flags = MutableMap.of();
+    private final List<Function<? super MachineResult, Void>> listeners = MutableList.of();
+    private String summary;
+    private boolean runAsRoot = false;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private Integer abortAfterFailures;
+
+    public SshFanOutTaskFactory(Iterable<? extends SshMachineLocation> machines, String ...commands) {
+        machines(machines);
+        add(commands);
+    }
+
+    /** adds machines to run on; a machine given more than once is only run on once */
+    public SshFanOutTaskFactory machines(Iterable<? extends SshMachineLocation> machines) {
+        Iterables.addAll(this.machines, machines);
+        return this;
+    }
+
+    public SshFanOutTaskFactory add(String ...commandsToAdd) {
+        for (String command : commandsToAdd) commands.add(command);
+        return this;
+    }
+
+    public SshFanOutTaskFactory add(Iterable<String> commandsToAdd) {
+        Iterables.addAll(commands, commandsToAdd);
+        return this;
+    }
+
+    public SshFanOutTaskFactory environmentVariables(Map<String, String> vars) {
+        env.putAll(vars);
+        return this;
+    }
+
+    /** flags passed to each ssh command, as for {@link ProcessTaskFactory#configure(Map)} */
+    public SshFanOutTaskFactory configure(Map<String, ?> flags) {
+        this.flags.putAll(flags);
+        return this;
+    }
+
+    public SshFanOutTaskFactory summary(String summary) {
+        this.summary = summary;
+        return this;
+    }
+
+    public SshFanOutTaskFactory runAsRoot() {
+        this.runAsRoot = true;
+        return this;
+    }
+
+    /** the most machines to run on at once; default {@value #DEFAULT_MAX_CONCURRENCY} */
+    public SshFanOutTaskFactory maxConcurrency(int maxConcurrency) {
+        Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive");
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /** skip machines not yet started once this many have failed; by default all machines are run regardless */
+    public SshFanOutTaskFactory abortAfterFailures(@Nullable Integer abortAfterFailures) {
+        Preconditions.checkArgument(abortAfterFailures==null || abortAfterFailures > 0, "abortAfterFailures must be positive");
+        this.abortAfterFailures = abortAfterFailures;
+        return this;
+    }
+
+    /** called (from the machine's task) with each machine's result as it completes */
+    public SshFanOutTaskFactory addResultListener(Function<? super MachineResult, Void> listener) {
+        listeners.add(Preconditions.checkNotNull(listener, "listener"));
+        return this;
+    }
+
+    @Override
+    public Task<SshFanOutResult> newTask() {
+        Preconditions.checkState(!commands.isEmpty(), "No commands to run");
+        final List<SshMachineLocation> machines = ImmutableList.copyOf(this.machines);
+        final SshFanOutResult result = new SshFanOutResult(machines, abortAfterFailures);
+        final List<Function<? super MachineResult, Void>> listeners = ImmutableList.copyOf(this.listeners);
+
+        final Task<?> all = Tasks.parallelBounded("ssh on "+machines.size()+" machine"+(machines.size()==1 ? "" : "s"), machines, maxConcurrency,
+                new Function<SshMachineLocation, Task<MachineResult>>() {
+                    @Override
+                    public Task<MachineResult> apply(SshMachineLocation machine) {
+                        return newMachineTask(machine, result, listeners);
+                    }
+                });
+
+        return Tasks.<SshFanOutResult>builder()
+                .displayName("ssh fan-out"+(summary!=null ? ": "+summary : ""))
+                .description("Running "+commands.size()+" command"+(commands.size()==1 ? "" : "s")+" on "+machines.size()+" machines, at most "+maxConcurrency+" at a time")
+                .dynamic(true)
+                .body(new Callable<SshFanOutResult>() {
+                    @Override
+                    public SshFanOutResult call() throws Exception {
+                        DynamicTasks.queue(all);
+                        while (!all.blockUntilEnded(Duration.ONE_SECOND)) {
+                            Tasks.setBlockingDetails(result.getSummary());
+                        }
+                        Tasks.resetBlockingDetails();
+                        if (log.isDebugEnabled()) log.debug("Completed ssh fan-out {}: {}", (summary!=null ? summary : commands), result.getSummary());
+                        return result;
+                    }})
+                .build();
+    }
+
+    protected Task<MachineResult> newMachineTask(final SshMachineLocation machine, final SshFanOutResult result,
+            final List<Function<? super MachineResult, Void>> listeners) {
+        final ProcessTaskFactory<Integer> sshFactory = SshTasks.newSshExecTaskFactory(machine, commands.toArray(new String[commands.size()]))
+                .allowingNonZeroExitCode()
+                .environmentVariables(ImmutableMap.copyOf(env))
+                .configure(ImmutableMap.copyOf(flags));
+        if (summary!=null) sshFactory.summary(summary);
+        if (runAsRoot) sshFactory.runAsRoot();
+
+        return Tasks.<MachineResult>builder()
+                .displayName("ssh on "+machine.getAddress().getHostName())
+                .dynamic(true)
+                .body(new Callable<MachineResult>() {
+                    @Override
+                    public MachineResult call() throws Exception {
+                        MachineResult machineResult = run(machine, sshFactory, result);
+                        // record before the worker takes its next machine, so that machine sees whether to abort
+                        result.add(machineResult);
+                        for (Function<? super MachineResult, Void> listener : listeners) {
+                            try {
+                                listener.apply(machineResult);
+                            } catch (Exception e) {
+                                Exceptions.propagateIfFatal(e);
+                                log.warn("Problem notifying listener of ssh result on "+machine+" (continuing): "+e, e);
+                            }
+                        }
+                        return machineResult;
+                    }})
+                .build();
+    }
+
+    private MachineResult run(SshMachineLocation machine, ProcessTaskFactory<Integer> sshFactory, SshFanOutResult result) {
+        if (result.isAborted()) {
+            return new MachineResult(machine, Outcome.SKIPPED, null, null, null, null);
+        }
+        // inessential so that a failure is reported in the result rather than failing this task
+        ProcessTaskWrapper<Integer> ssh = DynamicTasks.queue(TaskTags.markInessential(sshFactory.newTask()));
+        ssh.block();
+        Throwable error = Tasks.getError(ssh.asTask());
+        if (error!=null) {
+            return new MachineResult(machine, Outcome.FAILED, null, ssh.getStdout(), ssh.getStderr(), error);
+        }
+        Integer exitCode = ssh.getExitCode();
+        Outcome outcome = (exitCode!=null && exitCode==0) ? Outcome.SUCCEEDED : Outcome.FAILED;
+        return new MachineResult(machine, outcome, exitCode, ssh.getStdout(), ssh.getStderr(), null);
+    }
+
+}
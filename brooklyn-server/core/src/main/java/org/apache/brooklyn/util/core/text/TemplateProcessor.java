@@ -24,8 +24,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.io.Writer;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.drivers.EntityDriver;
@@ -33,23 +39,27 @@ import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.core.config.ConfigKeys;
-import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.location.internal.LocationInternal;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
-import org.apache.brooklyn.core.sensor.DependentConfiguration;
 import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.sensor.SharedAttributeWaiters;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.text.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
-import freemarker.cache.StringTemplateLoader;
+import freemarker.core.Environment;
 import freemarker.template.Configuration;
 import freemarker.template.ObjectWrapper;
 import freemarker.template.Template;
@@ -69,6 +79,22 @@ public class TemplateProcessor {
 
     private static final Logger log = LoggerFactory.getLogger(TemplateProcessor.class);
 
+    /** maximum number of compiled templates to keep, keyed by content; templates are typically few but rendered many times */
+    public static final int TEMPLATE_CACHE_MAX_SIZE = 1000;
+
+    /** shared configuration; not modified after construction, so safe for concurrent use */
+    private static final Configuration TEMPLATE_CONFIGURATION = new Configuration();
+
+    /** keyed by the full contents (which a compiled template retains anyway) rather than a hash, so collisions are impossible */
+    private static final Cache<String, Template> TEMPLATES_BY_CONTENT = CacheBuilder.newBuilder()
+            .maximumSize(TEMPLATE_CACHE_MAX_SIZE)
+            .build();
+
+    /** contents of template files, keyed by path, last-modified time and size, so unchanged files are not re-read */
+    private static final Cache<String, String> TEMPLATE_FILE_CONTENTS = CacheBuilder.newBuilder()
+            .maximumSize(TEMPLATE_CACHE_MAX_SIZE)
+            .build();
+
     protected static TemplateModel wrapAsTemplateModel(Object o) throws TemplateModelException {
         if (o instanceof Map) return new DotSplittingTemplateModel((Map<?,?>)o);
         return ObjectWrapper.DEFAULT_WRAPPER.wrap(o);
@@ -81,14 +107,7 @@ public class TemplateProcessor {
     
     /** As per {@link #processTemplateContents(String, Map)}, but taking a file. */
     public static String processTemplateFile(String templateFileName, Map<String, ? extends Object> substitutions) {
-        String templateContents;
-        try {
-            templateContents = Files.toString(new File(templateFileName), Charsets.UTF_8);
-        } catch (IOException e) {
-            log.warn("Error loading file " + templateFileName, e);
-            throw Exceptions.propagate(e);
-        }
-        return processTemplateContents(templateContents, substitutions);
+        return processTemplateContents(loadTemplateFile(templateFileName), substitutions);
     }
 
     /** @deprecated since 0.7.0 use {@link #processTemplateFile(String, EntityDriver, Map)} */ @Deprecated
@@ -98,14 +117,27 @@ public class TemplateProcessor {
     
     /** Processes template contents according to {@link EntityAndMapTemplateModel}. */
     public static String processTemplateFile(String templateFileName, EntityDriver driver, Map<String, ? extends Object> extraSubstitutions) {
-        String templateContents;
+        return processTemplateContents(loadTemplateFile(templateFileName), driver, extraSubstitutions);
+    }
+
+    /** Reads the template file, re-using the contents last read if the file is unchanged. */
+    protected static String loadTemplateFile(final String templateFileName) {
+        final File file = new File(templateFileName);
+        String key = file.getAbsolutePath()+":"+file.lastModified()+":"+file.length();
         try {
-            templateContents = Files.toString(new File(templateFileName), Charsets.UTF_8);
-        } catch (IOException e) {
-            log.warn("Error loading file " + templateFileName, e);
-            throw Exceptions.propagate(e);
+            return TEMPLATE_FILE_CONTENTS.get(key, new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return Files.toString(file, Charsets.UTF_8);
+                }
+            });
+        } catch (ExecutionException e) {
+            log.warn("Error loading file " + templateFileName, e.getCause());
+            throw Exceptions.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            log.warn("Error loading file " + templateFileName, e.getCause());
+            throw Exceptions.propagate(e.getCause());
         }
-        return processTemplateContents(templateContents, driver, extraSubstitutions);
     }
 
     /** Processes template contents according to {@link EntityAndMapTemplateModel}. */
@@ -134,6 +166,8 @@ public class TemplateProcessor {
      * (It does not have enough contextual information from Freemarker to handle this case.) */
     public static final class DotSplittingTemplateModel implements TemplateHashModel {
         protected final Map<?,?> map;
+        /** all proper dot-separated prefixes of keys in the map; computed on first use, as most lookups are direct */
+        private transient Set<String> prefixes;
 
         protected DotSplittingTemplateModel(Map<?,?> map) {
             this.map = map;
@@ -145,14 +179,21 @@ public class TemplateProcessor {
         public boolean contains(String key) {
             if (map==null) return false;
             if (map.containsKey(key)) return true;
-            for (Map.Entry<?,?> entry: map.entrySet()) {
-                String k = Strings.toString(entry.getKey());
-                if (k.startsWith(key+".")) {
-                    // contains this prefix
-                    return true;
+            return getPrefixes().contains(key);
+        }
+        
+        private Set<String> getPrefixes() {
+            if (prefixes==null) {
+                Set<String> result = MutableSet.of();
+                for (Object k: map.keySet()) {
+                    String ks = Strings.toString(k);
+                    for (int i = ks.indexOf('.'); i >= 0; i = ks.indexOf('.', i+1)) {
+                        result.add(ks.substring(0, i));
+                    }
                 }
+                prefixes = result;
             }
-            return false;
+            return prefixes;
         }
         
         @Override
@@ -161,6 +202,8 @@ public class TemplateProcessor {
             try {
                 if (map.containsKey(key)) 
                     return wrapAsTemplateModel( map.get(key) );
+                if (!getPrefixes().contains(key))
+                    return null;
                 
                 Map<String,Object> result = MutableMap.of();
                 for (Map.Entry<?,?> entry: map.entrySet()) {
@@ -195,6 +238,8 @@ public class TemplateProcessor {
     protected static final class EntityConfigTemplateModel implements TemplateHashModel {
         protected final EntityInternal entity;
         protected final ManagementContext mgmt;
+        /** values already resolved while processing this template, as templates often refer to the same key repeatedly */
+        protected final Map<String, TemplateModel> resolved = MutableMap.of();
 
         protected EntityConfigTemplateModel(EntityInternal entity) {
             this.entity = checkNotNull(entity, "entity");
@@ -206,14 +251,18 @@ public class TemplateProcessor {
 
         @Override
         public TemplateModel get(String key) throws TemplateModelException {
+            if (resolved.containsKey(key)) return resolved.get(key);
             try {
                 Object result = entity.getConfig(ConfigKeys.builder(Object.class).name(key).build());
                 
                 if (result==null)
                     result = mgmt.getConfig().getConfig(ConfigKeys.builder(Object.class).name(key).build());
                 
-                if (result!=null)
-                    return wrapAsTemplateModel( result );
+                if (result!=null) {
+                    TemplateModel model = wrapAsTemplateModel( result );
+                    resolved.put(key, model);
+                    return model;
+                }
                 
             } catch (Exception e) {
                 Exceptions.propagateIfFatal(e);
@@ -327,8 +376,11 @@ public class TemplateProcessor {
         public TemplateModel get(String key) throws TemplateModelException {
             Object result;
             try {
-                result = Entities.submit(entity, DependentConfiguration.attributeWhenReady(entity,
-                        Sensors.builder(Object.class, key).persistence(AttributeSensor.SensorPersistenceMode.NONE).build())).get();
+                // wait on the shared future directly, rather than also parking a task thread on it
+                result = SharedAttributeWaiters.attributeWhenReady(entity,
+                        Sensors.builder(Object.class, key).persistence(AttributeSensor.SensorPersistenceMode.NONE).build(), null).get();
+            } catch (ExecutionException e) {
+                throw Exceptions.propagate(e.getCause());
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
@@ -357,6 +409,8 @@ public class TemplateProcessor {
         protected final EntityDriver driver;
         protected final ManagementContext mgmt;
         protected final DotSplittingTemplateModel extraSubstitutionsModel;
+        /** models for the top-level names, created lazily on first reference and then re-used for this template */
+        protected final Map<String, TemplateModel> models = MutableMap.of();
 
         protected EntityAndMapTemplateModel(ManagementContext mgmt, Map<String,? extends Object> extraSubstitutions) {
             this.entity = null;
@@ -384,6 +438,13 @@ public class TemplateProcessor {
 
         @Override
         public TemplateModel get(String key) throws TemplateModelException {
+            if (models.containsKey(key)) return models.get(key);
+            TemplateModel result = getUncached(key);
+            if (result!=null) models.put(key, result);
+            return result;
+        }
+
+        protected TemplateModel getUncached(String key) throws TemplateModelException {
             if (extraSubstitutionsModel.contains(key))
                 return wrapAsTemplateModel( extraSubstitutionsModel.get(key) );
 
@@ -513,16 +574,16 @@ public class TemplateProcessor {
     /** Processes template contents against the given {@link TemplateHashModel}. */
     public static String processTemplateContents(String templateContents, final TemplateHashModel substitutions) {
         try {
-            Configuration cfg = new Configuration();
-            StringTemplateLoader templateLoader = new StringTemplateLoader();
-            templateLoader.putTemplate("config", templateContents);
-            cfg.setTemplateLoader(templateLoader);
-            Template template = cfg.getTemplate("config");
+            Template template = getTemplate(templateContents);
 
             // TODO could expose CAMP '$brooklyn:' style dsl, based on template.createProcessingEnvironment
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             Writer out = new OutputStreamWriter(baos);
-            template.process(substitutions, out);
+            Environment env = template.createProcessingEnvironment(substitutions, out);
+            // the configuration is shared, so use the current default locale and time zone (as a new configuration would)
+            env.setLocale(Locale.getDefault());
+            env.setTimeZone(TimeZone.getDefault());
+            env.process();
             out.flush();
 
             return new String(baos.toByteArray());
@@ -533,4 +594,22 @@ public class TemplateProcessor {
             throw Exceptions.propagate(e);
         }
     }
+
+    /** Returns the compiled template for the given contents, from the cache if the same contents have been compiled before. */
+    protected static Template getTemplate(final String templateContents) throws IOException {
+        try {
+            return TEMPLATES_BY_CONTENT.get(templateContents, new Callable<Template>() {
+                @Override
+                public Template call() throws IOException {
+                    return new Template("config", new StringReader(templateContents), TEMPLATE_CONFIGURATION);
+                }
+            });
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw Exceptions.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
 }
@@ -28,6 +28,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
+import org.apache.brooklyn.api.catalog.CatalogItem.CatalogItemType;
+import org.apache.brooklyn.api.policy.Policy;
 import org.apache.brooklyn.core.catalog.CatalogPredicates;
 import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
 import org.apache.brooklyn.core.catalog.internal.CatalogItemBuilder;
@@ -154,6 +156,48 @@ public class CatalogVersioningTest {
         assertEquals(Iterables.size(items), 2);
     }
     
+    @Test
+    public void testVersionIndexKeptUpToDate() {
+        String symbolicName = "sampleId";
+        createCatalogItem(symbolicName, "0.1.0");
+        createCatalogItem(symbolicName, "0.2.0");
+        createCatalogItem("otherId", "0.3.0");
+        BasicBrooklynCatalog basicCatalog = (BasicBrooklynCatalog) catalog;
+        assertEquals(Iterables.size(basicCatalog.getCatalogItemVersions(symbolicName)), 2);
+        assertEquals(managementContext.getTypeRegistry().get(symbolicName).getVersion(), "0.2.0");
+        
+        catalog.deleteCatalogItem(symbolicName, "0.2.0");
+        assertEquals(Iterables.getOnlyElement(basicCatalog.getCatalogItemVersions(symbolicName)).getVersion(), "0.1.0");
+        assertEquals(managementContext.getTypeRegistry().get(symbolicName).getVersion(), "0.1.0");
+        
+        createCatalogItem(symbolicName, "0.3.0");
+        assertEquals(managementContext.getTypeRegistry().get(symbolicName).getVersion(), "0.3.0");
+        assertTrue(Iterables.isEmpty(basicCatalog.getCatalogItemVersions("missingId")));
+    }
+    
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testKindTagAndSearchIndexesKeptUpToDate() {
+        createCatalogItem("sampleId", "0.1.0");
+        catalog.addItem(CatalogItemBuilder.newPolicy("samplePolicy", "0.1.0")
+                .plan("brooklyn.policies:\n- type: org.apache.brooklyn.core.test.policy.TestPolicy")
+                .tag("sampleTag")
+                .build());
+        BasicBrooklynCatalog basicCatalog = (BasicBrooklynCatalog) catalog;
+        
+        assertEquals(Iterables.getOnlyElement(basicCatalog.getCatalogItemsOfKind(CatalogItemType.ENTITY)).getSymbolicName(), "sampleId");
+        assertEquals(Iterables.getOnlyElement(basicCatalog.getCatalogItemsOfSuperType(Policy.class)).getSymbolicName(), "samplePolicy");
+        assertEquals(Iterables.getOnlyElement(basicCatalog.getCatalogItemsWithTag("sampleTag")).getSymbolicName(), "samplePolicy");
+        assertEquals(Iterables.getOnlyElement(basicCatalog.getCatalogItemsPossiblyContaining("test.POLICY")).getSymbolicName(), "samplePolicy");
+        assertEquals(Iterables.size(basicCatalog.getCatalogItemsPossiblyContaining("sample")), 2);
+        assertTrue(Iterables.isEmpty(basicCatalog.getCatalogItemsPossiblyContaining("notInAnyItem")));
+        
+        catalog.deleteCatalogItem("samplePolicy", "0.1.0");
+        assertTrue(Iterables.isEmpty(basicCatalog.getCatalogItemsOfKind(CatalogItemType.POLICY)));
+        assertTrue(Iterables.isEmpty(basicCatalog.getCatalogItemsWithTag("sampleTag")));
+        assertEquals(Iterables.getOnlyElement(basicCatalog.getCatalogItemsPossiblyContaining("sample")).getSymbolicName(), "sampleId");
+    }
+    
     @SuppressWarnings("deprecation")
     private void createCatalogItem(String symbolicName, String version) {
         catalog.addItem(CatalogItemBuilder.newEntity(symbolicName, version).
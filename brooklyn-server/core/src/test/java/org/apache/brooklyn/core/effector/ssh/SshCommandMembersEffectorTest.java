@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.effector.ssh;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.brooklyn.api.effector.Effector;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.core.effector.Effectors;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.entity.group.BasicGroup;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SshCommandMembersEffectorTest extends BrooklynAppUnitTestSupport {
+
+    final static Effector<String> EFFECTOR_PUSH = Effectors.effector(String.class, "push").buildAbstract();
+
+    private BasicGroup group;
+    private SshMachineLocation firstMachine;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        RecordingSshTool.clear();
+        firstMachine = null;
+        group = app.createAndManageChild(EntitySpec.create(BasicGroup.class));
+        for (int i = 1; i <= 3; i++) {
+            SshMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                    .configure("address", "1.2.3."+i)
+                    .configure(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName()));
+            if (firstMachine == null) firstMachine = machine;
+            TestEntity member = app.createAndManageChild(EntitySpec.create(TestEntity.class).location(machine));
+            group.addMember(member);
+        }
+        // a member without a machine is skipped
+        group.addMember(app.createAndManageChild(EntitySpec.create(TestEntity.class)));
+
+        new SshCommandMembersEffector(ConfigBag.newInstance()
+                .configure(SshCommandMembersEffector.EFFECTOR_NAME, "push")
+                .configure(SshCommandMembersEffector.EFFECTOR_COMMAND, "echo hi"))
+            .apply(group);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        RecordingSshTool.clear();
+        super.tearDown();
+    }
+
+    @Test
+    public void testRunsOnEachMembersMachine() throws Exception {
+        String val = group.invoke(EFFECTOR_PUSH, MutableMap.<String,String>of()).get();
+
+        assertTrue(val.startsWith("3 succeeded, 0 failed, 0 skipped (of 3)"), "val="+val);
+        assertEquals(RecordingSshTool.execScriptCmds.size(), 3);
+    }
+
+    @Test
+    public void testRunsOnceOnMachineSharedByTwoMembers() throws Exception {
+        group.addMember(app.createAndManageChild(EntitySpec.create(TestEntity.class).location(firstMachine)));
+        
+        String val = group.invoke(EFFECTOR_PUSH, MutableMap.<String,String>of()).get();
+
+        assertTrue(val.startsWith("3 succeeded, 0 failed, 0 skipped (of 3)"), "val="+val);
+        assertEquals(RecordingSshTool.execScriptCmds.size(), 3);
+    }
+
+    @Test
+    public void testFailsIfAnyMemberFails() throws Exception {
+        RecordingSshTool.customExitCodes.put("1.2.3.2", 1);
+        try {
+            group.invoke(EFFECTOR_PUSH, MutableMap.<String,String>of()).get();
+            fail();
+        } catch (Exception e) {
+            Asserts.assertStringContains(Exceptions.collapseTextIncludingAllCausalMessages(e), "2 succeeded, 1 failed");
+        }
+    }
+}
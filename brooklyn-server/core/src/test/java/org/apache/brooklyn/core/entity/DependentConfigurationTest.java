@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.entity;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.fail;
 
 import java.util.Collections;
@@ -35,6 +36,7 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic;
 import org.apache.brooklyn.core.sensor.DependentConfiguration;
+import org.apache.brooklyn.core.sensor.SharedAttributeWaiters;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
@@ -44,6 +46,7 @@ import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicTask;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.groovy.GroovyJavaMethods;
 import org.apache.brooklyn.util.javalang.JavaClassNames;
 import org.apache.brooklyn.util.text.StringPredicates;
 import org.apache.brooklyn.util.time.Duration;
@@ -56,11 +59,13 @@ import org.testng.annotations.Test;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /** Tests the standalone routines in dependent configuration.
  * See e.g. LocalEntitiesTest for tests of attributeWhenReady etc.
@@ -163,6 +168,48 @@ public class DependentConfigurationTest extends BrooklynAppUnitTestSupport {
         assertEquals(assertDoneEventually(t), "myval");
     }
 
+    @Test
+    public void testAttributeWhenReadyWaitersShareSubscription() throws Exception {
+        final Task<String> t1 = submit(DependentConfiguration.attributeWhenReady(entity, TestEntity.NAME));
+        final Task<String> t2 = submit(DependentConfiguration.attributeWhenReady(entity, TestEntity.NAME));
+        final ListenableFuture<String> f = SharedAttributeWaiters.attributeWhenReady(entity, TestEntity.NAME, GroovyJavaMethods.truthPredicate());
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(SharedAttributeWaiters.getWaiterCount(entity, TestEntity.NAME), 1);
+            }});
+        assertNotDoneContinually(t1);
+        
+        entity.sensors().set(TestEntity.NAME, "myval");
+        assertEquals(assertDoneEventually(t1), "myval");
+        assertEquals(assertDoneEventually(t2), "myval");
+        assertEquals(f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "myval");
+        assertEquals(SharedAttributeWaiters.getWaiterCount(entity, TestEntity.NAME), 0);
+    }
+
+    @Test
+    public void testSharedAttributeWaiterStopsWhenCancelled() throws Exception {
+        ListenableFuture<String> f1 = SharedAttributeWaiters.attributeWhenReady(entity, TestEntity.NAME, GroovyJavaMethods.truthPredicate());
+        ListenableFuture<String> f2 = SharedAttributeWaiters.attributeWhenReady(entity, TestEntity.NAME, GroovyJavaMethods.truthPredicate());
+        assertEquals(SharedAttributeWaiters.getWaiterCount(entity, TestEntity.NAME), 1);
+        
+        f1.cancel(false);
+        assertEquals(SharedAttributeWaiters.getWaiterCount(entity, TestEntity.NAME), 1);
+        f2.cancel(false);
+        assertEquals(SharedAttributeWaiters.getWaiterCount(entity, TestEntity.NAME), 0);
+    }
+
+    @Test
+    public void testAttributeWhenReadyWithNullPredicateUsesDefaultReadiness() throws Exception {
+        final Task<String> t = submit(DependentConfiguration.attributeWhenReady(entity, TestEntity.NAME, (Predicate<String>)null));
+        ListenableFuture<String> f = SharedAttributeWaiters.attributeWhenReady(entity, TestEntity.NAME, null);
+        assertNotDoneContinually(t);
+        assertFalse(f.isDone());
+        
+        entity.sensors().set(TestEntity.NAME, "myval");
+        assertEquals(assertDoneEventually(t), "myval");
+        assertEquals(f.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), "myval");
+    }
+
     @Test
     public void testAttributeWhenReadyWithPredicate() throws Exception {
         final Task<String> t = submit(DependentConfiguration.attributeWhenReady(entity, TestEntity.NAME, Predicates.equalTo("myval2")));
@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.core.entity;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -34,6 +35,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class EntityPredicatesTest extends BrooklynAppUnitTestSupport {
 
@@ -95,6 +97,24 @@ public class EntityPredicatesTest extends BrooklynAppUnitTestSupport {
         assertFalse(EntityPredicates.isChildOf(entity).apply(app));
     }
     
+    @Test
+    public void testFindEntitiesWithNullApplicationIdOrTag() throws Exception {
+        entity.tags().addTag("mytag");
+        assertTrue(mgmt.getEntityManager().findEntities(EntityPredicates.applicationIdEqualTo(null)).isEmpty());
+        assertTrue(mgmt.getEntityManager().findEntities(EntityPredicates.hasTag(null)).isEmpty());
+    }
+    
+    @Test
+    public void testFindChildrenAndMembersOnlyReturnsManagedEntities() throws Exception {
+        TestEntity unmanaged = mgmt.getEntityManager().createEntity(EntitySpec.create(TestEntity.class).parent(app));
+        group.addMember(entity);
+        group.addMember(unmanaged);
+        assertTrue(app.getChildren().contains(unmanaged));
+        
+        assertEquals(ImmutableSet.copyOf(mgmt.getEntityManager().findEntities(EntityPredicates.isChildOf(app))), ImmutableSet.of(entity, group));
+        assertEquals(ImmutableSet.copyOf(mgmt.getEntityManager().findEntities(EntityPredicates.isMemberOf(group))), ImmutableSet.of(entity));
+    }
+    
     @Test
     public void testIsMemberOf() throws Exception {
         group.addMember(entity);
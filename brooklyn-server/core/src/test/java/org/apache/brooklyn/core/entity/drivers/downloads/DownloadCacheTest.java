@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.entity.drivers.downloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.util.core.ResourceUtils;
+import org.apache.brooklyn.util.os.Os;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+public class DownloadCacheTest {
+
+    private BrooklynProperties brooklynProperties;
+    private File cacheDir;
+    private File sourceDir;
+    private DownloadCache cache;
+    private ResourceUtils resolver;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        cacheDir = Os.newTempDir(getClass());
+        sourceDir = Os.newTempDir(getClass());
+        brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(DownloadCache.DIRECTORY, cacheDir.getAbsolutePath());
+        cache = new DownloadCache(brooklynProperties);
+        resolver = ResourceUtils.create(this);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (cacheDir != null) Os.deleteRecursively(cacheDir);
+        if (sourceDir != null) Os.deleteRecursively(sourceDir);
+    }
+
+    @Test
+    public void testCachesByContent() throws Exception {
+        String url1 = newSource("a.tar.gz", "contents");
+        String url2 = newSource("b.tar.gz", "contents");
+
+        assertFalse(cache.getIfCached(url1).isPresent());
+        File cached1 = cache.get(resolver, url1);
+        File cached2 = cache.get(resolver, url2);
+
+        assertEquals(cached1, cached2);
+        assertEquals(cached1.getName(), Hashing.sha256().hashString("contents", Charsets.UTF_8).toString());
+        assertEquals(Files.toString(cached1, Charsets.UTF_8), "contents");
+        assertEquals(cache.getIfCached(url1).get(), cached1);
+    }
+
+    @Test
+    public void testFetchesOnlyOnce() throws Exception {
+        String url = newSource("a.tar.gz", "contents");
+        File cached = cache.get(resolver, url);
+
+        // changing the source is not seen, because the cached copy is used
+        Files.write("changed", new File(sourceDir, "a.tar.gz"), Charsets.UTF_8);
+        assertEquals(cache.get(resolver, url), cached);
+        assertEquals(Files.toString(cached, Charsets.UTF_8), "contents");
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        brooklynProperties.put(DownloadCache.MAX_SIZE_BYTES, 10L);
+        String url1 = newSource("a.tar.gz", "12345678");
+        String url2 = newSource("b.tar.gz", "abcdefgh");
+
+        File cached1 = cache.get(resolver, url1);
+        cached1.setLastModified(System.currentTimeMillis() - 60*1000);
+        File cached2 = cache.get(resolver, url2);
+
+        assertFalse(cached1.exists());
+        assertTrue(cached2.exists());
+        assertFalse(cache.getIfCached(url1).isPresent());
+        assertTrue(cache.getIfCached(url2).isPresent());
+    }
+
+    @Test
+    public void testDoesNotEvictRetained() throws Exception {
+        brooklynProperties.put(DownloadCache.MAX_SIZE_BYTES, 10L);
+        String url1 = newSource("a.tar.gz", "12345678");
+        String url2 = newSource("b.tar.gz", "abcdefgh");
+
+        File cached1 = cache.retain(resolver, url1);
+        cached1.setLastModified(System.currentTimeMillis() - 60*1000);
+        File cached2 = cache.get(resolver, url2);
+        assertTrue(cached1.exists());
+        assertTrue(cached2.exists());
+
+        cache.release(cached1);
+        cache.evictIfNecessary(cached2);
+        assertFalse(cached1.exists());
+        assertEquals(cache.getFetchLockCount(), 0);
+    }
+
+    @Test
+    public void testInvalidateCausesRefetch() throws Exception {
+        String url = newSource("a.tar.gz", "contents");
+        File cached = cache.retain(resolver, url);
+
+        cache.invalidate(url, cached);
+        assertFalse(cache.getIfCached(url).isPresent());
+        assertTrue(cached.exists(), "deleted while still in use");
+        cache.release(cached);
+        assertFalse(cached.exists());
+
+        Files.write("changed", new File(sourceDir, "a.tar.gz"), Charsets.UTF_8);
+        File refetched = cache.get(resolver, url);
+        assertEquals(Files.toString(refetched, Charsets.UTF_8), "changed");
+    }
+
+    @Test
+    public void testOnlyRemoteUrlsCacheable() throws Exception {
+        assertTrue(cache.isCacheable("http://example.com/a.tar.gz"));
+        assertTrue(cache.isCacheable("HTTPS://example.com/a.tar.gz"));
+        assertFalse(cache.isCacheable("file:///tmp/a.tar.gz"));
+        assertFalse(cache.isCacheable("classpath://a.tar.gz"));
+        assertFalse(cache.isEnabled());
+    }
+
+    private String newSource(String name, String contents) throws Exception {
+        File f = new File(sourceDir, name);
+        Files.write(contents, f, Charsets.UTF_8);
+        return f.toURI().toString();
+    }
+}
@@ -18,11 +18,14 @@
  */
 package org.apache.brooklyn.core.entity.lifecycle;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Enricher;
+import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.core.entity.Attributes;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityAdjuncts;
@@ -30,6 +33,7 @@ import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic;
 import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic.ComputeServiceIndicatorsFromChildrenAndMembers;
+import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic.ComputeServiceState;
 import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic.ServiceNotUpLogic;
 import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic.ServiceProblemsLogic;
 import org.apache.brooklyn.core.sensor.Sensors;
@@ -37,14 +41,17 @@ import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.entity.TestEntityImpl.TestEntityWithoutEnrichers;
 import org.apache.brooklyn.entity.group.DynamicCluster;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.test.EntityTestUtils;
 import org.apache.brooklyn.util.collections.QuorumCheck.QuorumChecks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -283,6 +290,46 @@ public class ServiceStateLogicTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEqualsContinually(cluster, Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
     }
 
+    @Test
+    public void testCoalescedServiceStateComputesLessOften() {
+        TestEntity entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class, TestEntityWithoutEnrichers.class));
+        final ComputeServiceState enricher = entity2.enrichers().add(EnricherSpec.create(ComputeServiceState.class)
+                .configure(ComputeServiceState.COALESCE_PERIOD, Duration.millis(10)));
+        final AtomicLong nanos = new AtomicLong();
+        enricher.getRecomputeScheduler().ticker(new Ticker() {
+            @Override public long read() {
+                return nanos.get();
+            }
+        });
+        final long initialCount = enricher.getComputeCount();
+        
+        // first change is computed straight away
+        entity2.sensors().set(Attributes.SERVICE_PROBLEMS, ImmutableMap.<String,Object>of());
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Assert.assertEquals(enricher.getComputeCount(), initialCount+1);
+            }});
+        
+        // the clock is not advancing, so later changes are all absorbed into one pending computation
+        for (int i=0; i<100; i++) {
+            entity2.sensors().set(Attributes.SERVICE_UP, i%2==0);
+        }
+        entity2.sensors().set(Attributes.SERVICE_UP, true);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Assert.assertEquals(enricher.getCoalescedCount(), 100);
+            }});
+        Assert.assertEquals(enricher.getComputeCount(), initialCount+1);
+        
+        nanos.addAndGet(Duration.millis(10).toNanoseconds());
+        assertAttributeEqualsEventually(entity2, Attributes.SERVICE_STATE_ACTUAL, Lifecycle.RUNNING);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Assert.assertEquals(enricher.getComputeCount(), initialCount+2);
+            }});
+        Assert.assertEquals(enricher.getCoalescedCount(), 100);
+    }
+
     private static <T> void assertAttributeEqualsEventually(Entity x, AttributeSensor<T> sensor, T value) {
         try {
             EntityTestUtils.assertAttributeEqualsEventually(ImmutableMap.of("timeout", Duration.seconds(3)), x, sensor, value);
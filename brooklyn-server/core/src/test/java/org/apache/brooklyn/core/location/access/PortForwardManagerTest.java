@@ -20,8 +20,11 @@ package org.apache.brooklyn.core.location.access;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -39,6 +42,8 @@ import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
 import org.apache.brooklyn.location.ssh.SshMachineLocation;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.net.HostAndPort;
 
 public class PortForwardManagerTest extends BrooklynAppUnitTestSupport {
@@ -144,6 +149,97 @@ public class PortForwardManagerTest extends BrooklynAppUnitTestSupport {
         assertEquals(pfm.lookup(machine2, 80), HostAndPort.fromParts(publicAddress, 40082));
     }
     
+    @Test
+    public void testForgetPortMappingsOfPublicIpId() throws Exception {
+        String publicIpId = "myipid";
+        String publicIpId2 = "myipid2";
+        String publicAddress = "5.6.7.8";
+
+        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, 40080), machine1, 80);
+        pfm.associate(publicIpId2, HostAndPort.fromParts(publicAddress, 40081), machine2, 80);
+        pfm.forgetPortMappings(publicIpId);
+        
+        assertNull(pfm.lookup(publicIpId, 80));
+        assertNull(pfm.lookup(machine1, 80));
+        assertTrue(pfm.getLocationPublicIpIds(machine1).isEmpty());
+        assertEquals(pfm.lookup(publicIpId2, 80), HostAndPort.fromParts(publicAddress, 40081));
+    }
+    
+    @Test
+    public void testReassociateUpdatesLookups() throws Exception {
+        String publicIpId = "myipid";
+        String publicAddress = "5.6.7.8";
+
+        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, 40080), machine1, 80);
+        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, 40080), machine2, 81);
+        
+        assertNull(pfm.lookup(machine1, 80));
+        assertNull(pfm.lookup(publicIpId, 80));
+        assertTrue(pfm.getLocationPublicIpIds(machine1).isEmpty());
+        assertEquals(pfm.lookup(machine2, 81), HostAndPort.fromParts(publicAddress, 40080));
+        assertEquals(pfm.lookup(publicIpId, 81), HostAndPort.fromParts(publicAddress, 40080));
+        assertEquals(pfm.getPortMappingWithPublicIpId(publicIpId).size(), 1);
+    }
+    
+    @Test
+    public void testMappingsKeptInOrderAdded() throws Exception {
+        String publicIpId = "myipid";
+        String publicAddress = "5.6.7.8";
+
+        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, 40082), machine1, 80);
+        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, 40080), machine1, 80);
+        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, 40081), machine1, 81);
+        // replacing a mapping keeps its place
+        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, 40082), machine2, 82);
+
+        List<Integer> publicPorts = Lists.newArrayList();
+        for (PortMapping mapping : ((PortForwardManagerImpl)pfm).getPortMappings()) {
+            publicPorts.add(mapping.getPublicPort());
+        }
+        assertEquals(publicPorts, ImmutableList.of(40082, 40080, 40081));
+        assertEquals(pfm.getPortMappingWithPublicIpId(publicIpId).size(), 3);
+        // the first mapping added for the private side is used
+        assertEquals(pfm.lookup(machine1, 80), HostAndPort.fromParts(publicAddress, 40080));
+        assertEquals(pfm.lookup(publicIpId, 80), HostAndPort.fromParts(publicAddress, 40080));
+        assertEquals(pfm.lookup(machine2, 82), HostAndPort.fromParts(publicAddress, 40082));
+    }
+    
+    @Test
+    public void testAcquirePortSkipsExplicitlyMappedPort() throws Exception {
+        String publicIpId = "myipid";
+
+        int port1 = pfm.acquirePublicPort(publicIpId);
+        pfm.associate(publicIpId, HostAndPort.fromParts("5.6.7.8", port1+1), machine1, 80);
+        int port2 = pfm.acquirePublicPort(publicIpId);
+        assertEquals(port2, port1+2);
+    }
+    
+    @Test
+    public void testConcurrentAssociations() throws Exception {
+        final String publicAddress = "5.6.7.8";
+        final int numThreads = 10;
+        final int numPerThread = 100;
+        List<Thread> threads = Lists.newArrayList();
+        for (int i = 0; i < numThreads; i++) {
+            final String publicIpId = "myipid"+i;
+            threads.add(new Thread(new Runnable() {
+                @Override public void run() {
+                    for (int j = 0; j < numPerThread; j++) {
+                        int port = pfm.acquirePublicPort(publicIpId);
+                        pfm.associate(publicIpId, HostAndPort.fromParts(publicAddress, port), machine1, 1000+j);
+                    }
+                }}));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(pfm.getLocationPublicIpIds(machine1).size(), numThreads*numPerThread);
+        for (int i = 0; i < numThreads; i++) {
+            assertEquals(pfm.getPortMappingWithPublicIpId("myipid"+i).size(), numPerThread);
+            assertNotNull(pfm.lookup("myipid"+i, 1000));
+        }
+    }
+    
     @Test
     public void testAssociateLegacy() throws Exception {
         String publicIpId = "myipid";
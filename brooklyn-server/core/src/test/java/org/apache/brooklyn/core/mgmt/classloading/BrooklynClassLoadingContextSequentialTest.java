@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.classloading;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.net.URL;
+import java.util.Collections;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.core.catalog.internal.CatalogItemBuilder;
+import org.apache.brooklyn.core.test.BrooklynMgmtUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.testng.annotations.Test;
+
+public class BrooklynClassLoadingContextSequentialTest extends BrooklynMgmtUnitTestSupport {
+
+    private static class CountingClassLoadingContext extends AbstractBrooklynClassLoadingContext {
+        int count;
+        CountingClassLoadingContext(ManagementContext mgmt) {
+            super(mgmt);
+        }
+        @Override
+        public Maybe<Class<?>> tryLoadClass(String className) {
+            count++;
+            if (className.equals(TestEntity.class.getName())) return Maybe.<Class<?>>of(TestEntity.class);
+            return Maybe.absent("Not found: "+className);
+        }
+        @Override
+        public URL getResource(String name) {
+            return null;
+        }
+        @Override
+        public Iterable<URL> getResources(String name) {
+            return Collections.emptyList();
+        }
+        @Override
+        public String toString() {
+            return "counting";
+        }
+    }
+
+    @Test
+    public void testLookupsCached() {
+        CountingClassLoadingContext target = new CountingClassLoadingContext(mgmt);
+        BrooklynClassLoadingContextSequential context = new BrooklynClassLoadingContextSequential(mgmt, target);
+
+        assertEquals(context.tryLoadClass(TestEntity.class.getName()).get(), TestEntity.class);
+        assertEquals(context.tryLoadClass(TestEntity.class.getName()).get(), TestEntity.class);
+        assertEquals(target.count, 1);
+
+        assertFalse(context.tryLoadClass("not.a.Clazz").isPresent());
+        assertFalse(context.tryLoadClass("not.a.Clazz").isPresent());
+        assertEquals(target.count, 2);
+    }
+
+    @Test
+    public void testFailureReportsCause() {
+        BrooklynClassLoadingContextSequential context = new BrooklynClassLoadingContextSequential(mgmt, new CountingClassLoadingContext(mgmt));
+        try {
+            context.loadClass("not.a.Clazz");
+            Asserts.shouldHaveFailedPreviously();
+        } catch (Exception e) {
+            Asserts.expectedFailureContains(e, "Unable to load not.a.Clazz", "Not found: not.a.Clazz");
+        }
+    }
+
+    @Test
+    public void testAddingLoaderClearsCache() {
+        CountingClassLoadingContext target = new CountingClassLoadingContext(mgmt);
+        BrooklynClassLoadingContextSequential context = new BrooklynClassLoadingContextSequential(mgmt, target);
+        assertFalse(context.tryLoadClass("not.a.Clazz").isPresent());
+
+        context.add(new CountingClassLoadingContext(mgmt));
+        assertFalse(context.tryLoadClass("not.a.Clazz").isPresent());
+        assertEquals(target.count, 2);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testCatalogChangeClearsCache() {
+        CountingClassLoadingContext target = new CountingClassLoadingContext(mgmt);
+        BrooklynClassLoadingContextSequential context = new BrooklynClassLoadingContextSequential(mgmt, target);
+        assertFalse(context.tryLoadClass("not.a.Clazz").isPresent());
+        assertFalse(context.tryLoadClass("not.a.Clazz").isPresent());
+        assertEquals(target.count, 1);
+
+        // a miss could become a hit if the catalog now supplies the class
+        mgmt.getCatalog().addItem(CatalogItemBuilder.newEntity("sampleId", "0.1.0")
+                .plan("services:\n- type: org.apache.brooklyn.entity.stock.BasicEntity")
+                .build());
+        assertFalse(context.tryLoadClass("not.a.Clazz").isPresent());
+        assertEquals(target.count, 2);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.ha.dto.BasicManagementNodeSyncRecord;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.InMemoryObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.PersistMode;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
+import org.apache.brooklyn.core.mgmt.rebind.PersistenceExceptionHandlerImpl;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Nodes on localhost, sharing an in-memory store, with direct heartbeats enabled and polling effectively disabled,
+ * so that the store is only checked when the direct heartbeats prompt it.
+ */
+@Test
+public class HighAvailabilityManagerPeerHeartbeatTest {
+
+    private static final Duration PERIOD = Duration.millis(100);
+    private static final String SECRET = "peer-heartbeat-test-secret";
+
+    private List<ManagementContextInternal> mgmts = MutableList.of();
+    private Map<String,String> sharedBackingStore = MutableMap.of();
+    private Map<String,Date> sharedBackingStoreDates = MutableMap.of();
+    private ClassLoader classLoader = getClass().getClassLoader();
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mgmts.clear();
+        sharedBackingStore.clear();
+        sharedBackingStoreDates.clear();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        for (ManagementContextInternal mgmt : mgmts) {
+            mgmt.getHighAvailabilityManager().stop();
+            Entities.destroyAll(mgmt);
+        }
+    }
+
+    protected HighAvailabilityManagerImpl newNode(Duration pollPeriod) throws Exception {
+        return newNode(pollPeriod, Duration.PRACTICALLY_FOREVER, SECRET);
+    }
+
+    protected HighAvailabilityManagerImpl newNode(Duration pollPeriod, Duration heartbeatTimeout, String secret) throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(HighAvailabilityManagerImpl.PEER_HEARTBEAT_ENABLED, true);
+        if (secret!=null) props.put(HighAvailabilityManagerImpl.PEER_HEARTBEAT_SECRET, secret);
+        props.put(HighAvailabilityManagerImpl.PEER_HEARTBEAT_HOST, "127.0.0.1");
+        props.put(HighAvailabilityManagerImpl.PEER_HEARTBEAT_PERIOD, PERIOD);
+        ManagementContextInternal mgmt = new LocalManagementContextForTests(props);
+        mgmts.add(mgmt);
+
+        PersistenceObjectStore objectStore = new InMemoryObjectStore(sharedBackingStore, sharedBackingStoreDates);
+        objectStore.injectManagementContext(mgmt);
+        objectStore.prepareForSharedUse(PersistMode.CLEAN, HighAvailabilityMode.DISABLED);
+        ManagementPlaneSyncRecordPersisterToObjectStore persister = new ManagementPlaneSyncRecordPersisterToObjectStore(mgmt, objectStore, classLoader);
+        BrooklynMementoPersisterToObjectStore persisterObj = new BrooklynMementoPersisterToObjectStore(objectStore, mgmt.getBrooklynProperties(), classLoader);
+        mgmt.getRebindManager().setPersister(persisterObj, PersistenceExceptionHandlerImpl.builder().build());
+        return ((HighAvailabilityManagerImpl)mgmt.getHighAvailabilityManager())
+            .setPollPeriod(pollPeriod)
+            .setHeartbeatTimeout(heartbeatTimeout)
+            .setPersister(persister);
+    }
+
+    @Test
+    public void testAdvertisesHeartbeatAddress() throws Exception {
+        HighAvailabilityManagerImpl master = newNode(Duration.PRACTICALLY_FOREVER);
+        master.start(HighAvailabilityMode.AUTO);
+
+        assertNotNull(master.getPeerHeartbeater());
+        String address = master.getPeerHeartbeater().getAddress();
+        assertTrue(address.startsWith("127.0.0.1:"), "address="+address);
+        BasicManagementNodeSyncRecord record = (BasicManagementNodeSyncRecord) master.loadManagementPlaneSyncRecord(false)
+            .getManagementNodes().get(mgmts.get(0).getManagementNodeId());
+        assertEquals(record.getHeartbeatAddress(), address);
+    }
+
+    @Test
+    public void testStandbyPromotesWhenMasterHeartbeatsStop() throws Exception {
+        HighAvailabilityManagerImpl master = newNode(Duration.PRACTICALLY_FOREVER, Duration.ONE_SECOND, SECRET);
+        master.start(HighAvailabilityMode.AUTO);
+        final HighAvailabilityManagerImpl standby = newNode(Duration.PRACTICALLY_FOREVER, Duration.ONE_SECOND, SECRET);
+        standby.start(HighAvailabilityMode.STANDBY);
+        // so the master learns the standby's address
+        master.publishAndCheck(false);
+        assertEquals(master.getNodeState(), ManagementNodeState.MASTER);
+        assertEquals(standby.getNodeState(), ManagementNodeState.STANDBY);
+
+        final String masterId = mgmts.get(0).getManagementNodeId();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getPeerHeartbeater().isAvailable(masterId).orNull(), Boolean.TRUE);
+            }});
+
+        // simulate the master failing: it stops sending heartbeats, and its record in the store is left as it was
+        master.getPeerHeartbeater().stop();
+
+        // neither node polls, so only the direct heartbeats can prompt the standby to see in the store that the master has failed
+        Asserts.succeedsEventually(MutableMap.of("timeout", Duration.TEN_SECONDS), new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getNodeState(), ManagementNodeState.MASTER);
+            }});
+    }
+
+    @Test
+    public void testSuspectedMasterFailsOverAfterFewPollPeriodsRatherThanHeartbeatTimeout() throws Exception {
+        // the master writes its record only when it starts; without suspicion the standby would never fail it over
+        HighAvailabilityManagerImpl master = newNode(Duration.PRACTICALLY_FOREVER);
+        master.start(HighAvailabilityMode.AUTO);
+        final HighAvailabilityManagerImpl standby = newNode(PERIOD);
+        standby.start(HighAvailabilityMode.STANDBY);
+        master.publishAndCheck(false);
+
+        final String masterId = mgmts.get(0).getManagementNodeId();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getPeerHeartbeater().isAvailable(masterId).orNull(), Boolean.TRUE);
+            }});
+        Asserts.succeedsContinually(MutableMap.of("timeout", Duration.ONE_SECOND), new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getNodeState(), ManagementNodeState.STANDBY);
+            }});
+
+        master.getPeerHeartbeater().stop();
+
+        Asserts.succeedsEventually(MutableMap.of("timeout", Duration.TEN_SECONDS), new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getNodeState(), ManagementNodeState.MASTER);
+            }});
+    }
+
+    @Test
+    public void testMasterStillWritingToStoreIsNotFailedOver() throws Exception {
+        HighAvailabilityManagerImpl master = newNode(PERIOD);
+        master.start(HighAvailabilityMode.AUTO);
+        final HighAvailabilityManagerImpl standby = newNode(Duration.PRACTICALLY_FOREVER);
+        standby.start(HighAvailabilityMode.STANDBY);
+        master.publishAndCheck(false);
+
+        final String masterId = mgmts.get(0).getManagementNodeId();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getPeerHeartbeater().isAvailable(masterId).orNull(), Boolean.TRUE);
+            }});
+
+        // direct heartbeats fail, but the master keeps writing its record to the store
+        master.getPeerHeartbeater().stop();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getPeerHeartbeater().isAvailable(masterId).orNull(), Boolean.FALSE);
+            }});
+        standby.publishAndCheck(false);
+
+        Asserts.succeedsContinually(MutableMap.of("timeout", Duration.ONE_SECOND), new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getNodeState(), ManagementNodeState.STANDBY);
+            }});
+    }
+
+    @Test
+    public void testSuspicionAloneDoesNotFailOverWhileStoreIsHealthy() throws Exception {
+        // the master stops writing (no polling), but the store has not yet timed out its record
+        HighAvailabilityManagerImpl master = newNode(Duration.PRACTICALLY_FOREVER);
+        master.start(HighAvailabilityMode.AUTO);
+        final HighAvailabilityManagerImpl standby = newNode(Duration.PRACTICALLY_FOREVER);
+        standby.start(HighAvailabilityMode.STANDBY);
+        master.publishAndCheck(false);
+
+        final String masterId = mgmts.get(0).getManagementNodeId();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getPeerHeartbeater().isAvailable(masterId).orNull(), Boolean.TRUE);
+            }});
+        master.getPeerHeartbeater().stop();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getPeerHeartbeater().isAvailable(masterId).orNull(), Boolean.FALSE);
+            }});
+
+        Asserts.succeedsContinually(MutableMap.of("timeout", Duration.ONE_SECOND), new Runnable() {
+            @Override public void run() {
+                assertEquals(standby.getNodeState(), ManagementNodeState.STANDBY);
+            }});
+    }
+
+    @Test
+    public void testIgnoresHeartbeatsSignedWithOtherSecret() throws Exception {
+        HighAvailabilityManagerImpl master = newNode(Duration.PRACTICALLY_FOREVER, Duration.PRACTICALLY_FOREVER, "some-other-secret");
+        master.start(HighAvailabilityMode.AUTO);
+        final HighAvailabilityManagerImpl standby = newNode(Duration.PRACTICALLY_FOREVER);
+        standby.start(HighAvailabilityMode.STANDBY);
+        master.publishAndCheck(false);
+
+        final String masterId = mgmts.get(0).getManagementNodeId();
+        Asserts.succeedsContinually(MutableMap.of("timeout", Duration.ONE_SECOND), new Runnable() {
+            @Override public void run() {
+                assertTrue(standby.getPeerHeartbeater().isAvailable(masterId).isAbsent());
+            }});
+    }
+
+    @Test
+    public void testDoesNotStartWithoutSecret() throws Exception {
+        HighAvailabilityManagerImpl node = newNode(Duration.PRACTICALLY_FOREVER, Duration.PRACTICALLY_FOREVER, null);
+        node.start(HighAvailabilityMode.AUTO);
+        assertEquals(node.getPeerHeartbeater(), null);
+    }
+}
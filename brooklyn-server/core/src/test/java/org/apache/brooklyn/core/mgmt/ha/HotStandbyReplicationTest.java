@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.api.entity.Application;
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.LocalMementoReplicationChannel;
+import org.apache.brooklyn.core.mgmt.persist.MementoReplica;
+import org.apache.brooklyn.core.mgmt.persist.ReplicatedMementoDelta;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Runs the {@link HotStandbyTest} tests with the master streaming deltas to the hot standbys, and checks the standbys use them. */
+public class HotStandbyReplicationTest extends HotStandbyTest {
+
+    private String channelName;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        channelName = "hot-standby-test-"+Identifiers.makeRandomId(8);
+        super.setUp();
+    }
+
+    @Override
+    protected ManagementContextInternal newLocalManagementContext() {
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        properties.put(BrooklynMementoPersisterToObjectStore.PERSISTER_REPLICATION_CHANNEL, channelName);
+        return new LocalManagementContextForTests(properties);
+    }
+
+    protected BrooklynMementoPersisterToObjectStore getPersister(HaMgmtNode node) {
+        return (BrooklynMementoPersisterToObjectStore)node.mgmt.getRebindManager().getPersister();
+    }
+
+    protected MementoReplica getReplica(HaMgmtNode node) {
+        return getPersister(node).getReplica();
+    }
+
+    @Test
+    public void testHotStandbyAppliesDeltasWithoutReadingStore() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        MementoReplica replica = getReplica(n2);
+        assertNotNull(replica);
+        assertTrue(replica.isCurrent());
+        assertEquals(replica.getFullLoadCount(), 1);
+
+        app.config().set(TestEntity.CONF_NAME, "first-app-renamed");
+        app.sensors().set(TestEntity.SEQUENCE, 4);
+        Application appRO = expectRebindSequenceNumber(n1, n2, app, 4, true);
+        assertEquals(appRO.getConfig(TestEntity.CONF_NAME), "first-app-renamed");
+
+        app.sensors().set(TestEntity.SEQUENCE, 5);
+        expectRebindSequenceNumber(n1, n2, app, 5, true);
+
+        assertEquals(replica.getFullLoadCount(), 1);
+        assertTrue(replica.getDeltaCount() >= 2, "deltas="+replica.getDeltaCount());
+    }
+
+    @Test
+    public void testHotStandbyCatchesUpFromStoreOnGap() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        MementoReplica replica = getReplica(n2);
+        
+        app.sensors().set(TestEntity.SEQUENCE, 4);
+        expectRebindSequenceNumber(n1, n2, app, 4, true);
+        assertEquals(replica.getFullLoadCount(), 1);
+        
+        // a delta out of sequence (as if some had been lost) makes the standby re-read the store
+        LocalMementoReplicationChannel.named(channelName).publish(ReplicatedMementoDelta.builder()
+                .remove(BrooklynObjectType.ENTITY, app.getId())
+                .build("another-source", replica.getSequence()+2));
+        assertFalse(replica.isCurrent());
+
+        app.sensors().set(TestEntity.SEQUENCE, 5);
+        expectRebindSequenceNumber(n1, n2, app, 5, true);
+        assertEquals(replica.getFullLoadCount(), 2);
+        assertTrue(replica.isCurrent());
+    }
+
+    @Test
+    public void testPromotedStandbyStopsUsingReplica() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        createFirstAppAndPersist(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        assertNotNull(getReplica(n2));
+        long storeLoads = getPersister(n2).getStoreLoadCount();
+        
+        n2.ha.setPriority(1);
+        n1.ha.changeMode(HighAvailabilityMode.HOT_STANDBY);
+        n2.ha.changeMode(HighAvailabilityMode.AUTO);
+        assertMaster(n2);
+        assertEquals(getReplica(n2), null);
+        // the replica had every change, so was used for the rebind as master
+        assertEquals(getPersister(n2).getStoreLoadCount(), storeLoads);
+        assertEquals(n2.mgmt.getApplications().size(), 1);
+        assertHotStandby(n1);
+        assertNotNull(getReplica(n1));
+    }
+
+    @Test
+    public void testPromotedStandbyReadsStoreIfWrittenWithoutPublishing() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        createFirstAppAndPersist(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        long storeLoads = getPersister(n2).getStoreLoadCount();
+        
+        n2.ha.setPriority(1);
+        n1.ha.changeMode(HighAvailabilityMode.HOT_STANDBY);
+        // as if the old master's last write was never published
+        getPersister(n2).getObjectStore().newAccessor(BrooklynMementoPersisterToObjectStore.CHANGE_MARKER_PATH).put("unpublished-source 1");
+        n2.ha.changeMode(HighAvailabilityMode.AUTO);
+        assertMaster(n2);
+        assertEquals(getPersister(n2).getStoreLoadCount(), storeLoads+1);
+        assertEquals(n2.mgmt.getApplications().size(), 1);
+    }
+}
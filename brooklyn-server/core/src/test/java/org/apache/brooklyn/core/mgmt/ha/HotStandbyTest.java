@@ -86,12 +86,12 @@ public class HotStandbyTest {
     public class HaMgmtNode {
         // TODO share with WarmStandbyTest and SplitBrainTest and a few others (minor differences but worth it ultimately)
 
-        private ManagementContextInternal mgmt;
+        protected ManagementContextInternal mgmt;
         private String ownNodeId;
         private String nodeName;
         private ListeningObjectStore objectStore;
         private ManagementPlaneSyncRecordPersister persister;
-        private HighAvailabilityManagerImpl ha;
+        protected HighAvailabilityManagerImpl ha;
         private Duration persistOrRebindPeriod = Duration.ONE_SECOND;
 
         public void setUp() throws Exception {
@@ -163,21 +163,21 @@ public class HotStandbyTest {
         return new InMemoryObjectStore(sharedBackingStore, sharedBackingStoreDates);
     }
 
-    private HaMgmtNode createMaster(Duration persistOrRebindPeriod) throws Exception {
+    protected HaMgmtNode createMaster(Duration persistOrRebindPeriod) throws Exception {
         HaMgmtNode n1 = newNode(persistOrRebindPeriod);
         n1.ha.start(HighAvailabilityMode.AUTO);
         assertEquals(n1.ha.getNodeState(), ManagementNodeState.MASTER);
         return n1;
     }
     
-    private HaMgmtNode createHotStandby(Duration rebindPeriod) throws Exception {
+    protected HaMgmtNode createHotStandby(Duration rebindPeriod) throws Exception {
         HaMgmtNode n2 = newNode(rebindPeriod);
         n2.ha.start(HighAvailabilityMode.HOT_STANDBY);
         assertEquals(n2.ha.getNodeState(), ManagementNodeState.HOT_STANDBY);
         return n2;
     }
 
-    private TestApplication createFirstAppAndPersist(HaMgmtNode n1) throws Exception {
+    protected TestApplication createFirstAppAndPersist(HaMgmtNode n1) throws Exception {
         TestApplication app = TestApplication.Factory.newManagedInstanceForTests(n1.mgmt);
         // for testing without enrichers, if desired:
 //        TestApplication app = ApplicationBuilder.newManagedApp(EntitySpec.create(TestApplication.class).impl(TestApplicationNoEnrichersImpl.class), n1.mgmt);
@@ -194,7 +194,7 @@ public class HotStandbyTest {
         n1.mgmt.getRebindManager().forcePersistNow(false, null);
     }
     
-    private Application expectRebindSequenceNumber(HaMgmtNode master, HaMgmtNode hotStandby, Application app, int expectedSensorSequenceValue, boolean immediate) {
+    protected Application expectRebindSequenceNumber(HaMgmtNode master, HaMgmtNode hotStandby, Application app, int expectedSensorSequenceValue, boolean immediate) {
         Application appRO = hotStandby.mgmt.lookup(app.getId(), Application.class);
 
         if (immediate) {
@@ -214,7 +214,7 @@ public class HotStandbyTest {
         return appRO;
     }
 
-    private void forceRebindNow(HaMgmtNode hotStandby) {
+    protected void forceRebindNow(HaMgmtNode hotStandby) {
         hotStandby.mgmt.getRebindManager().rebind(null, null, ManagementNodeState.HOT_STANDBY);
     }
     
@@ -625,6 +625,8 @@ public class HotStandbyTest {
     public void testHotStandbyDoesNotStartFeedsRebindingManyTimes() throws Exception {
         testHotStandbyDoesNotStartFeeds();
         final HaMgmtNode hsb = createHotStandby(Duration.millis(10));
+        // rebind even though nothing has changed
+        hsb.rebinder().setReadOnlyRebindSkipsUnchanged(false);
         Repeater.create("until 10 rebinds").every(Duration.millis(100)).until(
             new Callable<Boolean>() {
                 @Override
@@ -645,6 +647,8 @@ public class HotStandbyTest {
         Assert.assertTrue(entity.feeds().getFeeds().size() == 4, "Feeds: "+entity.feeds().getFeeds());
         
         final HaMgmtNode hsb = createHotStandby(Duration.millis(10));
+        // rebind even though nothing has changed
+        hsb.rebinder().setReadOnlyRebindSkipsUnchanged(false);
         Repeater.create("until 10 rebinds").every(Duration.millis(100)).until(
             new Callable<Boolean>() {
                 @Override
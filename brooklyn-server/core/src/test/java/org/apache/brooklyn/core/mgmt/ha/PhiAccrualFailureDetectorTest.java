@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.ha;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PhiAccrualFailureDetectorTest {
+
+    private PhiAccrualFailureDetector detector;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        detector = new PhiAccrualFailureDetector(Duration.millis(100), Duration.ZERO, Duration.millis(10), 100);
+    }
+
+    @Test
+    public void testUnknownNodeIsNotSuspected() throws Exception {
+        assertFalse(detector.isMonitoring("a"));
+        assertEquals(detector.phi("a", 1000), 0.0, 0.0);
+        assertTrue(detector.isAvailable("a", 1000, 8));
+        assertFalse(detector.getLastHeartbeat("a").isPresent());
+    }
+
+    @Test
+    public void testPhiIncreasesWithTimeSinceLastHeartbeat() throws Exception {
+        long t = heartbeatRegularly("a", 0, 100, 20);
+
+        double onTime = detector.phi("a", t+100);
+        double late = detector.phi("a", t+150);
+        double veryLate = detector.phi("a", t+300);
+        assertTrue(onTime < 1, "onTime="+onTime);
+        assertTrue(onTime < late && late < veryLate, "onTime="+onTime+"; late="+late+"; veryLate="+veryLate);
+        assertTrue(detector.isAvailable("a", t+100, 8));
+        assertFalse(detector.isAvailable("a", t+300, 8));
+        assertEquals(detector.getLastHeartbeat("a").get(), (Long)t);
+    }
+
+    @Test
+    public void testIrregularHeartbeatsAreSuspectedLater() throws Exception {
+        long t = heartbeatRegularly("regular", 0, 100, 20);
+        long t2 = 0;
+        for (int i = 0; i < 20; i++) {
+            t2 += (i % 2 == 0) ? 50 : 150;
+            detector.heartbeat("irregular", t2);
+        }
+        // same mean interval, but more variance, so the same delay is less suspicious
+        assertTrue(detector.phi("irregular", t2+200) < detector.phi("regular", t+200));
+    }
+
+    @Test
+    public void testAcceptablePauseDelaysSuspicion() throws Exception {
+        PhiAccrualFailureDetector tolerant = new PhiAccrualFailureDetector(Duration.millis(100), Duration.millis(500), Duration.millis(10), 100);
+        long t = 0;
+        for (int i = 0; i < 20; i++) {
+            t += 100;
+            detector.heartbeat("a", t);
+            tolerant.heartbeat("a", t);
+        }
+        assertFalse(detector.isAvailable("a", t+400, 8));
+        assertTrue(tolerant.isAvailable("a", t+400, 8));
+    }
+
+    @Test
+    public void testHeartbeatAfterSuspicionRestoresAvailability() throws Exception {
+        long t = heartbeatRegularly("a", 0, 100, 20);
+        assertFalse(detector.isAvailable("a", t+1000, 8));
+        detector.heartbeat("a", t+1000);
+        assertTrue(detector.isAvailable("a", t+1050, 8));
+    }
+
+    @Test
+    public void testRemoveForgetsNode() throws Exception {
+        heartbeatRegularly("a", 0, 100, 5);
+        detector.remove("a");
+        assertFalse(detector.isMonitoring("a"));
+        assertEquals(detector.phi("a", 10000), 0.0, 0.0);
+    }
+
+    private long heartbeatRegularly(String nodeId, long start, long interval, int count) {
+        long t = start;
+        for (int i = 0; i < count; i++) {
+            t += interval;
+            detector.heartbeat(nodeId, t);
+        }
+        return t;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.testng.annotations.Test;
+
+public class LifecycleConcurrencyGovernorTest extends BrooklynAppUnitTestSupport {
+
+    @Test
+    public void testInstallsLimitedPerHost() throws Exception {
+        final SshMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", "1.2.3.4")
+                .configure(LifecycleConcurrencyGovernor.MAX_CONCURRENT_INSTALLS, 1));
+        final LifecycleConcurrencyGovernor governor = ((ManagementContextInternal)mgmt).getLifecycleConcurrencyGovernor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+
+        List<TestEntity> entities = MutableList.of();
+        List<Task<?>> tasks = MutableList.of();
+        for (int i = 0; i < 3; i++) {
+            final TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            entities.add(entity);
+            tasks.add(((EntityInternal)entity).getExecutionContext().submit(Tasks.<Void>builder().displayName("install").body(new Callable<Void>() {
+                public Void call() {
+                    return governor.runWithInstallPermit(entity, machine, new Callable<Void>() {
+                        public Void call() throws Exception {
+                            maxActive.set(Math.max(maxActive.get(), active.incrementAndGet()));
+                            latch.await();
+                            active.decrementAndGet();
+                            return null;
+                        }});
+                }}).build()));
+        }
+
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(governor.getQueuedCounts().get("installing:1.2.3.4"), (Integer)2);
+                assertEquals(governor.getActiveCounts().get("installing:1.2.3.4"), (Integer)1);
+            }});
+        int queued = 0;
+        for (TestEntity entity : entities) {
+            if (entity.getAttribute(LifecycleConcurrencyGovernor.QUEUED_LIFECYCLE_OPERATION) != null) queued++;
+        }
+        assertEquals(queued, 2);
+
+        latch.countDown();
+        for (Task<?> task : tasks) {
+            task.get();
+        }
+        assertEquals(maxActive.get(), 1);
+        for (TestEntity entity : entities) {
+            assertNull(entity.getAttribute(LifecycleConcurrencyGovernor.QUEUED_LIFECYCLE_OPERATION));
+        }
+    }
+
+    @Test
+    public void testSmallestLimitAppliesToSameSemaphore() throws Exception {
+        LifecycleConcurrencyGovernor governor = new LifecycleConcurrencyGovernor(mgmt);
+        LifecycleConcurrencyGovernor.Permits semaphore = governor.getSemaphore("installing:1.2.3.4", 2);
+        assertTrue(semaphore.tryAcquire());
+        assertTrue(semaphore.tryAcquire());
+
+        // lowering the limit must not hand out a fresh set of permits
+        assertSame(governor.getSemaphore("installing:1.2.3.4", 1), semaphore);
+        semaphore.release();
+        assertFalse(semaphore.tryAcquire());
+        semaphore.release();
+        assertTrue(semaphore.tryAcquire());
+        assertFalse(semaphore.tryAcquire());
+
+        // a larger limit for the same key does not override the smaller one
+        assertSame(governor.getSemaphore("installing:1.2.3.4", 3), semaphore);
+        assertEquals(semaphore.getLimit(), 1);
+        assertFalse(semaphore.tryAcquire());
+        assertEquals(semaphore.getOwningThreads().size(), 1);
+    }
+
+    @Test
+    public void testUnlimitedByDefault() throws Exception {
+        SshMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", "1.2.3.4"));
+        LifecycleConcurrencyGovernor governor = ((ManagementContextInternal)mgmt).getLifecycleConcurrencyGovernor();
+
+        String result = governor.runWithInstallPermit(app, machine, new Callable<String>() {
+            public String call() {
+                return "done";
+            }});
+        assertEquals(result, "done");
+        assertEquals(governor.getActiveCounts().size(), 0);
+    }
+}
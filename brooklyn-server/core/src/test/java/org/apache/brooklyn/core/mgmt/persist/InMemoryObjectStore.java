@@ -142,6 +142,22 @@ public class InMemoryObjectStore implements PersistenceObjectStore {
         }
     }
 
+    /** version is the modification time and identity of the stored string, as each put or append stores a new string */
+    @Override
+    public Map<String, String> listContentsWithSubPathAndVersion(String parentSubPath) {
+        if (!prepared) throw new IllegalStateException("prepare method not yet invoked: "+this);
+        synchronized (filesByName) {
+            Map<String, String> result = MutableMap.of();
+            for (Map.Entry<String, String> file: filesByName.entrySet()) {
+                if (file.getKey().startsWith(parentSubPath)) {
+                    Date modTime = fileModTimesByName.get(file.getKey());
+                    result.put(file.getKey(), modTime==null ? null : modTime.getTime()+"-"+System.identityHashCode(file.getValue()));
+                }
+            }
+            return result;
+        }
+    }
+
     @Override
     public void close() {
     }
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.brooklyn.api.mgmt.rebind.PersistenceExceptionHandler;
+import org.apache.brooklyn.api.mgmt.rebind.RebindManager.RebindFailureMode;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.persist.InMemoryObjectStore.SingleThreadedInMemoryStoreObjectAccessor;
+import org.apache.brooklyn.core.mgmt.persist.ListeningObjectStore.RecordingTransactionListener;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectAccessor;
+import org.apache.brooklyn.core.mgmt.rebind.PersistenceExceptionHandlerImpl;
+import org.apache.brooklyn.core.mgmt.rebind.PersisterDeltaImpl;
+import org.apache.brooklyn.core.mgmt.rebind.RecordingRebindExceptionHandler;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+
+public class IncrementalMementoLoaderTest {
+
+    private ClassLoader classLoader = getClass().getClassLoader();
+    private InMemoryObjectStore store;
+    private BrooklynMementoPersisterToObjectStore master;
+    private BrooklynMementoPersisterToObjectStore standby;
+    private RecordingTransactionListener standbyListener;
+    private PersistenceExceptionHandler persistenceExceptionHandler;
+    private RecordingRebindExceptionHandler rebindExceptionHandler;
+    private volatile boolean failChangeMarkerWrites;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        store = new InMemoryObjectStore();
+        store.prepareForSharedUse(null, null);
+        // the master's view of the same store, which can be made to fail writes of the change marker
+        InMemoryObjectStore masterStore = new InMemoryObjectStore(store.filesByName, store.fileModTimesByName) {
+            @Override
+            public StoreObjectAccessor newAccessor(String path) {
+                if (!path.equals(BrooklynMementoPersisterToObjectStore.CHANGE_MARKER_PATH)) return super.newAccessor(path);
+                return new StoreObjectAccessorLocking(new SingleThreadedInMemoryStoreObjectAccessor(filesByName, fileModTimesByName, path) {
+                    @Override
+                    public void put(String val) {
+                        if (failChangeMarkerWrites) throw new IllegalStateException("simulated failure writing change marker");
+                        super.put(val);
+                    }
+                });
+            }
+        };
+        masterStore.prepareForSharedUse(null, null);
+        master = new BrooklynMementoPersisterToObjectStore(masterStore, BrooklynProperties.Factory.newEmpty(), classLoader);
+        master.setChangeMarkerEnabled(true);
+        master.enableWriteAccess();
+
+        standbyListener = new RecordingTransactionListener("standby");
+        standby = new BrooklynMementoPersisterToObjectStore(new ListeningObjectStore(store, standbyListener),
+                BrooklynProperties.Factory.newEmpty(), classLoader);
+        standby.startIncrementalLoading();
+
+        persistenceExceptionHandler = PersistenceExceptionHandlerImpl.builder().build();
+        rebindExceptionHandler = new RecordingRebindExceptionHandler(RebindFailureMode.FAIL_FAST, RebindFailureMode.FAIL_FAST);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (master != null) master.stop(false);
+        if (standby != null) standby.stop(false);
+    }
+
+    @Test
+    public void testReadsEverythingOnFirstLoad() throws Exception {
+        writeEntities("e1", "v1", "e2", "v1");
+
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().keySet(), ImmutableSet.of("e1", "e2"));
+        assertEquals(getLoader().getObjectsReadCount(), 2);
+    }
+
+    @Test
+    public void testDoesNotListStoreWhenNothingWritten() throws Exception {
+        writeEntities("e1", "v1", "e2", "v1");
+        standby.loadMementoRawData(rebindExceptionHandler);
+        int queries = standbyListener.getCountQueriesOut();
+
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().keySet(), ImmutableSet.of("e1", "e2"));
+        assertEquals(getLoader().getUnchangedLoadCount(), 1);
+        assertEquals(getLoader().getObjectsReadCount(), 2);
+        assertEquals(standbyListener.getCountQueriesOut(), queries);
+    }
+
+    @Test
+    public void testListsStoreWhenChangeMarkerDisabled() throws Exception {
+        master.setChangeMarkerEnabled(false);
+        writeEntities("e1", "v1", "e2", "v1");
+        standby.loadMementoRawData(rebindExceptionHandler);
+
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().keySet(), ImmutableSet.of("e1", "e2"));
+        assertNull(store.newAccessor(BrooklynMementoPersisterToObjectStore.CHANGE_MARKER_PATH).get());
+        assertEquals(getLoader().getUnchangedLoadCount(), 0);
+        assertEquals(getLoader().getObjectsReadCount(), 2);
+    }
+
+    @Test
+    public void testSeesChangesWhenChangeMarkerWriteFails() throws Exception {
+        writeEntities("e1", "v1", "e2", "v1");
+        standby.loadMementoRawData(rebindExceptionHandler);
+
+        failChangeMarkerWrites = true;
+        writeEntities("e1", "v2");
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().get("e1"), entityXml("e1", "v2"));
+        assertEquals(getLoader().getUnchangedLoadCount(), 0);
+    }
+
+    @Test
+    public void testReadsOnlyChangedObjects() throws Exception {
+        writeEntities("e1", "v1", "e2", "v1");
+        standby.loadMementoRawData(rebindExceptionHandler);
+
+        writeEntities("e1", "v2");
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().get("e1"), entityXml("e1", "v2"));
+        assertEquals(data.getEntities().get("e2"), entityXml("e2", "v1"));
+        assertEquals(getLoader().getUnchangedLoadCount(), 0);
+        assertEquals(getLoader().getObjectsReadCount(), 3);
+    }
+
+    @Test
+    public void testDropsRemovedObjects() throws Exception {
+        writeEntities("e1", "v1", "e2", "v1");
+        standby.loadMementoRawData(rebindExceptionHandler);
+
+        PersisterDeltaImpl delta = new PersisterDeltaImpl();
+        delta.removed(BrooklynObjectType.ENTITY, ImmutableSet.of("e2"));
+        master.delta(delta, persistenceExceptionHandler);
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().keySet(), ImmutableSet.of("e1"));
+        assertEquals(getLoader().getObjectsReadCount(), 2);
+    }
+
+    @Test
+    public void testReadsEverythingAfterClear() throws Exception {
+        writeEntities("e1", "v1", "e2", "v1");
+        standby.loadMementoRawData(rebindExceptionHandler);
+
+        getLoader().clear();
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().keySet(), ImmutableSet.of("e1", "e2"));
+        assertEquals(getLoader().getObjectsReadCount(), 4);
+    }
+
+    @Test
+    public void testReadsLargeObjectsOnEveryLoad() throws Exception {
+        standby.stop(false);
+        BrooklynProperties properties = BrooklynProperties.Factory.newEmpty();
+        properties.put(BrooklynMementoPersisterToObjectStore.PERSISTER_MAX_CACHED_OBJECT_LENGTH, 100);
+        standby = new BrooklynMementoPersisterToObjectStore(new ListeningObjectStore(store, standbyListener), properties, classLoader);
+        standby.startIncrementalLoading();
+        String largeValue = Strings.repeat("x", 200);
+        writeEntities("e1", "v1", "e2", largeValue);
+        standby.loadMementoRawData(rebindExceptionHandler);
+        long bytesIn = standbyListener.getBytesIn();
+
+        BrooklynMementoRawData data = standby.loadMementoRawData(rebindExceptionHandler);
+
+        assertEquals(data.getEntities().get("e1"), entityXml("e1", "v1"));
+        assertEquals(data.getEntities().get("e2"), entityXml("e2", largeValue));
+        assertEquals(getLoader().getUnchangedLoadCount(), 1);
+        // only the large object (and the change marker) is read again
+        long readAgain = standbyListener.getBytesIn() - bytesIn;
+        assertTrue(readAgain >= entityXml("e2", largeValue).length(), "read="+readAgain);
+        assertTrue(readAgain < entityXml("e2", largeValue).length() + entityXml("e1", "v1").length(), "read="+readAgain);
+    }
+
+    private IncrementalMementoLoader getLoader() {
+        IncrementalMementoLoader result = standby.getIncrementalLoader();
+        assertNotNull(result);
+        return result;
+    }
+
+    /** writes entities through the master, given alternating ids and values */
+    private void writeEntities(String... idsAndValues) {
+        BrooklynMementoRawData.Builder data = BrooklynMementoRawData.builder();
+        for (int i = 0; i < idsAndValues.length; i += 2) {
+            data.entity(idsAndValues[i], entityXml(idsAndValues[i], idsAndValues[i+1]));
+        }
+        master.checkpoint(data.build(), persistenceExceptionHandler);
+    }
+
+    private static String entityXml(String id, String value) {
+        return "<entity><id>"+id+"</id><displayName>"+value+"</displayName></entity>";
+    }
+}
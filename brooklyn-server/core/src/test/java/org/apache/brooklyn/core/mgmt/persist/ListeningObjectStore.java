@@ -20,6 +20,7 @@ package org.apache.brooklyn.core.mgmt.persist;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -164,6 +165,18 @@ public class ListeningObjectStore implements PersistenceObjectStore {
         return result;
     }
 
+    @Override
+    public Map<String, String> listContentsWithSubPathAndVersion(String subPath) {
+        for (ObjectStoreTransactionListener listener: listeners)
+            listener.recordQueryOut("requesting versioned list "+subPath, 1+subPath.length());
+        
+        Map<String, String> result = delegate.listContentsWithSubPathAndVersion(subPath);
+        
+        for (ObjectStoreTransactionListener listener: listeners)
+            listener.recordDataIn("receiving versioned list "+subPath, result.toString().length());
+        return result;
+    }
+
     @Override
     public void close() {
         delegate.close();
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.test.qa.performance;
+
+import java.util.Map;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.core.text.TemplateProcessor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TemplateProcessorPerformanceTest extends AbstractPerformanceTest {
+
+    /** similar in shape to the config files and scripts rendered by software process drivers */
+    public static final String DRIVER_TEMPLATE =
+            "# generated for ${entity.displayName}\n"+
+            "cluster.name=${config['test.confName']}\n"+
+            "listen.port=${port}\n"+
+            "install.dir=${dirs.install}\n"+
+            "run.dir=${dirs.run}\n"+
+            "<#list seeds as seed>\n"+
+            "seed.${seed_index}=${seed}\n"+
+            "</#list>\n"+
+            "<#if debug>\n"+
+            "log.level=DEBUG\n"+
+            "<#else>\n"+
+            "log.level=INFO\n"+
+            "</#if>\n"+
+            "heap.size=${config['test.confName']}-heap\n";
+
+    public static final int numIterations = 10000;
+
+    protected TestEntity entity;
+    protected Map<String, Object> substitutions;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "mycluster"));
+        substitutions = ImmutableMap.<String, Object>of(
+                "port", 9160,
+                "dirs.install", "/opt/myapp/install",
+                "dirs.run", "/opt/myapp/run",
+                "seeds", ImmutableList.of("10.0.0.1", "10.0.0.2", "10.0.0.3"),
+                "debug", false);
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testRenderDriverTemplate() {
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+
+        measure(PerformanceTestDescriptor.create()
+                .summary("TemplateProcessorPerformanceTest.testRenderDriverTemplate")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    public void run() {
+                        TemplateProcessor.processTemplateContents(DRIVER_TEMPLATE, (EntityInternal)entity, substitutions);
+                    }}));
+    }
+}
@@ -18,8 +18,17 @@
  */
 package org.apache.brooklyn.core.typereg;
 
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntityInitializer;
+import org.apache.brooklyn.api.entity.EntityLocal;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
 import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.catalog.internal.CatalogItemBuilder;
 import org.apache.brooklyn.core.test.BrooklynMgmtUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.policy.TestPolicy;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableSet;
@@ -84,6 +93,26 @@ public class BasicBrooklynTypeRegistryTest extends BrooklynMgmtUnitTestSupport {
         Assert.assertEquals( registry().get(SAMPLE_TYPE.getSymbolicName()), SAMPLE_TYPE );
     }
 
+    @Test
+    public void testIndexesPrunedOnRemove() {
+        RegisteredType tagged = RegisteredTypes.bean("item.B", "1", new BasicTypeImplementationPlan("ignore", null), Integer.class);
+        RegisteredTypes.addTag(tagged, "sampleTag");
+        add(SAMPLE_TYPE);
+        add(tagged);
+        
+        Assert.assertEquals( Iterables.getOnlyElement(registry().getAllVersions(SAMPLE_TYPE.getSymbolicName())), SAMPLE_TYPE );
+        Assert.assertEquals( Iterables.getOnlyElement(registry().getAllWithTag("sampleTag")), tagged );
+        Assert.assertEquals( Iterables.getOnlyElement(registry().getAllWithDeclaredSuperType(Integer.class)), tagged );
+        Assert.assertEquals( Iterables.size(registry().getAllOfKind(RegisteredTypeKind.BEAN)), 2 );
+        
+        Assert.assertTrue( registry().removeFromLocalUnpersistedTypeRegistry(tagged.getId()) );
+        Assert.assertFalse( registry().removeFromLocalUnpersistedTypeRegistry(tagged.getId()) );
+        Assert.assertNull( registry().get(tagged.getId()) );
+        Assert.assertTrue( Iterables.isEmpty(registry().getAllWithTag("sampleTag")) );
+        Assert.assertTrue( Iterables.isEmpty(registry().getAllWithDeclaredSuperType(Integer.class)) );
+        Assert.assertEquals( Iterables.getOnlyElement(registry().getAllOfKind(RegisteredTypeKind.BEAN)), SAMPLE_TYPE );
+    }
+    
     @Test
     public void testGettingBestVersion() {
         add(SAMPLE_TYPE);
@@ -183,4 +212,69 @@ public class BasicBrooklynTypeRegistryTest extends BrooklynMgmtUnitTestSupport {
         
     }
 
+    @Test
+    public void testCreateSpecReturnsIndependentCopiesOfCachedSpec() {
+        RegisteredType type = RegisteredTypes.spec("item.E", "1", 
+            new BasicTypeImplementationPlan(JavaClassNameTypePlanTransformer.FORMAT, TestEntity.class.getName()), Entity.class);
+        add(type);
+        
+        EntitySpec<?> spec1 = registry().createSpec(type, null, EntitySpec.class);
+        Assert.assertEquals(registry().getSpecCacheSize(), 1);
+        spec1.configure(TestEntity.CONF_NAME, "changed");
+        spec1.child(EntitySpec.create(TestEntity.class));
+        
+        EntitySpec<?> spec2 = registry().createSpec(type, null, EntitySpec.class);
+        Assert.assertNotSame(spec1, spec2);
+        Assert.assertEquals(spec2.getType(), TestEntity.class);
+        Assert.assertNull(spec2.getConfig().get(TestEntity.CONF_NAME));
+        Assert.assertTrue(spec2.getChildren().isEmpty());
+        Assert.assertEquals(registry().getSpecCacheSize(), 1);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testSpecCacheClearedWhenTypesChange() {
+        RegisteredType type = RegisteredTypes.spec("item.E", "1", 
+            new BasicTypeImplementationPlan(JavaClassNameTypePlanTransformer.FORMAT, TestEntity.class.getName()), Entity.class);
+        add(type);
+        registry().createSpec(type, null, EntitySpec.class);
+        Assert.assertEquals(registry().getSpecCacheSize(), 1);
+        
+        add(SAMPLE_TYPE);
+        Assert.assertEquals(registry().getSpecCacheSize(), 0);
+        
+        registry().createSpec(type, null, EntitySpec.class);
+        mgmt.getCatalog().addItem(CatalogItemBuilder.newEntity("item.F", "1")
+            .plan("services: [ { type: "+TestEntity.class.getName()+" } ]")
+            .build());
+        Assert.assertEquals(registry().getSpecCacheSize(), 0);
+    }
+
+    @Test
+    public void testCopySpecDoesNotShareAdjunctSpecsOrCollections() {
+        EntitySpec<TestEntity> spec = EntitySpec.create(TestEntity.class)
+            .policy(PolicySpec.create(TestPolicy.class).configure(TestPolicy.CONF_NAME, "a"))
+            .configure(TestEntity.CONF_LIST_THING, MutableList.of("x"));
+        Assert.assertTrue(registry().isCacheable(spec));
+        
+        EntitySpec<TestEntity> copy = BasicBrooklynTypeRegistry.copySpec(spec);
+        Assert.assertNotSame(copy.getPolicySpecs().get(0), spec.getPolicySpecs().get(0));
+        copy.getPolicySpecs().get(0).configure(TestPolicy.CONF_NAME, "b");
+        Assert.assertEquals(spec.getPolicySpecs().get(0).getConfig().get(TestPolicy.CONF_NAME), "a");
+        
+        Object list = copy.getConfig().get(TestEntity.CONF_LIST_THING);
+        Assert.assertNotSame(list, spec.getConfig().get(TestEntity.CONF_LIST_THING));
+        Assert.assertEquals(list, MutableList.of("x"));
+    }
+
+    @Test
+    public void testSpecsWithUncopyableValuesNotCacheable() {
+        Assert.assertFalse(registry().isCacheable(EntitySpec.create(TestEntity.class)
+            .configure(TestEntity.CONF_OBJECT, new Object())));
+        Assert.assertFalse(registry().isCacheable(EntitySpec.create(TestEntity.class)
+            .addInitializer(new EntityInitializer() {
+                @Override public void apply(EntityLocal entity) {}
+            })));
+    }
+
 }
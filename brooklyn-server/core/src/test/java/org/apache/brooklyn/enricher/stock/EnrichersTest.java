@@ -19,8 +19,10 @@
 package org.apache.brooklyn.enricher.stock;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -40,8 +42,10 @@ import org.apache.brooklyn.util.collections.CollectionFunctionals;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.CoalescingScheduler;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.text.StringFunctions;
+import org.apache.brooklyn.util.time.Duration;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -49,6 +53,7 @@ import org.testng.annotations.Test;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -371,6 +376,138 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEqualsEventually(group, LONG1, Long.valueOf(1));
     }
     
+    @Test
+    public void testAggregatingIncrementalMinMaxCount() {
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computing(new Enrichers.ComputingMin<Integer>(null, TypeToken.of(Integer.class)))
+                .build());
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM3)
+                .fromMembers()
+                .computing(new Enrichers.ComputingMax<Integer>(null, TypeToken.of(Integer.class)))
+                .build());
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(LONG1)
+                .fromMembers()
+                .computing(new Enrichers.ComputingCount<Integer>())
+                .build());
+        
+        entity.sensors().set(NUM1, 2);
+        entity2.sensors().set(NUM1, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM3, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, LONG1, 2L);
+        
+        entity.sensors().set(NUM1, 7);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM3, 7);
+        
+        group.removeMember(entity);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM3, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, LONG1, 1L);
+    }
+    
+    @Test
+    public void testIncrementalMaxKeepsLongPrecision() {
+        long big = (1L << 53);
+        IncrementalReducers.ExtremumReducer<Long> max = new IncrementalReducers.ExtremumReducer<Long>(null, TypeToken.of(Long.class), true);
+        max.add(big + 1);
+        max.add(big);
+        Assert.assertEquals(max.get(), Long.valueOf(big + 1));
+        max.remove(big + 1);
+        Assert.assertEquals(max.get(), Long.valueOf(big));
+    }
+    
+    @Test
+    public void testIncrementalSumDoesNotDriftOnRemoval() {
+        IncrementalReducers.SummingReducer<Double> sum = new IncrementalReducers.SummingReducer<Double>(null, null, TypeToken.of(Double.class), false);
+        sum.add(1e17);
+        sum.add(1d);
+        sum.remove(1e17);
+        Assert.assertEquals(sum.get(), 1d);
+        
+        sum.add(Double.POSITIVE_INFINITY);
+        Assert.assertEquals(sum.get(), Double.POSITIVE_INFINITY);
+        sum.remove(Double.POSITIVE_INFINITY);
+        Assert.assertEquals(sum.get(), 1d);
+    }
+    
+    @Test
+    public void testAggregatingIncrementalAverageMatchesNonIncremental() {
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingAverage()
+                .build());
+        group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM3)
+                .fromMembers()
+                .computingAverage()
+                .build()
+                .configure(Aggregator.INCREMENTAL, false));
+        
+        entity.sensors().set(NUM1, 2);
+        entity2.sensors().set(NUM1, 6);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 4);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM3, 4);
+        
+        entity2.sensors().set(NUM1, null);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM3, 2);
+    }
+    
+    @Test
+    public void testAggregatingCoalesced() {
+        group.addMember(entity);
+        AbstractAggregator<?,?> enricher = (AbstractAggregator<?,?>) group.enrichers().add(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingSum()
+                .build()
+                .configure(Aggregator.COALESCE_PERIOD, Duration.millis(10)));
+        final AtomicLong nanos = new AtomicLong();
+        final CoalescingScheduler scheduler = enricher.getUpdateScheduler().ticker(new Ticker() {
+            @Override public long read() {
+                return nanos.get();
+            }
+        });
+        
+        // first change is published straight away
+        entity.sensors().set(NUM1, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 1);
+        
+        // the clock is not advancing, so later changes are all absorbed into one pending update
+        for (int i = 2; i <= 100; i++) {
+            entity.sensors().set(NUM1, i);
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Assert.assertEquals(enricherCounts(scheduler), ImmutableList.of(1L, 98L));
+            }});
+        EntityTestUtils.assertAttributeEqualsContinually(ImmutableMap.of("timeout", Duration.millis(50)), group, NUM2, 1);
+        
+        nanos.addAndGet(Duration.millis(10).toNanoseconds());
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 100);
+        Assert.assertEquals(enricherCounts(scheduler), ImmutableList.of(2L, 98L));
+    }
+    
+    private static List<Long> enricherCounts(CoalescingScheduler scheduler) {
+        return ImmutableList.of(scheduler.getRunCount(), scheduler.getCoalescedCount());
+    }
+    
     @Test(groups="Integration") // because takes a second
     public void testAggregatingRespectsUnchanged() {
         group.addMember(entity);
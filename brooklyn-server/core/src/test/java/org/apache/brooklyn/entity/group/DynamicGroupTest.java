@@ -118,6 +118,91 @@ public class DynamicGroupTest {
         assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1, e2, app, group));
     }
     
+    @Test
+    public void testGroupWithIndexedTypeFilter() throws Exception {
+        group.setEntityFilter(EntityPredicates.isInstanceOf(TestEntity.class));
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1, e2));
+        
+        final TestEntity e3 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1, e2, e3));
+            }});
+        
+        Entities.unmanage(e3);
+        group.rescanEntities();
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1, e2));
+    }
+    
+    @Test
+    public void testGroupWithIndexedTagFilter() throws Exception {
+        e1.tags().addTag("mytag");
+        group.setEntityFilter(EntityPredicates.and(EntityPredicates.isInstanceOf(TestEntity.class), EntityPredicates.hasTag("mytag")));
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1));
+        
+        e1.tags().removeTag("mytag");
+        e2.tags().addTag("mytag");
+        group.rescanEntities();
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e2));
+    }
+    
+    @Test
+    public void testGroupWithIndexedFilterOnlyChecksCandidatesOfNewEntities() throws Exception {
+        final AtomicInteger checks = new AtomicInteger();
+        Predicate<Entity> counting = new Predicate<Entity>() {
+            @Override public boolean apply(Entity input) {
+                checks.incrementAndGet();
+                return true;
+            }
+        };
+        group.setEntityFilter(EntityPredicates.and(EntityPredicates.hasTag("mytag"), counting));
+        assertTrue(group.getMembers().isEmpty());
+        
+        final TestEntity e3 = app.createAndManageChild(EntitySpec.create(TestEntity.class).tag("mytag"));
+        app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e3));
+            }});
+        Asserts.succeedsContinually(MutableMap.of("timeout", VERY_SHORT_WAIT_MS), new Runnable() {
+            public void run() {
+                assertEquals(checks.get(), 1);
+            }});
+    }
+    
+    @Test
+    public void testGroupWithChildOfFilterDetectsNewChildren() throws Exception {
+        group.setEntityFilter(EntityPredicates.isChildOf(e1));
+        assertTrue(group.getMembers().isEmpty());
+        
+        final TestEntity child = e1.addChild(EntitySpec.create(TestEntity.class));
+        Entities.manage(child);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(child));
+            }});
+        
+        Entities.unmanage(child);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(group.getMembers().isEmpty());
+            }});
+    }
+    
+    @Test
+    public void testGroupWithIndexedTagFilterToldWhenMemberUnmanagedAfterTagRemoved() throws Exception {
+        e1.tags().addTag("mytag");
+        group.setEntityFilter(EntityPredicates.hasTag("mytag"));
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1));
+        
+        e1.tags().removeTag("mytag");
+        Entities.unmanage(e1);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+            }});
+    }
+    
     @Test
     public void testGroupDetectsNewlyManagedMatchingMember() throws Exception {
         group.setEntityFilter(EntityPredicates.displayNameEqualTo("myname"));
@@ -127,6 +127,29 @@ public class SshMachineLocationPerformanceTest {
         runMany(task, "small-cmd-custom-ssh-properties", 1, 10);
     }
 
+    // Compare with testConsecutiveSmallCommands: one ssh channel per script rather than an sftp upload and a shell
+    @Test(groups = {"Integration"})
+    public void testConsecutiveSmallCommandsStreamed() throws Exception {
+        final Map<String, ?> props = ImmutableMap.of(SshTool.PROP_EXEC_STREAMED.getName(), true);
+        Runnable task = new Runnable() {
+            @Override public void run() {
+                machine.execScript(props, "test", ImmutableList.of("true"));
+            }};
+        runMany(task, "small-cmd-streamed", 1, 10);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testConsecutiveBigStdinCommandsStreamed() throws Exception {
+        String bigstr = Identifiers.makeRandomId(100000);
+        final Map<String, ?> props = ImmutableMap.of(SshTool.PROP_EXEC_STREAMED.getName(), true);
+        final List<String> cmds = ImmutableList.of("echo "+bigstr+" | wc -c");
+        Runnable task = new Runnable() {
+            @Override public void run() {
+                machine.execScript(props, "test", cmds);
+            }};
+        runMany(task, "big-stdin-streamed", 1, 10);
+    }
+
     private void runExecManyCommands(final List<String> cmds, String context, int iterations) throws Exception {
         runExecManyCommands(cmds, context, 1, iterations);
     }
@@ -46,6 +46,7 @@ import org.apache.brooklyn.core.effector.EffectorBody;
 import org.apache.brooklyn.core.effector.EffectorTaskTest;
 import org.apache.brooklyn.core.effector.Effectors;
 import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
+import org.apache.brooklyn.core.entity.EntityAsserts;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.entity.factory.ApplicationBuilder;
 import org.apache.brooklyn.core.location.BasicHardwareDetails;
@@ -53,8 +54,11 @@ import org.apache.brooklyn.core.location.BasicMachineDetails;
 import org.apache.brooklyn.core.location.BasicOsDetails;
 import org.apache.brooklyn.core.location.Machines;
 import org.apache.brooklyn.core.location.PortRanges;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.sensor.ssh.SshPoolMetricsSensor;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.config.ConfigBag;
@@ -74,6 +78,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -304,6 +309,42 @@ public class SshMachineLocationTest extends BrooklynAppUnitTestSupport {
             Duration.minutes(3));
     }
     
+    @Test
+    public void testSshPoolMetricsReportReusedConnections() throws Exception {
+        SshMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", "1.2.3.4")
+                .configure(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName())
+                .configure(SshMachineLocation.SSH_MAX_CONNECTIONS, 2));
+        machine.execCommands("first", ImmutableList.of("true"));
+        machine.execCommands("second", ImmutableList.of("true"));
+        
+        Map<String, Object> metrics = machine.getSshPoolMetrics();
+        assertEquals(metrics.get("totalLeased"), 2L, "metrics="+metrics);
+        assertEquals(metrics.get("totalCreated"), 1L, "metrics="+metrics);
+        assertEquals(metrics.get("leased"), 0, "metrics="+metrics);
+        assertEquals(metrics.get("idle"), 1, "metrics="+metrics);
+        assertEquals(metrics.get("maxConnections"), 2, "metrics="+metrics);
+    }
+    
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void testSshPoolMetricsSensor() throws Exception {
+        SshMachineLocation machine = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", "1.2.3.4")
+                .configure(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName()));
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .location(machine)
+                .addInitializer(new SshPoolMetricsSensor(ConfigBag.newInstance()
+                        .configure(SshPoolMetricsSensor.SENSOR_NAME, "ssh.pool.metrics")
+                        .configure(SshPoolMetricsSensor.SENSOR_PERIOD, Duration.millis(10)))));
+        machine.execCommands("first", ImmutableList.of("true"));
+        
+        EntityAsserts.assertAttributeEventually(entity, Sensors.newSensor(Map.class, "ssh.pool.metrics"), new Predicate<Map>() {
+            @Override public boolean apply(Map input) {
+                return input != null && Long.valueOf(1).equals(input.get("totalLeased"));
+            }});
+    }
+    
     @Test
     public void obtainSpecificPortGivesOutPortOnlyOnce() {
         int port = 2345;
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.file;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool.ExecCmd;
+import org.apache.brooklyn.util.os.Os;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+public class DirectorySyncTaskFactoryTest extends BrooklynAppUnitTestSupport {
+
+    private File localDir;
+    private List<SshMachineLocation> machines;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        RecordingSshTool.clear();
+        localDir = Os.newTempDir(getClass());
+        Files.write("a", new File(localDir, "a.txt"), Charsets.UTF_8);
+        new File(localDir, "sub").mkdirs();
+        Files.write("b", new File(localDir, "sub/b.txt"), Charsets.UTF_8);
+
+        machines = MutableList.of();
+        for (int i = 1; i <= 2; i++) {
+            machines.add(mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                    .configure("address", "1.2.3."+i)
+                    .configure(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName())));
+        }
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        RecordingSshTool.clear();
+        if (localDir != null) Os.deleteRecursively(localDir);
+        super.tearDown();
+    }
+
+    @Test
+    public void testChecksumsLocalFiles() throws Exception {
+        assertEquals(DirectorySyncTaskFactory.checksums(localDir), ImmutableMap.of("a.txt", md5("a"), "sub/b.txt", md5("b")));
+    }
+
+    @Test
+    public void testParsesRemoteChecksums() throws Exception {
+        String output = md5("a")+"  ./a.txt\n"+md5("b")+" *./sub/b.txt\n";
+        assertEquals(DirectorySyncTaskFactory.parseChecksums(output), ImmutableMap.of("a.txt", md5("a"), "sub/b.txt", md5("b")));
+    }
+
+    @Test
+    public void testCopiesOnlyChangedFiles() throws Exception {
+        RecordingSshTool.customResponses.put("md5sum", md5("a")+"  ./a.txt\n"+md5("old")+"  ./sub/b.txt\n");
+
+        Map<SshMachineLocation, Integer> result = run(new DirectorySyncTaskFactory(localDir, "/tmp/dest", machines));
+
+        assertEquals(result, ImmutableMap.of(machines.get(0), 1, machines.get(1), 1));
+        assertEquals(RecordingSshTool.copiedToServer.size(), 2, "copied="+RecordingSshTool.copiedToServer);
+        assertUnpackedCount(2);
+    }
+
+    @Test
+    public void testCopiesNothingIfUnchanged() throws Exception {
+        RecordingSshTool.customResponses.put("md5sum", md5("a")+"  ./a.txt\n"+md5("b")+"  ./sub/b.txt\n");
+
+        Map<SshMachineLocation, Integer> result = run(new DirectorySyncTaskFactory(localDir, "/tmp/dest", machines));
+
+        assertEquals(result, ImmutableMap.of(machines.get(0), 0, machines.get(1), 0));
+        assertEquals(RecordingSshTool.copiedToServer.size(), 0, "copied="+RecordingSshTool.copiedToServer);
+        assertUnpackedCount(0);
+    }
+
+    @Test
+    public void testCopiesAllIfNotSkippingUnchanged() throws Exception {
+        RecordingSshTool.customResponses.put("md5sum", md5("a")+"  ./a.txt\n"+md5("b")+"  ./sub/b.txt\n");
+
+        Map<SshMachineLocation, Integer> result = run(new DirectorySyncTaskFactory(localDir, "/tmp/dest", machines)
+                .skipUnchanged(false)
+                .maxConcurrency(1)
+                .maxBytesPerSecond(1024L*1024));
+
+        assertEquals(result, ImmutableMap.of(machines.get(0), 2, machines.get(1), 2));
+        assertUnpackedCount(2);
+    }
+
+    @Test
+    public void testQuotesRemoteDirAndRestoresExecutableBit() throws Exception {
+        File script = new File(localDir, "run me.sh");
+        Files.write("#!/bin/sh", script, Charsets.UTF_8);
+        script.setExecutable(true);
+        RecordingSshTool.customResponses.put("md5sum", md5("a")+"  ./a.txt
+"+md5("b")+"  ./sub/b.txt
+");
+
+        run(new DirectorySyncTaskFactory(localDir, "/tmp/my dest", ImmutableList.of(machines.get(0))));
+
+        String unpack = null;
+        for (ExecCmd cmd : RecordingSshTool.execScriptCmds) {
+            for (String command : cmd.commands) {
+                if (command.contains("unzip")) unpack = command;
+            }
+        }
+        assertNotNull(unpack, "cmds="+RecordingSshTool.execScriptCmds);
+        assertTrue(unpack.contains("cd \"/tmp/my dest\""), unpack);
+        assertTrue(unpack.contains("chmod +x \"run me.sh\""), unpack);
+    }
+
+    private void assertUnpackedCount(int expected) {
+        int count = 0;
+        for (ExecCmd cmd : RecordingSshTool.execScriptCmds) {
+            for (String command : cmd.commands) {
+                if (command.contains("unzip -o -q \"/tmp/dest/")) count++;
+            }
+        }
+        assertEquals(count, expected, "cmds="+RecordingSshTool.execScriptCmds);
+    }
+
+    private Map<SshMachineLocation, Integer> run(DirectorySyncTaskFactory factory) throws Exception {
+        return Entities.submit(app, factory.newTask()).get();
+    }
+
+    private static String md5(String contents) {
+        return Hashing.md5().hashString(contents, Charsets.UTF_8).toString();
+    }
+}
@@ -19,14 +19,18 @@
 package org.apache.brooklyn.util.core.internal.ssh;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.brooklyn.util.core.internal.ssh.SshTool;
+import org.apache.brooklyn.util.exceptions.Exceptions;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /** Mock tool */
 public class RecordingSshTool implements SshTool {
@@ -52,16 +56,27 @@ public class RecordingSshTool implements SshTool {
     
     public static List<ExecCmd> execScriptCmds = Lists.newCopyOnWriteArrayList();
     public static List<Map<?,?>> constructorProps = Lists.newCopyOnWriteArrayList();
+    /** exit codes to return for commands on the given hosts; 0 for other hosts */
+    public static Map<String,Integer> customExitCodes = Maps.newConcurrentMap();
+    /** stdout to write for commands containing the given text */
+    public static Map<String,String> customResponses = Maps.newConcurrentMap();
+    /** remote paths copied to, by any of the copyToServer methods */
+    public static List<String> copiedToServer = Lists.newCopyOnWriteArrayList();
     
+    private final Object host;
     private boolean connected;
     
     public static void clear() {
         execScriptCmds.clear();
         constructorProps.clear();
+        customExitCodes.clear();
+        customResponses.clear();
+        copiedToServer.clear();
     }
     
     public RecordingSshTool(Map<?,?> props) {
         constructorProps.add(props);
+        host = props.get(SshTool.PROP_HOST.getName());
     }
     @Override public void connect() {
         connected = true;
@@ -77,25 +92,51 @@ public class RecordingSshTool implements SshTool {
     }
     @Override public int execScript(Map<String, ?> props, List<String> commands, Map<String, ?> env) {
         execScriptCmds.add(new ExecCmd(props, "", commands, env));
-        return 0;
+        writeResponse(props, commands);
+        return exitCode();
     }
     @Override public int execScript(Map<String, ?> props, List<String> commands) {
         return execScript(props, commands, ImmutableMap.<String,Object>of());
     }
     @Override public int execCommands(Map<String, ?> props, List<String> commands, Map<String, ?> env) {
         execScriptCmds.add(new ExecCmd(props, "", commands, env));
-        return 0;
+        writeResponse(props, commands);
+        return exitCode();
     }
     @Override public int execCommands(Map<String, ?> props, List<String> commands) {
         return execCommands(props, commands, ImmutableMap.<String,Object>of());
     }
+    private void writeResponse(Map<String, ?> props, List<String> commands) {
+        Object out = props.get(SshTool.PROP_OUT_STREAM.getName());
+        if (!(out instanceof OutputStream)) return;
+        for (Map.Entry<String, String> entry : customResponses.entrySet()) {
+            for (String command : commands) {
+                if (command.contains(entry.getKey())) {
+                    try {
+                        ((OutputStream)out).write(entry.getValue().getBytes());
+                        ((OutputStream)out).flush();
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+    private int exitCode() {
+        Integer result = (host==null) ? null : customExitCodes.get(host.toString());
+        return (result==null) ? 0 : result;
+    }
     @Override public int copyToServer(Map<String, ?> props, File localFile, String pathAndFileOnRemoteServer) {
+        copiedToServer.add(pathAndFileOnRemoteServer);
         return 0;
     }
     @Override public int copyToServer(Map<String, ?> props, InputStream contents, String pathAndFileOnRemoteServer) {
+        copiedToServer.add(pathAndFileOnRemoteServer);
         return 0;
     }
     @Override public int copyToServer(Map<String, ?> props, byte[] contents, String pathAndFileOnRemoteServer) {
+        copiedToServer.add(pathAndFileOnRemoteServer);
         return 0;
     }
     @Override public int copyFromServer(Map<String, ?> props, String pathAndFileOnRemoteServer, File local) {
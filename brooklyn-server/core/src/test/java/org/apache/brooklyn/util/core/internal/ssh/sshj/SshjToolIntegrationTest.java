@@ -166,6 +166,45 @@ public class SshjToolIntegrationTest extends SshToolAbstractIntegrationTest {
         assertEquals(localtool3.getLocalTempDir(), new File(Os.tidyPath(customRelativeTempDir)));
     }
 
+    @Test(groups = {"Integration"})
+    public void testStreamedExecStdoutAndStderr() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = tool.execScript(
+                ImmutableMap.of(
+                        "out", out, 
+                        "err", err, 
+                        SshjTool.PROP_EXEC_STREAMED.getName(), true, 
+                        SshjTool.PROP_NO_EXTRA_OUTPUT.getName(), true), 
+                ImmutableList.of("echo mystringToStdout", "echo mystringToStderr 1>&2"), 
+                ImmutableMap.<String,String>of());
+
+        assertEquals(exitCode, 0);
+        assertEquals(new String(out.toByteArray()).trim(), "mystringToStdout");
+        assertEquals(new String(err.toByteArray()).trim(), "mystringToStderr");
+    }
+
+    @Test(groups = {"Integration"})
+    public void testStreamedExecReturnsExitCode() throws Exception {
+        int exitCode = tool.execScript(
+                ImmutableMap.of(SshjTool.PROP_EXEC_STREAMED.getName(), true), 
+                ImmutableList.of("exit 123"), 
+                ImmutableMap.<String,String>of());
+        assertEquals(exitCode, 123);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testStreamedExecScriptDoesNotConsumeRestOfScriptAsStdin() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int exitCode = tool.execScript(
+                ImmutableMap.of("out", out, SshjTool.PROP_EXEC_STREAMED.getName(), true, SshjTool.PROP_NO_EXTRA_OUTPUT.getName(), true), 
+                ImmutableList.of("cat", "echo afterCat"), 
+                ImmutableMap.<String,String>of());
+        
+        assertEquals(exitCode, 0);
+        assertEquals(new String(out.toByteArray()).trim(), "afterCat");
+    }
+
     @Test(groups = {"Integration"})
     public void testAsyncExecStdoutAndStderr() throws Exception {
         boolean origFeatureEnablement = BrooklynFeatureEnablement.enable(BrooklynFeatureEnablement.FEATURE_SSH_ASYNC_EXEC);
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CoalescingSchedulerTest {
+
+    private BasicExecutionManager em;
+    private AtomicBoolean rejecting;
+    private BasicExecutionContext context;
+    
+    @BeforeMethod
+    public void setUp() {
+        em = new BasicExecutionManager("mycontextid");
+        rejecting = new AtomicBoolean();
+        context = new BasicExecutionContext(em) {
+            @Override
+            protected <T> Task<T> submitInternal(Map<?, ?> properties, Object task) {
+                if (rejecting.get()) throw new RejectedExecutionException("rejecting for test");
+                return super.submitInternal(properties, task);
+            }
+        };
+    }
+    
+    @AfterMethod
+    public void tearDown() {
+        if (em != null) em.shutdownNow();
+    }
+    
+    @Test
+    public void testTriggerAfterRejectedSubmitStillRuns() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        CoalescingScheduler scheduler = new CoalescingScheduler("test", new Runnable() {
+            @Override public void run() {
+                runs.incrementAndGet();
+            }});
+        
+        rejecting.set(true);
+        try {
+            scheduler.trigger(context, Duration.ZERO);
+            fail("submit should have been rejected");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        
+        rejecting.set(false);
+        assertTrue(scheduler.trigger(context, Duration.ZERO));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(runs.get(), 1);
+            }});
+        assertEquals(scheduler.getCoalescedCount(), 0);
+    }
+}
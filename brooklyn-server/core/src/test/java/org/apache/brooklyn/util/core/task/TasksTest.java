@@ -22,26 +22,33 @@ import static org.apache.brooklyn.core.sensor.DependentConfiguration.attributeWh
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.entity.EntityFunctions;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.task.TaskInternal;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ValueResolver;
 import org.apache.brooklyn.util.guava.Functionals;
 import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -180,4 +187,61 @@ public class TasksTest extends BrooklynAppUnitTestSupport {
         assertTrue(t.get(Duration.TEN_SECONDS));
     }
 
+    @Test
+    public void testParallelBoundedRunsAtMostMaxConcurrencyAndReturnsInOrder() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Integer> started = Collections.synchronizedList(MutableList.<Integer>of());
+        List<Integer> items = ImmutableList.of(1, 2, 3, 4, 5, 6, 7);
+        Task<List<Integer>> t = Tasks.parallelBounded("test", items, 2, new Function<Integer, Task<Integer>>() {
+            @Override
+            public Task<Integer> apply(final Integer item) {
+                return Tasks.<Integer>builder().displayName("item "+item).body(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        started.add(item);
+                        int now = running.incrementAndGet();
+                        synchronized (maxRunning) {
+                            maxRunning.set(Math.max(maxRunning.get(), now));
+                        }
+                        Time.sleep(Duration.millis(20));
+                        running.decrementAndGet();
+                        return item*10;
+                    }}).build();
+            }
+        });
+        executionContext.submit(t);
+
+        assertEquals(t.get(Duration.TEN_SECONDS), ImmutableList.of(10, 20, 30, 40, 50, 60, 70));
+        assertTrue(maxRunning.get() <= 2, "max running "+maxRunning);
+        // started in order by the two workers, each taking the next item; only adjacent items can swap
+        assertEquals(ImmutableSet.copyOf(started.subList(0, 2)), ImmutableSet.of(1, 2));
+    }
+
+    @Test
+    public void testParallelBoundedRunsAllItemsBeforeFailing() throws Exception {
+        final List<Integer> ran = Collections.synchronizedList(MutableList.<Integer>of());
+        Task<List<Integer>> t = Tasks.parallelBounded("test", ImmutableList.of(1, 2, 3), 1, new Function<Integer, Task<Integer>>() {
+            @Override
+            public Task<Integer> apply(final Integer item) {
+                return Tasks.<Integer>builder().displayName("item "+item).body(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        ran.add(item);
+                        if (item==2) throw new IllegalStateException("simulated failure on "+item);
+                        return item;
+                    }}).build();
+            }
+        });
+        executionContext.submit(t);
+
+        try {
+            t.get(Duration.TEN_SECONDS);
+            Assert.fail("Expected failure");
+        } catch (Exception e) {
+            Asserts.expectedFailureContains(e, "simulated failure on 2");
+        }
+        assertEquals(ran, ImmutableList.of(1, 2, 3));
+    }
+
 }
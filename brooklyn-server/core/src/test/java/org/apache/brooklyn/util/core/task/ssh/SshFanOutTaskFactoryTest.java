@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task.ssh;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.location.ssh.SshMachineLocation;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.internal.ssh.RecordingSshTool;
+import org.apache.brooklyn.util.core.task.ssh.SshFanOutResult.MachineResult;
+import org.apache.brooklyn.util.core.task.ssh.SshFanOutResult.Outcome;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class SshFanOutTaskFactoryTest extends BrooklynAppUnitTestSupport {
+
+    private List<SshMachineLocation> machines;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        RecordingSshTool.clear();
+        machines = MutableList.of();
+        for (int i = 1; i <= 5; i++) {
+            machines.add(mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                    .configure("address", "1.2.3."+i)
+                    .configure(SshMachineLocation.SSH_TOOL_CLASS, RecordingSshTool.class.getName())));
+        }
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        RecordingSshTool.clear();
+        super.tearDown();
+    }
+
+    @Test
+    public void testRunsOnAllMachines() throws Exception {
+        SshFanOutResult result = run(new SshFanOutTaskFactory(machines, "echo hello"));
+
+        assertTrue(result.isAllSucceeded(), "result="+result);
+        assertEquals(result.getResults().size(), 5);
+        assertEquals(RecordingSshTool.execScriptCmds.size(), 5);
+        for (int i = 0; i < 5; i++) {
+            MachineResult machineResult = result.getResults().get(i);
+            assertEquals(machineResult.getMachine(), machines.get(i));
+            assertEquals(machineResult.getExitCode(), (Integer)0);
+        }
+    }
+
+    @Test
+    public void testRunsOnceOnDuplicateMachine() throws Exception {
+        SshFanOutResult result = run(new SshFanOutTaskFactory(ImmutableList.of(machines.get(0), machines.get(1), machines.get(0)), "echo hello"));
+
+        assertEquals(result.getMachines(), ImmutableList.of(machines.get(0), machines.get(1)));
+        assertTrue(result.isAllSucceeded(), "result="+result);
+        assertEquals(result.getResults().size(), 2);
+        assertEquals(RecordingSshTool.execScriptCmds.size(), 2);
+    }
+
+    @Test
+    public void testReportsFailuresWithoutFailingTask() throws Exception {
+        RecordingSshTool.customExitCodes.put("1.2.3.2", 3);
+        SshFanOutResult result = run(new SshFanOutTaskFactory(machines, "echo hello"));
+
+        assertFalse(result.isAllSucceeded());
+        assertEquals(result.getResults(Outcome.SUCCEEDED).size(), 4);
+        MachineResult failed = result.get(machines.get(1));
+        assertEquals(failed.getOutcome(), Outcome.FAILED);
+        assertEquals(failed.getExitCode(), (Integer)3);
+        assertEquals(RecordingSshTool.execScriptCmds.size(), 5);
+    }
+
+    @Test
+    public void testSkipsRemainingMachinesAfterFailureThreshold() throws Exception {
+        for (SshMachineLocation machine : machines) {
+            RecordingSshTool.customExitCodes.put(machine.getAddress().getHostName(), 1);
+        }
+        SshFanOutResult result = run(new SshFanOutTaskFactory(machines, "echo hello")
+                .maxConcurrency(1)
+                .abortAfterFailures(1));
+
+        assertTrue(result.isAborted());
+        assertTrue(result.isComplete());
+        assertEquals(result.getResults(Outcome.FAILED).size(), 1);
+        assertEquals(result.getResults(Outcome.SKIPPED).size(), 4);
+        assertEquals(RecordingSshTool.execScriptCmds.size(), 1);
+    }
+
+    @Test
+    public void testNotifiesListenerOfEachResult() throws Exception {
+        final List<MachineResult> notified = Lists.newCopyOnWriteArrayList();
+        run(new SshFanOutTaskFactory(machines, "echo hello")
+                .addResultListener(new Function<MachineResult, Void>() {
+                    @Override public Void apply(MachineResult input) {
+                        notified.add(input);
+                        return null;
+                    }}));
+
+        assertEquals(notified.size(), 5);
+    }
+
+    @Test
+    public void testPassesCommandsAndEnvironment() throws Exception {
+        run(new SshFanOutTaskFactory(ImmutableList.of(machines.get(0)), "echo $FOO", "true")
+                .environmentVariables(ImmutableMap.of("FOO", "bar")));
+
+        RecordingSshTool.ExecCmd cmd = RecordingSshTool.execScriptCmds.get(0);
+        assertEquals(cmd.commands, ImmutableList.of("echo $FOO", "true"));
+        assertEquals(cmd.env.get("FOO"), "bar");
+    }
+
+    private SshFanOutResult run(SshFanOutTaskFactory factory) throws Exception {
+        return Entities.submit(app, factory.newTask()).get();
+    }
+}
@@ -20,6 +20,8 @@ package org.apache.brooklyn.util.core.text;
 
 import static org.testng.Assert.assertEquals;
 
+import java.io.File;
+
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.sensor.DependentConfiguration;
@@ -35,7 +37,9 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
 
 public class TemplateProcessorTest extends BrooklynAppUnitTestSupport {
     private FixedLocaleTest localeFix = new FixedLocaleTest();
@@ -194,4 +198,26 @@ public class TemplateProcessorTest extends BrooklynAppUnitTestSupport {
         }
     }
 
+    @Test
+    public void testSameTemplateWithDifferentSubstitutions() {
+        String templateContents = "${a.b}-${c}";
+        assertEquals(TemplateProcessor.processTemplateContents(templateContents, ImmutableMap.of("a.b", "x", "c", "y")), "x-y");
+        assertEquals(TemplateProcessor.processTemplateContents(templateContents, ImmutableMap.of("a.b", "1", "c", "2")), "1-2");
+    }
+    
+    @Test
+    public void testTemplateFileChangesAreSeen() throws Exception {
+        File file = File.createTempFile("template", ".ftl");
+        try {
+            Files.write("first ${mykey}", file, Charsets.UTF_8);
+            assertEquals(TemplateProcessor.processTemplateFile(file.getAbsolutePath(), ImmutableMap.of("mykey", "myval")), "first myval");
+            
+            Files.write("second version ${mykey}", file, Charsets.UTF_8);
+            file.setLastModified(file.lastModified() + 2000);
+            assertEquals(TemplateProcessor.processTemplateFile(file.getAbsolutePath(), ImmutableMap.of("mykey", "myval")), "second version myval");
+        } finally {
+            file.delete();
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ package org.apache.brooklyn.core.mgmt.persist.jclouds;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
@@ -38,6 +39,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.brooklyn.location.jclouds.JcloudsLocation;
 import org.apache.brooklyn.location.jclouds.JcloudsUtil;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.exceptions.FatalConfigurationRuntimeException;
 import org.apache.brooklyn.util.text.Strings;
 
@@ -173,19 +175,38 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
     @Override
     public List<String> listContentsWithSubPath(final String parentSubPath) {
         checkPrepared();
-        return FluentIterable.from(context.getBlobStore().list(getContainerNameFirstPart(), 
-            ListContainerOptions.Builder.inDirectory(getItemInContainerSubPath(parentSubPath))))
+        return FluentIterable.from(list(parentSubPath))
                 .transform(new Function<StorageMetadata, String>() {
                     @Override
                     public String apply(@javax.annotation.Nullable StorageMetadata input) {
-                        String result = input.getName();
-                        result = Strings.removeFromStart(result, containerSubPath);
-                        result = Strings.removeFromStart(result, "/");
-                        return result;
+                        return toSubPath(input);
                     }
                 }).toList();
     }
 
+    /** uses the etag reported in the listing, so no request is made per object */
+    @Override
+    public Map<String, String> listContentsWithSubPathAndVersion(String parentSubPath) {
+        checkPrepared();
+        Map<String, String> result = MutableMap.of();
+        for (StorageMetadata item : list(parentSubPath)) {
+            result.put(toSubPath(item), Strings.emptyToNull(item.getETag()));
+        }
+        return result;
+    }
+
+    private Iterable<? extends StorageMetadata> list(String parentSubPath) {
+        return context.getBlobStore().list(getContainerNameFirstPart(), 
+            ListContainerOptions.Builder.inDirectory(getItemInContainerSubPath(parentSubPath)));
+    }
+
+    private String toSubPath(StorageMetadata item) {
+        String result = item.getName();
+        result = Strings.removeFromStart(result, containerSubPath);
+        result = Strings.removeFromStart(result, "/");
+        return result;
+    }
+
     @Override
     public void close() {
         if (context!=null)
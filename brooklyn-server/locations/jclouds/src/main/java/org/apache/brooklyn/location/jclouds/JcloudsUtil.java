@@ -31,7 +31,6 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -42,6 +41,7 @@ import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.net.Protocol;
+import org.apache.brooklyn.util.net.ReachabilityProber;
 import org.apache.brooklyn.util.net.ReachableSocketFinder;
 import org.apache.brooklyn.util.ssh.BashCommands;
 import org.apache.brooklyn.util.ssh.IptablesCommands;
@@ -89,8 +89,6 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.io.Files;
 import com.google.common.net.HostAndPort;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Module;
 
 public class JcloudsUtil implements JcloudsLocationConfig {
@@ -363,16 +361,14 @@ public class JcloudsUtil implements JcloudsLocationConfig {
                         }})
                 .toList();
         
-        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        // shared prober, so that waiting for many VMs at once uses one thread rather than one per VM per address
         try {
-            ReachableSocketFinder finder = new ReachableSocketFinder(executor);
+            ReachableSocketFinder finder = new ReachableSocketFinder(ReachabilityProber.getSharedInstance());
             HostAndPort result = finder.findOpenSocketOnNode(sockets, timeout);
             return result.getHostText();
         } catch (Exception e) {
             Exceptions.propagateIfFatal(e);
             throw new IllegalStateException("Unable to connect SshClient to "+node+"; check that the node is accessible and that the SSH key exists and is correctly configured, including any passphrase defined", e);
-        } finally {
-            executor.shutdownNow();
         }
     }
 
@@ -33,7 +33,9 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
+import org.apache.brooklyn.api.catalog.CatalogItem.CatalogItemType;
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
@@ -77,6 +79,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import com.sun.jersey.core.header.FormDataContentDisposition;
@@ -234,7 +237,7 @@ public class CatalogResource extends AbstractBrooklynRestResource implements Cat
                 Predicates.and(
                         CatalogPredicates.IS_ENTITY,
                         CatalogPredicates.<Entity, EntitySpec<?>>disabled(false));
-        List<CatalogItemSummary> result = getCatalogItemSummariesMatchingRegexFragment(filter, regex, fragment, allVersions);
+        List<CatalogItemSummary> result = getCatalogItemSummariesMatchingRegexFragment(CatalogItemType.ENTITY, filter, regex, fragment, allVersions);
         return castList(result, CatalogEntitySummary.class);
     }
 
@@ -246,7 +249,7 @@ public class CatalogResource extends AbstractBrooklynRestResource implements Cat
                         CatalogPredicates.IS_TEMPLATE,
                         CatalogPredicates.<Application,EntitySpec<? extends Application>>deprecated(false),
                         CatalogPredicates.<Application,EntitySpec<? extends Application>>disabled(false));
-        return getCatalogItemSummariesMatchingRegexFragment(filter, regex, fragment, allVersions);
+        return getCatalogItemSummariesMatchingRegexFragment(CatalogItemType.TEMPLATE, filter, regex, fragment, allVersions);
     }
 
     @Override
@@ -304,7 +307,7 @@ public class CatalogResource extends AbstractBrooklynRestResource implements Cat
                 Predicates.and(
                         CatalogPredicates.IS_POLICY,
                         CatalogPredicates.<Policy, PolicySpec<?>>disabled(false));
-        List<CatalogItemSummary> result = getCatalogItemSummariesMatchingRegexFragment(filter, regex, fragment, allVersions);
+        List<CatalogItemSummary> result = getCatalogItemSummariesMatchingRegexFragment(CatalogItemType.POLICY, filter, regex, fragment, allVersions);
         return castList(result, CatalogPolicySummary.class);
     }
 
@@ -350,7 +353,7 @@ public class CatalogResource extends AbstractBrooklynRestResource implements Cat
                 Predicates.and(
                         CatalogPredicates.IS_LOCATION,
                         CatalogPredicates.<Location, LocationSpec<?>>disabled(false));
-        List<CatalogItemSummary> result = getCatalogItemSummariesMatchingRegexFragment(filter, regex, fragment, allVersions);
+        List<CatalogItemSummary> result = getCatalogItemSummariesMatchingRegexFragment(CatalogItemType.LOCATION, filter, regex, fragment, allVersions);
         return castList(result, CatalogLocationSummary.class);
     }
 
@@ -391,25 +394,43 @@ public class CatalogResource extends AbstractBrooklynRestResource implements Cat
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private <T,SpecT> List<CatalogItemSummary> getCatalogItemSummariesMatchingRegexFragment(Predicate<CatalogItem<T,SpecT>> type, String regex, String fragment, boolean allVersions) {
+    private <T,SpecT> List<CatalogItemSummary> getCatalogItemSummariesMatchingRegexFragment(CatalogItemType kind, Predicate<CatalogItem<T,SpecT>> type, String regex, String fragment, boolean allVersions) {
         List filters = new ArrayList();
         filters.add(type);
+        // cheap (indexed) version check before matching text, as the latter serializes each item
+        if (!allVersions)
+            filters.add(CatalogPredicates.isBestVersion(mgmt()));
         if (Strings.isNonEmpty(regex))
             filters.add(CatalogPredicates.xml(StringPredicates.containsRegex(regex)));
         if (Strings.isNonEmpty(fragment))
             filters.add(CatalogPredicates.xml(StringPredicates.containsLiteralIgnoreCase(fragment)));
-        if (!allVersions)
-            filters.add(CatalogPredicates.isBestVersion(mgmt()));
         
         filters.add(CatalogPredicates.entitledToSee(mgmt()));
 
         ImmutableList<CatalogItem<Object, Object>> sortedItems =
-                FluentIterable.from(brooklyn().getCatalog().getCatalogItems())
+                FluentIterable.from(getCatalogItemCandidates(kind, fragment))
                     .filter(Predicates.and(filters))
                     .toSortedList(CatalogItemComparator.getInstance());
         return Lists.transform(sortedItems, TO_CATALOG_ITEM_SUMMARY);
     }
 
+    /** items which might be of the given kind and contain the fragment, from the catalog's indexes where available */
+    private Iterable<CatalogItem<Object, Object>> getCatalogItemCandidates(CatalogItemType kind, String fragment) {
+        BrooklynCatalog catalog = brooklyn().getCatalog();
+        if (!(catalog instanceof BasicBrooklynCatalog)) return catalog.getCatalogItems();
+        
+        BasicBrooklynCatalog indexedCatalog = (BasicBrooklynCatalog) catalog;
+        Iterable<CatalogItem<Object, Object>> result = indexedCatalog.getCatalogItemsOfKind(kind);
+        if (Strings.isNonEmpty(fragment)) {
+            Set<String> possibleIds = MutableSet.of();
+            for (CatalogItem<Object, Object> item: indexedCatalog.getCatalogItemsPossiblyContaining(fragment)) {
+                possibleIds.add(item.getId());
+            }
+            result = Iterables.filter(result, Predicates.compose(Predicates.in(possibleIds), CatalogPredicates.ID_OF_ITEM_TRANSFORMER));
+        }
+        return result;
+    }
+
     @Override
     @Deprecated
     public Response getIcon(String itemId) {
@@ -26,13 +26,16 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.brooklyn.api.entity.EntityLocal;
 import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.location.MachineLocation;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.entity.BrooklynConfigKeys;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.entity.lifecycle.ServiceStateLogic;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.ResourceUtils;
 import org.apache.brooklyn.util.core.task.DynamicTasks;
@@ -108,42 +111,7 @@ public abstract class AbstractSoftwareProcessDriver implements SoftwareProcessDr
         }
         if (!skipStart) {
             DynamicTasks.queue("install", new Runnable() { public void run() {
-
-                Optional<Boolean> locationInstalled = Optional.fromNullable(getLocation().getConfig(BrooklynConfigKeys.SKIP_ENTITY_INSTALLATION));
-                Optional<Boolean> entityInstalled = Optional.fromNullable(entity.getConfig(BrooklynConfigKeys.SKIP_ENTITY_INSTALLATION));
-                boolean skipInstall = locationInstalled.or(entityInstalled).or(false);
-                if (!skipInstall) {
-                    DynamicTasks.queue("copy-pre-install-resources", new Runnable() { public void run() {
-                        waitForConfigKey(BrooklynConfigKeys.PRE_INSTALL_RESOURCES_LATCH);
-                        copyPreInstallResources();
-                    }});
-
-                    DynamicTasks.queue("pre-install", new Runnable() { public void run() {
-                        preInstall();
-                    }});
-
-                    DynamicTasks.queue("pre-install-command", new Runnable() { public void run() {
-                        runPreInstallCommand();
-                    }});
-                    DynamicTasks.queue("setup", new Runnable() { public void run() {
-                        waitForConfigKey(BrooklynConfigKeys.SETUP_LATCH);
-                        setup();
-                    }});
-
-                    DynamicTasks.queue("copy-install-resources", new Runnable() { public void run() {
-                        waitForConfigKey(BrooklynConfigKeys.INSTALL_RESOURCES_LATCH);
-                        copyInstallResources();
-                    }});
-
-                    DynamicTasks.queue("install (main)", new Runnable() { public void run() {
-                        waitForConfigKey(BrooklynConfigKeys.INSTALL_LATCH);
-                        install();
-                    }});
-                }
-
-                DynamicTasks.queue("post-install-command", new Runnable() { public void run() {
-                    runPostInstallCommand();
-                }});
+                queueInstallSteps();
             }});
 
             DynamicTasks.queue("customize", new Runnable() { public void run() {
@@ -177,6 +145,82 @@ public abstract class AbstractSoftwareProcessDriver implements SoftwareProcessDr
         }});
     }
 
+    /**
+     * Queues the install steps: resource copying, setup, and the install and post-install commands.
+     * Each step runs with an install permit for the host (see {@link #runWithInstallPermit(Runnable)}),
+     * taken only after the step's latch has resolved.
+     */
+    protected void queueInstallSteps() {
+        Optional<Boolean> locationInstalled = Optional.fromNullable(getLocation().getConfig(BrooklynConfigKeys.SKIP_ENTITY_INSTALLATION));
+        Optional<Boolean> entityInstalled = Optional.fromNullable(entity.getConfig(BrooklynConfigKeys.SKIP_ENTITY_INSTALLATION));
+        boolean skipInstall = locationInstalled.or(entityInstalled).or(false);
+        if (!skipInstall) {
+            DynamicTasks.queue("copy-pre-install-resources", new Runnable() { public void run() {
+                waitForConfigKey(BrooklynConfigKeys.PRE_INSTALL_RESOURCES_LATCH);
+                runWithInstallPermit(new Runnable() { public void run() {
+                    copyPreInstallResources();
+                }});
+            }});
+
+            DynamicTasks.queue("pre-install", new Runnable() { public void run() {
+                runWithInstallPermit(new Runnable() { public void run() {
+                    preInstall();
+                }});
+            }});
+
+            DynamicTasks.queue("pre-install-command", new Runnable() { public void run() {
+                runWithInstallPermit(new Runnable() { public void run() {
+                    runPreInstallCommand();
+                }});
+            }});
+            DynamicTasks.queue("setup", new Runnable() { public void run() {
+                waitForConfigKey(BrooklynConfigKeys.SETUP_LATCH);
+                runWithInstallPermit(new Runnable() { public void run() {
+                    setup();
+                }});
+            }});
+
+            DynamicTasks.queue("copy-install-resources", new Runnable() { public void run() {
+                waitForConfigKey(BrooklynConfigKeys.INSTALL_RESOURCES_LATCH);
+                runWithInstallPermit(new Runnable() { public void run() {
+                    copyInstallResources();
+                }});
+            }});
+
+            DynamicTasks.queue("install (main)", new Runnable() { public void run() {
+                waitForConfigKey(BrooklynConfigKeys.INSTALL_LATCH);
+                runWithInstallPermit(new Runnable() { public void run() {
+                    install();
+                }});
+            }});
+        }
+
+        DynamicTasks.queue("post-install-command", new Runnable() { public void run() {
+            runWithInstallPermit(new Runnable() { public void run() {
+                runPostInstallCommand();
+            }});
+        }});
+    }
+
+    /**
+     * Runs an install step while holding a permit from the {@link org.apache.brooklyn.core.mgmt.internal.LifecycleConcurrencyGovernor}
+     * for the host, if installs there are limited. Latches must be resolved before calling this, so that a permit is never
+     * held while waiting on another entity (which might itself need a permit for the same host).
+     */
+    protected void runWithInstallPermit(final Runnable step) {
+        if (getLocation() instanceof MachineLocation) {
+            ((ManagementContextInternal)entity.getManagementContext()).getLifecycleConcurrencyGovernor().runWithInstallPermit(
+                    entity, (MachineLocation)getLocation(), new Callable<Void>() { public Void call() {
+                        step.run();
+                        // include any tasks the step queued (e.g. its ssh commands)
+                        if (DynamicTasks.getTaskQueuingContext()!=null) DynamicTasks.waitForLast();
+                        return null;
+                    }});
+        } else {
+            step.run();
+        }
+    }
+
     @Override
     public abstract void stop();
 
@@ -27,6 +27,7 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -64,13 +65,13 @@ import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
-import org.apache.brooklyn.util.time.CountdownTimer;
+import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.time.Duration;
-import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Functions;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -544,41 +545,22 @@ public abstract class SoftwareProcessImpl extends AbstractEntity implements Soft
     public void waitForEntityStart() {
         if (log.isDebugEnabled()) log.debug("waiting to ensure {} doesn't abort prematurely", this);
         Duration startTimeout = getConfig(START_TIMEOUT);
-        CountdownTimer timer = startTimeout.countdownTimer();
-        boolean isRunningResult = false;
-        long delay = 100;
-        Exception firstFailure = null;
-        while (!isRunningResult && timer.isNotExpired()) {
-            Time.sleep(delay);
-            try {
-                isRunningResult = driver.isRunning();
-                if (log.isDebugEnabled()) log.debug("checked {}, 'is running' returned: {}", this, isRunningResult);
-            } catch (Exception  e) {
-                Exceptions.propagateIfFatal(e);
-
-                isRunningResult = false;
-                if (driver != null) {
-                    String msg = "checked " + this + ", 'is running' threw an exception; logging subsequent exceptions at debug level";
-                    if (firstFailure == null) {
-                        log.error(msg, e);
-                    } else {
-                        log.debug(msg, e);
-                    }
-                } else {
-                    // provide extra context info, as we're seeing this happen in strange circumstances
-                    log.error(this+" concurrent start and shutdown detected", e);
-                }
-                if (firstFailure == null) {
-                    firstFailure = e;
-                }
-            }
-            // slow exponential delay -- 1.1^N means after 40 tries and 50s elapsed, it reaches the max of 5s intervals
-            // TODO use Repeater 
-            delay = Math.min(delay*11/10, 5000);
-        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        final AtomicReference<Exception> firstFailureRef = new AtomicReference<Exception>();
+        // slow exponential delay -- 1.1^N means after 40 tries and 50s elapsed, it reaches the max of 5s intervals
+        // (not using runAsync, as isRunning is typically a blocking ssh call)
+        boolean isRunningResult = Repeater.create("Waiting for "+this+" to pass is-running check")
+                .backoff(Duration.millis(100), 1.1, Duration.FIVE_SECONDS)
+                .limitTimeTo(startTimeout)
+                .until(new Callable<Boolean>() {
+                    @Override public Boolean call() {
+                        return checkRunningWhileStarting(firstFailureRef);
+                    }})
+                .run();
+        Exception firstFailure = firstFailureRef.get();
         if (!isRunningResult) {
             String msg = "Software process entity "+this+" did not pass is-running check within "+
-                    "the required "+startTimeout+" limit ("+timer.getDurationElapsed().toStringRounded()+" elapsed)";
+                    "the required "+startTimeout+" limit ("+Duration.of(stopwatch).toStringRounded()+" elapsed)";
             if (firstFailure != null) {
                 msg += "; check failed at least once with exception: " + firstFailure.getMessage() + ", see logs for details";
             }
@@ -588,6 +570,30 @@ public abstract class SoftwareProcessImpl extends AbstractEntity implements Soft
         }
     }
 
+    private boolean checkRunningWhileStarting(AtomicReference<Exception> firstFailure) {
+        try {
+            boolean isRunningResult = driver.isRunning();
+            if (log.isDebugEnabled()) log.debug("checked {}, 'is running' returned: {}", this, isRunningResult);
+            return isRunningResult;
+        } catch (Exception  e) {
+            Exceptions.propagateIfFatal(e);
+
+            if (driver != null) {
+                String msg = "checked " + this + ", 'is running' threw an exception; logging subsequent exceptions at debug level";
+                if (firstFailure.get() == null) {
+                    log.error(msg, e);
+                } else {
+                    log.debug(msg, e);
+                }
+            } else {
+                // provide extra context info, as we're seeing this happen in strange circumstances
+                log.error(this+" concurrent start and shutdown detected", e);
+            }
+            firstFailure.compareAndSet(null, e);
+            return false;
+        }
+    }
+
     /**
      * If custom behaviour is required by sub-classes, consider overriding {@link #preStart()} or {@link #postStart()})}.
      * Also consider adding additional work via tasks, executed using {@link DynamicTasks#queue(String, Callable)}.
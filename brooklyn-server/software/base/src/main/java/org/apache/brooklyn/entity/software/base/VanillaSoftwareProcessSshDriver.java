@@ -87,8 +87,19 @@ public class VanillaSoftwareProcessSshDriver extends AbstractSoftwareProcessSshD
             List<String> urls = resolver.getTargets();
             downloadedFilename = resolver.getFilename();
 
+            // prefer the management server's download cache, if enabled, so that many machines do not each download it
+            boolean installedFromCache = false;
+            for (String urlI: urls) {
+                if (ArchiveUtils.installFromCache(resource, getMachine(), urlI, Urls.mergePaths(getInstallDir(), downloadedFilename))) {
+                    installedFromCache = true;
+                    break;
+                }
+            }
+
             List<String> commands = new LinkedList<String>();
-            commands.addAll(BashCommands.commandsToDownloadUrlsAs(urls, downloadedFilename));
+            if (!installedFromCache) {
+                commands.addAll(BashCommands.commandsToDownloadUrlsAs(urls, downloadedFilename));
+            }
             commands.addAll(ArchiveUtils.installCommands(downloadedFilename));
 
             int result = newScript(ImmutableMap.of(INSTALL_INCOMPLETE, true), INSTALLING)
@@ -58,6 +58,8 @@ import org.apache.brooklyn.core.location.Machines;
 import org.apache.brooklyn.core.location.cloud.CloudLocationConfig;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
+import org.apache.brooklyn.core.mgmt.internal.LifecycleConcurrencyGovernor;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.entity.machine.MachineInitTasks;
 import org.apache.brooklyn.entity.machine.ProvidesProvisioningFlags;
 import org.apache.brooklyn.entity.software.base.SoftwareProcess;
@@ -377,7 +379,10 @@ public abstract class MachineLifecycleEffectorTasks {
             entity().sensors().set(SoftwareProcess.PROVISIONING_LOCATION, location);
             MachineLocation machine;
             try {
-                machine = Tasks.withBlockingDetails("Provisioning machine in " + location, new ObtainLocationTask(location, flags));
+                machine = getLifecycleConcurrencyGovernor().runWithProvisioningPermit(entity(), location, new Callable<MachineLocation>() {
+                    public MachineLocation call() throws Exception {
+                        return Tasks.withBlockingDetails("Provisioning machine in " + location, new ObtainLocationTask(location, flags));
+                    }});
                 if (machine == null)
                     throw new NoMachinesAvailableException("Failed to obtain machine in " + location.toString());
             } catch (Exception e) {
@@ -882,6 +887,19 @@ public abstract class MachineLifecycleEffectorTasks {
      */
     protected abstract String stopProcessesAtMachine();
 
+    /** Releases the machine, subject to the provisioning concurrency limit of the provisioner. */
+    protected void releaseMachine(final MachineProvisioningLocation<MachineLocation> provisioner, final MachineLocation machine) {
+        getLifecycleConcurrencyGovernor().runWithProvisioningPermit(entity(), provisioner, new Callable<Void>() {
+            public Void call() {
+                provisioner.release(machine);
+                return null;
+            }});
+    }
+
+    protected LifecycleConcurrencyGovernor getLifecycleConcurrencyGovernor() {
+        return ((ManagementContextInternal)entity().getManagementContext()).getLifecycleConcurrencyGovernor();
+    }
+
     /**
      * Stop and release the {@link MachineLocation} the entity is provisioned at.
      * <p>
@@ -909,7 +927,7 @@ public abstract class MachineLifecycleEffectorTasks {
         }
         
         clearEntityLocationAttributes(machine);
-        provisioner.release((MachineLocation)machine);
+        releaseMachine(provisioner, (MachineLocation)machine);
 
         return new StopMachineDetails<Integer>("Decommissioned "+machine, 1);
     }
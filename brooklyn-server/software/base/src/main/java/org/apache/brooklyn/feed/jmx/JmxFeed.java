@@ -20,10 +20,12 @@ package org.apache.brooklyn.feed.jmx;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import javax.management.Notification;
@@ -32,6 +34,7 @@ import javax.management.NotificationListener;
 import javax.management.ObjectName;
 
 import org.apache.brooklyn.api.entity.EntityLocal;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.feed.AbstractFeed;
@@ -39,14 +42,21 @@ import org.apache.brooklyn.core.feed.AttributePollHandler;
 import org.apache.brooklyn.core.feed.DelegatingPollHandler;
 import org.apache.brooklyn.core.feed.PollHandler;
 import org.apache.brooklyn.core.feed.Poller;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.entity.java.UsesJmx;
 import org.apache.brooklyn.entity.software.base.SoftwareProcessImpl;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
@@ -117,6 +127,19 @@ public class JmxFeed extends AbstractFeed {
         return new Builder();
     }
     
+    /**
+     * The sensor on which the metrics of a {@link JmxNotificationSubscriptionConfig#buffered(int) buffered} subscription
+     * to the given sensor are published, each time they change: the counts and delays described in {@link #getNotificationMetrics()},
+     * for that subscription's buffer.
+     */
+    @Beta
+    @SuppressWarnings("serial")
+    public static AttributeSensor<Map<String, Long>> notificationMetricsSensor(AttributeSensor<?> sensor) {
+        return Sensors.newSensor(new TypeToken<Map<String, Long>>() {}, 
+                sensor.getName()+".notifications.metrics", 
+                "Metrics of the buffered JMX notifications published on "+sensor.getName());
+    }
+    
     public static class Builder {
         private EntityLocal entity;
         private JmxHelper helper;
@@ -177,8 +200,28 @@ public class JmxFeed extends AbstractFeed {
         }
     }
 
+    /**
+     * Helpers created for feeds that were not given one, keyed by entity, JMX URL and credentials, so that all such feeds
+     * of an entity share one connection; reference-counted (acquired when a feed starts, released when it stops),
+     * and terminated when the last feed stops.
+     */
+    private static final Map<List<?>, SharedHelper> sharedHelpers = Maps.newLinkedHashMap();
+
+    private static class SharedHelper {
+        final JmxHelper helper;
+        int count;
+        SharedHelper(JmxHelper helper) {
+            this.helper = helper;
+        }
+    }
+
     private final SetMultimap<ObjectName, NotificationListener> notificationListeners = HashMultimap.create();
 
+    private final List<JmxNotificationBuffer> notificationBuffers = new CopyOnWriteArrayList<JmxNotificationBuffer>();
+
+    /** the key of the shared helper this feed has acquired, if any */
+    private transient volatile List<?> sharedHelperKey;
+
     /**
      * For rebind; do not call directly; use builder
      */
@@ -227,10 +270,9 @@ public class JmxFeed extends AbstractFeed {
     @Override
     public void setEntity(EntityLocal entity) {
         if (getConfig(HELPER) == null) {
-            JmxHelper helper = new JmxHelper(entity);
-            setConfig(HELPER, helper);
-            setConfig(OWN_HELPER, true);
-            setConfig(JMX_URI, helper.getUrl());
+            // the shared helper is only acquired on start, so that a feed which is never started does not hold it
+            String url = JmxHelper.toJmxUrl(entity);
+            setConfig(JMX_URI, url);
         }
         super.setEntity(entity);
     }
@@ -239,6 +281,31 @@ public class JmxFeed extends AbstractFeed {
         return getConfig(JMX_URI);
     }
     
+    /**
+     * Returns counts of the notifications received, published, dropped, coalesced and currently buffered by the
+     * {@link JmxNotificationSubscriptionConfig#buffered(int) buffered} subscriptions of this feed, and the total and
+     * maximum time in milliseconds that published notifications were delayed by buffering.
+     * Each subscription's own metrics are also published as a sensor; see {@link #notificationMetricsSensor(AttributeSensor)}.
+     */
+    @Beta
+    public Map<String, Long> getNotificationMetrics() {
+        Map<String, Long> result = Maps.newLinkedHashMap(ImmutableMap.<String, Long>builder()
+                .put("received", 0L).put("published", 0L).put("dropped", 0L).put("coalesced", 0L).put("buffered", 0L)
+                .put("totalDelayMillis", 0L).put("maxDelayMillis", 0L)
+                .build());
+        for (JmxNotificationBuffer buffer : notificationBuffers) {
+            for (Map.Entry<String, Long> entry : buffer.getMetrics().entrySet()) {
+                Long existing = result.get(entry.getKey());
+                if (entry.getKey().equals("maxDelayMillis")) {
+                    result.put(entry.getKey(), Math.max(existing, entry.getValue()));
+                } else {
+                    result.put(entry.getKey(), existing + entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+    
     protected JmxHelper getHelper() {
         return getConfig(HELPER);
     }
@@ -255,6 +322,17 @@ public class JmxFeed extends AbstractFeed {
     
     @Override
     protected void preStart() {
+        if (getConfig(HELPER) == null) {
+            EntityLocal entity = getEntity();
+            List<?> key = Arrays.asList(entity.getId(), JmxHelper.toJmxUrl(entity), 
+                    entity.getAttribute(UsesJmx.JMX_USER), entity.getAttribute(UsesJmx.JMX_PASSWORD));
+            JmxHelper helper = acquireSharedHelper(key, entity);
+            sharedHelperKey = key;
+            setConfig(HELPER, helper);
+            setConfig(OWN_HELPER, false);
+            setConfig(JMX_URI, helper.getUrl());
+        }
+        
         /*
          * All actions on the JmxHelper are done async (through the poller's threading) so we don't 
          * block on start/rebind if the entity is unreachable 
@@ -273,12 +351,14 @@ public class JmxFeed extends AbstractFeed {
            });
         
         for (final NotificationFilter filter : notificationSubscriptions.keySet()) {
+            // the listener is created here, as a buffered one needs its publishing scheduled before the poller starts
+            final Set<JmxNotificationSubscriptionConfig<?>> configs = notificationSubscriptions.get(filter);
+            final NotificationListener listener = newNotificationListener(configs);
             getPoller().submit(new Callable<Void>() {
                 public Void call() {
                     // TODO Could config.getObjectName have wildcards? Is this code safe?
-                    Set<JmxNotificationSubscriptionConfig<?>> configs = notificationSubscriptions.get(filter);
-                    NotificationListener listener = registerNotificationListener(configs);
                     ObjectName objectName = Iterables.get(configs, 0).getObjectName();
+                    getHelper().addNotificationListener(objectName, listener, filter);
                     notificationListeners.put(objectName, listener);
                     return null;
                 }
@@ -286,9 +366,25 @@ public class JmxFeed extends AbstractFeed {
             });
         }
         
-        // Setup polling of sensors
-        for (final String jmxAttributeName : attributePolls.keys()) {
-            registerAttributePoller(attributePolls.get(jmxAttributeName));
+        // Setup polling of sensors; attributes of the same MBean polled at the same period are read in one call
+        Map<List<?>, Map<String, Set<JmxAttributePollConfig<?>>>> attributePollsByMBean = Maps.newLinkedHashMap();
+        for (final String jmxAttributeName : attributePolls.keySet()) {
+            Set<JmxAttributePollConfig<?>> configs = attributePolls.get(jmxAttributeName);
+            JmxAttributePollConfig<?> config = Iterables.get(configs, 0);
+            List<?> group = ImmutableList.of(config.getObjectName(), minPeriod(configs));
+            Map<String, Set<JmxAttributePollConfig<?>>> groupPolls = attributePollsByMBean.get(group);
+            if (groupPolls == null) {
+                groupPolls = Maps.newLinkedHashMap();
+                attributePollsByMBean.put(group, groupPolls);
+            }
+            groupPolls.put(config.getAttributeName(), configs);
+        }
+        for (Map<String, Set<JmxAttributePollConfig<?>>> groupPolls : attributePollsByMBean.values()) {
+            if (groupPolls.size() == 1) {
+                registerAttributePoller(Iterables.getOnlyElement(groupPolls.values()));
+            } else {
+                registerAttributesPoller(groupPolls);
+            }
         }
         
         // Setup polling of operations
@@ -305,6 +401,7 @@ public class JmxFeed extends AbstractFeed {
             unregisterNotificationListener(entry.getKey(), entry.getValue());
         }
         notificationListeners.clear();
+        notificationBuffers.clear();
     }
     
     @Override
@@ -312,7 +409,58 @@ public class JmxFeed extends AbstractFeed {
         super.postStop();
         JmxHelper helper = getHelper();
         Boolean ownHelper = getConfig(OWN_HELPER);
-        if (helper != null && ownHelper) helper.terminate();
+        if (helper != null && Boolean.TRUE.equals(ownHelper)) helper.terminate();
+        releaseSharedHelper();
+    }
+    
+    @Override
+    public void stop() {
+        super.stop();
+        // in case start failed, or was never reached, after the shared helper was acquired
+        releaseSharedHelper();
+    }
+    
+    private void releaseSharedHelper() {
+        List<?> key;
+        synchronized (sharedHelpers) {
+            key = sharedHelperKey;
+            sharedHelperKey = null;
+        }
+        if (key != null) {
+            setConfig(HELPER, null);
+            releaseSharedHelper(key);
+        }
+    }
+    
+    @VisibleForTesting
+    static int getSharedHelperCount() {
+        synchronized (sharedHelpers) {
+            return sharedHelpers.size();
+        }
+    }
+    
+    private static JmxHelper acquireSharedHelper(List<?> key, EntityLocal entity) {
+        synchronized (sharedHelpers) {
+            SharedHelper shared = sharedHelpers.get(key);
+            if (shared == null) {
+                shared = new SharedHelper(new JmxHelper(entity));
+                sharedHelpers.put(key, shared);
+            }
+            shared.count++;
+            return shared.helper;
+        }
+    }
+    
+    private static void releaseSharedHelper(List<?> key) {
+        JmxHelper toTerminate = null;
+        synchronized (sharedHelpers) {
+            SharedHelper shared = sharedHelpers.get(key);
+            if (shared != null && --shared.count <= 0) {
+                sharedHelpers.remove(key);
+                toTerminate = shared.helper;
+            }
+        }
+        if (toTerminate != null) toTerminate.terminate();
     }
     
     /**
@@ -373,13 +521,114 @@ public class JmxFeed extends AbstractFeed {
     }
 
     /**
-     * Registers to subscribe to notifications for an ObjectName, where all the given configs are for that same ObjectName + filter.
+     * Registers to poll several jmx-attributes of an ObjectName in a single call, where the given configs
+     * (keyed by attribute name) are all for that same ObjectName and have the same minimum period.
      */
-    private NotificationListener registerNotificationListener(Set<JmxNotificationSubscriptionConfig<?>> configs) {
+    private void registerAttributesPoller(Map<String, Set<JmxAttributePollConfig<?>>> configsByAttribute) {
+        Map<String, PollHandler<Object>> handlers = Maps.newLinkedHashMap();
+        long minPeriod = Integer.MAX_VALUE;
+        
+        final ObjectName objectName = Iterables.get(Iterables.get(configsByAttribute.values(), 0), 0).getObjectName();
+        final List<String> jmxAttributeNames = ImmutableList.copyOf(configsByAttribute.keySet());
+        
+        for (Map.Entry<String, Set<JmxAttributePollConfig<?>>> entry : configsByAttribute.entrySet()) {
+            Set<AttributePollHandler<? super Object>> attributeHandlers = Sets.newLinkedHashSet();
+            for (JmxAttributePollConfig<?> config : entry.getValue()) {
+                attributeHandlers.add(new AttributePollHandler<Object>(config, getEntity(), this));
+            }
+            handlers.put(entry.getKey(), new DelegatingPollHandler<Object>(attributeHandlers));
+            minPeriod = Math.min(minPeriod, minPeriod(entry.getValue()));
+        }
+        
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Poller<Map<String, Object>> poller = (Poller) getPoller();
+        poller.scheduleAtFixedRate(
+                new Callable<Map<String, Object>>() {
+                    public Map<String, Object> call() throws Exception {
+                        if (log.isTraceEnabled()) log.trace("jmx attributes polling for {} sensors at {} -> {}", new Object[] {getEntity(), getJmxUri(), jmxAttributeNames});
+                        return getHelper().getAttributes(objectName, jmxAttributeNames);
+                    }
+                }, 
+                new AttributesPollHandler(objectName, handlers), minPeriod);
+    }
+
+    private static long minPeriod(Set<? extends JmxAttributePollConfig<?>> configs) {
+        long result = Integer.MAX_VALUE;
+        for (JmxAttributePollConfig<?> config : configs) {
+            if (config.getPeriod() > 0) result = Math.min(result, config.getPeriod());
+        }
+        return result;
+    }
+
+    /**
+     * Passes each value of a bulk attribute read to the handlers for that attribute. An attribute missing from the
+     * result (i.e. which could not be read) is read on its own, so its handlers see the same error as when polled individually.
+     */
+    private class AttributesPollHandler implements PollHandler<Map<String, Object>> {
+        private final ObjectName objectName;
+        private final Map<String, PollHandler<Object>> handlers;
+
+        AttributesPollHandler(ObjectName objectName, Map<String, PollHandler<Object>> handlers) {
+            this.objectName = objectName;
+            this.handlers = handlers;
+        }
+
+        @Override
+        public boolean checkSuccess(Map<String, Object> val) {
+            return true;
+        }
+
+        @Override
+        public void onSuccess(Map<String, Object> vals) {
+            for (Map.Entry<String, PollHandler<Object>> entry : handlers.entrySet()) {
+                PollHandler<Object> handler = entry.getValue();
+                try {
+                    Object val;
+                    if (vals == null) {
+                        val = null;
+                    } else if (vals.containsKey(entry.getKey())) {
+                        val = vals.get(entry.getKey());
+                    } else {
+                        val = getHelper().getAttribute(objectName, entry.getKey());
+                    }
+                    if (handler.checkSuccess(val)) {
+                        handler.onSuccess(val);
+                    } else {
+                        handler.onFailure(val);
+                    }
+                } catch (Exception e) {
+                    handler.onException(e);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Map<String, Object> val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<Object> handler : handlers.values()) {
+                handler.onException(exception);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            return "jmx["+objectName+" "+handlers.keySet()+"]";
+        }
+    }
+
+    /**
+     * Creates the listener for notifications for an ObjectName, where all the given configs are for that same ObjectName + filter.
+     * If the first config is {@link JmxNotificationSubscriptionConfig#buffered(int) buffered}, notifications are queued
+     * and published in batches by the poller; otherwise they are published on the JMX client's thread.
+     */
+    private NotificationListener newNotificationListener(Set<JmxNotificationSubscriptionConfig<?>> configs) {
         final List<AttributePollHandler<? super javax.management.Notification>> handlers = Lists.newArrayList();
 
-        final ObjectName objectName = Iterables.get(configs, 0).getObjectName();
-        final NotificationFilter filter = Iterables.get(configs, 0).getNotificationFilter();
+        final JmxNotificationSubscriptionConfig<?> firstConfig = Iterables.get(configs, 0);
 
         for (final JmxNotificationSubscriptionConfig<?> config : configs) {
             AttributePollHandler<javax.management.Notification> handler = new AttributePollHandler<javax.management.Notification>(config, getEntity(), this) {
@@ -398,14 +647,92 @@ public class JmxFeed extends AbstractFeed {
         }
         final PollHandler<javax.management.Notification> compoundHandler = new DelegatingPollHandler<javax.management.Notification>(handlers);
         
-        NotificationListener listener = new NotificationListener() {
-            @Override public void handleNotification(Notification notification, Object handback) {
-                compoundHandler.onSuccess(notification);
-            }
-        };
-        getHelper().addNotificationListener(objectName, listener, filter);
+        if (firstConfig.getBufferSize() <= 0) {
+            return new NotificationListener() {
+                @Override public void handleNotification(Notification notification, Object handback) {
+                    compoundHandler.onSuccess(notification);
+                }
+            };
+        }
+        
+        final JmxNotificationBuffer buffer = new JmxNotificationBuffer(firstConfig);
+        notificationBuffers.add(buffer);
+        
+        List<AttributeSensor<Map<String, Long>>> metricsSensors = Lists.newArrayList();
+        for (JmxNotificationSubscriptionConfig<?> config : configs) {
+            metricsSensors.add(notificationMetricsSensor(config.getSensor()));
+        }
         
-        return listener;
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Poller<List<Notification>> poller = (Poller) getPoller();
+        poller.scheduleAtFixedRate(
+                new Callable<List<Notification>>() {
+                    public List<Notification> call() {
+                        return buffer.drain();
+                    }
+                },
+                new NotificationBatchHandler(firstConfig.getObjectName(), compoundHandler, buffer, getEntity(), metricsSensors),
+                firstConfig.getPublishPeriod());
+        return buffer;
+    }
+    
+    /**
+     * Publishes each of a batch of buffered notifications, in the order they were received,
+     * then the buffer's metrics if they have changed.
+     */
+    private static class NotificationBatchHandler implements PollHandler<List<Notification>> {
+        private final ObjectName objectName;
+        private final PollHandler<Notification> delegate;
+        private final JmxNotificationBuffer buffer;
+        private final EntityLocal entity;
+        private final List<AttributeSensor<Map<String, Long>>> metricsSensors;
+        private Map<String, Long> lastMetrics;
+
+        NotificationBatchHandler(ObjectName objectName, PollHandler<Notification> delegate, JmxNotificationBuffer buffer,
+                EntityLocal entity, List<AttributeSensor<Map<String, Long>>> metricsSensors) {
+            this.objectName = objectName;
+            this.delegate = delegate;
+            this.buffer = buffer;
+            this.entity = entity;
+            this.metricsSensors = ImmutableList.copyOf(metricsSensors);
+        }
+
+        @Override
+        public boolean checkSuccess(List<Notification> val) {
+            return true;
+        }
+
+        @Override
+        public void onSuccess(List<Notification> notifications) {
+            for (Notification notification : notifications) {
+                delegate.onSuccess(notification);
+            }
+            publishMetrics();
+        }
+
+        private void publishMetrics() {
+            Map<String, Long> metrics = buffer.getMetrics();
+            if (metrics.equals(lastMetrics)) return;
+            lastMetrics = metrics;
+            for (AttributeSensor<Map<String, Long>> sensor : metricsSensors) {
+                entity.sensors().set(sensor, metrics);
+            }
+        }
+
+        @Override
+        public void onFailure(List<Notification> notifications) {
+            onSuccess(notifications);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            delegate.onException(exception);
+        }
+
+        @Override
+        public String getDescription() {
+            return "jmx-notifications["+objectName+"]";
+        }
     }
     
     private void unregisterNotificationListener(ObjectName objectName, NotificationListener listener) {
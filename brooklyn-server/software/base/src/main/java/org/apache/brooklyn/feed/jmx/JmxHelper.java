@@ -27,16 +27,20 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -74,11 +78,13 @@ import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 
 public class JmxHelper {
 
@@ -163,6 +169,10 @@ public class JmxHelper {
     // Tracks the MBeans we have failed to find for this JmsHelper's connection URL (so can log just once for each)
     private final Set<ObjectName> notFoundMBeans;
 
+    // Object name patterns already resolved to a single MBean, so attribute reads need not query each time;
+    // cleared on disconnect, and an entry is discarded if reading from the resolved MBean fails
+    private final Map<ObjectName, ObjectName> resolvedObjectNames = new ConcurrentHashMap<ObjectName, ObjectName>();
+
     public JmxHelper(EntityLocal entity) {
         this(toJmxUrl(entity), entity, entity.getAttribute(UsesJmx.JMX_USER), entity.getAttribute(UsesJmx.JMX_PASSWORD));
         
@@ -429,6 +439,7 @@ public class JmxHelper {
     
     protected void disconnectNow() {
         triedConnecting = false;
+        resolvedObjectNames.clear();
         if (connector != null) {
             if (LOG.isDebugEnabled()) LOG.debug("Disconnecting from JMX URL {}", url);
             try {
@@ -600,13 +611,18 @@ public class JmxHelper {
     /**
      * Returns a specific attribute for a JMX {@link ObjectName}.
      */
-    public Object getAttribute(ObjectName objectName, final String attribute) {
-        final ObjectName realObjectName = toLiteralObjectName(objectName);
+    public Object getAttribute(final ObjectName objectName, final String attribute) {
+        final ObjectName realObjectName = toLiteralObjectNameCached(objectName);
         
         if (realObjectName != null) {
             Object result = invokeWithReconnect(new Callable<Object>() {
                     public Object call() throws Exception {
-                        return getConnectionOrFail().getAttribute(realObjectName, attribute);
+                        try {
+                            return getConnectionOrFail().getAttribute(realObjectName, attribute);
+                        } catch (Exception e) {
+                            resolvedObjectNames.remove(objectName);
+                            throw e;
+                        }
                     }});
 
             if (LOG.isTraceEnabled()) LOG.trace("From {}, for jmx attribute {}.{}, got value {}", new Object[] {url, objectName.getCanonicalName(), attribute, result});
@@ -616,6 +632,48 @@ public class JmxHelper {
         }
     }
 
+    /**
+     * Returns the given attributes of a JMX {@link ObjectName}, read in a single call, keyed by attribute name.
+     * Any attributes which could not be read are absent from the result (use {@link #getAttribute(ObjectName, String)}
+     * to find out why). Returns null if no MBean matches the object name.
+     */
+    @Beta
+    public Map<String, Object> getAttributes(final ObjectName objectName, final Collection<String> attributes) {
+        final ObjectName realObjectName = toLiteralObjectNameCached(objectName);
+        
+        if (realObjectName != null) {
+            AttributeList list = invokeWithReconnect(new Callable<AttributeList>() {
+                    public AttributeList call() throws Exception {
+                        try {
+                            return getConnectionOrFail().getAttributes(realObjectName, attributes.toArray(new String[attributes.size()]));
+                        } catch (Exception e) {
+                            resolvedObjectNames.remove(objectName);
+                            throw e;
+                        }
+                    }});
+
+            Map<String, Object> result = Maps.newLinkedHashMap();
+            for (Attribute attribute : list.asList()) {
+                result.put(attribute.getName(), attribute.getValue());
+            }
+            if (LOG.isTraceEnabled()) LOG.trace("From {}, for jmx attributes {}.{}, got values {}", new Object[] {url, objectName.getCanonicalName(), attributes, result});
+            return result;
+        } else {
+            return null;
+        }
+    }
+
+    /** as {@link #toLiteralObjectName(ObjectName)}, but re-using the result of resolving a pattern previously */
+    private ObjectName toLiteralObjectNameCached(ObjectName objectName) {
+        if (!checkNotNull(objectName, "objectName").isPattern()) return objectName;
+        ObjectName result = resolvedObjectNames.get(objectName);
+        if (result == null) {
+            result = toLiteralObjectName(objectName);
+            if (result != null) resolvedObjectNames.put(objectName, result);
+        }
+        return result;
+    }
+
     public void setAttribute(String objectName, String attribute, Object val) {
         setAttribute(createObjectName(objectName), attribute, val);
     }
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.feed.jmx;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Notification;
+import javax.management.NotificationListener;
+
+import org.apache.brooklyn.feed.jmx.JmxNotificationSubscriptionConfig.OverflowPolicy;
+import org.apache.brooklyn.util.collections.MutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Buffers the notifications received for a JMX subscription, so that the JMX client's thread only has to queue them;
+ * they are then handed over in batches by {@link #drain()}, e.g. from the feed's poller.
+ * <p>
+ * The buffer is bounded: when full, either the oldest or the newest notification is dropped. If coalescing by type,
+ * a notification replaces any buffered one of the same type, so only the latest of each type is published.
+ * Both can be set for particular notification types, overriding the defaults for all other types.
+ */
+class JmxNotificationBuffer implements NotificationListener {
+
+    private static class Entry {
+        final Notification notification;
+        final long receivedNanos;
+
+        Entry(Notification notification, long receivedNanos) {
+            this.notification = notification;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    private final int maxSize;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean coalesceByType;
+    private final Map<String, OverflowPolicy> overflowPolicyByNotificationType;
+    private final Map<String, Boolean> coalesceByNotificationType;
+
+    // keyed by notification type if coalescing, otherwise by order of arrival; guarded by itself
+    private final LinkedHashMap<Object, Entry> buffer = new LinkedHashMap<Object, Entry>();
+    private long nextKey;
+
+    private long received;
+    private long published;
+    private long dropped;
+    private long coalesced;
+    private long totalDelayMillis;
+    private long maxDelayMillis;
+
+    JmxNotificationBuffer(int maxSize, OverflowPolicy overflowPolicy, boolean coalesceByType) {
+        this(maxSize, overflowPolicy, coalesceByType, ImmutableMap.<String, OverflowPolicy>of(), ImmutableMap.<String, Boolean>of());
+    }
+
+    JmxNotificationBuffer(JmxNotificationSubscriptionConfig<?> config) {
+        this(config.getBufferSize(), config.getOverflowPolicy(), config.isCoalesceByType(),
+                config.getOverflowPolicyByNotificationType(), config.getCoalesceByNotificationType());
+    }
+
+    JmxNotificationBuffer(int maxSize, OverflowPolicy overflowPolicy, boolean coalesceByType,
+            Map<String, OverflowPolicy> overflowPolicyByNotificationType, Map<String, Boolean> coalesceByNotificationType) {
+        checkArgument(maxSize > 0, "maxSize must be positive, but was %s", maxSize);
+        this.maxSize = maxSize;
+        this.overflowPolicy = checkNotNull(overflowPolicy, "overflowPolicy");
+        this.coalesceByType = coalesceByType;
+        this.overflowPolicyByNotificationType = ImmutableMap.copyOf(overflowPolicyByNotificationType);
+        this.coalesceByNotificationType = ImmutableMap.copyOf(coalesceByNotificationType);
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        Entry entry = new Entry(notification, System.nanoTime());
+        synchronized (buffer) {
+            received++;
+            String type = notification.getType();
+            Object key = isCoalesced(type) ? type : Long.valueOf(nextKey++);
+            if (buffer.remove(key) != null) {
+                coalesced++;
+            } else if (buffer.size() >= maxSize) {
+                dropped++;
+                if (getOverflowPolicy(type) == OverflowPolicy.DROP_NEWEST) return;
+                Iterator<Entry> oldest = buffer.values().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            buffer.put(key, entry);
+        }
+    }
+
+    private boolean isCoalesced(String type) {
+        Boolean result = (type == null) ? null : coalesceByNotificationType.get(type);
+        return (result != null) ? result : coalesceByType;
+    }
+
+    private OverflowPolicy getOverflowPolicy(String type) {
+        OverflowPolicy result = (type == null) ? null : overflowPolicyByNotificationType.get(type);
+        return (result != null) ? result : overflowPolicy;
+    }
+
+    /**
+     * Removes and returns all buffered notifications, in the order they were received.
+     */
+    List<Notification> drain() {
+        synchronized (buffer) {
+            if (buffer.isEmpty()) return ImmutableList.of();
+
+            long now = System.nanoTime();
+            List<Notification> result = MutableList.of();
+            for (Entry entry : buffer.values()) {
+                long delayMillis = TimeUnit.NANOSECONDS.toMillis(now - entry.receivedNanos);
+                totalDelayMillis += delayMillis;
+                maxDelayMillis = Math.max(maxDelayMillis, delayMillis);
+                result.add(entry.notification);
+            }
+            published += result.size();
+            buffer.clear();
+            return result;
+        }
+    }
+
+    /**
+     * Returns counts of the notifications received, published, dropped (on overflow), coalesced and currently buffered,
+     * and the total and maximum time in milliseconds that published notifications spent in the buffer.
+     */
+    Map<String, Long> getMetrics() {
+        synchronized (buffer) {
+            return ImmutableMap.<String, Long>builder()
+                    .put("received", received)
+                    .put("published", published)
+                    .put("dropped", dropped)
+                    .put("coalesced", coalesced)
+                    .put("buffered", (long) buffer.size())
+                    .put("totalDelayMillis", totalDelayMillis)
+                    .put("maxDelayMillis", maxDelayMillis)
+                    .build();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JmxNotificationBuffer[maxSize="+maxSize+"; overflow="+overflowPolicy+(coalesceByType ? "; coalesceByType" : "")
+                +(overflowPolicyByNotificationType.isEmpty() ? "" : "; overflowByType="+overflowPolicyByNotificationType)
+                +(coalesceByNotificationType.isEmpty() ? "" : "; coalesceByType="+coalesceByNotificationType)+"]";
+    }
+}
@@ -18,6 +18,11 @@
  */
 package org.apache.brooklyn.feed.jmx;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+
 import javax.management.MalformedObjectNameException;
 import javax.management.Notification;
 import javax.management.NotificationFilter;
@@ -26,15 +31,34 @@ import javax.management.ObjectName;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.core.feed.FeedConfig;
 import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableMap;
 
 public class JmxNotificationSubscriptionConfig<T> extends FeedConfig<javax.management.Notification, T, JmxNotificationSubscriptionConfig<T>>{
 
+    /** What to do with a notification received when the buffer is full; see {@link #buffered(int)}. */
+    @Beta
+    public enum OverflowPolicy {
+        /** Discard the oldest buffered notification to make room. */
+        DROP_OLDEST,
+        /** Discard the notification just received. */
+        DROP_NEWEST
+    }
+
     private ObjectName objectName;
     private NotificationFilter notificationFilter;
     private Function<Notification, T> onNotification;
+    private int bufferSize;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private boolean coalesceByType;
+    private Map<String, OverflowPolicy> overflowPolicyByNotificationType = MutableMap.of();
+    private Map<String, Boolean> coalesceByNotificationType = MutableMap.of();
+    private Duration publishPeriod = Duration.millis(500);
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public JmxNotificationSubscriptionConfig(AttributeSensor<T> sensor) {
@@ -47,6 +71,12 @@ public class JmxNotificationSubscriptionConfig<T> extends FeedConfig<javax.manag
         this.objectName = other.objectName;
         this.notificationFilter = other.notificationFilter;
         this.onNotification = other.onNotification;
+        this.bufferSize = other.bufferSize;
+        this.overflowPolicy = other.overflowPolicy;
+        this.coalesceByType = other.coalesceByType;
+        this.overflowPolicyByNotificationType = MutableMap.copyOf(other.overflowPolicyByNotificationType);
+        this.coalesceByNotificationType = MutableMap.copyOf(other.coalesceByNotificationType);
+        this.publishPeriod = other.publishPeriod;
     }
 
     public ObjectName getObjectName() {
@@ -61,6 +91,32 @@ public class JmxNotificationSubscriptionConfig<T> extends FeedConfig<javax.manag
         return onNotification;
     }
     
+    public int getBufferSize() {
+        return bufferSize;
+    }
+    
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    
+    public boolean isCoalesceByType() {
+        return coalesceByType;
+    }
+    
+    /** the overflow policies set for particular notification types, overriding {@link #getOverflowPolicy()} */
+    public Map<String, OverflowPolicy> getOverflowPolicyByNotificationType() {
+        return ImmutableMap.copyOf(overflowPolicyByNotificationType);
+    }
+    
+    /** whether to coalesce particular notification types, overriding {@link #isCoalesceByType()} */
+    public Map<String, Boolean> getCoalesceByNotificationType() {
+        return ImmutableMap.copyOf(coalesceByNotificationType);
+    }
+    
+    public Duration getPublishPeriod() {
+        return publishPeriod;
+    }
+    
     public JmxNotificationSubscriptionConfig<T> objectName(ObjectName val) {
         this.objectName = val; return this;
     }
@@ -81,6 +137,65 @@ public class JmxNotificationSubscriptionConfig<T> extends FeedConfig<javax.manag
         this.onNotification = val; return this;
     }
 
+    /**
+     * Queues notifications as they arrive, holding at most the given number, rather than handling each on the
+     * JMX client's thread; the buffer is published in a batch every {@link #publishPeriod(Duration)}.
+     * Zero (the default) means unbuffered.
+     * <p>
+     * When subscriptions share a notification filter, the buffering of the first one applies to them all.
+     */
+    @Beta
+    public JmxNotificationSubscriptionConfig<T> buffered(int maxSize) {
+        checkArgument(maxSize >= 0, "maxSize must not be negative, but was %s", maxSize);
+        this.bufferSize = maxSize; return this;
+    }
+
+    /**
+     * For a {@link #buffered(int)} subscription, which notification to drop when the buffer is full,
+     * unless {@link #overflowPolicy(String, OverflowPolicy) set} for the type of the notification received.
+     */
+    @Beta
+    public JmxNotificationSubscriptionConfig<T> overflowPolicy(OverflowPolicy val) {
+        this.overflowPolicy = checkNotNull(val, "overflowPolicy"); return this;
+    }
+
+    /**
+     * For a {@link #buffered(int)} subscription, which notification to drop when a notification of the given type
+     * is received while the buffer is full.
+     */
+    @Beta
+    public JmxNotificationSubscriptionConfig<T> overflowPolicy(String notificationType, OverflowPolicy val) {
+        overflowPolicyByNotificationType.put(checkNotNull(notificationType, "notificationType"), checkNotNull(val, "overflowPolicy"));
+        return this;
+    }
+
+    /**
+     * For a {@link #buffered(int)} subscription, whether a notification replaces any buffered one of the same type,
+     * so that a burst only publishes the latest of each type.
+     */
+    @Beta
+    public JmxNotificationSubscriptionConfig<T> coalesceByType(boolean val) {
+        this.coalesceByType = val; return this;
+    }
+
+    /**
+     * For a {@link #buffered(int)} subscription, whether a notification of the given type replaces any buffered one
+     * of that type, overriding {@link #coalesceByType(boolean)} for that type; e.g. to publish only the latest
+     * of a frequent status notification while keeping every one of the other types.
+     */
+    @Beta
+    public JmxNotificationSubscriptionConfig<T> coalesce(String notificationType, boolean val) {
+        coalesceByNotificationType.put(checkNotNull(notificationType, "notificationType"), val);
+        return this;
+    }
+
+    /** For a {@link #buffered(int)} subscription, how often buffered notifications are published. */
+    @Beta
+    public JmxNotificationSubscriptionConfig<T> publishPeriod(Duration val) {
+        checkArgument(checkNotNull(val, "publishPeriod").compareTo(Duration.ZERO) > 0, "publishPeriod must be positive, but was %s", val);
+        this.publishPeriod = val; return this;
+    }
+
     @Override
     protected Object toStringPollSource() {
         return objectName;
@@ -19,6 +19,8 @@
 package org.apache.brooklyn.feed.jmx;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Collections;
@@ -66,6 +68,7 @@ import org.apache.brooklyn.entity.software.base.test.jmx.JmxService;
 import org.apache.brooklyn.location.localhost.LocalhostMachineProvisioningLocation;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.test.NetworkingTestUtils;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.AfterMethod;
@@ -172,6 +175,126 @@ public class JmxFeedTest {
         assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
     }
 
+    @Test
+    public void testJmxAttributesOfSameMBeanPolledTogether() throws Exception {
+        GeneralisedDynamicMBean mbean = jmxService.registerMBean(ImmutableMap.of(attributeName, 42, "myattrib2", "abc"), objectName);
+
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .period(50)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .attributeName(attributeName))
+                .pollAttribute(new JmxAttributePollConfig<String>(stringAttribute)
+                        .objectName(objectName)
+                        .attributeName("myattrib2"))
+                .build();
+        
+        assertSensorEventually(intAttribute, 42, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "abc", TIMEOUT_MS);
+
+        mbean.updateAttributeValue(attributeName, 64);
+        mbean.updateAttributeValue("myattrib2", "def");
+        assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "def", TIMEOUT_MS);
+    }
+
+    @Test
+    public void testJmxAttributePollerWithWildcardObjectName() throws Exception {
+        GeneralisedDynamicMBean mbean = jmxService.registerMBean(ImmutableMap.of(attributeName, 42), objectName);
+
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName("Brooklyn:type=MyTestMBean,*")
+                        .period(50)
+                        .attributeName(attributeName))
+                .build();
+        
+        assertSensorEventually(intAttribute, 42, TIMEOUT_MS);
+
+        mbean.updateAttributeValue(attributeName, 64);
+        assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
+    }
+
+    @Test
+    public void testFeedsOfEntityShareJmxHelper() throws Exception {
+        GeneralisedDynamicMBean mbean = jmxService.registerMBean(ImmutableMap.of(attributeName, 42, "myattrib2", "abc"), objectName);
+
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .period(50)
+                        .attributeName(attributeName))
+                .build();
+        JmxFeed feed2 = JmxFeed.builder()
+                .entity(entity)
+                .pollAttribute(new JmxAttributePollConfig<String>(stringAttribute)
+                        .objectName(objectName)
+                        .period(50)
+                        .attributeName("myattrib2"))
+                .build();
+        try {
+            assertSame(feed2.getHelper(), feed.getHelper());
+            assertSensorEventually(intAttribute, 42, TIMEOUT_MS);
+            assertSensorEventually(stringAttribute, "abc", TIMEOUT_MS);
+        } finally {
+            feed2.stop();
+        }
+        
+        // the remaining feed's connection is still usable
+        mbean.updateAttributeValue(attributeName, 64);
+        assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
+        assertTrue(feed.getHelper().isConnected());
+    }
+
+    @Test
+    public void testSharedJmxHelperReleasedWhenFeedStopped() throws Exception {
+        int sharedHelpersBefore = JmxFeed.getSharedHelperCount();
+        
+        // a feed that is never started does not hold a shared helper
+        JmxFeed unstarted = new JmxFeed();
+        unstarted.setEntity(entity);
+        assertEquals(JmxFeed.getSharedHelperCount(), sharedHelpersBefore);
+        unstarted.stop();
+        assertEquals(JmxFeed.getSharedHelperCount(), sharedHelpersBefore);
+        
+        JmxFeed started = JmxFeed.builder()
+                .entity(entity)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .attributeName(attributeName))
+                .build();
+        assertEquals(JmxFeed.getSharedHelperCount(), sharedHelpersBefore+1);
+        started.stop();
+        assertEquals(JmxFeed.getSharedHelperCount(), sharedHelpersBefore);
+    }
+
+    @Test
+    public void testFeedsWithDifferentJmxCredentialsDoNotShareJmxHelper() throws Exception {
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .attributeName(attributeName))
+                .build();
+        
+        entity.sensors().set(UsesJmx.JMX_USER, "otheruser");
+        entity.sensors().set(UsesJmx.JMX_PASSWORD, "otherpassword");
+        JmxFeed feed2 = JmxFeed.builder()
+                .entity(entity)
+                .pollAttribute(new JmxAttributePollConfig<String>(stringAttribute)
+                        .objectName(objectName)
+                        .attributeName("myattrib2"))
+                .build();
+        try {
+            assertNotSame(feed2.getHelper(), feed.getHelper());
+        } finally {
+            feed2.stop();
+        }
+    }
+
     @Test
     public void testJmxAttributeOfTypeTabularDataProviderConvertedToMap() throws Exception {
         // Create the CompositeType and TabularData
@@ -296,6 +419,49 @@ public class JmxFeedTest {
             }});
     }
     
+    @Test
+    public void testBufferedJmxNotificationSubscriptionPublishesLatest() throws Exception {
+        final String one = "notification.one";
+        final StandardEmitterMBean mbean = jmxService.registerMBean(ImmutableList.of(one), objectName);
+        final AtomicInteger sequence = new AtomicInteger(0);
+
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .subscribeToNotification(new JmxNotificationSubscriptionConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .notificationFilter(JmxNotificationFilters.matchesType(one))
+                        .buffered(10)
+                        .coalesceByType(true)
+                        .publishPeriod(Duration.millis(50)))
+                .build();        
+
+        // Subscription is done async, so keep sending until a notification gets through
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), new Runnable() {
+            public void run() {
+                sendNotification(mbean, one, sequence.getAndIncrement(), 123);
+                assertEquals(entity.getAttribute(intAttribute), (Integer)123);
+            }});
+        
+        // A burst is published as the latest value
+        for (int i = 0; i < 100; i++) {
+            sendNotification(mbean, one, sequence.getAndIncrement(), i);
+        }
+        assertSensorEventually(intAttribute, 99, TIMEOUT_MS);
+        
+        Map<String, Long> metrics = feed.getNotificationMetrics();
+        assertEquals(metrics.get("received"), (Long)(metrics.get("published") + metrics.get("coalesced")), "metrics="+metrics);
+        assertEquals(metrics.get("dropped"), (Long)0L, "metrics="+metrics);
+        
+        // and published as a sensor, once the last of the burst has been
+        final AttributeSensor<Map<String, Long>> metricsSensor = JmxFeed.notificationMetricsSensor(intAttribute);
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), new Runnable() {
+            public void run() {
+                Map<String, Long> published = entity.getAttribute(metricsSensor);
+                assertEquals(published, feed.getNotificationMetrics());
+                assertEquals(published.get("buffered"), (Long)0L, "metrics="+published);
+            }});
+    }
+    
     @Test
     public void testJmxNotificationSubscriptionForSensorParsingNotification() throws Exception {
         final String one = "notification.one", two = "notification.two";
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.feed.jmx;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.management.Notification;
+
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.feed.jmx.JmxNotificationSubscriptionConfig.OverflowPolicy;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class JmxNotificationBufferTest {
+
+    private long sequence;
+
+    @Test
+    public void testDrainsInOrderReceived() throws Exception {
+        JmxNotificationBuffer buffer = new JmxNotificationBuffer(10, OverflowPolicy.DROP_OLDEST, false);
+        buffer.handleNotification(notification("a", 1), null);
+        buffer.handleNotification(notification("b", 2), null);
+        buffer.handleNotification(notification("a", 3), null);
+
+        assertEquals(userData(buffer.drain()), ImmutableList.of(1, 2, 3));
+        assertTrue(buffer.drain().isEmpty());
+        assertEquals(buffer.getMetrics().get("received"), (Long)3L);
+        assertEquals(buffer.getMetrics().get("published"), (Long)3L);
+    }
+
+    @Test
+    public void testDropsOldestWhenFull() throws Exception {
+        JmxNotificationBuffer buffer = new JmxNotificationBuffer(2, OverflowPolicy.DROP_OLDEST, false);
+        for (int i = 1; i <= 5; i++) {
+            buffer.handleNotification(notification("a", i), null);
+        }
+
+        assertEquals(userData(buffer.drain()), ImmutableList.of(4, 5));
+        assertEquals(buffer.getMetrics().get("dropped"), (Long)3L);
+    }
+
+    @Test
+    public void testDropsNewestWhenFull() throws Exception {
+        JmxNotificationBuffer buffer = new JmxNotificationBuffer(2, OverflowPolicy.DROP_NEWEST, false);
+        for (int i = 1; i <= 5; i++) {
+            buffer.handleNotification(notification("a", i), null);
+        }
+
+        assertEquals(userData(buffer.drain()), ImmutableList.of(1, 2));
+        assertEquals(buffer.getMetrics().get("dropped"), (Long)3L);
+    }
+
+    @Test
+    public void testCoalescesByType() throws Exception {
+        JmxNotificationBuffer buffer = new JmxNotificationBuffer(10, OverflowPolicy.DROP_OLDEST, true);
+        buffer.handleNotification(notification("a", 1), null);
+        buffer.handleNotification(notification("b", 2), null);
+        buffer.handleNotification(notification("a", 3), null);
+        assertEquals(buffer.getMetrics().get("buffered"), (Long)2L);
+
+        assertEquals(userData(buffer.drain()), ImmutableList.of(2, 3));
+        assertEquals(buffer.getMetrics().get("coalesced"), (Long)1L);
+        assertEquals(buffer.getMetrics().get("dropped"), (Long)0L);
+    }
+
+    @Test
+    public void testPoliciesByNotificationType() throws Exception {
+        JmxNotificationSubscriptionConfig<Object> config = new JmxNotificationSubscriptionConfig<Object>(Sensors.newSensor(Object.class, "test.notifications"))
+                .buffered(3)
+                .overflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .overflowPolicy("alert", OverflowPolicy.DROP_NEWEST)
+                .coalesce("status", true);
+        JmxNotificationBuffer buffer = new JmxNotificationBuffer(config);
+        buffer.handleNotification(notification("status", 1), null);
+        buffer.handleNotification(notification("alert", 2), null);
+        buffer.handleNotification(notification("status", 3), null);
+        buffer.handleNotification(notification("alert", 4), null);
+        assertEquals(buffer.getMetrics().get("coalesced"), (Long)1L);
+        
+        // full: a new alert is dropped, whereas another type evicts the oldest buffered
+        buffer.handleNotification(notification("alert", 5), null);
+        buffer.handleNotification(notification("other", 6), null);
+        
+        assertEquals(userData(buffer.drain()), ImmutableList.of(3, 4, 6));
+        assertEquals(buffer.getMetrics().get("dropped"), (Long)2L);
+    }
+
+    private Notification notification(String type, Object userData) {
+        Notification result = new Notification(type, "source", sequence++);
+        result.setUserData(userData);
+        return result;
+    }
+
+    private List<Object> userData(List<Notification> notifications) {
+        List<Object> result = MutableList.of();
+        for (Notification notification : notifications) {
+            result.add(notification.getUserData());
+        }
+        return result;
+    }
+}
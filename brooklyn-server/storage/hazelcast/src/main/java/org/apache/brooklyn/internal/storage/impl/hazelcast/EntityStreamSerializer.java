@@ -18,47 +18,48 @@
  */
 package org.apache.brooklyn.internal.storage.impl.hazelcast;
 
-import com.hazelcast.nio.ObjectDataInput;
-import com.hazelcast.nio.ObjectDataOutput;
-import com.hazelcast.nio.serialization.StreamSerializer;
+import static java.lang.String.format;
 
 import java.io.IOException;
 
 import org.apache.brooklyn.api.entity.Entity;
-import org.apache.brooklyn.core.objs.proxy.EntityProxyImpl;
 
-import static java.lang.String.format;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+
+/**
+ * Writes entities as just their id, rather than by java serialization,
+ * and reads them back as the (proxy) entity with that id in the local management context.
+ */
+class EntityStreamSerializer implements StreamSerializer<Entity> {
 
-class EntityStreamSerializer implements StreamSerializer {
+    static final int TYPE_ID = 5000;
 
-    private HazelcastDataGrid hazelcastDataGrid;
+    private final HazelcastDataGrid hazelcastDataGrid;
 
     public EntityStreamSerializer(HazelcastDataGrid hazelcastDataGrid) {
         this.hazelcastDataGrid = hazelcastDataGrid;
     }
 
     @Override
-    public Object read(ObjectDataInput in) throws IOException {
-        EntityId id = in.readObject();
-        Entity entity = hazelcastDataGrid.getManagementContext().getEntityManager().getEntity(id.getId());
+    public Entity read(ObjectDataInput in) throws IOException {
+        String id = in.readUTF();
+        Entity entity = hazelcastDataGrid.getManagementContext().getEntityManager().getEntity(id);
         if (entity == null) {
             throw new IllegalStateException(format("Entity with id [%s] is not found", id));
         }
-        return java.lang.reflect.Proxy.newProxyInstance(
-                entity.getClass().getClassLoader(),
-                entity.getClass().getInterfaces(),
-                new EntityProxyImpl(entity));
+        return entity;
     }
 
     @Override
-    public void write(ObjectDataOutput out, Object object) throws IOException {
-        Entity entity = (Entity) object;
-        out.writeObject(new EntityId(entity.getId()));
+    public void write(ObjectDataOutput out, Entity entity) throws IOException {
+        out.writeUTF(entity.getId());
     }
 
     @Override
     public int getTypeId() {
-        return 5000;
+        return TYPE_ID;
     }
 
     @Override
@@ -19,40 +19,104 @@
 package org.apache.brooklyn.internal.storage.impl.hazelcast;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.internal.storage.DataGrid;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.util.collections.MutableMap;
 
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.NearCacheConfig;
 import com.hazelcast.config.SerializerConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.monitor.NearCacheStats;
 
 public class HazelcastDataGrid implements DataGrid {
 
+    public static final ConfigKey<Boolean> NEAR_CACHE_ENABLED = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.datagrid.hazelcast.nearCache.enabled",
+            "Whether to keep a local near-cache of the storage references, invalidated when they are changed elsewhere in the cluster",
+            true);
+
+    public static final ConfigKey<Integer> NEAR_CACHE_MAX_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.datagrid.hazelcast.nearCache.maxSize",
+            "Maximum number of entries in each near-cache, after which the least recently used are evicted",
+            10000);
+
+    public static final ConfigKey<Boolean> ASYNC_BACKUPS = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.datagrid.hazelcast.asyncBackups",
+            "Whether writes to the storage references are copied to the backup member asynchronously (in batches), "
+            + "rather than each write waiting for the backup; faster, but writes not yet copied are lost if this member fails",
+            false);
+
+    /** the maps used by {@link org.apache.brooklyn.core.internal.storage.impl.BrooklynStorageImpl} for references, which are read often */
+    public static final List<String> REFERENCE_MAPS = ImmutableList.of("refs", "lists");
+
     private final HazelcastInstance hz;
     private final ManagementContextInternal managementContext;
 
     public HazelcastDataGrid(ManagementContextInternal managementContext, HazelcastInstance hazelcastInstance) {
+        this(managementContext, hazelcastInstance, null);
+    }
+
+    /**
+     * Uses the given instance if not null; otherwise creates a new instance from the given config
+     * (or a default config if null), adding Brooklyn's serializers and map settings.
+     */
+    public HazelcastDataGrid(ManagementContextInternal managementContext, HazelcastInstance hazelcastInstance, Config config) {
         this.managementContext = managementContext;
         if (hazelcastInstance == null) {
-            Config config = new Config();
-            SerializerConfig entitySerializeConfig = new SerializerConfig();
-            entitySerializeConfig.setTypeClassName(Entity.class.getName());
-            entitySerializeConfig.setImplementation(new EntityStreamSerializer(this));
-            config.getSerializationConfig().addSerializerConfig(entitySerializeConfig);
+            if (config == null) config = new Config();
+            configure(config);
             this.hz = Hazelcast.newHazelcastInstance(config);
         } else {
             this.hz = hazelcastInstance;
         }
     }
 
+    protected void configure(Config config) {
+        config.getSerializationConfig().addSerializerConfig(new SerializerConfig()
+                .setTypeClassName(Entity.class.getName())
+                .setImplementation(new EntityStreamSerializer(this)));
+        config.getSerializationConfig().addSerializerConfig(new SerializerConfig()
+                .setTypeClassName(Location.class.getName())
+                .setImplementation(new LocationStreamSerializer(this)));
+
+        StringConfigMap properties = managementContext != null ? managementContext.getConfig() : null;
+        for (String name : REFERENCE_MAPS) {
+            MapConfig mapConfig = config.getMapConfig(name);
+            if (Boolean.TRUE.equals(getConfig(properties, NEAR_CACHE_ENABLED))) {
+                mapConfig.setNearCacheConfig(new NearCacheConfig()
+                        // as for the in-memory datagrid, local reads return the same object rather than a deserialized copy
+                        .setInMemoryFormat(InMemoryFormat.OBJECT)
+                        .setInvalidateOnChange(true)
+                        .setCacheLocalEntries(true)
+                        .setEvictionPolicy("LRU")
+                        .setMaxSize(getConfig(properties, NEAR_CACHE_MAX_SIZE)));
+            }
+            if (Boolean.TRUE.equals(getConfig(properties, ASYNC_BACKUPS))) {
+                mapConfig.setBackupCount(0).setAsyncBackupCount(1);
+            }
+        }
+    }
+
+    private static <T> T getConfig(StringConfigMap properties, ConfigKey<T> key) {
+        return properties != null ? properties.getConfig(key) : key.getDefaultValue();
+    }
+
     public ManagementContextInternal getManagementContext() {
         return managementContext;
     }
@@ -77,8 +141,19 @@ public class HazelcastDataGrid implements DataGrid {
     
     @Override
     public Map<String, Object> getDatagridMetrics() {
-        // TODO would like to have better metrics
-        return ImmutableMap.<String,Object>of("name", hz.getName(), "isRunning", hz.getLifecycleService().isRunning());
+        Map<String, Object> result = MutableMap.<String,Object>of("name", hz.getName(), "isRunning", hz.getLifecycleService().isRunning());
+        if (hz.getLifecycleService().isRunning()) {
+            result.put("clusterSize", hz.getCluster().getMembers().size());
+            for (String name : REFERENCE_MAPS) {
+                NearCacheStats stats = hz.getMap(name).getLocalMapStats().getNearCacheStats();
+                if (stats != null) {
+                    result.put(name+".nearCache.hits", stats.getHits());
+                    result.put(name+".nearCache.misses", stats.getMisses());
+                    result.put(name+".nearCache.size", stats.getOwnedEntryCount());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
     }
     
     @Override
@@ -22,11 +22,13 @@ import org.apache.brooklyn.core.internal.storage.DataGrid;
 import org.apache.brooklyn.core.internal.storage.DataGridFactory;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 
+import com.hazelcast.config.Config;
 import com.hazelcast.core.HazelcastInstance;
 
 public class HazelcastDataGridFactory implements DataGridFactory {
 
     private HazelcastInstance hazelcastInstance;
+    private Config config;
 
     public HazelcastDataGridFactory() {
     }
@@ -35,8 +37,13 @@ public class HazelcastDataGridFactory implements DataGridFactory {
         this.hazelcastInstance = hazelcastInstance;
     }
 
+    /** creates a new instance for each datagrid from the given config, e.g. to set how cluster members discover each other */
+    public HazelcastDataGridFactory(Config config) {
+        this.config = config;
+    }
+
     @Override
     public DataGrid newDataGrid(ManagementContextInternal managementContext) {
-        return new HazelcastDataGrid(managementContext,hazelcastInstance);
+        return new HazelcastDataGrid(managementContext, hazelcastInstance, config);
     }
-}
\ No newline at end of file
+}
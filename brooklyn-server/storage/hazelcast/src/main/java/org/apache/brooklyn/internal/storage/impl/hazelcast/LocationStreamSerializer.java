@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.internal.storage.impl.hazelcast;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+
+import org.apache.brooklyn.api.location.Location;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+
+/**
+ * Writes locations as just their id, rather than by java serialization,
+ * and reads them back as the location with that id in the local management context.
+ */
+class LocationStreamSerializer implements StreamSerializer<Location> {
+
+    static final int TYPE_ID = 5001;
+
+    private final HazelcastDataGrid hazelcastDataGrid;
+
+    public LocationStreamSerializer(HazelcastDataGrid hazelcastDataGrid) {
+        this.hazelcastDataGrid = hazelcastDataGrid;
+    }
+
+    @Override
+    public Location read(ObjectDataInput in) throws IOException {
+        String id = in.readUTF();
+        Location location = hazelcastDataGrid.getManagementContext().getLocationManager().getLocation(id);
+        if (location == null) {
+            throw new IllegalStateException(format("Location with id [%s] is not found", id));
+        }
+        return location;
+    }
+
+    @Override
+    public void write(ObjectDataOutput out, Location location) throws IOException {
+        out.writeUTF(location.getId());
+    }
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void destroy() {
+        //no-op
+    }
+}
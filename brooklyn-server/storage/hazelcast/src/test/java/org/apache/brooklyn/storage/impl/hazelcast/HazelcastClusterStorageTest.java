@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.storage.impl.hazelcast;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.internal.storage.BrooklynStorage;
+import org.apache.brooklyn.core.internal.storage.Reference;
+import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.internal.storage.impl.hazelcast.HazelcastDataGridFactory;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.text.Identifiers;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+
+/**
+ * Runs several management contexts in one JVM, each with its own Hazelcast member, joined as one cluster
+ * (as separate management nodes would be), to test the storage they share.
+ */
+@Test(groups="Integration")
+public class HazelcastClusterStorageTest {
+
+    private static final int NUM_MEMBERS = 3;
+
+    private List<LocalManagementContext> managementContexts;
+    private List<BrooklynStorage> storages;
+
+    @BeforeMethod(alwaysRun = true)
+    public void setUp() {
+        // a cluster name unique to this test, so as not to join other clusters on the network
+        String clusterName = "brooklyn-test-"+Identifiers.makeRandomId(8);
+        managementContexts = MutableList.of();
+        storages = MutableList.of();
+        for (int i = 0; i < NUM_MEMBERS; i++) {
+            LocalManagementContext mgmt = new LocalManagementContext(BrooklynProperties.Factory.newEmpty(), 
+                    new HazelcastDataGridFactory(newLocalClusterConfig(clusterName)));
+            managementContexts.add(mgmt);
+            storages.add(mgmt.getStorage());
+        }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        if (managementContexts != null) {
+            for (LocalManagementContext mgmt : managementContexts) {
+                mgmt.terminate();
+            }
+        }
+        Hazelcast.shutdownAll();
+    }
+
+    protected Config newLocalClusterConfig(String clusterName) {
+        Config config = new Config();
+        config.getGroupConfig().setName(clusterName);
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+        return config;
+    }
+
+    @Test
+    public void testReferenceVisibleToAllMembers() {
+        storages.get(0).<String>getReference("someReference").set("bar");
+        for (BrooklynStorage storage : storages) {
+            assertEquals(storage.getReference("someReference").get(), "bar");
+        }
+    }
+
+    @Test
+    public void testNearCachedReferenceSeesChanges() {
+        final Reference<String> writer = storages.get(0).getReference("someReference");
+        final Reference<String> reader = storages.get(1).getReference("someReference");
+        writer.set("bar");
+        // read repeatedly, so that it is held in the reader's near-cache
+        for (int i = 0; i < 10; i++) {
+            assertEquals(reader.get(), "bar");
+        }
+        
+        writer.set("baz");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(reader.get(), "baz");
+            }});
+    }
+
+    @Test
+    public void testMapSurvivesMemberLeaving() {
+        Map<String, String> map = storages.get(0).getMap("somemap");
+        for (int i = 0; i < 100; i++) {
+            map.put("key"+i, "val"+i);
+        }
+        managementContexts.remove(0).terminate();
+        
+        Map<String, String> remaining = storages.get(1).getMap("somemap");
+        for (int i = 0; i < 100; i++) {
+            assertEquals(remaining.get("key"+i), "val"+i);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.brooklyn.util.net;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.net.HostAndPort;
+import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Checks whether endpoints accept TCP connections, using non-blocking connects on a single thread,
+ * so that thousands of endpoints (e.g. the ssh ports of VMs still booting) can be waited on without
+ * a thread for each.
+ * <p>
+ * Each endpoint given to {@link #probe(HostAndPort)} is tried repeatedly, with exponential backoff between
+ * attempts, until it connects or the returned future is cancelled. {@link #checkReachable(Collection, Duration)}
+ * and {@link #findFirstReachable(Collection, Duration)} check many endpoints at once.
+ * <p>
+ * Host names are resolved on a few separate threads, so a slow lookup does not hold up the other probes,
+ * and are resolved again on each retry until they resolve.
+ */
+@Beta
+public class ReachabilityProber implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReachabilityProber.class);
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.seconds(2);
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.millis(100);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.FIVE_SECONDS;
+
+    /** the most host names resolved at once; further lookups queue */
+    private static final int MAX_RESOLVER_THREADS = 4;
+
+    private static ReachabilityProber sharedInstance;
+
+    /**
+     * A prober shared by all callers in this JVM, whose thread is a daemon that is never stopped;
+     * callers must not {@link #close()} it. If it has stopped nonetheless (e.g. after an unexpected error
+     * on its thread), a new one is returned.
+     */
+    public static synchronized ReachabilityProber getSharedInstance() {
+        if (sharedInstance == null || sharedInstance.isClosed()) {
+            if (sharedInstance != null) LOG.warn("Shared reachability prober was closed; replacing it");
+            sharedInstance = new ReachabilityProber();
+        }
+        return sharedInstance;
+    }
+
+    private final long connectTimeoutNanos;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final Queue<Attempt> newAttempts = new ConcurrentLinkedQueue<Attempt>();
+    private final Object startMutex = new Object();
+    private volatile Selector selector;
+    private volatile ExecutorService resolver;
+    private volatile boolean closed;
+
+    // only accessed by the prober thread
+    private final PriorityQueue<Attempt> waiting = new PriorityQueue<Attempt>();
+    private final Set<Attempt> connecting = MutableSet.of();
+
+    public ReachabilityProber() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    public ReachabilityProber(Duration connectTimeout, Duration initialBackoff, Duration maxBackoff) {
+        this.connectTimeoutNanos = checkNotNull(connectTimeout, "connectTimeout").toNanoseconds();
+        this.initialBackoffNanos = checkNotNull(initialBackoff, "initialBackoff").toNanoseconds();
+        this.maxBackoffNanos = checkNotNull(maxBackoff, "maxBackoff").toNanoseconds();
+        checkArgument(connectTimeoutNanos > 0, "connectTimeout must be positive");
+        checkArgument(initialBackoffNanos > 0 && initialBackoffNanos <= maxBackoffNanos, "initialBackoff must be positive, and no more than maxBackoff");
+    }
+
+    /**
+     * Returns a future which completes with the given endpoint once it accepts a connection.
+     * It is retried until then, so callers should cancel the future when they give up.
+     */
+    public ListenableFuture<HostAndPort> probe(HostAndPort endpoint) {
+        checkNotNull(endpoint, "endpoint");
+        checkArgument(endpoint.hasPort(), "No port in %s", endpoint);
+        checkState(!closed, "Prober closed");
+        Attempt attempt = new Attempt(endpoint);
+        newAttempts.add(attempt);
+        ensureStarted().wakeup();
+        // in case closed concurrently, after the prober thread has cancelled everything it knows about
+        if (closed) attempt.future.cancel(false);
+        return attempt.future;
+    }
+
+    /**
+     * Checks all of the given endpoints at once, waiting up to the given time for each to accept a connection.
+     *
+     * @return whether each endpoint was reachable, in the order given
+     */
+    public Map<HostAndPort, Boolean> checkReachable(Collection<? extends HostAndPort> endpoints, Duration timeout) {
+        Map<HostAndPort, ListenableFuture<HostAndPort>> futures = MutableMap.of();
+        for (HostAndPort endpoint : endpoints) {
+            if (!futures.containsKey(endpoint)) futures.put(endpoint, probe(endpoint));
+        }
+        try {
+            waitForAll(futures.values(), timeout);
+        } finally {
+            cancelAll(futures.values());
+        }
+        Map<HostAndPort, Boolean> result = MutableMap.of();
+        for (Map.Entry<HostAndPort, ListenableFuture<HostAndPort>> entry : futures.entrySet()) {
+            result.put(entry.getKey(), isSuccessful(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Checks all of the given endpoints at once, returning the first to accept a connection,
+     * or absent if none does within the given time.
+     */
+    public Optional<HostAndPort> findFirstReachable(Collection<? extends HostAndPort> endpoints, Duration timeout) {
+        final SettableFuture<HostAndPort> first = SettableFuture.create();
+        List<ListenableFuture<HostAndPort>> futures = MutableList.of();
+        for (HostAndPort endpoint : endpoints) {
+            ListenableFuture<HostAndPort> future = probe(endpoint);
+            futures.add(future);
+            Futures.addCallback(future, new FutureCallback<HostAndPort>() {
+                @Override public void onSuccess(HostAndPort result) {
+                    first.set(result);
+                }
+                @Override public void onFailure(Throwable t) {
+                    // only cancelled, when giving up
+                }});
+        }
+        try {
+            return Optional.of(first.get(timeout.toMilliseconds(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return Optional.absent();
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            cancelAll(futures);
+        }
+    }
+
+    /** whether this prober has been {@link #close() closed}, or has stopped because of an error */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Stops probing, cancelling the futures of all endpoints not yet reached. */
+    @Override
+    public void close() {
+        closed = true;
+        Selector s = selector;
+        if (s != null) s.wakeup();
+    }
+
+    private static void waitForAll(Collection<ListenableFuture<HostAndPort>> futures, Duration timeout) {
+        try {
+            Futures.successfulAsList(futures).get(timeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // some not reachable; callers check each
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static void cancelAll(Collection<ListenableFuture<HostAndPort>> futures) {
+        for (ListenableFuture<HostAndPort> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    private static boolean isSuccessful(ListenableFuture<HostAndPort> future) {
+        return future.isDone() && !future.isCancelled();
+    }
+
+    private Selector ensureStarted() {
+        synchronized (startMutex) {
+            if (selector == null) {
+                try {
+                    selector = Selector.open();
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
+                }
+                ThreadPoolExecutor resolverPool = new ThreadPoolExecutor(MAX_RESOLVER_THREADS, MAX_RESOLVER_THREADS,
+                        60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactoryBuilder().setNameFormat("brooklyn-reachability-resolver-%d").setDaemon(true).build());
+                resolverPool.allowCoreThreadTimeOut(true);
+                resolver = resolverPool;
+                Thread thread = new Thread(new Runnable() {
+                    @Override public void run() {
+                        runLoop();
+                    }}, "brooklyn-reachability-prober");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            return selector;
+        }
+    }
+
+    private void runLoop() {
+        try {
+            while (!closed) {
+                long now = System.nanoTime();
+                Attempt attempt;
+                while ((attempt = newAttempts.poll()) != null) {
+                    if (attempt.resolveFailed) {
+                        // back from the resolver without an address; retry after the usual backoff
+                        attempt.resolveFailed = false;
+                        failed(attempt, null, now);
+                    } else {
+                        attempt.nextAttemptNanos = now;
+                        waiting.add(attempt);
+                    }
+                }
+                while (!waiting.isEmpty() && waiting.peek().nextAttemptNanos <= now) {
+                    attempt = waiting.poll();
+                    if (!attempt.future.isDone()) connect(attempt, now);
+                }
+
+                selector.select(selectTimeoutMillis(System.nanoTime()));
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    finishConnect((Attempt) key.attachment());
+                }
+                checkTimeouts(System.nanoTime());
+            }
+        } catch (Throwable t) {
+            LOG.warn("Reachability prober failed; cancelling all probes", t);
+            closed = true;
+            Exceptions.propagateIfFatal(t);
+        } finally {
+            cancelRemaining();
+        }
+    }
+
+    private void connect(Attempt attempt, long now) {
+        if (attempt.address == null) {
+            String host = attempt.endpoint.getHostText();
+            if (!InetAddresses.isInetAddress(host)) {
+                resolve(attempt);
+                return;
+            }
+            attempt.address = new InetSocketAddress(InetAddresses.forString(host), attempt.endpoint.getPort());
+        }
+        try {
+            attempt.channel = SocketChannel.open();
+            attempt.channel.configureBlocking(false);
+            if (attempt.channel.connect(attempt.address)) {
+                succeeded(attempt);
+            } else {
+                attempt.channel.register(selector, SelectionKey.OP_CONNECT, attempt);
+                attempt.connectDeadlineNanos = now + connectTimeoutNanos;
+                connecting.add(attempt);
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            failed(attempt, e, now);
+        }
+    }
+
+    /**
+     * Looks up the attempt's host name on the resolver's threads, as that can block; the attempt is then handed back
+     * to the prober's thread, to connect straight away or (if not resolved) to retry after its backoff.
+     */
+    private void resolve(final Attempt attempt) {
+        resolver.execute(new Runnable() {
+            @Override public void run() {
+                InetSocketAddress address = new InetSocketAddress(attempt.endpoint.getHostText(), attempt.endpoint.getPort());
+                if (address.isUnresolved()) {
+                    if (LOG.isTraceEnabled()) LOG.trace("Reachability prober could not resolve {}", attempt.endpoint);
+                    attempt.resolveFailed = true;
+                } else {
+                    attempt.address = address;
+                }
+                newAttempts.add(attempt);
+                Selector s = selector;
+                if (s != null) s.wakeup();
+                // in case closed while resolving, after the prober thread has cancelled everything it knows about
+                if (closed) attempt.future.cancel(false);
+            }});
+    }
+
+    private void finishConnect(Attempt attempt) {
+        try {
+            if (attempt.channel.finishConnect()) {
+                succeeded(attempt);
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            failed(attempt, e, System.nanoTime());
+        }
+    }
+
+    private void checkTimeouts(long now) {
+        Iterator<Attempt> iter = connecting.iterator();
+        while (iter.hasNext()) {
+            Attempt attempt = iter.next();
+            if (attempt.future.isDone()) {
+                // cancelled by the caller
+                iter.remove();
+                attempt.closeChannel();
+            } else if (attempt.connectDeadlineNanos <= now) {
+                iter.remove();
+                failed(attempt, null, now);
+            }
+        }
+    }
+
+    private long selectTimeoutMillis(long now) {
+        long next = Long.MAX_VALUE;
+        if (!waiting.isEmpty()) next = Math.min(next, waiting.peek().nextAttemptNanos);
+        for (Attempt attempt : connecting) {
+            next = Math.min(next, attempt.connectDeadlineNanos);
+        }
+        if (next == Long.MAX_VALUE) return 0; // nothing to do; wait for wakeup
+        // at least 1, as 0 means wait forever
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next - now) + 1);
+    }
+
+    private void succeeded(Attempt attempt) {
+        connecting.remove(attempt);
+        attempt.closeChannel();
+        if (LOG.isTraceEnabled()) LOG.trace("Reachability prober connected to {}", attempt.endpoint);
+        attempt.future.set(attempt.endpoint);
+    }
+
+    private void failed(Attempt attempt, Exception e, long now) {
+        connecting.remove(attempt);
+        attempt.closeChannel();
+        if (attempt.future.isDone()) return;
+        if (LOG.isTraceEnabled()) LOG.trace("Reachability prober failed to connect to "+attempt.endpoint+(e==null ? " (timeout)" : "")+"; retrying in "+Duration.nanos(attempt.backoffNanos), e);
+        attempt.nextAttemptNanos = now + attempt.backoffNanos;
+        attempt.backoffNanos = Math.min(attempt.backoffNanos * 2, maxBackoffNanos);
+        waiting.add(attempt);
+    }
+
+    private void cancelRemaining() {
+        for (Attempt attempt : connecting) {
+            attempt.closeChannel();
+            attempt.future.cancel(false);
+        }
+        connecting.clear();
+        for (Attempt attempt : waiting) {
+            attempt.future.cancel(false);
+        }
+        waiting.clear();
+        Attempt attempt;
+        while ((attempt = newAttempts.poll()) != null) {
+            attempt.future.cancel(false);
+        }
+        resolver.shutdownNow();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOG.debug("Error closing reachability prober's selector (continuing)", e);
+        }
+    }
+
+    private class Attempt implements Comparable<Attempt> {
+        final HostAndPort endpoint;
+        final SettableFuture<HostAndPort> future = SettableFuture.create();
+        // set before the attempt is handed back to the prober's thread by the resolver, if the host name needed resolving
+        InetSocketAddress address;
+        boolean resolveFailed;
+        long backoffNanos = initialBackoffNanos;
+        long nextAttemptNanos;
+        long connectDeadlineNanos;
+        SocketChannel channel;
+
+        Attempt(HostAndPort endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void closeChannel() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    if (LOG.isTraceEnabled()) LOG.trace("Error closing channel to "+endpoint+" (continuing)", e);
+                }
+                channel = null;
+            }
+        }
+
+        @Override
+        public int compareTo(Attempt other) {
+            return Long.compare(nextAttemptNanos, other.nextAttemptNanos);
+        }
+    }
+}
@@ -47,6 +47,9 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * For finding an open/reachable ip:port for a node.
+ * <p>
+ * If constructed with a {@link ReachabilityProber}, sockets are checked with non-blocking connects on the prober's
+ * thread; otherwise each check of each socket blocks a thread of the given executor.
  */
 public class ReachableSocketFinder {
 
@@ -54,6 +57,7 @@ public class ReachableSocketFinder {
 
     private final Predicate<HostAndPort> socketTester;
     private final ListeningExecutorService userExecutor;
+    private final ReachabilityProber prober;
 
     public ReachableSocketFinder(ListeningExecutorService userExecutor) {
         this(
@@ -67,6 +71,13 @@ public class ReachableSocketFinder {
     public ReachableSocketFinder(Predicate<HostAndPort> socketTester, ListeningExecutorService userExecutor) {
         this.socketTester = checkNotNull(socketTester, "socketTester");
         this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+        this.prober = null;
+    }
+
+    public ReachableSocketFinder(ReachabilityProber prober) {
+        this.socketTester = null;
+        this.userExecutor = null;
+        this.prober = checkNotNull(prober, "prober");
     }
 
     /**
@@ -85,6 +96,18 @@ public class ReachableSocketFinder {
         
         LOG.debug("blocking on any reachable socket in {} for {}", sockets, timeout);
 
+        if (prober != null) {
+            // the prober retries each socket with its own backoff
+            Optional<HostAndPort> reachableSocket = prober.findFirstReachable(sockets, timeout);
+            if (reachableSocket.isPresent()) {
+                LOG.debug("<< socket {} opened", reachableSocket.get());
+                return reachableSocket.get();
+            } else {
+                LOG.warn("No sockets in {} reachable after {}", sockets, timeout);
+                throw new NoSuchElementException("could not connect to any socket in " + sockets);
+            }
+        }
+
         final AtomicReference<HostAndPort> result = new AtomicReference<HostAndPort>();
         boolean passed = Repeater.create("socket-reachable")
                 .limitTimeTo(timeout)
@@ -22,11 +22,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
 import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.exceptions.RuntimeTimeoutException;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Identifiers;
+import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +43,7 @@ import com.google.common.base.Functions;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
 
@@ -53,6 +62,9 @@ public class BasicPool<T> implements Pool<T> {
         private Supplier<? extends T> supplier;
         private Predicate<? super T> viabilityChecker = Predicates.alwaysTrue();
         private Function<? super T, ?> closer = Functions.identity();
+        private Semaphore leaseLimiter;
+        private Duration maxLeaseWait;
+        private PoolMetrics metrics;
         
         public Builder<T> name(String val) {
             this.name = val;
@@ -74,6 +86,29 @@ public class BasicPool<T> implements Pool<T> {
             return this;
         }
         
+        /** limits the number of objects leased at once (idle objects in the pool are not counted); further calls to {@link BasicPool#leaseObject()} wait */
+        public Builder<T> maxLeased(int val) {
+            return leaseLimiter(new Semaphore(val, true));
+        }
+        
+        /** as {@link #maxLeased(int)}, but taking permits from the given semaphore, so that a limit can be shared by several pools */
+        public Builder<T> leaseLimiter(@Nullable Semaphore val) {
+            this.leaseLimiter = val;
+            return this;
+        }
+        
+        /** how long to wait for a lease when the limit is reached, before throwing {@link RuntimeTimeoutException}; default forever */
+        public Builder<T> maxLeaseWait(@Nullable Duration val) {
+            this.maxLeaseWait = val;
+            return this;
+        }
+        
+        /** where to record metrics, e.g. shared by several pools; by default each pool has its own */
+        public Builder<T> metrics(@Nullable PoolMetrics val) {
+            this.metrics = val;
+            return this;
+        }
+        
         public BasicPool<T> build() {
             return new BasicPool<T>(this);
         }
@@ -85,17 +120,18 @@ public class BasicPool<T> implements Pool<T> {
     private Function<? super T, ?> closer;
     private final Deque<T> pool = Lists.newLinkedList();
     private AtomicBoolean closed = new AtomicBoolean(false);
-    
-    private AtomicInteger currentLeasedCount = new AtomicInteger(0);
-    private AtomicInteger totalLeasedCount = new AtomicInteger(0);
-    private AtomicInteger totalCreatedCount = new AtomicInteger(0);
-    private AtomicInteger totalClosedCount = new AtomicInteger(0);
+    private final Semaphore leaseLimiter;
+    private final Duration maxLeaseWait;
+    private final PoolMetrics metrics;
     
     private BasicPool(Builder<T> builder) {
         this.name = (builder.name != null) ? "Pool("+builder.name+")" : "Pool-"+Identifiers.makeRandomId(8);
         this.supplier = checkNotNull(builder.supplier, "supplier");
         this.viabilityChecker = checkNotNull(builder.viabilityChecker, "viabilityChecker");
         this.closer = checkNotNull(builder.closer, closer);
+        this.leaseLimiter = builder.leaseLimiter;
+        this.maxLeaseWait = builder.maxLeaseWait;
+        this.metrics = (builder.metrics != null) ? builder.metrics : new PoolMetrics();
     }
     
     @Override
@@ -105,7 +141,19 @@ public class BasicPool<T> implements Pool<T> {
     
     @Override
     public Lease<T> leaseObject() {
-        totalLeasedCount.incrementAndGet();
+        acquirePermit();
+        boolean success = false;
+        try {
+            Lease<T> result = leaseObjectWithPermit();
+            success = true;
+            metrics.totalLeased.incrementAndGet();
+            return result;
+        } finally {
+            if (!success) releasePermit();
+        }
+    }
+    
+    private Lease<T> leaseObjectWithPermit() {
         T existing;
         do {
             existing = null;
@@ -115,29 +163,58 @@ public class BasicPool<T> implements Pool<T> {
                 }
                 if (pool.size() > 0) {
                     existing = pool.removeLast();
+                    metrics.currentIdle.decrementAndGet();
                 }
             }
             
             if (existing != null) {
                 if (viabilityChecker.apply(existing)) {
-                    currentLeasedCount.incrementAndGet();
+                    metrics.currentLeased.incrementAndGet();
                     if (LOG.isTraceEnabled()) LOG.trace("{} reusing existing pool entry {} ({})", new Object[] {this, existing, getMetrics()});
                     return new BasicLease(existing);
                 } else {
-                    totalClosedCount.incrementAndGet();
+                    metrics.totalClosed.incrementAndGet();
+                    metrics.totalClosedNonViable.incrementAndGet();
                     if (LOG.isDebugEnabled()) LOG.debug("{} not reusing entry {} as no longer viable; discarding and trying again", this, existing);
                     closer.apply(existing);
                 }
             }
         } while (existing != null);
         
+        Stopwatch stopwatch = Stopwatch.createStarted();
         T result = supplier.get();
-        totalCreatedCount.incrementAndGet();
-        currentLeasedCount.incrementAndGet();
+        metrics.creationTimes.add(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        metrics.totalCreated.incrementAndGet();
+        metrics.currentLeased.incrementAndGet();
         if (LOG.isDebugEnabled()) LOG.debug("{} acquired and returning new entry {} ({})", new Object[] {this, result, getMetrics()});
         return new BasicLease(result);
     }
 
+    private void acquirePermit() {
+        if (leaseLimiter == null) return;
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        metrics.currentWaiting.incrementAndGet();
+        try {
+            if (maxLeaseWait == null) {
+                leaseLimiter.acquire();
+            } else if (!leaseLimiter.tryAcquire(maxLeaseWait.toMilliseconds(), TimeUnit.MILLISECONDS)) {
+                metrics.totalLeaseTimeouts.incrementAndGet();
+                throw new RuntimeTimeoutException("Timeout after "+maxLeaseWait+" waiting to lease from "+this+" ("+getMetrics()+")");
+            }
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            metrics.currentWaiting.decrementAndGet();
+            metrics.leaseWaitTimes.add(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+        long waitMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        if (waitMillis > 1000 && LOG.isDebugEnabled()) LOG.debug("{} waited {}ms for lease ({})", new Object[] {this, waitMillis, getMetrics()});
+    }
+    
+    private void releasePermit() {
+        if (leaseLimiter != null) leaseLimiter.release();
+    }
+
     @Override
     public <R> R exec(Function<? super T,R> receiver) {
         Lease<T> lease = leaseObject();
@@ -155,7 +232,8 @@ public class BasicPool<T> implements Pool<T> {
             if (LOG.isDebugEnabled()) LOG.debug("{} closing, with {} resources ({})", new Object[] {this, pool.size(), getMetrics()});
             closed.set(true);
             for (T resource : pool) {
-                totalClosedCount.incrementAndGet();
+                metrics.totalClosed.incrementAndGet();
+                metrics.currentIdle.decrementAndGet();
                 closer.apply(resource);
             }
             pool.clear();
@@ -163,27 +241,65 @@ public class BasicPool<T> implements Pool<T> {
 
     }
     
-    private void returnLeasee(T val) {
-        currentLeasedCount.decrementAndGet();
+    /**
+     * Checks the viability of the objects currently in the pool (i.e. not leased), closing any which are
+     * no longer viable, so that problems are found in the background rather than when next leased.
+     * 
+     * @return the number of objects closed
+     */
+    public int closeNonViable() {
+        List<T> idle;
         synchronized (pool) {
-            if (closed.get()) {
-                totalClosedCount.incrementAndGet();
-                if (LOG.isDebugEnabled()) LOG.debug("{} closing returned leasee {}, because pool closed ({})", new Object[] {this, val, getMetrics()});
+            if (closed.get()) return 0;
+            idle = MutableList.copyOf(pool);
+        }
+        int result = 0;
+        for (T val : idle) {
+            // check outside the lock, as the check may be slow; then only close if not leased in the meantime
+            if (viabilityChecker.apply(val)) continue;
+            boolean removed;
+            synchronized (pool) {
+                removed = pool.remove(val);
+                if (removed) metrics.currentIdle.decrementAndGet();
+            }
+            if (removed) {
+                metrics.totalClosed.incrementAndGet();
+                metrics.totalClosedNonViable.incrementAndGet();
+                if (LOG.isDebugEnabled()) LOG.debug("{} closing idle entry {} as no longer viable ({})", new Object[] {this, val, getMetrics()});
                 closer.apply(val);
-            } else {
-                if (LOG.isTraceEnabled()) LOG.trace("{} adding {} back into pool ({})", new Object[] {this, val, getMetrics()});
-                pool.addLast(val);
+                result++;
             }
         }
+        return result;
     }
     
-    private String getMetrics() {
-        return String.format("currentLeased=%s; totalLeased=%s; totalCreated=%s; totalClosed=%s", 
-                currentLeasedCount, totalLeasedCount, totalCreatedCount, totalClosedCount);
-
+    /** the metrics recorded by this pool (including for any other pools sharing them) */
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+    
+    private void returnLeasee(T val) {
+        metrics.currentLeased.decrementAndGet();
+        try {
+            synchronized (pool) {
+                if (closed.get()) {
+                    metrics.totalClosed.incrementAndGet();
+                    if (LOG.isDebugEnabled()) LOG.debug("{} closing returned leasee {}, because pool closed ({})", new Object[] {this, val, getMetrics()});
+                    closer.apply(val);
+                } else {
+                    if (LOG.isTraceEnabled()) LOG.trace("{} adding {} back into pool ({})", new Object[] {this, val, getMetrics()});
+                    pool.addLast(val);
+                    metrics.currentIdle.incrementAndGet();
+                }
+            }
+        } finally {
+            releasePermit();
+        }
     }
+    
     private class BasicLease implements Lease<T> {
         private final T val;
+        private final AtomicBoolean returned = new AtomicBoolean(false);
 
         BasicLease(T val) {
             this.val = val;
@@ -196,7 +312,10 @@ public class BasicPool<T> implements Pool<T> {
 
         @Override
         public void close() {
-            BasicPool.this.returnLeasee(val);
+            // guard against double-close, which would otherwise release the limit's permit twice
+            if (returned.compareAndSet(false, true)) {
+                BasicPool.this.returnLeasee(val);
+            }
         }
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.pool;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A thread-safe histogram of durations, in buckets of milliseconds increasing in powers of two
+ * (under 1ms, 1-2ms, 2-4ms, 4-8ms, ...). Cheap enough to record every call, at the cost of percentiles
+ * only being accurate to within a factor of two.
+ */
+@Beta
+public class DurationHistogram {
+
+    private static final int NUM_BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public void add(Duration duration) {
+        add(duration.toMilliseconds());
+    }
+
+    public void add(long millis) {
+        if (millis < 0) millis = 0;
+        buckets.incrementAndGet(bucketFor(millis));
+        count.incrementAndGet();
+        totalMillis.addAndGet(millis);
+        long max;
+        do {
+            max = maxMillis.get();
+        } while (millis > max && !maxMillis.compareAndSet(max, millis));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return (n == 0) ? 0 : ((double)totalMillis.get()) / n;
+    }
+
+    /**
+     * The upper bound of the bucket containing the given percentile (between 0 and 100), in milliseconds;
+     * i.e. at least that fraction of durations were under this value. 0 if empty.
+     */
+    public long getPercentileUpperBoundMillis(double percentile) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long target = (long) Math.ceil(n * percentile / 100);
+        long sum = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            sum += buckets.get(i);
+            if (sum >= target) return Math.min(upperBoundMillis(i), Math.max(maxMillis.get(), 1));
+        }
+        return maxMillis.get();
+    }
+
+    /** adds all the durations recorded by the other histogram into this one */
+    public void addAll(DurationHistogram other) {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            buckets.addAndGet(i, other.buckets.get(i));
+        }
+        count.addAndGet(other.count.get());
+        totalMillis.addAndGet(other.totalMillis.get());
+        long otherMax = other.maxMillis.get();
+        long max;
+        do {
+            max = maxMillis.get();
+        } while (otherMax > max && !maxMillis.compareAndSet(max, otherMax));
+    }
+
+    /** count, mean, max and percentiles, plus the non-empty buckets, e.g. for publishing as a sensor */
+    public Map<String, Object> asMap() {
+        Map<String, Long> nonEmptyBuckets = MutableMap.of();
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            long val = buckets.get(i);
+            if (val > 0) {
+                nonEmptyBuckets.put(i == 0 ? "<1ms" : upperBoundMillis(i-1)+"-"+upperBoundMillis(i)+"ms", val);
+            }
+        }
+        return MutableMap.<String, Object>builder()
+                .put("count", getCount())
+                .put("meanMillis", getMeanMillis())
+                .put("maxMillis", getMaxMillis())
+                .put("p50Millis", getPercentileUpperBoundMillis(50))
+                .put("p90Millis", getPercentileUpperBoundMillis(90))
+                .put("p99Millis", getPercentileUpperBoundMillis(99))
+                .put("buckets", nonEmptyBuckets)
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "DurationHistogram"+asMap();
+    }
+
+    /** bucket 0 holds durations under 1ms; bucket i holds [2^(i-1), 2^i) */
+    private static int bucketFor(long millis) {
+        if (millis < 1) return 0;
+        return Math.min(64 - Long.numberOfLeadingZeros(millis), NUM_BUCKETS - 1);
+    }
+
+    private static long upperBoundMillis(int bucket) {
+        return 1L << bucket;
+    }
+}
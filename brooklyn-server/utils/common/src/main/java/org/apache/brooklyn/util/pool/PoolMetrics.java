@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.pool;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.util.collections.MutableMap;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Counts and timings recorded by a {@link BasicPool}.
+ * <p>
+ * One instance can be shared by several pools (see {@link BasicPool.Builder#metrics(PoolMetrics)}),
+ * e.g. all pools of connections to the same host, in which case it reports their totals, and
+ * outlives any individual pool.
+ */
+@Beta
+public class PoolMetrics {
+
+    final AtomicInteger currentLeased = new AtomicInteger();
+    final AtomicInteger currentIdle = new AtomicInteger();
+    final AtomicInteger currentWaiting = new AtomicInteger();
+    final AtomicLong totalLeased = new AtomicLong();
+    final AtomicLong totalCreated = new AtomicLong();
+    final AtomicLong totalClosed = new AtomicLong();
+    final AtomicLong totalClosedNonViable = new AtomicLong();
+    final AtomicLong totalLeaseTimeouts = new AtomicLong();
+    final DurationHistogram leaseWaitTimes = new DurationHistogram();
+    final DurationHistogram creationTimes = new DurationHistogram();
+
+    /** objects currently leased */
+    public int getCurrentLeased() {
+        return currentLeased.get();
+    }
+
+    /** objects currently in the pool, available to lease */
+    public int getCurrentIdle() {
+        return currentIdle.get();
+    }
+
+    /** callers currently waiting for a lease, because the pool's limit has been reached */
+    public int getCurrentWaiting() {
+        return currentWaiting.get();
+    }
+
+    /** leases granted (not counting requests which timed out or failed) */
+    public long getTotalLeased() {
+        return totalLeased.get();
+    }
+
+    public long getTotalCreated() {
+        return totalCreated.get();
+    }
+
+    public long getTotalClosed() {
+        return totalClosed.get();
+    }
+
+    /** objects closed because they were found to be no longer viable, when leased or when checked in the background */
+    public long getTotalClosedNonViable() {
+        return totalClosedNonViable.get();
+    }
+
+    /** lease requests which gave up waiting for the pool's limit */
+    public long getTotalLeaseTimeouts() {
+        return totalLeaseTimeouts.get();
+    }
+
+    /** time spent waiting for the pool's limit, for each lease request; nothing is recorded if there is no limit */
+    public DurationHistogram getLeaseWaitTimes() {
+        return leaseWaitTimes;
+    }
+
+    /** time taken to create each new object */
+    public DurationHistogram getCreationTimes() {
+        return creationTimes;
+    }
+
+    public Map<String, Object> asMap() {
+        return MutableMap.<String, Object>builder()
+                .put("leased", getCurrentLeased())
+                .put("idle", getCurrentIdle())
+                .put("waiting", getCurrentWaiting())
+                .put("totalLeased", getTotalLeased())
+                .put("totalCreated", getTotalCreated())
+                .put("totalClosed", getTotalClosed())
+                .put("totalClosedNonViable", getTotalClosedNonViable())
+                .put("totalLeaseTimeouts", getTotalLeaseTimeouts())
+                .put("leaseWaitTime", leaseWaitTimes.asMap())
+                .put("creationTime", creationTimes.asMap())
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("currentLeased=%s; currentIdle=%s; waiting=%s; totalLeased=%s; totalCreated=%s; totalClosed=%s",
+                currentLeased, currentIdle, currentWaiting, totalLeased, totalCreated, totalClosed);
+    }
+}
@@ -20,8 +20,12 @@ package org.apache.brooklyn.util.repeat;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
@@ -36,12 +40,18 @@ import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Simple mechanism to repeat an operation periodically until a condition is satisfied.
@@ -86,6 +96,13 @@ public class Repeater implements Callable<Boolean> {
     private boolean rethrowExceptionImmediately = false;
     private boolean warnOnUnRethrownException = true;
 
+    private final Object wakeUpMutex = new Object();
+    /** number of calls to {@link #wakeUp()}, so that each synchronous run can tell whether it has been woken since it last checked; guarded by {@link #wakeUpMutex} */
+    private long wakeUpCount;
+    private final Set<AsyncRun> asyncRuns = Sets.newCopyOnWriteArraySet();
+
+    private static ScheduledExecutorService sharedScheduler;
+
     public Repeater() {
         this(null);
     }
@@ -307,16 +324,106 @@ public class Repeater implements Callable<Boolean> {
     }
     
     public ReferenceWithError<Boolean> runKeepingError() {
+        checkConfigured();
+        RunState state = new RunState();
+        long wakeUpsSeen;
+        synchronized (wakeUpMutex) {
+            // only wake-ups from now on apply to this run
+            wakeUpsSeen = wakeUpCount;
+        }
+        while (true) {
+            ReferenceWithError<Boolean> result = state.iterate();
+            if (result != null) return result;
+            wakeUpsSeen = waitForDelayOrWakeUp(state.delayThisIteration, wakeUpsSeen);
+        }
+    }
+
+    /**
+     * Runs the loop asynchronously on a shared scheduler, returning a future for what {@link #run()} would return
+     * (or failing with the exception that {@link #run()} would throw). No thread is used between iterations,
+     * so this is suited to waiting on many things at once. The body and condition are executed on the scheduler's
+     * threads so should be quick; use {@link #runAsync(ScheduledExecutorService)} for ones which may block.
+     * <p>
+     * Cancelling the returned future stops the loop. See also {@link #wakeUp()}.
+     */
+    @Beta
+    public ListenableFuture<Boolean> runAsync() {
+        return runAsync(getSharedScheduler());
+    }
+
+    /**
+     * As {@link #runAsync()}, but with each iteration executed by the given scheduler.
+     */
+    @Beta
+    public ListenableFuture<Boolean> runAsync(ScheduledExecutorService scheduler) {
+        checkConfigured();
+        AsyncRun run = new AsyncRun(checkNotNull(scheduler, "scheduler"));
+        run.start();
+        return run.result;
+    }
+
+    /**
+     * Causes any current runs of this repeater to check the condition now, rather than after the remainder of
+     * the current delay; for example called from a sensor subscription, so that a change is seen promptly
+     * without needing to poll frequently. 
+     */
+    @Beta
+    public void wakeUp() {
+        synchronized (wakeUpMutex) {
+            wakeUpCount++;
+            wakeUpMutex.notifyAll();
+        }
+        for (AsyncRun run : asyncRuns) {
+            run.wakeUp();
+        }
+    }
+
+    private void checkConfigured() {
         Preconditions.checkState(body != null, "repeat() method has not been called to set the body");
         Preconditions.checkState(exitCondition != null, "until() method has not been called to set the exit condition");
         Preconditions.checkState(delayOnIteration != null, "every() method (or other delaySupplier() / backoff() method) has not been called to set the loop delay");
+    }
 
-        Throwable lastError = null;
-        int iterations = 0;
-        CountdownTimer timer = timeLimit!=null ? CountdownTimer.newInstanceStarted(timeLimit) : CountdownTimer.newInstancePaused(Duration.PRACTICALLY_FOREVER);
+    /**
+     * Waits for the delay, or until {@link #wakeUp()} is called (or has been called since the run saw the given count).
+     * @return the wake-up count seen, to pass to the next wait
+     */
+    private long waitForDelayOrWakeUp(Duration delay, long wakeUpsSeen) {
+        CountdownTimer delayTimer = CountdownTimer.newInstanceStarted(delay);
+        synchronized (wakeUpMutex) {
+            try {
+                while (wakeUpCount == wakeUpsSeen && delayTimer.isNotExpired()) {
+                    wakeUpMutex.wait(Math.max(1, delayTimer.getDurationRemaining().toMilliseconds()));
+                }
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            }
+            return wakeUpCount;
+        }
+    }
 
-        while (true) {
-            Duration delayThisIteration = delayOnIteration.apply(iterations);
+    private static synchronized ScheduledExecutorService getSharedScheduler() {
+        if (sharedScheduler == null) {
+            sharedScheduler = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                    new ThreadFactoryBuilder().setNameFormat("brooklyn-repeater-%d").setDaemon(true).build());
+        }
+        return sharedScheduler;
+    }
+
+    /** The progress of one run of the loop, shared by synchronous and asynchronous runs. */
+    private class RunState {
+        private final CountdownTimer timer = timeLimit!=null ? CountdownTimer.newInstanceStarted(timeLimit) : CountdownTimer.newInstancePaused(Duration.PRACTICALLY_FOREVER);
+        private Throwable lastError = null;
+        private int iterations = 0;
+        private Duration delayThisIteration;
+
+        /** 
+         * Executes one iteration, returning the result if the loop has finished or null if it should continue 
+         * after {@link #delayThisIteration}.
+         */
+        @Nullable
+        ReferenceWithError<Boolean> iterate() {
+            delayThisIteration = delayOnIteration.apply(iterations);
             iterations++;
 
             try {
@@ -372,7 +479,81 @@ public class Repeater implements Callable<Boolean> {
                 return ReferenceWithError.newInstanceMaskingError(false, lastError);
             }
 
-            Time.sleep(delayThisIteration);
+            return null;
+        }
+    }
+
+    /** A run of the loop where each iteration is scheduled, rather than a thread sleeping between them. */
+    private class AsyncRun implements Runnable {
+        private final ScheduledExecutorService scheduler;
+        private final SettableFuture<Boolean> result = SettableFuture.create();
+        private final RunState state = new RunState();
+        /** the next scheduled iteration; guarded by this */
+        private ScheduledFuture<?> next;
+        /** whether an iteration is in progress; guarded by this */
+        private boolean iterating;
+        /** whether woken up while iterating, so the next iteration should be immediate; guarded by this */
+        private boolean wokenUpWhileIterating;
+
+        AsyncRun(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        void start() {
+            asyncRuns.add(this);
+            result.addListener(new Runnable() {
+                @Override public void run() {
+                    asyncRuns.remove(AsyncRun.this);
+                    synchronized (AsyncRun.this) {
+                        if (next != null) next.cancel(false);
+                    }
+                }}, MoreExecutors.sameThreadExecutor());
+            schedule(Duration.ZERO);
+        }
+
+        synchronized void wakeUp() {
+            if (result.isDone()) return;
+            if (!iterating && next != null && next.cancel(false)) {
+                schedule(Duration.ZERO);
+            } else {
+                // iteration in progress (or about to start); it will schedule the next one immediately
+                wokenUpWhileIterating = true;
+            }
+        }
+
+        private synchronized void schedule(Duration delay) {
+            try {
+                next = scheduler.schedule(this, delay.toMilliseconds(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                result.setException(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (result.isDone()) return;
+                iterating = true;
+                wokenUpWhileIterating = false;
+            }
+            ReferenceWithError<Boolean> done;
+            try {
+                done = state.iterate();
+            } catch (Throwable t) {
+                result.setException(t);
+                return;
+            } finally {
+                synchronized (this) {
+                    iterating = false;
+                }
+            }
+            if (done != null) {
+                result.set(done.getWithoutError());
+            } else {
+                synchronized (this) {
+                    schedule(wokenUpWhileIterating ? Duration.ZERO : state.delayThisIteration);
+                }
+            }
         }
     }
 
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * An input stream which is read no faster than a given number of bytes per second, e.g. to cap the bandwidth
+ * used by an upload. The {@link RateLimiter} can be shared by several streams to cap their total rate.
+ */
+@Beta
+public class ThrottledInputStream extends FilterInputStream {
+
+    /** reads are split into chunks of at most this size, so that the rate is smooth rather than bursty */
+    private static final int MAX_CHUNK_SIZE = 8192;
+
+    private final RateLimiter bytesPerSecond;
+
+    public ThrottledInputStream(InputStream target, double bytesPerSecond) {
+        this(target, RateLimiter.create(bytesPerSecond));
+    }
+
+    /** @param bytesPerSecond a limiter where each permit is one byte */
+    public ThrottledInputStream(InputStream target, RateLimiter bytesPerSecond) {
+        super(checkNotNull(target, "target"));
+        this.bytesPerSecond = checkNotNull(bytesPerSecond, "bytesPerSecond");
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = super.read();
+        if (result >= 0) bytesPerSecond.acquire(1);
+        return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int result = super.read(b, off, Math.min(len, MAX_CHUNK_SIZE));
+        if (result > 0) bytesPerSecond.acquire(result);
+        return result;
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.net;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class ReachabilityProberTest {
+
+    private ReachabilityProber prober;
+    private List<ServerSocket> serverSockets;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        prober = new ReachabilityProber(Duration.ONE_SECOND, Duration.millis(10), Duration.millis(100));
+        serverSockets = MutableList.of();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (prober != null) prober.close();
+        for (ServerSocket serverSocket : serverSockets) {
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void testProbeCompletesWhenReachable() throws Exception {
+        HostAndPort endpoint = listen();
+        assertEquals(prober.probe(endpoint).get(10, TimeUnit.SECONDS), endpoint);
+    }
+
+    @Test
+    public void testProbeResolvesHostName() throws Exception {
+        HostAndPort endpoint = listen();
+        HostAndPort byName = HostAndPort.fromParts("localhost", endpoint.getPort());
+        assertEquals(prober.probe(byName).get(10, TimeUnit.SECONDS), byName);
+    }
+
+    @Test
+    public void testSharedInstanceReplacedOnceClosed() throws Exception {
+        ReachabilityProber shared = ReachabilityProber.getSharedInstance();
+        assertSame(ReachabilityProber.getSharedInstance(), shared);
+        shared.close();
+        ReachabilityProber replacement = ReachabilityProber.getSharedInstance();
+        assertNotSame(replacement, shared);
+        assertFalse(replacement.isClosed());
+    }
+
+    // Mark as integration, as can't rely (in Apache infra) for a port to stay unused during test!
+    @Test(groups="Integration")
+    public void testFindFirstReachableIgnoresUnreachable() throws Exception {
+        HostAndPort reachable = listen();
+        HostAndPort unreachable = unusedLoopbackEndpoint();
+        assertEquals(prober.findFirstReachable(ImmutableList.of(unreachable, reachable), Duration.TEN_SECONDS), Optional.of(reachable));
+    }
+
+    @Test
+    public void testCloseCancelsProbes() throws Exception {
+        ListenableFuture<HostAndPort> future = prober.probe(unusedLoopbackEndpoint());
+        prober.close();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // expected; cancelled
+        }
+        assertTrue(future.isCancelled());
+    }
+
+    // Mark as integration, as can't rely (in Apache infra) for a port to stay unused during test!
+    @Test(groups="Integration")
+    public void testCheckReachableReportsEach() throws Exception {
+        HostAndPort reachable = listen();
+        HostAndPort unreachable = unusedLoopbackEndpoint();
+        Map<HostAndPort, Boolean> result = prober.checkReachable(ImmutableList.of(reachable, unreachable), Duration.millis(500));
+        assertEquals(result, ImmutableMap.of(reachable, true, unreachable, false));
+    }
+
+    // Mark as integration, as can't rely (in Apache infra) for a port to stay unused during test!
+    @Test(groups="Integration")
+    public void testRetriesUntilReachable() throws Exception {
+        HostAndPort endpoint = unusedLoopbackEndpoint();
+        ListenableFuture<HostAndPort> future = prober.probe(endpoint);
+        Thread.sleep(500);
+        assertFalse(future.isDone());
+
+        listen(endpoint.getPort());
+        assertEquals(future.get(10, TimeUnit.SECONDS), endpoint);
+    }
+
+    @Test(groups="Integration")
+    public void testManyEndpointsAtOnce() throws Exception {
+        HostAndPort reachable = listen();
+        List<HostAndPort> endpoints = MutableList.of();
+        for (int i = 0; i < 1000; i++) {
+            endpoints.add(reachable);
+        }
+        endpoints.add(unusedLoopbackEndpoint());
+        List<ListenableFuture<HostAndPort>> futures = MutableList.of();
+        for (HostAndPort endpoint : endpoints) {
+            futures.add(prober.probe(endpoint));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(futures.get(i).get(30, TimeUnit.SECONDS), reachable);
+        }
+        assertFalse(futures.get(1000).isDone());
+    }
+
+    private HostAndPort listen() throws Exception {
+        return listen(0);
+    }
+
+    private HostAndPort listen(int port) throws Exception {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port), 2000);
+        serverSockets.add(serverSocket);
+        return HostAndPort.fromParts("127.0.0.1", serverSocket.getLocalPort());
+    }
+
+    private HostAndPort unusedLoopbackEndpoint() throws Exception {
+        ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        int port = serverSocket.getLocalPort();
+        serverSocket.close();
+        return HostAndPort.fromParts("127.0.0.1", port);
+    }
+}
@@ -19,27 +19,36 @@
 package org.apache.brooklyn.util.pool;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.fail;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 
+import org.apache.brooklyn.util.exceptions.RuntimeTimeoutException;
 import org.apache.brooklyn.util.pool.BasicPool;
 import org.apache.brooklyn.util.pool.Lease;
 import org.apache.brooklyn.util.pool.Pool;
+import org.apache.brooklyn.util.time.Duration;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.testng.internal.annotations.Sets;
 
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
@@ -196,4 +205,135 @@ public class BasicPoolTest {
             if (!val) fail("duplicate="+lease.leasedObject()+"; vals="+leases);
         }
     }
+    
+    @Test
+    public void testMaxLeasedBlocksUntilReturned() throws Exception {
+        final Pool<Integer> pool = BasicPool.<Integer>builder().supplier(supplier).maxLeased(1).build();
+        
+        Lease<Integer> lease1 = pool.leaseObject();
+        ListenableFuture<Lease<Integer>> future = executor.submit(new Callable<Lease<Integer>>() {
+            public Lease<Integer> call() {
+                return pool.leaseObject();
+            }
+        });
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            fail("lease should have blocked");
+        } catch (TimeoutException e) {
+            // expected
+        }
+        
+        lease1.close();
+        assertEquals(future.get(10, TimeUnit.SECONDS).leasedObject(), (Integer)0);
+    }
+    
+    @Test
+    public void testMaxLeaseWaitTimesOut() throws Exception {
+        BasicPool<Integer> pool = BasicPool.<Integer>builder().supplier(supplier).maxLeased(1).maxLeaseWait(Duration.millis(10)).build();
+        
+        pool.leaseObject();
+        try {
+            pool.leaseObject();
+            fail();
+        } catch (RuntimeTimeoutException e) {
+            // expected
+        }
+        assertEquals(pool.getMetrics().getTotalLeaseTimeouts(), 1);
+        assertEquals(pool.getMetrics().getCurrentWaiting(), 0);
+    }
+    
+    @Test
+    public void testDoubleCloseOfLeaseReleasesLimitOnce() throws Exception {
+        BasicPool<Integer> pool = BasicPool.<Integer>builder().supplier(supplier).maxLeased(1).maxLeaseWait(Duration.millis(10)).build();
+        
+        Lease<Integer> lease1 = pool.leaseObject();
+        lease1.close();
+        lease1.close();
+        
+        pool.leaseObject();
+        try {
+            pool.leaseObject();
+            fail();
+        } catch (RuntimeTimeoutException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testSharedMetricsAndLimit() throws Exception {
+        PoolMetrics metrics = new PoolMetrics();
+        Semaphore limiter = new Semaphore(2);
+        BasicPool<Integer> pool1 = BasicPool.<Integer>builder().supplier(supplier).metrics(metrics).leaseLimiter(limiter).maxLeaseWait(Duration.millis(10)).build();
+        BasicPool<Integer> pool2 = BasicPool.<Integer>builder().supplier(supplier).metrics(metrics).leaseLimiter(limiter).maxLeaseWait(Duration.millis(10)).build();
+        
+        Lease<Integer> lease1 = pool1.leaseObject();
+        pool2.leaseObject();
+        try {
+            pool1.leaseObject();
+            fail();
+        } catch (RuntimeTimeoutException e) {
+            // expected
+        }
+        lease1.close();
+        
+        // the timed out request is not counted as a lease, but its wait is
+        assertEquals(metrics.getTotalLeased(), 2);
+        assertEquals(metrics.getTotalCreated(), 2);
+        assertEquals(metrics.getCurrentLeased(), 1);
+        assertEquals(metrics.getCurrentIdle(), 1);
+        assertEquals(metrics.getCreationTimes().getCount(), 2);
+        assertEquals(metrics.getLeaseWaitTimes().getCount(), 3);
+    }
+    
+    @Test
+    public void testRecordsMetrics() throws Exception {
+        BasicPool<Integer> pool = BasicPool.<Integer>builder().supplier(supplier).closer(closer).build();
+        
+        Lease<Integer> lease1 = pool.leaseObject();
+        Lease<Integer> lease2 = pool.leaseObject();
+        lease1.close();
+        pool.leaseObject();
+        
+        PoolMetrics metrics = pool.getMetrics();
+        assertEquals(metrics.getTotalLeased(), 3);
+        assertEquals(metrics.getTotalCreated(), 2);
+        assertEquals(metrics.getCurrentLeased(), 2);
+        assertEquals(metrics.getCurrentIdle(), 0);
+        assertEquals(metrics.getLeaseWaitTimes().getCount(), 0, "no waits recorded without a limit");
+        
+        lease2.close();
+        pool.close();
+        assertEquals(metrics.getTotalClosed(), 1);
+        assertEquals(metrics.getCurrentIdle(), 0);
+        assertEquals(metrics.getCurrentLeased(), 1);
+    }
+    
+    @Test
+    public void testCloseNonViableClosesOnlyIdleNonViableVals() throws Exception {
+        final AtomicBoolean viable = new AtomicBoolean(true);
+        BasicPool<Integer> pool = BasicPool.<Integer>builder()
+                .supplier(supplier)
+                .closer(closer)
+                .viabilityChecker(new Predicate<Integer>() {
+                    @Override public boolean apply(Integer input) {
+                        return viable.get() || input == 0;
+                    }})
+                .build();
+        
+        Lease<Integer> lease0 = pool.leaseObject();
+        Lease<Integer> lease1 = pool.leaseObject();
+        Lease<Integer> lease2 = pool.leaseObject();
+        lease0.close();
+        lease1.close();
+        
+        viable.set(false);
+        assertEquals(pool.closeNonViable(), 1);
+        assertEquals(closedVals, ImmutableList.of(1));
+        assertEquals(pool.getMetrics().getTotalClosedNonViable(), 1);
+        assertEquals(pool.getMetrics().getCurrentIdle(), 1);
+        
+        // leased val is not checked; viable val is left for reuse
+        assertFalse(closedVals.contains(lease2.leasedObject()));
+        assertEquals(pool.leaseObject().leasedObject(), (Integer)0);
+    }
 }
@@ -24,15 +24,19 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.util.repeat.Repeater;
 import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public class RepeaterTest {
 
@@ -228,6 +232,117 @@ public class RepeaterTest {
         }
     }
     
+    @Test
+    public void testRunAsyncReturnsTrueWhenSatisfied() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        ListenableFuture<Boolean> future = new Repeater("runAsync")
+            .every(Duration.millis(10))
+            .until(new Callable<Boolean>() {
+                @Override public Boolean call() {
+                    return count.incrementAndGet() >= 3;
+                }})
+            .runAsync();
+        assertTrue(future.get(10, TimeUnit.SECONDS));
+        assertEquals(count.get(), 3);
+    }
+
+    @Test
+    public void testRunAsyncReturnsFalseWhenIterationLimitReached() throws Exception {
+        ListenableFuture<Boolean> future = new Repeater("runAsync")
+            .every(Duration.millis(10))
+            .until(Callables.returning(false))
+            .limitIterationsTo(3)
+            .runAsync();
+        assertFalse(future.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRunAsyncRethrowsException() throws Exception {
+        ListenableFuture<Boolean> future = new Repeater("runAsync")
+            .every(Duration.millis(10))
+            .until(callableThrowingUnsupportedFail())
+            .rethrowException()
+            .limitIterationsTo(2)
+            .runAsync();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected exception was not thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException, "cause="+e.getCause());
+        }
+    }
+
+    @Test
+    public void testRunAsyncWakeUpChecksImmediately() throws Exception {
+        final AtomicBoolean ready = new AtomicBoolean();
+        Repeater repeater = new Repeater("runAsync")
+            .every(Duration.ONE_MINUTE)
+            .until(new Callable<Boolean>() {
+                @Override public Boolean call() {
+                    return ready.get();
+                }});
+        ListenableFuture<Boolean> future = repeater.runAsync();
+        Thread.sleep(100);
+        assertFalse(future.isDone());
+
+        ready.set(true);
+        repeater.wakeUp();
+        assertTrue(future.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRunAsyncStopsWhenCancelled() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        ListenableFuture<Boolean> future = new Repeater("runAsync")
+            .every(Duration.millis(10))
+            .until(new Callable<Boolean>() {
+                @Override public Boolean call() {
+                    count.incrementAndGet();
+                    return false;
+                }})
+            .runAsync();
+        Thread.sleep(100);
+        future.cancel(false);
+        int countAfterCancel = count.get();
+        Thread.sleep(100);
+        assertTrue(count.get() <= countAfterCancel + 1, "count="+count.get()+"; afterCancel="+countAfterCancel);
+    }
+
+    @Test
+    public void testWakeUpShortensSynchronousWait() throws Exception {
+        final AtomicBoolean ready = new AtomicBoolean();
+        final Repeater repeater = new Repeater("wakeUp")
+            .every(Duration.ONE_MINUTE)
+            .until(new Callable<Boolean>() {
+                @Override public Boolean call() {
+                    return ready.get();
+                }})
+            .limitTimeTo(Duration.ONE_MINUTE);
+        Thread t = new Thread(new Runnable() {
+            @Override public void run() {
+                Time.sleep(Duration.millis(100));
+                ready.set(true);
+                repeater.wakeUp();
+            }});
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        t.start();
+        assertTrue(repeater.run());
+        assertTrue(stopwatch.elapsed(TimeUnit.SECONDS) < 30, "elapsed="+Duration.of(stopwatch));
+        t.join();
+    }
+
+    @Test
+    public void testWakeUpBeforeRunDoesNotShortenItsWait() throws Exception {
+        Repeater repeater = new Repeater("wakeUp")
+            .every(Duration.millis(500))
+            .until(Callables.returning(false))
+            .limitIterationsTo(2);
+        repeater.wakeUp();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        assertFalse(repeater.run());
+        assertTrue(stopwatch.elapsed(TimeUnit.MILLISECONDS) >= 400, "elapsed="+Duration.of(stopwatch));
+    }
+
     private static Callable<Boolean> callableThrowingUnsupportedFail() {
         return new Callable<Boolean>() {
             @Override
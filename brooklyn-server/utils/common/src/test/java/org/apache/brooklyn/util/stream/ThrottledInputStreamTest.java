@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteStreams;
+
+public class ThrottledInputStreamTest {
+
+    @Test
+    public void testReadsAllContents() throws Exception {
+        byte[] bytes = new byte[20000];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) i;
+
+        byte[] result = ByteStreams.toByteArray(new ThrottledInputStream(new ByteArrayInputStream(bytes), 1000*1000));
+        assertEquals(result, bytes);
+    }
+
+    @Test
+    public void testLimitsRate() throws Exception {
+        // the first permits are granted immediately, so expect around 1s for 20k bytes at 10k bytes per second
+        byte[] bytes = new byte[20*1000];
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        ByteStreams.toByteArray(new ThrottledInputStream(new ByteArrayInputStream(bytes), 10*1000));
+        long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        assertTrue(elapsed >= 900, "elapsed="+elapsed);
+    }
+}
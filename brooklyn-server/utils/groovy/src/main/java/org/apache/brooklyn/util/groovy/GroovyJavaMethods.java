@@ -137,12 +137,18 @@ public class GroovyJavaMethods {
     }
 */
     
+    private static final Predicate<Object> TRUTH_PREDICATE = new Predicate<Object>() {
+        @Override public boolean apply(Object input) {
+            return truth(input);
+        }
+        @Override public String toString() {
+            return "truth";
+        }
+    };
+
+    /** a predicate for groovy truth; always the same instance, so callers waiting on the same condition can be recognised */
     public static Predicate<Object> truthPredicate() {
-        return new Predicate<Object>() {
-           @Override public boolean apply(Object input) {
-               return truth(input);
-           }
-        };
+        return TRUTH_PREDICATE;
     }
     
     public static boolean truth(Object o) {